@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.utils;
+
+import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.SimpleString;
+
+/**
+ * A bounded pool of canonical {@link SimpleString}s, looked up by the bytes they are read from.
+ * <p>
+ * Decoded messages keep repeating the same addresses and property names: reading them through the pool saves
+ * creating a new SimpleString for each message, and the instance returned has its hash code already computed when
+ * used as a key. The pool is an array indexed by the hash of the bytes, where a string is replaced by the next one
+ * with the same index. It never grows and needs no lock, at worst a string is created as it would be without it.
+ */
+public final class SimpleStringInterner
+{
+   public static final int DEFAULT_CAPACITY = 4096;
+
+   /**
+    * Longer strings aren't pooled, they are unlikely to be repeated
+    */
+   public static final int DEFAULT_MAX_LENGTH = 256;
+
+   // The SimpleStrings are immutable, so they can be published without synchronization
+   private final SimpleString[] entries;
+
+   private final int mask;
+
+   private final int maxLength;
+
+   public SimpleStringInterner()
+   {
+      this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+   }
+
+   /**
+    * @param capacity  the number of strings the pool can hold, rounded up to a power of 2
+    * @param maxLength the length in bytes of the longest string pooled
+    */
+   public SimpleStringInterner(final int capacity, final int maxLength)
+   {
+      int size = 1;
+      while (size < capacity)
+      {
+         size <<= 1;
+      }
+      entries = new SimpleString[size];
+      mask = size - 1;
+      this.maxLength = maxLength;
+   }
+
+   /**
+    * Reads a SimpleString as {@link ActiveMQBuffer#readSimpleString()} does.
+    */
+   public SimpleString readSimpleString(final ActiveMQBuffer buffer)
+   {
+      int len = buffer.readInt();
+
+      return read(buffer, len);
+   }
+
+   /**
+    * Reads a SimpleString as {@link ActiveMQBuffer#readNullableSimpleString()} does.
+    */
+   public SimpleString readNullableSimpleString(final ActiveMQBuffer buffer)
+   {
+      int b = buffer.readByte();
+      if (b == DataConstants.NULL)
+      {
+         return null;
+      }
+
+      return readSimpleString(buffer);
+   }
+
+   private SimpleString read(final ActiveMQBuffer buffer, final int len)
+   {
+      if (len > maxLength)
+      {
+         byte[] data = new byte[len];
+         buffer.readBytes(data);
+         return new SimpleString(data);
+      }
+
+      int pos = buffer.readerIndex();
+
+      // the same hash as SimpleString#hashCode()
+      int hash = 0;
+      for (int i = 0; i < len; i++)
+      {
+         hash = (hash << 5) - hash + buffer.getByte(pos + i);
+      }
+
+      int index = (hash ^ (hash >>> 16)) & mask;
+
+      SimpleString entry = entries[index];
+
+      if (entry != null && entry.hashCode() == hash && matches(entry.getData(), buffer, pos, len))
+      {
+         buffer.skipBytes(len);
+         return entry;
+      }
+
+      byte[] data = new byte[len];
+      buffer.readBytes(data);
+
+      entry = new SimpleString(data);
+
+      entries[index] = entry;
+
+      return entry;
+   }
+
+   private static boolean matches(final byte[] data, final ActiveMQBuffer buffer, final int pos, final int len)
+   {
+      if (data.length != len)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < len; i++)
+      {
+         if (data[i] != buffer.getByte(pos + i))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+}
@@ -25,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.ActiveMQBuffers;
 import org.apache.activemq.api.core.ActiveMQPropertyConversionException;
 import org.apache.activemq.api.core.SimpleString;
 
@@ -47,6 +48,10 @@ import static org.apache.activemq.utils.DataConstants.STRING;
  * (Version 1.1 April 12, 2002).
  * <p>
  * TODO - should have typed property getters and do conversions herein
+ * <p>
+ * Decoded properties are kept encoded, a property is only decoded when it's read, by comparing the bytes of its name
+ * with the encoded names. They are all decoded once they are modified, listed or copied from, and are written back as
+ * they were read until then.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="mailto:clebert.suconic@jboss.com">Clebert Suconic</a>
@@ -56,12 +61,22 @@ public final class TypedProperties
 
    private static final SimpleString HQ_PROPNAME = new SimpleString("_HQ_");
 
+   private static final SimpleStringInterner KEYS = new SimpleStringInterner();
+
    private Map<SimpleString, PropertyValue> properties;
 
    private volatile int size;
 
    private boolean internalProperties;
 
+   /**
+    * The entries as they were decoded, only read with absolute indexes so it can be shared between copies, null once
+    * the properties are decoded into {@link #properties}
+    */
+   private ActiveMQBuffer encoded;
+
+   private int encodedCount;
+
    public TypedProperties()
    {
    }
@@ -71,14 +86,26 @@ public final class TypedProperties
       // The estimate is basically the encode size + 2 object references for each entry in the map
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
+      // While encoded the entries are counted as if they were already decoded, so the estimate doesn't grow when they
+      // are, as the estimate of a message is only taken once
+
+      if (encoded != null)
+      {
+         return size + 2 * DataConstants.SIZE_INT * encodedCount;
+      }
 
       return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      synchronized (other)
+      {
+         properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
+         encoded = other.encoded;
+         encodedCount = other.encodedCount;
+         size = other.size;
+      }
    }
 
    public boolean hasInternalProperties()
@@ -154,7 +181,14 @@ public final class TypedProperties
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
+      {
+         return;
+      }
+
+      otherProps.checkDecoded();
+
+      if (otherProps.properties == null)
       {
          return;
       }
@@ -232,6 +266,10 @@ public final class TypedProperties
       }
    }
 
+   /**
+    * The array returned must not be modified: while the properties are still encoded a new array is returned on each
+    * call, once they are decoded it's the array of the property itself.
+    */
    public byte[] getBytesProperty(final SimpleString key) throws ActiveMQPropertyConversionException
    {
       Object value = doGetProperty(key);
@@ -430,13 +468,17 @@ public final class TypedProperties
       return doRemoveProperty(key);
    }
 
-   public boolean containsProperty(final SimpleString key)
+   public synchronized boolean containsProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return false;
 
       }
+      else if (encoded != null)
+      {
+         return findEncoded(key) >= 0;
+      }
       else
       {
          return properties.containsKey(key);
@@ -445,6 +487,8 @@ public final class TypedProperties
 
    public Set<SimpleString> getPropertyNames()
    {
+      checkDecoded();
+
       if (size == 0)
       {
          return Collections.emptySet();
@@ -459,6 +503,8 @@ public final class TypedProperties
    {
       byte b = buffer.readByte();
 
+      encoded = null;
+
       if (b == DataConstants.NULL)
       {
          properties = null;
@@ -467,100 +513,47 @@ public final class TypedProperties
       {
          int numHeaders = buffer.readInt();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
+         properties = null;
+
+         // Just find where the entries end, they are decoded when read
+         int start = buffer.readerIndex();
+         int pos = start;
 
          for (int i = 0; i < numHeaders; i++)
          {
-            int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
-
-            byte type = buffer.readByte();
+            int len = buffer.getInt(pos);
+            pos += DataConstants.SIZE_INT;
 
-            PropertyValue val;
-
-            switch (type)
+            if (!internalProperties && startsWith(buffer, pos, len, HQ_PROPNAME))
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw ActiveMQUtilBundle.BUNDLE.invalidType(type);
-               }
+               internalProperties = true;
             }
+
+            pos += len;
+
+            pos += encodedValueSize(buffer, pos);
          }
+
+         byte[] data = new byte[pos - start];
+         buffer.readBytes(data);
+
+         encoded = ActiveMQBuffers.wrappedBuffer(data);
+         encodedCount = numHeaders;
+         size = data.length;
       }
    }
 
    public synchronized void encode(final ActiveMQBuffer buffer)
    {
-      if (properties == null)
+      if (encoded != null)
+      {
+         buffer.writeByte(DataConstants.NOT_NULL);
+
+         buffer.writeInt(encodedCount);
+
+         buffer.writeBytes(encoded, 0, size);
+      }
+      else if (properties == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -584,7 +577,7 @@ public final class TypedProperties
 
    public int getEncodeSize()
    {
-      if (properties == null)
+      if (properties == null && encoded == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -596,6 +589,8 @@ public final class TypedProperties
 
    public void clear()
    {
+      checkDecoded();
+
       if (properties != null)
       {
          properties.clear();
@@ -607,6 +602,7 @@ public final class TypedProperties
    {
       StringBuilder sb = new StringBuilder("TypedProperties[");
 
+      checkDecoded();
 
       if (properties != null)
       {
@@ -673,16 +669,248 @@ public final class TypedProperties
 
    // Private ------------------------------------------------------------------------------------
 
-   private void checkCreateProperties()
+   private synchronized void checkCreateProperties()
    {
+      checkDecoded();
+
       if (properties == null)
       {
          properties = new HashMap<SimpleString, PropertyValue>();
       }
    }
 
+   private void decodeEntries(final ActiveMQBuffer buffer, final int numHeaders)
+   {
+      properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
+      size = 0;
+
+      for (int i = 0; i < numHeaders; i++)
+      {
+         SimpleString key = KEYS.readSimpleString(buffer);
+
+         byte type = buffer.readByte();
+
+         PropertyValue val;
+
+         switch (type)
+         {
+            case NULL:
+            {
+               val = new NullValue();
+               doPutValue(key, val);
+               break;
+            }
+            case CHAR:
+            {
+               val = new CharValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BOOLEAN:
+            {
+               val = new BooleanValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BYTE:
+            {
+               val = new ByteValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BYTES:
+            {
+               val = new BytesValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case SHORT:
+            {
+               val = new ShortValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case INT:
+            {
+               val = new IntValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case LONG:
+            {
+               val = new LongValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case FLOAT:
+            {
+               val = new FloatValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case DOUBLE:
+            {
+               val = new DoubleValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case STRING:
+            {
+               val = new StringValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            default:
+            {
+               throw ActiveMQUtilBundle.BUNDLE.invalidType(type);
+            }
+         }
+      }
+   }
+
+   private synchronized void checkDecoded()
+   {
+      if (encoded != null)
+      {
+         ActiveMQBuffer buffer = encoded.duplicate();
+
+         encoded = null;
+
+         decodeEntries(buffer, encodedCount);
+      }
+   }
+
+   /**
+    * @return the position of the value of the encoded property, -1 if there's no such property
+    */
+   private int findEncoded(final SimpleString key)
+   {
+      byte[] keyData = key.getData();
+
+      int pos = 0;
+
+      for (int i = 0; i < encodedCount; i++)
+      {
+         int len = encoded.getInt(pos);
+         pos += DataConstants.SIZE_INT;
+
+         boolean found = len == keyData.length && startsWith(encoded, pos, len, key);
+
+         pos += len;
+
+         if (found)
+         {
+            return pos;
+         }
+
+         pos += encodedValueSize(encoded, pos);
+      }
+
+      return -1;
+   }
+
+   private static boolean startsWith(final ActiveMQBuffer buffer, final int pos, final int len, final SimpleString prefix)
+   {
+      byte[] data = prefix.getData();
+
+      if (len < data.length)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < data.length; i++)
+      {
+         if (buffer.getByte(pos + i) != data[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * @return the size of the encoded value at <code>pos</code>, its type included
+    */
+   private static int encodedValueSize(final ActiveMQBuffer buffer, final int pos)
+   {
+      byte type = buffer.getByte(pos);
+
+      switch (type)
+      {
+         case NULL:
+            return DataConstants.SIZE_BYTE;
+         case BOOLEAN:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_BOOLEAN;
+         case BYTE:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_BYTE;
+         case CHAR:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_CHAR;
+         case SHORT:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_SHORT;
+         case INT:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_INT;
+         case FLOAT:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_FLOAT;
+         case LONG:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_LONG;
+         case DOUBLE:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_DOUBLE;
+         case BYTES:
+         case STRING:
+            return DataConstants.SIZE_BYTE + DataConstants.SIZE_INT + buffer.getInt(pos + DataConstants.SIZE_BYTE);
+         default:
+            throw ActiveMQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
+   /**
+    * Decodes the encoded value at <code>pos</code> as {@link PropertyValue#getValue()} would return it.
+    * The values aren't kept, so BYTES and STRING values are copied out of the buffer on every read; that's cheaper
+    * than decoding all the entries for the few properties read more than once, such as the duplicate id.
+    */
+   private static Object getEncodedValue(final ActiveMQBuffer buffer, final int pos)
+   {
+      byte type = buffer.getByte(pos);
+
+      int valuePos = pos + DataConstants.SIZE_BYTE;
+
+      switch (type)
+      {
+         case NULL:
+            return null;
+         case BOOLEAN:
+            return buffer.getByte(valuePos) != 0;
+         case BYTE:
+            return buffer.getByte(valuePos);
+         case CHAR:
+            return (char)buffer.getShort(valuePos);
+         case SHORT:
+            return buffer.getShort(valuePos);
+         case INT:
+            return buffer.getInt(valuePos);
+         case FLOAT:
+            return Float.intBitsToFloat(buffer.getInt(valuePos));
+         case LONG:
+            return buffer.getLong(valuePos);
+         case DOUBLE:
+            return Double.longBitsToDouble(buffer.getLong(valuePos));
+         case BYTES:
+         case STRING:
+         {
+            byte[] data = new byte[buffer.getInt(valuePos)];
+            buffer.getBytes(valuePos + DataConstants.SIZE_INT, data);
+            return type == BYTES ? data : new SimpleString(data);
+         }
+         default:
+            throw ActiveMQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
    private synchronized void doPutValue(final SimpleString key, final PropertyValue value)
    {
+      checkCreateProperties();
+
       if (key.startsWith(HQ_PROPNAME))
       {
          internalProperties = true;
@@ -701,6 +929,8 @@ public final class TypedProperties
 
    private synchronized Object doRemoveProperty(final SimpleString key)
    {
+      checkDecoded();
+
       if (properties == null)
       {
          return null;
@@ -727,6 +957,13 @@ public final class TypedProperties
          return null;
       }
 
+      if (encoded != null)
+      {
+         int pos = key instanceof SimpleString ? findEncoded((SimpleString)key) : -1;
+
+         return pos < 0 ? null : getEncodedValue(encoded, pos);
+      }
+
       PropertyValue val = properties.get(key);
 
       if (val == null)
@@ -1130,11 +1367,15 @@ public final class TypedProperties
 
    public boolean isEmpty()
    {
+      checkDecoded();
+
       return properties.isEmpty();
    }
 
    public Map<String, Object> getMap()
    {
+      checkDecoded();
+
       Map<String, Object> m = new HashMap<String, Object>();
       for (Entry<SimpleString, PropertyValue> entry : properties.entrySet())
       {
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.utils;
+
+import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.ActiveMQBuffers;
+import org.apache.activemq.api.core.SimpleString;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleStringInternerTest extends Assert
+{
+   @Test
+   public void testSameInstanceForSameBytes() throws Exception
+   {
+      SimpleStringInterner interner = new SimpleStringInterner();
+
+      ActiveMQBuffer buffer = ActiveMQBuffers.dynamicBuffer(1024);
+      buffer.writeSimpleString(new SimpleString("jms.queue.orders"));
+      buffer.writeNullableSimpleString(new SimpleString("jms.queue.orders"));
+      buffer.writeNullableSimpleString(null);
+      buffer.writeSimpleString(new SimpleString("jms.queue.invoices"));
+      buffer.writeInt(42);
+
+      SimpleString first = interner.readSimpleString(buffer);
+      SimpleString second = interner.readNullableSimpleString(buffer);
+      assertNull(interner.readNullableSimpleString(buffer));
+      SimpleString other = interner.readSimpleString(buffer);
+
+      assertEquals(new SimpleString("jms.queue.orders"), first);
+      assertSame(first, second);
+      assertEquals(new SimpleString("jms.queue.invoices"), other);
+      assertEquals(42, buffer.readInt());
+   }
+
+   @Test
+   public void testBounded() throws Exception
+   {
+      SimpleStringInterner interner = new SimpleStringInterner(4, 16);
+
+      ActiveMQBuffer buffer = ActiveMQBuffers.dynamicBuffer(1024);
+
+      for (int i = 0; i < 100; i++)
+      {
+         SimpleString s = new SimpleString("address." + i);
+         buffer.clear();
+         buffer.writeSimpleString(s);
+         assertEquals(s, interner.readSimpleString(buffer));
+      }
+
+      // too long to be pooled
+      SimpleString longString = new SimpleString("a string longer than sixteen bytes");
+      buffer.clear();
+      buffer.writeSimpleString(longString);
+      buffer.writeSimpleString(longString);
+      SimpleString read = interner.readSimpleString(buffer);
+      assertEquals(longString, read);
+      assertNotSame(read, interner.readSimpleString(buffer));
+   }
+}
@@ -237,6 +237,15 @@ public final class ActiveMQDefaultConfiguration
    // The max number of concurrent reads allowed on paging
    private static int DEFAULT_MAX_CONCURRENT_PAGE_IO = 5;
 
+   // the memory, in bytes, all the page caches may use together, -1 means a tenth of the maximum heap
+   private static long DEFAULT_PAGE_CACHE_MAX_MEMORY = -1;
+
+   // the max number of page cleanups running at once across all the addresses, -1 means the number of processors
+   private static int DEFAULT_MAX_CONCURRENT_PAGE_CLEANUP = -1;
+
+   // the memory, in bytes, the messages of all the addresses may use before the addresses over their share are paged, blocked or dropped, -1 means no global limit
+   private static long DEFAULT_GLOBAL_MAX_SIZE = -1;
+
    // the directory to store the journal files in
    private static String DEFAULT_JOURNAL_DIR = "data/journal";
 
@@ -252,6 +261,18 @@ public final class ActiveMQDefaultConfiguration
    // Whether to log messages about the journal write rate
    private static boolean DEFAULT_JOURNAL_LOG_WRITE_RATE = false;
 
+   // Whether the journal buffer timeout is adapted to the measured sync latency
+   private static boolean DEFAULT_JOURNAL_BUFFER_ADAPTIVE = false;
+
+   // how many threads are used to read the journal files and to add the loaded messages to the queues on startup
+   private static int DEFAULT_JOURNAL_LOAD_THREADS = 1;
+
+   // Whether the records of the message journal are written with a checksum that is verified on load
+   private static boolean DEFAULT_JOURNAL_RECORD_CHECKSUM = false;
+
+   // the number of independent journals the message journal is spread over
+   private static int DEFAULT_JOURNAL_SHARDS = 1;
+
    // the size (in bytes) of each journal file
    private static int DEFAULT_JOURNAL_FILE_SIZE = 10485760;
 
@@ -264,6 +285,9 @@ public final class ActiveMQDefaultConfiguration
    // The minimal number of data files before we can start compacting
    private static int DEFAULT_JOURNAL_COMPACT_MIN_FILES = 10;
 
+   // The maximal number of data files compacted at once, 0 compacts all the data files
+   private static int DEFAULT_JOURNAL_COMPACT_MAX_FILES = 0;
+
    // XXX Only meant to be used by project developers
    private static int DEFAULT_JOURNAL_PERF_BLAST_PAGES = -1;
 
@@ -678,6 +702,30 @@ public final class ActiveMQDefaultConfiguration
       return DEFAULT_MAX_CONCURRENT_PAGE_IO;
    }
 
+   /**
+    * the memory, in bytes, all the page caches may use together, -1 means a tenth of the maximum heap
+    */
+   public static long getDefaultPageCacheMaxMemory()
+   {
+      return DEFAULT_PAGE_CACHE_MAX_MEMORY;
+   }
+
+   /**
+    * the max number of page cleanups running at once across all the addresses, -1 means the number of processors
+    */
+   public static int getDefaultMaxConcurrentPageCleanup()
+   {
+      return DEFAULT_MAX_CONCURRENT_PAGE_CLEANUP;
+   }
+
+   /**
+    * the memory, in bytes, the messages of all the addresses may use before the addresses over their share are paged, blocked or dropped, -1 means no global limit
+    */
+   public static long getDefaultGlobalMaxSize()
+   {
+      return DEFAULT_GLOBAL_MAX_SIZE;
+   }
+
    /**
     * the directory to store the journal files in
     */
@@ -718,6 +766,38 @@ public final class ActiveMQDefaultConfiguration
       return DEFAULT_JOURNAL_LOG_WRITE_RATE;
    }
 
+   /**
+    * Whether the journal buffer timeout is adapted to the measured sync latency
+    */
+   public static boolean isDefaultJournalBufferAdaptive()
+   {
+      return DEFAULT_JOURNAL_BUFFER_ADAPTIVE;
+   }
+
+   /**
+    * how many threads are used to read the journal files and to add the loaded messages to the queues on startup
+    */
+   public static int getDefaultJournalLoadThreads()
+   {
+      return DEFAULT_JOURNAL_LOAD_THREADS;
+   }
+
+   /**
+    * Whether the records of the message journal are written with a checksum that is verified on load
+    */
+   public static boolean isDefaultJournalRecordChecksum()
+   {
+      return DEFAULT_JOURNAL_RECORD_CHECKSUM;
+   }
+
+   /**
+    * the number of independent journals the message journal is spread over
+    */
+   public static int getDefaultJournalShards()
+   {
+      return DEFAULT_JOURNAL_SHARDS;
+   }
+
    /**
     * the size (in bytes) of each journal file
     */
@@ -750,6 +830,14 @@ public final class ActiveMQDefaultConfiguration
       return DEFAULT_JOURNAL_COMPACT_MIN_FILES;
    }
 
+   /**
+    * The maximal number of data files compacted at once, 0 compacts all the data files
+    */
+   public static int getDefaultJournalCompactMaxFiles()
+   {
+      return DEFAULT_JOURNAL_COMPACT_MAX_FILES;
+   }
+
    /**
     * XXX Only meant to be used by project developers
     */
@@ -127,6 +127,25 @@ public interface ActiveMQServerControl
     */
    int getJournalBufferTimeout();
 
+   /**
+    * Returns the timeout (in nanoseconds) currently used to flush internal buffers on the journal.
+    * It differs from {@link #getJournalBufferTimeout()} only when the journal buffer is adaptive.
+    * With several journal shards, it's the longest timeout of the shards.
+    */
+   int getJournalBufferCurrentTimeout();
+
+   /**
+    * Returns the average time (in nanoseconds) taken to write and sync the journal buffer.
+    * It is only measured when the journal buffer is adaptive, and averaged over the journal shards.
+    */
+   long getJournalSyncLatency();
+
+   /**
+    * Returns how many journal buffer flushes carried 1, 2-3, 4-7, ... records.
+    * The last element counts any flush bigger than that. The flushes of all the journal shards are counted.
+    */
+   long[] getJournalFlushBatchSizes();
+
    /**
     * do any clients failover on a server shutdown
     */
@@ -148,6 +167,37 @@ public interface ActiveMQServerControl
     */
    int getJournalCompactPercentage();
 
+   /**
+    * Returns the maximal number of journal files compacted at once, 0 means all the data files.
+    */
+   int getJournalCompactMaxFiles();
+
+   /**
+    * Returns how many times the message journal was compacted since this server started.
+    */
+   long getJournalCompactCount();
+
+   /**
+    * Returns the bytes of journal files compacted per second of compacting.
+    */
+   long getJournalCompactThroughput();
+
+   /**
+    * Returns the longest time (in milliseconds) the message journal was locked while compacting.
+    */
+   long getJournalCompactMaxPauseTime();
+
+   /**
+    * Returns the bytes of journal files released by compacting since this server started.
+    */
+   long getJournalCompactReclaimedBytes();
+
+   /**
+    * Returns how many incremental compactings of the message journal were skipped since this server started,
+    * because its oldest data files couldn't be compacted on their own.
+    */
+   long getJournalCompactSkipCount();
+
    /**
     * Returns whether this server is using persistence and store data.
     */
@@ -74,6 +74,47 @@ public interface AddressControl
     */
    long getNumberOfBytesPerPage() throws Exception;
 
+   /**
+    * Returns the number of times a page of this address was found on the page cache.
+    */
+   long getPageCacheHitCount() throws Exception;
+
+   /**
+    * Returns the number of times a page of this address had to be read from its file.
+    */
+   long getPageCacheMissCount() throws Exception;
+
+   /**
+    * Returns the number of pages of this address dropped from the page cache to stay within its limits.
+    */
+   long getPageCacheEvictionCount() throws Exception;
+
+   /**
+    * Returns an estimate of the memory used by the page cache of this address.
+    */
+   long getPageCacheSize() throws Exception;
+
+   /**
+    * Returns the time spent removing the consumed pages of this address, in milliseconds.
+    */
+   long getPageCleanupTime() throws Exception;
+
+   /**
+    * Returns the memory this address may hold once the global memory budget is exceeded, or -1 if there is no
+    * global budget.
+    */
+   long getMemoryShare() throws Exception;
+
+   /**
+    * Returns the number of times this address started paging.
+    */
+   long getPagingStartCount() throws Exception;
+
+   /**
+    * Returns the number of times this address left paging.
+    */
+   long getPagingStopCount() throws Exception;
+
    /**
     * Returns the names of all bindings (both queues and diverts) bound to this address
     */
@@ -32,6 +32,7 @@ import org.apache.activemq.core.message.BodyEncoder;
 import org.apache.activemq.core.protocol.core.impl.PacketImpl;
 import org.apache.activemq.utils.ByteUtil;
 import org.apache.activemq.utils.DataConstants;
+import org.apache.activemq.utils.SimpleStringInterner;
 import org.apache.activemq.utils.TypedProperties;
 import org.apache.activemq.utils.UUID;
 
@@ -61,6 +62,8 @@ public abstract class MessageImpl implements MessageInternal
 
    public static final int BODY_OFFSET = BUFFER_HEADER_SPACE + DataConstants.SIZE_INT;
 
+   private static final SimpleStringInterner ADDRESSES = new SimpleStringInterner();
+
    protected long messageID;
 
    protected SimpleString address;
@@ -94,6 +97,12 @@ public abstract class MessageImpl implements MessageInternal
 
    private boolean bufferUsed;
 
+   /**
+    * The bytes of the buffer are shared with copies of this message, or with the message this one is a copy of, they
+    * are copied before being written to
+    */
+   private boolean bufferShared;
+
    private UUID userID;
 
    // Constructors --------------------------------------------------
@@ -168,7 +177,22 @@ public abstract class MessageImpl implements MessageInternal
          endOfMessagePosition = other.endOfMessagePosition;
          copied = other.copied;
 
-         if (other.buffer != null)
+         if (other.buffer != null && !other.bufferUsed)
+         {
+            // The bytes are shared until one of the messages writes to them: a copy whose headers or properties are
+            // changed, as for a divert or the expiry and dead letter addresses, is often only stored and the body is
+            // then never copied at all. The buffer can't have been sent yet as it's not used.
+            buffer = other.buffer.duplicate();
+
+            buffer.byteBuf().retain();
+
+            buffer.setIndex(other.buffer.readerIndex(), buffer.capacity());
+
+            bufferShared = true;
+
+            other.bufferShared = true;
+         }
+         else if (other.buffer != null)
          {
             other.bufferUsed = true;
 
@@ -233,7 +257,7 @@ public abstract class MessageImpl implements MessageInternal
    public void decodeHeadersAndProperties(final ActiveMQBuffer buffer)
    {
       messageID = buffer.readLong();
-      address = buffer.readNullableSimpleString();
+      address = ADDRESSES.readNullableSimpleString(buffer);
       if (buffer.readByte() == DataConstants.NOT_NULL)
       {
          byte[] bytes = new byte[16];
@@ -269,6 +293,9 @@ public abstract class MessageImpl implements MessageInternal
    {
       if (bodyBuffer == null)
       {
+         // the body buffer works on the unwrapped buffer, whose indexes are shared with any copy of the buffer
+         unshareBuffer();
+
          bodyBuffer = new ResetLimitWrappedActiveMQBuffer(BODY_OFFSET, buffer, this);
       }
 
@@ -478,7 +505,7 @@ public abstract class MessageImpl implements MessageInternal
 
    public synchronized void checkCopy()
    {
-      if (!copied)
+      if (!copied || bufferShared)
       {
          forceCopy();
 
@@ -508,6 +535,25 @@ public abstract class MessageImpl implements MessageInternal
    // Encode to journal or paging
    public void encode(final ActiveMQBuffer buff)
    {
+      synchronized (this)
+      {
+         if (!bufferValid && (bufferUsed || bufferShared))
+         {
+            // The buffer would have to be copied to encode the headers into it, they are encoded after its body instead
+            int bodySize = getEndOfBodyPosition();
+
+            buff.writeInt(bodySize);
+
+            buff.writeBytes(buffer, BODY_OFFSET, bodySize - BODY_OFFSET);
+
+            buff.writeInt(bodySize + DataConstants.SIZE_INT + getHeadersAndPropertiesEncodeSize());
+
+            encodeHeadersAndProperties(buff);
+
+            return;
+         }
+      }
+
       encodeToBuffer();
 
       buff.writeBytes(buffer, BUFFER_HEADER_SPACE, endOfMessagePosition - BUFFER_HEADER_SPACE);
@@ -537,7 +583,7 @@ public abstract class MessageImpl implements MessageInternal
    {
       ActiveMQBuffer buff = encodeToBuffer();
 
-      if (bufferUsed)
+      if (bufferUsed || bufferShared)
       {
          ActiveMQBuffer copied = buff.copy(0, buff.capacity());
 
@@ -1009,7 +1055,7 @@ public abstract class MessageImpl implements MessageInternal
    {
       if (!bufferValid)
       {
-         if (bufferUsed)
+         if (bufferUsed || bufferShared)
          {
             // Cannot use same buffer - must copy
 
@@ -1074,6 +1120,14 @@ public abstract class MessageImpl implements MessageInternal
       buffer.setIndex(BODY_OFFSET, BODY_OFFSET);
    }
 
+   private synchronized void unshareBuffer()
+   {
+      if (bufferShared)
+      {
+         forceCopy();
+      }
+   }
+
    private void forceCopy()
    {
       // Must copy buffer before sending it
@@ -1088,6 +1142,8 @@ public abstract class MessageImpl implements MessageInternal
       }
 
       bufferUsed = false;
+
+      bufferShared = false;
    }
 
    // Inner classes -------------------------------------------------
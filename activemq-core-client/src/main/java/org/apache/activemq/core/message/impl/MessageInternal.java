@@ -50,6 +50,8 @@ public interface MessageInternal extends Message
 
    ActiveMQBuffer getEncodedBuffer();
 
+   void encode(ActiveMQBuffer buffer);
+
    int getHeadersAndPropertiesEncodeSize();
 
    ActiveMQBuffer getWholeBuffer();
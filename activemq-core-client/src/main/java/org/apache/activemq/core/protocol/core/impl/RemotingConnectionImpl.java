@@ -34,6 +34,8 @@ import org.apache.activemq.core.protocol.core.Packet;
 import org.apache.activemq.core.protocol.core.impl.ChannelImpl.CHANNEL_ID;
 import org.apache.activemq.core.protocol.core.impl.wireformat.DisconnectMessage;
 import org.apache.activemq.core.protocol.core.impl.wireformat.DisconnectMessage_V2;
+import org.apache.activemq.core.protocol.core.impl.wireformat.SessionAcknowledgeMessage;
+import org.apache.activemq.core.protocol.core.impl.wireformat.SessionConsumerFlowCreditMessage;
 import org.apache.activemq.core.security.ActiveMQPrincipal;
 import org.apache.activemq.spi.core.protocol.AbstractRemotingConnection;
 import org.apache.activemq.spi.core.remoting.Connection;
@@ -85,6 +87,12 @@ public class RemotingConnectionImpl extends AbstractRemotingConnection implement
 
    private String clientID;
 
+   // Acknowledgements and flow credits are decoded into the same instances for the life of the connection: they are
+   // fixed size, only read while they are handled and the buffers of a connection are received one at a time
+   private final SessionAcknowledgeMessage reusableAcknowledgeMessage = new SessionAcknowledgeMessage();
+
+   private final SessionConsumerFlowCreditMessage reusableFlowCreditMessage = new SessionConsumerFlowCreditMessage();
+
    // Constructors
    // ---------------------------------------------------------------------------------
 
@@ -372,7 +380,7 @@ public class RemotingConnectionImpl extends AbstractRemotingConnection implement
    {
       try
       {
-         final Packet packet = packetDecoder.decode(buffer);
+         final Packet packet = decode(buffer);
 
          if (isTrace)
          {
@@ -390,6 +398,41 @@ public class RemotingConnectionImpl extends AbstractRemotingConnection implement
       }
    }
 
+   private Packet decode(final ActiveMQBuffer buffer)
+   {
+      // an interceptor could hold on to the packet
+      if (incomingInterceptors != null && !incomingInterceptors.isEmpty())
+      {
+         return packetDecoder.decode(buffer);
+      }
+
+      final Packet reusable;
+
+      switch (buffer.getByte(buffer.readerIndex()))
+      {
+         case PacketImpl.SESS_ACKNOWLEDGE:
+         {
+            reusable = reusableAcknowledgeMessage;
+            break;
+         }
+         case PacketImpl.SESS_FLOWTOKEN:
+         {
+            reusable = reusableFlowCreditMessage;
+            break;
+         }
+         default:
+         {
+            return packetDecoder.decode(buffer);
+         }
+      }
+
+      buffer.readByte();
+
+      reusable.decode(buffer);
+
+      return reusable;
+   }
+
    private void doBufferReceived(final Packet packet)
    {
       if (ChannelImpl.invokeInterceptors(packet, incomingInterceptors, this) != null)
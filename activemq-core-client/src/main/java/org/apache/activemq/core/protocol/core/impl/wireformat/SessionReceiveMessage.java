@@ -64,12 +64,24 @@ public class SessionReceiveMessage extends MessagePacket
    @Override
    public ActiveMQBuffer encode(final RemotingConnection connection)
    {
-      ActiveMQBuffer buffer = message.getEncodedBuffer();
-
-      // Sanity check
-      if (buffer.writerIndex() != message.getEndOfMessagePosition())
+      ActiveMQBuffer buffer;
+
+      // The message is written straight into a buffer of the transport, a pooled direct buffer for Netty, rather than
+      // handing its own buffer over: this is the one copy the socket would make anyway and the message buffer is left
+      // unused, so it doesn't have to be copied again for the next delivery or when the message is changed.
+      // In VM there is no socket copy, so this costs one heap copy the first delivery of a message didn't make when
+      // its buffer was handed over; every later delivery, and every copy of the message, made one then anyway, as the
+      // receiving side kept a reference to the buffer it was given
+      synchronized (message)
       {
-         throw new IllegalStateException("Wrong encode position");
+         buffer = connection.createTransportBuffer(PACKET_HEADERS_SIZE + message.getEncodeSize() +
+                                                      DataConstants.SIZE_LONG + DataConstants.SIZE_INT);
+
+         buffer.writeInt(0); // The length gets filled in at the end
+         buffer.writeByte(getType());
+         buffer.writeLong(channelID);
+
+         message.encode(buffer);
       }
 
       buffer.writeLong(consumerID);
@@ -77,15 +89,8 @@ public class SessionReceiveMessage extends MessagePacket
 
       size = buffer.writerIndex();
 
-      // Write standard headers
-
       int len = size - DataConstants.SIZE_INT;
       buffer.setInt(0, len);
-      buffer.setByte(DataConstants.SIZE_INT, getType());
-      buffer.setLong(DataConstants.SIZE_INT + DataConstants.SIZE_BYTE, channelID);
-
-      // Position reader for reading by Netty
-      buffer.setIndex(0, size);
 
       return buffer;
    }
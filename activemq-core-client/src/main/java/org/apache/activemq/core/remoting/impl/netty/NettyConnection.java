@@ -29,7 +29,6 @@ import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import io.netty.handler.ssl.SslHandler;
 import org.apache.activemq.api.core.ActiveMQBuffer;
-import org.apache.activemq.api.core.ActiveMQBuffers;
 import org.apache.activemq.api.core.ActiveMQInterruptedException;
 import org.apache.activemq.api.core.TransportConfiguration;
 import org.apache.activemq.core.buffers.impl.ChannelBufferWrapper;
@@ -56,7 +55,7 @@ public class NettyConnection implements Connection
 
    protected final Channel channel;
 
-   private boolean closed;
+   private volatile boolean closed;
 
    private final ConnectionLifeCycleListener listener;
 
@@ -169,6 +168,8 @@ public class NettyConnection implements Connection
 
       closed = true;
 
+      releaseBatchBuffer();
+
       listener.connectionDestroyed(getID());
    }
 
@@ -204,7 +205,7 @@ public class NettyConnection implements Connection
          }
          finally
          {
-            writeLock.release();
+            releaseWriteLock();
          }
       }
    }
@@ -232,13 +233,16 @@ public class NettyConnection implements Connection
             {
                // Lazily create batch buffer
 
-               batchBuffer = ActiveMQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = createTransportBuffer(BATCHING_BUFFER_SIZE);
             }
 
             if (batchBuffer != null)
             {
                batchBuffer.writeBytes(buffer, 0, buffer.writerIndex());
 
+               // The packet has been copied, its pooled buffer won't be handed to Netty to release
+               buffer.byteBuf().release();
+
                if (batchBuffer.writerIndex() >= BATCHING_BUFFER_SIZE || !batched || flush)
                {
                   // If the batch buffer is full or it's flush param or not batched then flush the buffer
@@ -258,7 +262,7 @@ public class NettyConnection implements Connection
                {
                   // Create a new buffer
 
-                  batchBuffer = ActiveMQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+                  batchBuffer = createTransportBuffer(BATCHING_BUFFER_SIZE);
                }
             }
 
@@ -338,7 +342,7 @@ public class NettyConnection implements Connection
          }
          finally
          {
-            writeLock.release();
+            releaseWriteLock();
          }
       }
       catch (InterruptedException e)
@@ -421,6 +425,39 @@ public class NettyConnection implements Connection
 
    // Private -------------------------------------------------------
 
+   /**
+    * A writer may still hold the lock when the connection is closed, so close() can't release the batch buffer:
+    * the writer releases it then, once it lets go of the lock.
+    */
+   private void releaseWriteLock()
+   {
+      writeLock.release();
+
+      if (closed)
+      {
+         releaseBatchBuffer();
+      }
+   }
+
+   private void releaseBatchBuffer()
+   {
+      if (batchBuffer != null && writeLock.tryAcquire())
+      {
+         try
+         {
+            if (batchBuffer != null)
+            {
+               batchBuffer.byteBuf().release();
+
+               batchBuffer = null;
+            }
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+   }
 
    private void closeSSLAndChannel(SslHandler sslHandler, Channel channel)
    {
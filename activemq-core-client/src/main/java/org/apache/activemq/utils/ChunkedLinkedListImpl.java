@@ -0,0 +1,444 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.utils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link LinkedList} which keeps its elements in arrays of slots instead of in a node per element.
+ * <p>
+ * A removed element only leaves an empty slot behind and an array is dropped once all its slots are empty, so the
+ * iterators never have to be told about removals. A slot is never written to again once it has been emptied.
+ * <p>
+ * Subclasses may keep an element in a more compact form by overriding {@link #pack(Object)} and
+ * {@link #unpack(Object)}. The element unpacked from a slot is kept in that slot from then on, so it is the same
+ * instance that is returned until it is removed.
+ * <p>
+ * This class is not thread safe.
+ */
+public class ChunkedLinkedListImpl<E> implements LinkedList<E>
+{
+   public static final int CHUNK_SIZE = 256;
+
+   private Chunk head;
+
+   private Chunk tail;
+
+   private int size;
+
+   // Iterators created before the last clear() start again from the head
+   private int clears;
+
+   public ChunkedLinkedListImpl()
+   {
+      head = tail = new Chunk(0);
+   }
+
+   public void addHead(final E e)
+   {
+      if (head.begin == 0)
+      {
+         Chunk chunk = new Chunk(CHUNK_SIZE);
+
+         Chunk oldHead = head;
+
+         chunk.next = oldHead;
+
+         oldHead.prev = chunk;
+
+         head = chunk;
+
+         if (oldHead.live == 0 && oldHead != tail)
+         {
+            unlink(oldHead);
+         }
+      }
+
+      head.begin--;
+
+      head.first = head.begin;
+
+      head.slots[head.begin] = pack(e);
+
+      head.live++;
+
+      size++;
+   }
+
+   public void addTail(final E e)
+   {
+      if (tail.end == CHUNK_SIZE)
+      {
+         Chunk chunk = new Chunk(0);
+
+         Chunk oldTail = tail;
+
+         chunk.prev = oldTail;
+
+         oldTail.next = chunk;
+
+         tail = chunk;
+
+         if (oldTail.live == 0)
+         {
+            unlink(oldTail);
+         }
+      }
+
+      tail.slots[tail.end++] = pack(e);
+
+      tail.live++;
+
+      size++;
+   }
+
+   public E poll()
+   {
+      for (Chunk chunk = head; chunk != null; chunk = chunk.next)
+      {
+         for (int i = chunk.first; i < chunk.end; i++)
+         {
+            Object value = chunk.slots[i];
+
+            if (value != null)
+            {
+               chunk.first = i + 1;
+
+               remove(chunk, i);
+
+               return unpack(value);
+            }
+         }
+
+         chunk.first = chunk.end;
+      }
+
+      return null;
+   }
+
+   public void clear()
+   {
+      head = tail = new Chunk(0);
+
+      size = 0;
+
+      clears++;
+   }
+
+   public int size()
+   {
+      return size;
+   }
+
+   public LinkedListIterator<E> iterator()
+   {
+      return new Iterator();
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder str = new StringBuilder("ChunkedLinkedListImpl [ ");
+
+      boolean first = true;
+
+      for (Chunk chunk = head; chunk != null; chunk = chunk.next)
+      {
+         for (int i = chunk.begin; i < chunk.end; i++)
+         {
+            if (chunk.slots[i] != null)
+            {
+               if (!first)
+               {
+                  str.append(", ");
+               }
+
+               str.append(chunk.slots[i]);
+
+               first = false;
+            }
+         }
+      }
+
+      return str.append(" ]").toString();
+   }
+
+   /**
+    * Returns what is kept in the slot of an element, the element itself by default.
+    */
+   protected Object pack(final E e)
+   {
+      return e;
+   }
+
+   /**
+    * Returns the element kept in a slot by {@link #pack(Object)}.
+    */
+   @SuppressWarnings("unchecked")
+   protected E unpack(final Object value)
+   {
+      return (E) value;
+   }
+
+   private E get(final Chunk chunk, final int index)
+   {
+      Object value = chunk.slots[index];
+
+      E e = unpack(value);
+
+      if (e != value)
+      {
+         chunk.slots[index] = e;
+      }
+
+      return e;
+   }
+
+   private void remove(final Chunk chunk, final int index)
+   {
+      chunk.slots[index] = null;
+
+      chunk.live--;
+
+      size--;
+
+      // The tail is kept even when it's empty as the next elements are added to it
+      if (chunk.live == 0 && chunk != tail)
+      {
+         unlink(chunk);
+      }
+   }
+
+   private void unlink(final Chunk chunk)
+   {
+      if (chunk.prev == null)
+      {
+         head = chunk.next;
+      }
+      else
+      {
+         chunk.prev.next = chunk.next;
+      }
+
+      chunk.next.prev = chunk.prev;
+
+      // next is kept so that an iterator positioned on this chunk still finds the elements after it, the slots are
+      // all empty and aren't needed anymore
+      chunk.prev = null;
+
+      chunk.slots = null;
+   }
+
+   private static final class Chunk
+   {
+      // null once the chunk is unlinked
+      Object[] slots = new Object[CHUNK_SIZE];
+
+      // the slots written are the ones in [begin, end)
+      int begin;
+
+      int end;
+
+      // no slot before first holds an element
+      int first;
+
+      int live;
+
+      Chunk prev;
+
+      Chunk next;
+
+      Chunk(final int start)
+      {
+         begin = end = first = start;
+      }
+   }
+
+   private final class Iterator implements LinkedListIterator<E>
+   {
+      // the chunk and slot of the last element returned, no element has been returned while chunk is null
+      private Chunk chunk;
+
+      private int index;
+
+      private boolean returned;
+
+      private boolean repeat;
+
+      private int clearCount = clears;
+
+      private Chunk nextChunk;
+
+      private int nextIndex;
+
+      public void repeat()
+      {
+         repeat = true;
+      }
+
+      public boolean hasNext()
+      {
+         checkCleared();
+
+         if (repeat && returned && isLive())
+         {
+            return true;
+         }
+
+         return findNext();
+      }
+
+      public E next()
+      {
+         checkCleared();
+
+         if (repeat)
+         {
+            repeat = false;
+
+            if (returned && isLive())
+            {
+               return get(chunk, index);
+            }
+         }
+
+         if (!findNext())
+         {
+            throw new NoSuchElementException();
+         }
+
+         chunk = nextChunk;
+
+         index = nextIndex;
+
+         returned = true;
+
+         return get(chunk, index);
+      }
+
+      public void remove()
+      {
+         checkCleared();
+
+         if (!returned || !isLive())
+         {
+            throw new NoSuchElementException();
+         }
+
+         ChunkedLinkedListImpl.this.remove(chunk, index);
+
+         returned = false;
+      }
+
+      public void close()
+      {
+      }
+
+      private void checkCleared()
+      {
+         if (clearCount != clears)
+         {
+            clearCount = clears;
+
+            chunk = null;
+
+            returned = false;
+
+            repeat = false;
+         }
+      }
+
+      private boolean isLive()
+      {
+         Object[] slots = chunk.slots;
+
+         return slots != null && slots[index] != null;
+      }
+
+      private boolean findNext()
+      {
+         Chunk c;
+
+         int i;
+
+         if (chunk == null)
+         {
+            c = head;
+
+            i = head.first;
+         }
+         else
+         {
+            c = chunk;
+
+            i = index + 1;
+         }
+
+         while (true)
+         {
+            Object[] slots = c.slots;
+
+            for (; slots != null && i < c.end; i++)
+            {
+               if (slots[i] != null)
+               {
+                  nextChunk = c;
+
+                  nextIndex = i;
+
+                  return true;
+               }
+            }
+
+            if (c.next == null)
+            {
+               break;
+            }
+
+            c = c.next;
+
+            i = c.begin;
+         }
+
+         // Nothing comes after the last element returned. If it has been removed go back to the element before it,
+         // the same as LinkedListImpl does, so elements added to the head since are not missed
+         if (chunk == null || isLive())
+         {
+            return false;
+         }
+
+         for (; c != null; c = c.prev)
+         {
+            Object[] slots = c.slots;
+
+            for (i = c.end - 1; i >= c.begin; i--)
+            {
+               if (slots[i] != null)
+               {
+                  nextChunk = c;
+
+                  nextIndex = i;
+
+                  return true;
+               }
+            }
+         }
+
+         return false;
+      }
+   }
+}
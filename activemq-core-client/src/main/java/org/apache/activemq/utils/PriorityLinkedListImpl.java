@@ -30,7 +30,7 @@ import java.util.NoSuchElementException;
  */
 public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 {
-   protected LinkedListImpl<T>[] levels;
+   protected LinkedList<T>[] levels;
 
    private int size;
 
@@ -42,7 +42,7 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
    public PriorityLinkedListImpl(final int priorities)
    {
-      levels = (LinkedListImpl<T>[]) Array.newInstance(LinkedListImpl.class, priorities);
+      levels = (LinkedList<T>[]) Array.newInstance(LinkedList.class, priorities);
 
       for (int i = 0; i < priorities; i++)
       {
@@ -50,6 +50,14 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
       }
    }
 
+   /**
+    * @param levels the lists the elements of each priority are kept in, one per priority
+    */
+   public PriorityLinkedListImpl(final LinkedList<T>[] levels)
+   {
+      this.levels = levels;
+   }
+
    private void checkHighest(final int priority)
    {
       if (lastPriority != priority || priority > highestPriority)
@@ -101,7 +109,7 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
       for (int i = highestPriority; i >= 0; i--)
       {
-         LinkedListImpl<T> ll = levels[i];
+         LinkedList<T> ll = levels[i];
 
          if (ll.size() != 0)
          {
@@ -129,7 +137,7 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
    public void clear()
    {
-      for (LinkedListImpl<T> list : levels)
+      for (LinkedList<T> list : levels)
       {
          list.clear();
       }
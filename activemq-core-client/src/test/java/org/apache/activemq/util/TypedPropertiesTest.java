@@ -227,6 +227,72 @@ public class TypedPropertiesTest
       Assert.assertEquals(props.getEncodeSize(), buffer.writerIndex());
    }
 
+   @Test
+   public void testReadDecodedProperties() throws Exception
+   {
+      SimpleString intKey = RandomUtil.randomSimpleString();
+      SimpleString stringKey = RandomUtil.randomSimpleString();
+      SimpleString bytesKey = RandomUtil.randomSimpleString();
+      SimpleString nullKey = RandomUtil.randomSimpleString();
+      byte[] bytes = RandomUtil.randomBytes();
+
+      props.putIntProperty(intKey, 42);
+      props.putSimpleStringProperty(stringKey, new SimpleString("value"));
+      props.putBytesProperty(bytesKey, bytes);
+      props.putNullValue(nullKey);
+      props.putDoubleProperty(RandomUtil.randomSimpleString(), RandomUtil.randomDouble());
+
+      ActiveMQBuffer buffer = ActiveMQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      int encodeSize = buffer.writerIndex();
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      Assert.assertEquals(42, (int)decodedProps.getIntProperty(intKey));
+      Assert.assertEquals(new SimpleString("value"), decodedProps.getSimpleStringProperty(stringKey));
+      Assert.assertArrayEquals(bytes, decodedProps.getBytesProperty(bytesKey));
+      Assert.assertNull(decodedProps.getProperty(nullKey));
+      Assert.assertTrue(decodedProps.containsProperty(nullKey));
+      Assert.assertFalse(decodedProps.containsProperty(RandomUtil.randomSimpleString()));
+      Assert.assertNull(decodedProps.getProperty(RandomUtil.randomSimpleString()));
+
+      // encoded again as it was read
+      ActiveMQBuffer reencoded = ActiveMQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(reencoded);
+      Assert.assertEquals(encodeSize, decodedProps.getEncodeSize());
+      Assert.assertEquals(buffer.copy(0, encodeSize).toByteBuffer(), reencoded.toByteBuffer());
+
+      TypedProperties copy = new TypedProperties(decodedProps);
+
+      decodedProps.putIntProperty(intKey, 43);
+      Assert.assertEquals(43, (int)decodedProps.getIntProperty(intKey));
+      Assert.assertEquals(new SimpleString("value"), decodedProps.getSimpleStringProperty(stringKey));
+      Assert.assertEquals(42, (int)copy.getIntProperty(intKey));
+
+      TypedPropertiesTest.assertEqualsTypeProperties(props, copy);
+   }
+
+   @Test
+   public void testMemoryOffsetWhileEncoded() throws Exception
+   {
+      props.putIntProperty(RandomUtil.randomSimpleString(), 42);
+      props.putSimpleStringProperty(RandomUtil.randomSimpleString(), new SimpleString("value"));
+      props.putBytesProperty(RandomUtil.randomSimpleString(), RandomUtil.randomBytes());
+
+      ActiveMQBuffer buffer = ActiveMQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      Assert.assertEquals(props.getMemoryOffset(), decodedProps.getMemoryOffset());
+
+      // listing the names decodes all the entries
+      Assert.assertEquals(3, decodedProps.getPropertyNames().size());
+      Assert.assertEquals(props.getMemoryOffset(), decodedProps.getMemoryOffset());
+   }
+
    @Test
    public void testEncodeDecodeEmpty() throws Exception
    {
@@ -128,6 +128,11 @@ public interface SequentialFile
 
    void setTimedBuffer(TimedBuffer buffer);
 
+   /**
+    * Returns whether there is a native file underlying this sequential file, so {@link #getJavaFile()} can be used.
+    */
+   boolean hasJavaFile();
+
    /**
     * Returns a native File of the file underlying this sequential file.
     */
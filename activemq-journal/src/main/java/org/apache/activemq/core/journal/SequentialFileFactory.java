@@ -68,6 +68,29 @@ public interface SequentialFileFactory
 
    void deactivateBuffer();
 
+   /**
+    * When the writes are buffered, lets the buffer choose how long it waits for more records before a sync from the
+    * measured sync latency, instead of always waiting the configured buffer timeout.
+    */
+   void setBufferAdaptive(boolean adaptive);
+
+   /**
+    * @return the time in nanoseconds the buffer currently waits before flushing pending syncs, or 0 if the writes are
+    * not buffered
+    */
+   int getBufferCurrentTimeout();
+
+   /**
+    * @return the average time in nanoseconds taken to write and sync a buffer, only measured when the buffer is adaptive
+    */
+   long getBufferSyncLatency();
+
+   /**
+    * @return how many flushes of the buffer carried 1, 2-3, 4-7, ... records, or an empty array if the writes are not
+    * buffered
+    */
+   long[] getBufferBatchSizes();
+
    // To be used in tests only
    ByteBuffer wrapBuffer(byte[] bytes);
 
@@ -404,6 +404,12 @@ public abstract class AbstractSequentialFile implements SequentialFile
 
    }
 
+   @Override
+   public boolean hasJavaFile()
+   {
+      return true;
+   }
+
    @Override
    public File getJavaFile()
    {
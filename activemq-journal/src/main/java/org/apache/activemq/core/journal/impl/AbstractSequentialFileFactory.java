@@ -152,6 +152,29 @@ abstract class AbstractSequentialFileFactory implements SequentialFileFactory
       }
    }
 
+   public void setBufferAdaptive(final boolean adaptive)
+   {
+      if (timedBuffer != null)
+      {
+         timedBuffer.setAdaptive(adaptive);
+      }
+   }
+
+   public int getBufferCurrentTimeout()
+   {
+      return timedBuffer == null ? 0 : timedBuffer.getCurrentTimeout();
+   }
+
+   public long getBufferSyncLatency()
+   {
+      return timedBuffer == null ? 0 : timedBuffer.getAverageSyncLatency();
+   }
+
+   public long[] getBufferBatchSizes()
+   {
+      return timedBuffer == null ? new long[0] : timedBuffer.getBatchSizeHistogram();
+   }
+
    public void flush()
    {
       if (timedBuffer != null)
@@ -29,7 +29,10 @@ import org.apache.activemq.utils.Base64;
 /**
  * Use this class to export the journal data. You can use it as a main class or through its native method {@link ExportJournal#exportJournal(String, String, String, int, int, String)}
  *
- * If you use the main method, use it as  <JournalDirectory> <JournalPrefix> <FileExtension> <MinFiles> <FileSize> <FileOutput>
+ * If you use the main method, use it as  <JournalDirectory> <JournalPrefix> <FileExtension> <MinFiles> <FileSize> <FileOutput> [<VerifyChecksums>]
+ *
+ * Records written with a checksum are verified by default, the ones not matching it are logged and left out of the
+ * export. Pass false as VerifyChecksums to export them as they are.
  *
  * Example: java -cp activemq-core.jar org.apache.activemq.core.journal.impl.ExportJournal /journalDir activemq-data amq 2 10485760 /tmp/export.dat
  *
@@ -52,15 +55,16 @@ public class ExportJournal
 
    public static void main(final String[] arg)
    {
-      if (arg.length != 5)
+      if (arg.length != 5 && arg.length != 6)
       {
-         System.err.println("Use: java -cp activemq-core.jar org.apache.activemq.core.journal.impl.ExportJournal <JournalDirectory> <JournalPrefix> <FileExtension> <FileSize> <FileOutput>");
+         System.err.println("Use: java -cp activemq-core.jar org.apache.activemq.core.journal.impl.ExportJournal <JournalDirectory> <JournalPrefix> <FileExtension> <FileSize> <FileOutput> [<VerifyChecksums>]");
          return;
       }
 
       try
       {
-         ExportJournal.exportJournal(arg[0], arg[1], arg[2], 2, Integer.parseInt(arg[3]), arg[4]);
+         boolean verifyChecksums = arg.length == 5 || Boolean.parseBoolean(arg[5]);
+         ExportJournal.exportJournal(arg[0], arg[1], arg[2], 2, Integer.parseInt(arg[3]), arg[4], verifyChecksums);
       }
       catch (Exception e)
       {
@@ -76,6 +80,17 @@ public class ExportJournal
                                     final int fileSize,
                                     final String fileOutput) throws Exception
    {
+      ExportJournal.exportJournal(directory, journalPrefix, journalSuffix, minFiles, fileSize, fileOutput, true);
+   }
+
+   public static void exportJournal(final String directory,
+                                    final String journalPrefix,
+                                    final String journalSuffix,
+                                    final int minFiles,
+                                    final int fileSize,
+                                    final String fileOutput,
+                                    final boolean verifyChecksums) throws Exception
+   {
 
       FileOutputStream fileOut = new FileOutputStream(new File(fileOutput));
 
@@ -83,7 +98,7 @@ public class ExportJournal
 
       PrintStream out = new PrintStream(buffOut);
 
-      ExportJournal.exportJournal(directory, journalPrefix, journalSuffix, minFiles, fileSize, out);
+      ExportJournal.exportJournal(directory, journalPrefix, journalSuffix, minFiles, fileSize, out, verifyChecksums);
 
       out.close();
    }
@@ -94,6 +109,17 @@ public class ExportJournal
                                     final int minFiles,
                                     final int fileSize,
                                     final PrintStream out) throws Exception
+   {
+      ExportJournal.exportJournal(directory, journalPrefix, journalSuffix, minFiles, fileSize, out, true);
+   }
+
+   public static void exportJournal(final String directory,
+                                    final String journalPrefix,
+                                    final String journalSuffix,
+                                    final int minFiles,
+                                    final int fileSize,
+                                    final PrintStream out,
+                                    final boolean verifyChecksums) throws Exception
    {
       NIOSequentialFileFactory nio = new NIOSequentialFileFactory(directory, null);
 
@@ -105,7 +131,7 @@ public class ExportJournal
       {
          out.println("#File," + file);
 
-         ExportJournal.exportJournalFile(out, nio, file);
+         ExportJournal.exportJournalFile(out, nio, file, verifyChecksums);
       }
    }
 
@@ -118,6 +144,21 @@ public class ExportJournal
    public static void exportJournalFile(final PrintStream out,
                                         final SequentialFileFactory fileFactory,
                                         final JournalFile file) throws Exception
+   {
+      ExportJournal.exportJournalFile(out, fileFactory, file, true);
+   }
+
+   /**
+    * @param out
+    * @param fileFactory
+    * @param file
+    * @param verifyChecksums
+    * @throws Exception
+    */
+   public static void exportJournalFile(final PrintStream out,
+                                        final SequentialFileFactory fileFactory,
+                                        final JournalFile file,
+                                        final boolean verifyChecksums) throws Exception
    {
       JournalImpl.readJournalFile(fileFactory, file, new JournalReaderCallback()
       {
@@ -176,7 +217,7 @@ public class ExportJournal
          public void markAsDataFile(final JournalFile file)
          {
          }
-      });
+      }, verifyChecksums);
    }
 
    private static String describeRecord(final RecordInfo recordInfo)
@@ -305,6 +305,7 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
                                                                 info.id,
                                                                 info.getUserRecordType(),
                                                                 new ByteArrayEncoding(info.data));
+         addRecord.setChecksum(journal.isRecordChecksum());
          addRecord.setCompactCount((short)(info.compactCount + 1));
 
          checkSize(addRecord.getEncodeSize(), info.compactCount);
@@ -327,6 +328,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
                                                                info.getUserRecordType(),
                                                                new ByteArrayEncoding(info.data));
 
+         record.setChecksum(journal.isRecordChecksum());
+
          record.setCompactCount((short)(info.compactCount + 1));
 
          checkSize(record.getEncodeSize(), info.compactCount);
@@ -353,6 +356,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
             JournalInternalRecord commitRecord =
                      new JournalCompleteRecordTX(TX_RECORD_TYPE.COMMIT, transactionID, null);
 
+            commitRecord.setChecksum(journal.isRecordChecksum());
+
             checkSize(commitRecord.getEncodeSize());
 
             writeEncoder(commitRecord, newTransaction.getCounter(currentFile));
@@ -382,6 +387,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
                                                                   info.id,
                                                                   new ByteArrayEncoding(info.data));
 
+         record.setChecksum(journal.isRecordChecksum());
+
          checkSize(record.getEncodeSize());
 
          writeEncoder(record);
@@ -406,6 +413,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
          JournalInternalRecord prepareRecord =
                   new JournalCompleteRecordTX(TX_RECORD_TYPE.PREPARE, transactionID, new ByteArrayEncoding(extraData));
 
+         prepareRecord.setChecksum(journal.isRecordChecksum());
+
          checkSize(prepareRecord.getEncodeSize());
 
          writeEncoder(prepareRecord, newTransaction.getCounter(currentFile));
@@ -431,6 +440,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
 
             JournalInternalRecord rollbackRecord = new JournalRollbackRecordTX(transactionID);
 
+            rollbackRecord.setChecksum(journal.isRecordChecksum());
+
             checkSize(rollbackRecord.getEncodeSize());
 
             writeEncoder(rollbackRecord);
@@ -450,6 +461,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
                                                                    info.userRecordType,
                                                                    new ByteArrayEncoding(info.data));
 
+         updateRecord.setChecksum(journal.isRecordChecksum());
+
          updateRecord.setCompactCount((short)(info.compactCount + 1));
 
          checkSize(updateRecord.getEncodeSize(), info.compactCount);
@@ -481,6 +494,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
                                                                        info.userRecordType,
                                                                        new ByteArrayEncoding(info.data));
 
+         updateRecordTX.setChecksum(journal.isRecordChecksum());
+
          updateRecordTX.setCompactCount((short)(info.compactCount + 1));
 
          checkSize(updateRecordTX.getEncodeSize(), info.compactCount);
@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.journal.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.activemq.core.journal.RecordInfo;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+
+/**
+ * Reads and decodes the journal files ahead of the load, on a pool of threads.
+ * <p>
+ * The records read from each file are kept and replayed to the load callback on the caller's thread, in the order
+ * of the files, so the load sees exactly what it would see reading the files one by one.
+ * Only a few files are read ahead to bound the memory used by the decoded records.
+ */
+final class JournalFilePreloader
+{
+   private final SequentialFileFactory fileFactory;
+
+   private final List<JournalFile> files;
+
+   private final List<Future<RecordedFile>> reads;
+
+   private final int readAhead;
+
+   private final boolean verifyChecksums;
+
+   private final ExecutorService executor;
+
+   private int nextFile = 0;
+
+   JournalFilePreloader(final SequentialFileFactory fileFactory,
+                        final List<JournalFile> files,
+                        final int threads,
+                        final boolean verifyChecksums)
+   {
+      this.fileFactory = fileFactory;
+      this.verifyChecksums = verifyChecksums;
+      this.files = files;
+      this.reads = new ArrayList<Future<RecordedFile>>(files.size());
+      this.readAhead = threads * 2;
+
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+      {
+         public Thread newThread(final Runnable r)
+         {
+            return new Thread(r, "JournalImpl::LoadExecutor");
+         }
+      });
+   }
+
+   /**
+    * Same as {@link JournalImpl#readJournalFile(SequentialFileFactory, JournalFile, JournalReaderCallback, boolean)},
+    * it has to be called for every file in the order they were given.
+    */
+   int readJournalFile(final JournalFile file, final JournalReaderCallback reader) throws Exception
+   {
+      if (files.get(nextFile) != file)
+      {
+         throw new IllegalStateException("File " + file + " is being loaded out of order");
+      }
+
+      while (reads.size() < files.size() && reads.size() <= nextFile + readAhead)
+      {
+         final JournalFile fileToRead = files.get(reads.size());
+
+         reads.add(executor.submit(new Callable<RecordedFile>()
+         {
+            public RecordedFile call() throws Exception
+            {
+               RecordedFile recorded = new RecordedFile(fileToRead);
+               recorded.lastDataPos = JournalImpl.readJournalFile(fileFactory, fileToRead, recorded, verifyChecksums);
+               return recorded;
+            }
+         }));
+      }
+
+      RecordedFile recorded;
+
+      try
+      {
+         recorded = reads.get(nextFile).get();
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof Exception)
+         {
+            throw (Exception) e.getCause();
+         }
+         throw e;
+      }
+
+      // releasing the records as they are kept by the reader from now on
+      reads.set(nextFile, null);
+
+      nextFile++;
+
+      recorded.replay(reader);
+
+      return recorded.lastDataPos;
+   }
+
+   void stop()
+   {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Keeps what was read from a file to be replayed later
+    */
+   private static final class RecordedFile implements JournalReaderCallback
+   {
+      private static final byte ADD = 0;
+      private static final byte UPDATE = 1;
+      private static final byte DELETE = 2;
+      private static final byte ADD_TX = 3;
+      private static final byte UPDATE_TX = 4;
+      private static final byte DELETE_TX = 5;
+      private static final byte PREPARE = 6;
+      private static final byte COMMIT = 7;
+      private static final byte ROLLBACK = 8;
+      private static final byte DATA_FILE = 9;
+
+      private final JournalFile file;
+
+      private final List<ReadEvent> events = new ArrayList<ReadEvent>();
+
+      private int lastDataPos;
+
+      RecordedFile(final JournalFile file)
+      {
+         this.file = file;
+      }
+
+      public void onReadAddRecord(final RecordInfo info)
+      {
+         events.add(new ReadEvent(ADD, 0, info, null, 0));
+      }
+
+      public void onReadUpdateRecord(final RecordInfo info)
+      {
+         events.add(new ReadEvent(UPDATE, 0, info, null, 0));
+      }
+
+      public void onReadDeleteRecord(final long recordID)
+      {
+         events.add(new ReadEvent(DELETE, recordID, null, null, 0));
+      }
+
+      public void onReadAddRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new ReadEvent(ADD_TX, transactionID, info, null, 0));
+      }
+
+      public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new ReadEvent(UPDATE_TX, transactionID, info, null, 0));
+      }
+
+      public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new ReadEvent(DELETE_TX, transactionID, info, null, 0));
+      }
+
+      public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords)
+      {
+         events.add(new ReadEvent(PREPARE, transactionID, null, extraData, numberOfRecords));
+      }
+
+      public void onReadCommitRecord(final long transactionID, final int numberOfRecords)
+      {
+         events.add(new ReadEvent(COMMIT, transactionID, null, null, numberOfRecords));
+      }
+
+      public void onReadRollbackRecord(final long transactionID)
+      {
+         events.add(new ReadEvent(ROLLBACK, transactionID, null, null, 0));
+      }
+
+      public void markAsDataFile(final JournalFile file)
+      {
+         events.add(new ReadEvent(DATA_FILE, 0, null, null, 0));
+      }
+
+      void replay(final JournalReaderCallback reader) throws Exception
+      {
+         for (ReadEvent event : events)
+         {
+            switch (event.type)
+            {
+               case ADD:
+                  reader.onReadAddRecord(event.info);
+                  break;
+               case UPDATE:
+                  reader.onReadUpdateRecord(event.info);
+                  break;
+               case DELETE:
+                  reader.onReadDeleteRecord(event.id);
+                  break;
+               case ADD_TX:
+                  reader.onReadAddRecordTX(event.id, event.info);
+                  break;
+               case UPDATE_TX:
+                  reader.onReadUpdateRecordTX(event.id, event.info);
+                  break;
+               case DELETE_TX:
+                  reader.onReadDeleteRecordTX(event.id, event.info);
+                  break;
+               case PREPARE:
+                  reader.onReadPrepareRecord(event.id, event.extraData, event.numberOfRecords);
+                  break;
+               case COMMIT:
+                  reader.onReadCommitRecord(event.id, event.numberOfRecords);
+                  break;
+               case ROLLBACK:
+                  reader.onReadRollbackRecord(event.id);
+                  break;
+               case DATA_FILE:
+                  reader.markAsDataFile(file);
+                  break;
+               default:
+                  throw new IllegalStateException("Invalid event " + event.type);
+            }
+         }
+      }
+   }
+
+   private static final class ReadEvent
+   {
+      final byte type;
+
+      // the record ID for deletes, the transaction ID otherwise
+      final long id;
+
+      final RecordInfo info;
+
+      final byte[] extraData;
+
+      final int numberOfRecords;
+
+      ReadEvent(final byte type, final long id, final RecordInfo info, final byte[] extraData, final int numberOfRecords)
+      {
+         this.type = type;
+         this.id = id;
+         this.info = info;
+         this.extraData = extraData;
+         this.numberOfRecords = numberOfRecords;
+      }
+   }
+}
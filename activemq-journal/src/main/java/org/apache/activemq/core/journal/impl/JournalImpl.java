@@ -84,9 +84,13 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    // Constants -----------------------------------------------------
 
-   public static final int FORMAT_VERSION = 2;
+   // 3 - records may be written with a checksum, older versions refuse these files as they don't know the markers
+   public static final int FORMAT_VERSION = 3;
 
-   private static final int[] COMPATIBLE_VERSIONS = new int[]{1};
+   // the first version where records may carry a checksum
+   public static final int CHECKSUM_FORMAT_VERSION = 3;
+
+   private static final int[] COMPATIBLE_VERSIONS = new int[]{1, 2};
 
    // Static --------------------------------------------------------
    private static final boolean trace = ActiveMQJournalLogger.LOGGER.isTraceEnabled();
@@ -161,12 +165,41 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    public static final byte ROLLBACK_RECORD = 19;
 
+   // Added to the record markers of records written with a checksum, the CRC is the int before the trailing size
+   public static final byte CHECKSUM_RECORD_OFFSET = 20;
+
    protected static final byte FILL_CHARACTER = (byte) 'J';
 
    // Attributes ----------------------------------------------------
 
    private volatile boolean autoReclaim = true;
 
+   // number of threads reading the files on load
+   private volatile int loadThreads = 1;
+
+   // whether appended records carry a checksum
+   private volatile boolean recordChecksum = false;
+
+   // whether the checksums are verified on load
+   private volatile boolean verifyChecksums = true;
+
+   // maximum number of files compacted at once, 0 means all the data files
+   private volatile int compactMaxFiles = 0;
+
+   // Compacting statistics, only updated by the compactor thread
+
+   private volatile long compactCount;
+
+   private volatile long compactTime;
+
+   private volatile long compactedBytes;
+
+   private volatile long compactReclaimedBytes;
+
+   private volatile long compactMaxPauseTime;
+
+   private volatile long compactSkipCount;
+
    private final int userVersion;
 
    private final int minFiles;
@@ -282,6 +315,127 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       this.userVersion = userVersion;
    }
 
+   public int getLoadThreads()
+   {
+      return loadThreads;
+   }
+
+   /**
+    * With more than one thread the journal files are read and decoded concurrently on load,
+    * the records are still applied in the order of the files.
+    */
+   public void setLoadThreads(final int loadThreads)
+   {
+      if (loadThreads < 1)
+      {
+         throw new IllegalArgumentException("loadThreads must be at least 1");
+      }
+      this.loadThreads = loadThreads;
+   }
+
+   public boolean isRecordChecksum()
+   {
+      return recordChecksum;
+   }
+
+   /**
+    * When enabled the records are appended with a CRC of their bytes, which is verified when the journal is loaded.
+    * Files may hold records with and without the checksum, so this can be changed at any time.
+    */
+   public void setRecordChecksum(final boolean recordChecksum)
+   {
+      this.recordChecksum = recordChecksum;
+   }
+
+   public boolean isVerifyChecksums()
+   {
+      return verifyChecksums;
+   }
+
+   /**
+    * When disabled the checksums of the records are not verified when the journal is loaded.
+    */
+   public void setVerifyChecksums(final boolean verifyChecksums)
+   {
+      this.verifyChecksums = verifyChecksums;
+   }
+
+   public int getCompactMaxFiles()
+   {
+      return compactMaxFiles;
+   }
+
+   /**
+    * With a value bigger than zero the automatic compacting works on at most that many of the oldest data files at
+    * a time, so the journal is only locked for a time proportional to those files.
+    */
+   public void setCompactMaxFiles(final int compactMaxFiles)
+   {
+      if (compactMaxFiles < 0)
+      {
+         throw new IllegalArgumentException("compactMaxFiles can't be negative");
+      }
+      this.compactMaxFiles = compactMaxFiles;
+   }
+
+   /**
+    * @return how many times the journal was compacted
+    */
+   public long getCompactCount()
+   {
+      return compactCount;
+   }
+
+   /**
+    * @return the bytes of data files read by the compactor per second of compacting
+    */
+   public long getCompactThroughput()
+   {
+      long time = compactTime;
+      return time == 0 ? 0 : compactedBytes * 1000 / time;
+   }
+
+   /**
+    * @return the bytes of data files read by the compactor
+    */
+   public long getCompactedBytes()
+   {
+      return compactedBytes;
+   }
+
+   /**
+    * @return the time (in milliseconds) spent compacting
+    */
+   public long getCompactTime()
+   {
+      return compactTime;
+   }
+
+   /**
+    * @return the bytes released by compacting, the size of the files compacted minus the size of the files created
+    */
+   public long getCompactReclaimedBytes()
+   {
+      return compactReclaimedBytes;
+   }
+
+   /**
+    * @return the longest time (in milliseconds) the journal was locked by the compactor
+    */
+   public long getCompactMaxPauseTime()
+   {
+      return compactMaxPauseTime;
+   }
+
+   /**
+    * @return how many incremental compactings were skipped because the oldest data files couldn't be compacted on
+    *         their own
+    */
+   public long getCompactSkipCount()
+   {
+      return compactSkipCount;
+   }
+
    @Override
    public String toString()
    {
@@ -401,12 +555,35 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       return orderedFiles;
    }
 
+   private int readJournalFile(final JournalFilePreloader preloader,
+                               final JournalFile file,
+                               final JournalReaderCallback reader) throws Exception
+   {
+      if (preloader == null)
+      {
+         return JournalImpl.readJournalFile(fileFactory, file, reader, verifyChecksums);
+      }
+      return preloader.readJournalFile(file, reader);
+   }
+
    /**
     * this method is used internally only however tools may use it to maintenance.
     */
    public static int readJournalFile(final SequentialFileFactory fileFactory,
                                      final JournalFile file,
                                      final JournalReaderCallback reader) throws Exception
+   {
+      return readJournalFile(fileFactory, file, reader, true);
+   }
+
+   /**
+    * Same as {@link #readJournalFile(SequentialFileFactory, JournalFile, JournalReaderCallback)}, the records with
+    * a checksum that doesn't match are skipped as corrupted unless {@code verifyChecksums} is false.
+    */
+   public static int readJournalFile(final SequentialFileFactory fileFactory,
+                                     final JournalFile file,
+                                     final JournalReaderCallback reader,
+                                     final boolean verifyChecksums) throws Exception
    {
       file.getFile().open(1, false);
       ByteBuffer wholeFileBuffer = null;
@@ -434,7 +611,16 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             byte recordType = wholeFileBuffer.get();
 
-            if (recordType < JournalImpl.ADD_RECORD || recordType > JournalImpl.ROLLBACK_RECORD)
+            boolean checksummed = false;
+
+            if (file.getJournalVersion() >= JournalImpl.CHECKSUM_FORMAT_VERSION &&
+               recordType >= JournalImpl.ADD_RECORD + JournalImpl.CHECKSUM_RECORD_OFFSET &&
+               recordType <= JournalImpl.ROLLBACK_RECORD + JournalImpl.CHECKSUM_RECORD_OFFSET)
+            {
+               recordType -= JournalImpl.CHECKSUM_RECORD_OFFSET;
+               checksummed = true;
+            }
+            else if (recordType < JournalImpl.ADD_RECORD || recordType > JournalImpl.ROLLBACK_RECORD)
             {
                // I - We scan for any valid record on the file. If a hole
                // happened on the middle of the file we keep looking until all
@@ -583,6 +769,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             int recordSize = JournalImpl.getRecordSize(recordType, file.getJournalVersion());
 
+            if (checksummed)
+            {
+               recordSize += DataConstants.SIZE_INT;
+            }
+
             // VI - this is completing V, We will validate the size at the end
             // of the record,
             // But we avoid buffer overflows by damaged data
@@ -646,6 +837,24 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                continue;
             }
 
+            if (checksummed && verifyChecksums)
+            {
+               final int checksumPos = pos + checkSize - DataConstants.SIZE_INT * 2;
+
+               if (wholeFileBuffer.getInt(checksumPos) != JournalInternalRecord.checksum(wholeFileBuffer, pos, checksumPos))
+               {
+                  ActiveMQJournalLogger.LOGGER.recordChecksumMismatch(pos, file.getFile().getFileName(), recordID,
+                                                                      transactionID);
+
+                  // The size matched, so only the content of the record is damaged
+                  reader.markAsDataFile(file);
+
+                  wholeFileBuffer.position(pos + DataConstants.SIZE_BYTE);
+
+                  continue;
+               }
+            }
+
             wholeFileBuffer.position(oldPos);
 
             // At this point everything is checked. So we relax and just load
@@ -787,7 +996,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord addRecord = new JournalAddRecord(true, id, recordType, record);
+         JournalInternalRecord addRecord = new JournalAddRecord(true, id, recordType, encodeRecord(record));
 
          if (callback != null)
          {
@@ -844,7 +1053,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             }
          }
 
-         JournalInternalRecord updateRecord = new JournalAddRecord(false, id, recordType, record);
+         JournalInternalRecord updateRecord = new JournalAddRecord(false, id, recordType, encodeRecord(record));
 
          if (callback != null)
          {
@@ -968,7 +1177,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord addRecord = new JournalAddRecordTX(true, txID, id, recordType, record);
+         JournalInternalRecord addRecord = new JournalAddRecordTX(true, txID, id, recordType, encodeRecord(record));
 
          JournalTransaction tx = getTransactionInfo(txID);
 
@@ -1026,7 +1235,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord updateRecordTX = new JournalAddRecordTX(false, txID, id, recordType, record);
+         JournalInternalRecord updateRecordTX = new JournalAddRecordTX(false, txID, id, recordType, encodeRecord(record));
 
          JournalTransaction tx = getTransactionInfo(txID);
 
@@ -1469,6 +1678,10 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
          boolean previousReclaimValue = isAutoReclaim();
 
+         long start = System.currentTimeMillis();
+
+         long lockTime;
+
          try
          {
             ActiveMQJournalLogger.LOGGER.debug("Starting compacting operation on journal");
@@ -1478,6 +1691,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             // We need to guarantee that the journal is frozen for this short time
             // We don't freeze the journal as we compact, only for the short time where we replace records
             journalLock.writeLock().lock();
+            lockTime = System.currentTimeMillis();
             try
             {
                if (state != JournalState.LOADED)
@@ -1523,6 +1737,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             finally
             {
                journalLock.writeLock().unlock();
+               updateCompactPauseTime(lockTime);
             }
 
             Collections.sort(dataFilesToProcess, new JournalFileComparator());
@@ -1559,6 +1774,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             SequentialFile controlFile = createControlFile(dataFilesToProcess, compactor.getNewDataFiles(), null);
 
             journalLock.writeLock().lock();
+            lockTime = System.currentTimeMillis();
             try
             {
                // Need to clear the compactor here, or the replay commands will send commands back (infinite loop)
@@ -1623,12 +1839,15 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             finally
             {
                journalLock.writeLock().unlock();
+               updateCompactPauseTime(lockTime);
             }
 
             // At this point the journal is unlocked. We keep renaming files while the journal is already operational
             renameFiles(dataFilesToProcess, newDatafiles);
             deleteControlFile(controlFile);
 
+            updateCompactStatistics(start, dataFilesToProcess.size(), newDatafiles.size());
+
             ActiveMQJournalLogger.LOGGER.debug("Finished compacting on journal");
 
          }
@@ -1657,6 +1876,351 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    }
 
+   /**
+    * Compacts at most {@link #getCompactMaxFiles()} of the oldest data files.
+    * <p/>
+    * The files are chosen so no transaction has records both on them and on newer files, and only the records added
+    * on them are handed to the compactor. The journal is locked only to hand over and take back those records, so
+    * the pauses are bounded by the size of the files compacted and not by the size of the journal.
+    * <p/>
+    * When the oldest files can't be compacted on their own (a long transaction, or no space to reclaim) nothing is
+    * compacted, and {@link #getCompactSkipCount()} is incremented.
+    * <p/>
+    * Note: This method can't be called from the main executor, as it will invoke other methods depending on it.
+    */
+   public synchronized void compactIncrementally() throws Exception
+   {
+      if (compactor != null)
+      {
+         throw new IllegalStateException("There is pending compacting operation");
+      }
+
+      compactorLock.writeLock().lock();
+      try
+      {
+         boolean previousReclaimValue = isAutoReclaim();
+
+         long start = System.currentTimeMillis();
+
+         long lockTime;
+
+         List<JournalFile> dataFilesToProcess;
+
+         try
+         {
+            ActiveMQJournalLogger.LOGGER.debug("Starting incremental compacting operation on journal");
+
+            // Setting it under the lock guarantees no reclaim is running while the files are selected
+            journalLock.writeLock().lock();
+            try
+            {
+               if (state != JournalState.LOADED)
+               {
+                  return;
+               }
+
+               setAutoReclaim(false);
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+            }
+
+            dataFilesToProcess = selectFilesToCompact();
+
+            if (dataFilesToProcess == null)
+            {
+               // compacting the whole journal is what this is meant to avoid, the next run looks at the files again
+               compactSkipCount++;
+
+               ActiveMQJournalLogger.LOGGER.debug("The oldest data files can't be compacted on their own, " +
+                                                     "skipping this incremental compacting");
+
+               setAutoReclaim(previousReclaimValue);
+
+               return;
+            }
+
+            onCompactStart();
+
+            Set<JournalFile> filesToProcess = new HashSet<JournalFile>(dataFilesToProcess);
+
+            // No new records are added to these files, only deletes may happen until the compactor is set
+            ArrayList<Long> idsToProcess = new ArrayList<Long>();
+
+            for (Map.Entry<Long, JournalRecord> entry : records.entrySet())
+            {
+               if (filesToProcess.contains(entry.getValue().getAddFile()))
+               {
+                  idsToProcess.add(entry.getKey());
+               }
+            }
+
+            Map<Long, JournalRecord> previousRecords = new HashMap<Long, JournalRecord>(idsToProcess.size());
+
+            journalLock.writeLock().lock();
+            lockTime = System.currentTimeMillis();
+            try
+            {
+               if (state != JournalState.LOADED)
+               {
+                  return;
+               }
+
+               onCompactLockingTheJournal();
+
+               for (JournalFile file : dataFilesToProcess)
+               {
+                  filesRepository.removeDataFile(file);
+               }
+
+               for (Long id : idsToProcess)
+               {
+                  JournalRecord record = records.remove(id);
+
+                  // null if it was deleted after the selection
+                  if (record != null)
+                  {
+                     previousRecords.put(id, record);
+                  }
+               }
+
+               compactor = new JournalCompactor(fileFactory,
+                                                this,
+                                                filesRepository,
+                                                previousRecords.keySet(),
+                                                dataFilesToProcess.get(0).getFileID());
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+               updateCompactPauseTime(lockTime);
+            }
+
+            for (final JournalFile file : dataFilesToProcess)
+            {
+               try
+               {
+                  JournalImpl.readJournalFile(fileFactory, file, compactor);
+               }
+               catch (Throwable e)
+               {
+                  ActiveMQJournalLogger.LOGGER.compactReadError(file);
+                  throw new Exception("Error on reading compacting for " + file, e);
+               }
+            }
+
+            compactor.flush();
+
+            // pointcut for tests
+            onCompactDone();
+
+            JournalCompactor localCompactor = compactor;
+
+            List<JournalFile> newDatafiles = localCompactor.getNewDataFiles();
+
+            // The new files take the IDs of the compacted files, they can't take the place of the newer files
+            boolean overflow = newDatafiles.size() > dataFilesToProcess.size();
+
+            SequentialFile controlFile = overflow ? null : createControlFile(dataFilesToProcess, newDatafiles, null);
+
+            journalLock.writeLock().lock();
+            lockTime = System.currentTimeMillis();
+            try
+            {
+               // Need to clear the compactor here, or the replay commands will send commands back (infinite loop)
+               compactor = null;
+
+               onCompactLockingTheJournal();
+
+               if (overflow)
+               {
+                  // Putting everything back as it was
+                  records.putAll(previousRecords);
+
+                  for (int i = dataFilesToProcess.size() - 1; i >= 0; i--)
+                  {
+                     filesRepository.addDataFileOnTop(dataFilesToProcess.get(i));
+                  }
+               }
+               else
+               {
+                  for (Map.Entry<Long, JournalRecord> newRecordEntry : localCompactor.getNewRecords().entrySet())
+                  {
+                     JournalRecord previousRecord = previousRecords.get(newRecordEntry.getKey());
+
+                     if (previousRecord != null)
+                     {
+                        // updates on newer files still count on those files
+                        newRecordEntry.getValue().addUpdateFiles(previousRecord, filesToProcess);
+                     }
+
+                     records.put(newRecordEntry.getKey(), newRecordEntry.getValue());
+                  }
+
+                  for (int i = newDatafiles.size() - 1; i >= 0; i--)
+                  {
+                     filesRepository.addDataFileOnTop(newDatafiles.get(i));
+                  }
+
+                  // No transaction was open on the compacted files, but the compactor may still have some
+                  for (JournalTransaction newTransaction : localCompactor.getNewTransactions().values())
+                  {
+                     ActiveMQJournalLogger.LOGGER.compactMergeError(newTransaction.getId());
+                  }
+               }
+
+               localCompactor.replayPendingCommands();
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+               updateCompactPauseTime(lockTime);
+            }
+
+            if (overflow)
+            {
+               ActiveMQJournalLogger.LOGGER.debug("Incremental compacting didn't reduce the number of files, discarding it");
+
+               for (JournalFile file : newDatafiles)
+               {
+                  file.getFile().delete();
+               }
+
+               return;
+            }
+
+            // At this point the journal is unlocked. We keep renaming files while the journal is already operational
+            renameFiles(dataFilesToProcess, newDatafiles);
+            deleteControlFile(controlFile);
+
+            updateCompactStatistics(start, dataFilesToProcess.size(), newDatafiles.size());
+
+            ActiveMQJournalLogger.LOGGER.debug("Finished incremental compacting on journal");
+         }
+         finally
+         {
+            // An Exception was probably thrown, and the compactor was not cleared
+            if (compactor != null)
+            {
+               try
+               {
+                  compactor.flush();
+               }
+               catch (Throwable ignored)
+               {
+               }
+
+               compactor = null;
+            }
+            setAutoReclaim(previousReclaimValue);
+         }
+      }
+      finally
+      {
+         compactorLock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Reads the oldest data files up to {@link #getCompactMaxFiles()} and returns the longest run of them with no
+    * transaction still open at its end.
+    *
+    * @return the files to compact, or {@code null} if the oldest files can't be compacted on their own
+    */
+   private List<JournalFile> selectFilesToCompact() throws Exception
+   {
+      List<JournalFile> dataFiles = new ArrayList<JournalFile>(filesRepository.getDataFiles());
+
+      Collections.sort(dataFiles, new JournalFileComparator());
+
+      final Set<Long> openTransactions = new HashSet<Long>();
+
+      JournalReaderCallback transactionTracker = new JournalReaderCallbackAbstract()
+      {
+         @Override
+         public void onReadAddRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadUpdateRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadDeleteRecordTX(final long transactionID, final RecordInfo recordInfo)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords)
+         {
+            openTransactions.add(transactionID);
+         }
+
+         @Override
+         public void onReadCommitRecord(final long transactionID, final int numberOfRecords)
+         {
+            openTransactions.remove(transactionID);
+         }
+
+         @Override
+         public void onReadRollbackRecord(final long transactionID)
+         {
+            openTransactions.remove(transactionID);
+         }
+      };
+
+      int numberOfFiles = 0;
+
+      for (int i = 0; i < dataFiles.size() && i < compactMaxFiles; i++)
+      {
+         JournalImpl.readJournalFile(fileFactory, dataFiles.get(i), transactionTracker);
+
+         if (openTransactions.isEmpty())
+         {
+            numberOfFiles = i + 1;
+         }
+      }
+
+      long liveSize = 0;
+
+      for (int i = 0; i < numberOfFiles; i++)
+      {
+         liveSize += dataFiles.get(i).getLiveSize();
+      }
+
+      // it has to release at least one file
+      if (numberOfFiles < 2 || liveSize > (long) (numberOfFiles - 1) * fileSize)
+      {
+         return null;
+      }
+
+      return new ArrayList<JournalFile>(dataFiles.subList(0, numberOfFiles));
+   }
+
+   private void updateCompactPauseTime(final long lockTime)
+   {
+      long pauseTime = System.currentTimeMillis() - lockTime;
+
+      if (pauseTime > compactMaxPauseTime)
+      {
+         compactMaxPauseTime = pauseTime;
+      }
+   }
+
+   private void updateCompactStatistics(final long start, final int compactedFiles, final int newFiles)
+   {
+      compactCount++;
+      compactTime += System.currentTimeMillis() - start;
+      compactedBytes += (long) compactedFiles * fileSize;
+      compactReclaimedBytes += (long) (compactedFiles - newFiles) * fileSize;
+   }
+
    /**
     * <p>Load data accordingly to the record layouts</p>
     * <p/>
@@ -1738,274 +2302,288 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       // AtomicLong is used only as a reference, not as an Atomic value
       final AtomicLong maxID = new AtomicLong(-1);
 
-      for (final JournalFile file : orderedFiles)
-      {
-         JournalImpl.trace("Loading file " + file.getFile().getFileName());
-
-         final AtomicBoolean hasData = new AtomicBoolean(false);
+      // with more than one load thread the files are read and decoded ahead, but still applied here in order
+      final JournalFilePreloader preloader = loadThreads > 1 && orderedFiles.size() > 1 ?
+         new JournalFilePreloader(fileFactory, orderedFiles, loadThreads, verifyChecksums) : null;
 
-         int resultLastPost = JournalImpl.readJournalFile(fileFactory, file, new JournalReaderCallback()
+      try
+      {
+         for (final JournalFile file : orderedFiles)
          {
+            JournalImpl.trace("Loading file " + file.getFile().getFileName());
 
-            private void checkID(final long id)
-            {
-               if (id > maxID.longValue())
-               {
-                  maxID.set(id);
-               }
-            }
+            final AtomicBoolean hasData = new AtomicBoolean(false);
 
-            public void onReadAddRecord(final RecordInfo info) throws Exception
+            int resultLastPost = readJournalFile(preloader, file, new JournalReaderCallback()
             {
-               checkID(info.id);
-
-               hasData.set(true);
 
-               loadManager.addRecord(info);
-
-               records.put(info.id, new JournalRecord(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1));
-            }
+               private void checkID(final long id)
+               {
+                  if (id > maxID.longValue())
+                  {
+                     maxID.set(id);
+                  }
+               }
 
-            public void onReadUpdateRecord(final RecordInfo info) throws Exception
-            {
-               checkID(info.id);
+               public void onReadAddRecord(final RecordInfo info) throws Exception
+               {
+                  checkID(info.id);
 
-               hasData.set(true);
+                  hasData.set(true);
 
-               loadManager.updateRecord(info);
+                  loadManager.addRecord(info);
 
-               JournalRecord posFiles = records.get(info.id);
+                  records.put(info.id, new JournalRecord(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1));
+               }
 
-               if (posFiles != null)
+               public void onReadUpdateRecord(final RecordInfo info) throws Exception
                {
-                  // It's legal for this to be null. The file(s) with the may
-                  // have been deleted
-                  // just leaving some updates in this file
+                  checkID(info.id);
 
-                  posFiles.addUpdateFile(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
-                  // count
-               }
-            }
+                  hasData.set(true);
 
-            public void onReadDeleteRecord(final long recordID) throws Exception
-            {
-               hasData.set(true);
+                  loadManager.updateRecord(info);
 
-               loadManager.deleteRecord(recordID);
+                  JournalRecord posFiles = records.get(info.id);
 
-               JournalRecord posFiles = records.remove(recordID);
+                  if (posFiles != null)
+                  {
+                     // It's legal for this to be null. The file(s) with the may
+                     // have been deleted
+                     // just leaving some updates in this file
 
-               if (posFiles != null)
-               {
-                  posFiles.delete(file);
+                     posFiles.addUpdateFile(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
+                     // count
+                  }
                }
-            }
 
-            public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               onReadAddRecordTX(transactionID, info);
-            }
-
-            public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
+               public void onReadDeleteRecord(final long recordID) throws Exception
+               {
+                  hasData.set(true);
 
-               checkID(info.id);
+                  loadManager.deleteRecord(recordID);
 
-               hasData.set(true);
+                  JournalRecord posFiles = records.remove(recordID);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                  if (posFiles != null)
+                  {
+                     posFiles.delete(file);
+                  }
+               }
 
-               if (tx == null)
+               public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
                {
-                  tx = new TransactionHolder(transactionID);
-
-                  loadTransactions.put(transactionID, tx);
+                  onReadAddRecordTX(transactionID, info);
                }
 
-               tx.recordInfos.add(info);
-
-               JournalTransaction tnp = transactions.get(transactionID);
-
-               if (tnp == null)
+               public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
                {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-                  transactions.put(transactionID, tnp);
-               }
+                  checkID(info.id);
 
-               tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
-               // count
-            }
+                  hasData.set(true);
 
-            public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               hasData.set(true);
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-               if (tx == null)
-               {
-                  tx = new TransactionHolder(transactionID);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  tx.recordInfos.add(info);
 
-               tx.recordsToDelete.add(info);
+                  JournalTransaction tnp = transactions.get(transactionID);
 
-               JournalTransaction tnp = transactions.get(transactionID);
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-               if (tnp == null)
-               {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
+                     transactions.put(transactionID, tnp);
+                  }
 
-                  transactions.put(transactionID, tnp);
+                  tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
+                  // count
                }
 
-               tnp.addNegative(file, info.id);
+               public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
+               {
+                  hasData.set(true);
+
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-            }
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-            public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
-            {
-               hasData.set(true);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                  tx.recordsToDelete.add(info);
 
-               if (tx == null)
-               {
-                  // The user could choose to prepare empty transactions
-                  tx = new TransactionHolder(transactionID);
+                  JournalTransaction tnp = transactions.get(transactionID);
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-               tx.prepared = true;
+                     transactions.put(transactionID, tnp);
+                  }
 
-               tx.extraData = extraData;
+                  tnp.addNegative(file, info.id);
 
-               JournalTransaction journalTransaction = transactions.get(transactionID);
+               }
 
-               if (journalTransaction == null)
+               public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
                {
-                  journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+                  hasData.set(true);
 
-                  transactions.put(transactionID, journalTransaction);
-               }
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
+                  if (tx == null)
+                  {
+                     // The user could choose to prepare empty transactions
+                     tx = new TransactionHolder(transactionID);
 
-               if (healthy)
-               {
-                  journalTransaction.prepare(file);
-               }
-               else
-               {
-                  ActiveMQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
-                  tx.invalid = true;
-               }
-            }
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-            public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
+                  tx.prepared = true;
 
-               // The commit could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but not the
-               // commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               // If we can't find it, we assume the TX was reclaimed and we
-               // ignore this
-               if (tx != null)
-               {
-                  JournalTransaction journalTransaction = transactions.remove(transactionID);
+                  tx.extraData = extraData;
+
+                  JournalTransaction journalTransaction = transactions.get(transactionID);
 
                   if (journalTransaction == null)
                   {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
+                     journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+
+                     transactions.put(transactionID, journalTransaction);
                   }
 
                   boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
 
                   if (healthy)
                   {
-                     for (RecordInfo txRecord : tx.recordInfos)
+                     journalTransaction.prepare(file);
+                  }
+                  else
+                  {
+                     ActiveMQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
+                     tx.invalid = true;
+                  }
+               }
+
+               public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
+               {
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
+
+                  // The commit could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but not the
+                  // commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  // If we can't find it, we assume the TX was reclaimed and we
+                  // ignore this
+                  if (tx != null)
+                  {
+                     JournalTransaction journalTransaction = transactions.remove(transactionID);
+
+                     if (journalTransaction == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
+
+                     boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
+
+                     if (healthy)
                      {
-                        if (txRecord.isUpdate)
+                        for (RecordInfo txRecord : tx.recordInfos)
                         {
-                           loadManager.updateRecord(txRecord);
+                           if (txRecord.isUpdate)
+                           {
+                              loadManager.updateRecord(txRecord);
+                           }
+                           else
+                           {
+                              loadManager.addRecord(txRecord);
+                           }
                         }
-                        else
+
+                        for (RecordInfo deleteValue : tx.recordsToDelete)
                         {
-                           loadManager.addRecord(txRecord);
+                           loadManager.deleteRecord(deleteValue.id);
                         }
-                     }
 
-                     for (RecordInfo deleteValue : tx.recordsToDelete)
-                     {
-                        loadManager.deleteRecord(deleteValue.id);
+                        journalTransaction.commit(file);
                      }
+                     else
+                     {
+                        ActiveMQJournalLogger.LOGGER.txMissingElements(transactionID);
 
-                     journalTransaction.commit(file);
-                  }
-                  else
-                  {
-                     ActiveMQJournalLogger.LOGGER.txMissingElements(transactionID);
+                        journalTransaction.forget();
+                     }
 
-                     journalTransaction.forget();
+                     hasData.set(true);
                   }
 
-                  hasData.set(true);
                }
 
-            }
-
-            public void onReadRollbackRecord(final long transactionID) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
-
-               // The rollback could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but the commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               if (tx != null)
+               public void onReadRollbackRecord(final long transactionID) throws Exception
                {
-                  JournalTransaction tnp = transactions.remove(transactionID);
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
 
-                  if (tnp == null)
+                  // The rollback could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but the commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  if (tx != null)
                   {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
-                  }
+                     JournalTransaction tnp = transactions.remove(transactionID);
 
-                  // There is no need to validate summaries/holes on
-                  // Rollbacks.. We will ignore the data anyway.
-                  tnp.rollback(file);
+                     if (tnp == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
 
+                     // There is no need to validate summaries/holes on
+                     // Rollbacks.. We will ignore the data anyway.
+                     tnp.rollback(file);
+
+                     hasData.set(true);
+                  }
+               }
+
+               public void markAsDataFile(final JournalFile file)
+               {
                   hasData.set(true);
                }
-            }
 
-            public void markAsDataFile(final JournalFile file)
+            });
+
+            if (hasData.get())
             {
-               hasData.set(true);
+               lastDataPos = resultLastPost;
+               filesRepository.addDataFileOnBottom(file);
             }
-
-         });
-
-         if (hasData.get())
-         {
-            lastDataPos = resultLastPost;
-            filesRepository.addDataFileOnBottom(file);
-         }
-         else
-         {
-            if (changeData)
+            else
             {
-               // Empty dataFiles with no data
-               filesRepository.addFreeFile(file, false, false);
+               if (changeData)
+               {
+                  // Empty dataFiles with no data
+                  filesRepository.addFreeFile(file, false, false);
+               }
             }
          }
       }
+      finally
+      {
+         if (preloader != null)
+         {
+            preloader.stop();
+         }
+      }
 
       if (replicationSync == JournalState.SYNCING)
       {
@@ -2164,7 +2742,14 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             try
             {
-               JournalImpl.this.compact();
+               if (compactMaxFiles > 0)
+               {
+                  JournalImpl.this.compactIncrementally();
+               }
+               else
+               {
+                  JournalImpl.this.compact();
+               }
             }
             catch (Throwable e)
             {
@@ -2763,6 +3348,22 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       buffer.writeLong(fileID);
    }
 
+   /**
+    * Encodes the data of a record before lockAppend is taken, so the appenders only copy their bytes into the file
+    * while holding it instead of encoding their records there one at a time. A record that fails to encode is never
+    * appended.
+    */
+   private static EncodingSupport encodeRecord(final EncodingSupport record)
+   {
+      byte[] data = new byte[record.getEncodeSize()];
+
+      ActiveMQBuffer buffer = ActiveMQBuffers.wrappedBuffer(data);
+      buffer.writerIndex(0);
+      record.encode(buffer);
+
+      return new ByteArrayEncoding(data);
+   }
+
    /**
     * @param completeTransaction If the appendRecord is for a prepare or commit, where we should
     *                            update the number of pendingTransactions on the current file
@@ -2778,6 +3379,10 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       final IOAsyncTask callback;
 
+      // A file written before the checksums, still current after an upgrade, can't take checksummed records as they
+      // would be skipped when it's loaded: they are only checksummed once the journal moves to a new file
+      encoder.setChecksum(recordChecksum && currentFile.getJournalVersion() >= JournalImpl.CHECKSUM_FORMAT_VERSION);
+
       final int size = encoder.getEncodeSize();
 
       switchFileIfNecessary(size);
@@ -18,6 +18,7 @@ package org.apache.activemq.core.journal.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.activemq.api.core.Pair;
 
@@ -62,6 +63,36 @@ public class JournalRecord
       updateFile.addSize(size);
    }
 
+   JournalFile getAddFile()
+   {
+      return addFile;
+   }
+
+   /**
+    * Takes the updates of another record for the same ID that are not on the given files.
+    * The files were already counted when the updates were added to the other record.
+    */
+   void addUpdateFiles(final JournalRecord record, final Set<JournalFile> excludedFiles)
+   {
+      if (record.updateFiles == null)
+      {
+         return;
+      }
+
+      for (Pair<JournalFile, Integer> updFile : record.updateFiles)
+      {
+         if (!excludedFiles.contains(updFile.getA()))
+         {
+            if (updateFiles == null)
+            {
+               updateFiles = new ArrayList<Pair<JournalFile, Integer>>();
+            }
+
+            updateFiles.add(updFile);
+         }
+      }
+   }
+
    void delete(final JournalFile file)
    {
       file.incNegCount(addFile);
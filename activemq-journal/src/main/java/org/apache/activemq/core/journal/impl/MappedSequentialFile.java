@@ -0,0 +1,440 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.journal.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.activemq.api.core.ActiveMQException;
+import org.apache.activemq.api.core.ActiveMQExceptionType;
+import org.apache.activemq.api.core.ActiveMQIOErrorException;
+import org.apache.activemq.api.core.ActiveMQIllegalStateException;
+import org.apache.activemq.core.journal.IOAsyncTask;
+import org.apache.activemq.core.journal.SequentialFile;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.journal.ActiveMQJournalBundle;
+import org.apache.activemq.journal.ActiveMQJournalLogger;
+
+/**
+ * A SequentialFile writing straight into a memory mapping of the whole file.
+ * <p>
+ * Journal files are filled when created, so the mapping is done once per open and a write is just a copy into it.
+ * Files that are not filled grow as they are written, by doubling the mapping, and are truncated back to what was
+ * written when closed.
+ * A sync forces the mapping to the disk, which is done at the writer executor when there is one.
+ */
+public final class MappedSequentialFile extends AbstractSequentialFile
+{
+   // the smallest step a mapping grows by
+   private static final int MIN_GROWTH = 1024 * 1024;
+
+   private FileChannel channel;
+
+   private RandomAccessFile rfile;
+
+   // its position is the position used to read and write, the same way the channel position is used on NIO
+   private MappedByteBuffer mappedBuffer;
+
+   // mappings replaced by a bigger one, a sync queued at the writer executor may still be forcing them so they are
+   // only released on close, after the executor is done
+   private final List<MappedByteBuffer> replacedMappings = new ArrayList<MappedByteBuffer>();
+
+   public MappedSequentialFile(final SequentialFileFactory factory,
+                               final String directory,
+                               final String fileName,
+                               final Executor writerExecutor)
+   {
+      super(directory, new File(directory + "/" + fileName), factory, writerExecutor);
+   }
+
+   public MappedSequentialFile(final SequentialFileFactory factory, final File file, final Executor writerExecutor)
+   {
+      super(file.getParent(), new File(file.getPath()), factory, writerExecutor);
+   }
+
+   public int getAlignment()
+   {
+      return 1;
+   }
+
+   public int calculateBlockStart(final int position)
+   {
+      return position;
+   }
+
+   public synchronized boolean isOpen()
+   {
+      return channel != null;
+   }
+
+   public synchronized void open() throws IOException
+   {
+      open(1, true);
+   }
+
+   /**
+    * There is no limit of concurrent writes to be honoured as the writes are copies into the mapping
+    */
+   public synchronized void open(final int maxIO, final boolean useExecutor) throws IOException
+   {
+      try
+      {
+         rfile = new RandomAccessFile(getFile(), "rw");
+
+         channel = rfile.getChannel();
+
+         fileSize = channel.size();
+
+         map(fileSize);
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new ActiveMQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   public synchronized void fill(final int position, final int size, final byte fillCharacter) throws IOException
+   {
+      ByteBuffer bb = ByteBuffer.allocate(size);
+
+      for (int i = 0; i < size; i++)
+      {
+         bb.put(fillCharacter);
+      }
+
+      bb.flip();
+
+      try
+      {
+         channel.position(position);
+         channel.write(bb);
+         channel.force(false);
+         channel.position(0);
+
+         long filled = (long) position + size;
+
+         // the file was sized on purpose, so the mapping covers exactly what was filled
+         if (filled > mappedBuffer.capacity())
+         {
+            remap(filled);
+         }
+
+         fileSize = Math.max(fileSize, filled);
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new ActiveMQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   public synchronized void waitForClose() throws InterruptedException
+   {
+      while (isOpen())
+      {
+         wait();
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException, InterruptedException, ActiveMQException
+   {
+      super.close();
+
+      releaseMappings();
+
+      try
+      {
+         if (channel != null)
+         {
+            // the mapping may have grown the file beyond what was written
+            if (channel.size() > fileSize)
+            {
+               channel.truncate(fileSize);
+            }
+
+            channel.close();
+         }
+
+         if (rfile != null)
+         {
+            rfile.close();
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new ActiveMQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+
+      channel = null;
+
+      rfile = null;
+
+      notifyAll();
+   }
+
+   public int read(final ByteBuffer bytes) throws Exception
+   {
+      return read(bytes, null);
+   }
+
+   public synchronized int read(final ByteBuffer bytes, final IOAsyncTask callback) throws ActiveMQIllegalStateException
+   {
+      if (mappedBuffer == null)
+      {
+         throw new ActiveMQIllegalStateException("File " + this.getFileName() + " is not mapped");
+      }
+
+      // the mapping may go beyond what was written
+      int bytesRead = (int) Math.min(bytes.remaining(), Math.max(0, fileSize - mappedBuffer.position()));
+
+      ByteBuffer source = mappedBuffer.duplicate();
+
+      source.limit(source.position() + bytesRead);
+
+      bytes.put(source);
+
+      mappedBuffer.position(mappedBuffer.position() + bytesRead);
+
+      if (callback != null)
+      {
+         callback.done();
+      }
+
+      bytes.flip();
+
+      // same as a channel at the end of the file
+      return bytesRead == 0 ? -1 : bytesRead;
+   }
+
+   public synchronized void sync() throws IOException
+   {
+      if (mappedBuffer != null)
+      {
+         mappedBuffer.force();
+      }
+   }
+
+   public long size() throws IOException
+   {
+      synchronized (this)
+      {
+         if (channel != null)
+         {
+            // the channel size includes the part of the mapping not written yet
+            return fileSize;
+         }
+      }
+
+      return getFile().length();
+   }
+
+   @Override
+   public synchronized void position(final long pos) throws IOException
+   {
+      super.position(pos);
+
+      ensureCapacity(pos);
+
+      mappedBuffer.position((int) pos);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MappedSequentialFile " + getFile();
+   }
+
+   public SequentialFile cloneFile()
+   {
+      return new MappedSequentialFile(factory, getFile(), writerExecutor);
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback)
+   {
+      if (callback == null)
+      {
+         throw new NullPointerException("callback parameter need to be set");
+      }
+
+      try
+      {
+         internalWrite(bytes, sync, callback);
+      }
+      catch (Exception e)
+      {
+         callback.onError(ActiveMQExceptionType.GENERIC_EXCEPTION.getCode(), e.getMessage());
+      }
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync) throws Exception
+   {
+      internalWrite(bytes, sync, null);
+   }
+
+   public void writeInternal(final ByteBuffer bytes) throws Exception
+   {
+      internalWrite(bytes, true, null);
+   }
+
+   @Override
+   protected ByteBuffer newBuffer(int size, final int limit)
+   {
+      // As on NIO, the buffer is copied into the mapping, so there's no need for it to be bigger than the data
+
+      size = limit;
+
+      return super.newBuffer(size, limit);
+   }
+
+   private void internalWrite(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback) throws IOException, ActiveMQIOErrorException
+   {
+      final MappedByteBuffer buffer;
+
+      synchronized (this)
+      {
+         if (!isOpen())
+         {
+            if (callback != null)
+            {
+               callback.onError(ActiveMQExceptionType.IO_ERROR.getCode(), "File not opened");
+            }
+            else
+            {
+               throw ActiveMQJournalBundle.BUNDLE.fileNotOpened();
+            }
+            return;
+         }
+
+         int size = bytes.remaining();
+
+         ensureCapacity(mappedBuffer.position() + size);
+
+         mappedBuffer.put(bytes);
+
+         position.addAndGet(size);
+
+         buffer = mappedBuffer;
+      }
+
+      if (writerExecutor == null || callback == null)
+      {
+         doSync(buffer, sync, callback);
+      }
+      else
+      {
+         // the callbacks go through the executor even when there's nothing to sync so they are completed in order
+         writerExecutor.execute(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  doSync(buffer, sync, callback);
+               }
+               catch (Throwable e)
+               {
+                  ActiveMQJournalLogger.LOGGER.errorSubmittingWrite(e);
+                  callback.onError(ActiveMQExceptionType.IO_ERROR.getCode(), e.getMessage());
+               }
+            }
+         });
+      }
+   }
+
+   private void doSync(final MappedByteBuffer buffer, final boolean sync, final IOAsyncTask callback)
+   {
+      if (sync)
+      {
+         buffer.force();
+      }
+
+      if (callback != null)
+      {
+         callback.done();
+      }
+   }
+
+   /**
+    * Files that are not filled up front, like the ones written by a copy, grow as they are written.
+    * The mapping at least doubles each time so a file written in small pieces is only remapped a few times.
+    */
+   private void ensureCapacity(final long required) throws IOException
+   {
+      if (required > mappedBuffer.capacity())
+      {
+         long newCapacity = Math.max(mappedBuffer.capacity() * 2L, MIN_GROWTH);
+
+         // a mapping can't go beyond Integer.MAX_VALUE, map() reports it when the file itself needs more
+         remap(Math.max(required, Math.min(newCapacity, Integer.MAX_VALUE)));
+      }
+
+      fileSize = Math.max(fileSize, required);
+   }
+
+   private void remap(final long size) throws IOException
+   {
+      int currentPosition = mappedBuffer.position();
+
+      map(size);
+
+      mappedBuffer.position(currentPosition);
+   }
+
+   private void map(final long size) throws IOException
+   {
+      if (size > Integer.MAX_VALUE)
+      {
+         throw new IOException("File " + getFileName() + " has " + size + " bytes and can't be memory mapped");
+      }
+
+      MappedByteBuffer newBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+      if (mappedBuffer != null)
+      {
+         replacedMappings.add(mappedBuffer);
+      }
+
+      mappedBuffer = newBuffer;
+   }
+
+   private void releaseMappings()
+   {
+      for (MappedByteBuffer buffer : replacedMappings)
+      {
+         factory.releaseDirectBuffer(buffer);
+      }
+
+      replacedMappings.clear();
+
+      if (mappedBuffer != null)
+      {
+         factory.releaseDirectBuffer(mappedBuffer);
+
+         mappedBuffer = null;
+      }
+   }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.journal.impl;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import org.apache.activemq.core.journal.IOCriticalErrorListener;
+import org.apache.activemq.core.journal.SequentialFile;
+
+/**
+ * A SequentialFileFactory creating memory mapped files.
+ * <p>
+ * Buffers and the timed buffer work the same way as on NIO, only the files are written through a mapping
+ * instead of a FileChannel.
+ */
+public class MappedSequentialFileFactory extends NIOSequentialFileFactory
+{
+   public MappedSequentialFileFactory(final String journalDir)
+   {
+      this(journalDir, false);
+   }
+
+   public MappedSequentialFileFactory(final String journalDir, final boolean buffered)
+   {
+      this(journalDir,
+           buffered,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO,
+           false,
+           null);
+   }
+
+   public MappedSequentialFileFactory(final String journalDir,
+                                      final boolean buffered,
+                                      final int bufferSize,
+                                      final int bufferTimeout,
+                                      final boolean logRates,
+                                      final IOCriticalErrorListener listener)
+   {
+      super(journalDir, buffered, bufferSize, bufferTimeout, logRates, listener);
+   }
+
+   @Override
+   public SequentialFile createSequentialFile(final String fileName, final int maxIO)
+   {
+      return new MappedSequentialFile(this, journalDir, fileName, writeExecutor);
+   }
+
+   /**
+    * Unmaps a mapping, or frees a direct buffer, right away instead of waiting for the buffer to be collected.
+    * The buffer must not be used afterwards.
+    */
+   @Override
+   public void releaseDirectBuffer(final ByteBuffer buffer)
+   {
+      unmap(buffer);
+   }
+
+   /**
+    * Unmaps a mapping, or frees a direct buffer, created outside of any factory.
+    * The buffer must not be used afterwards.
+    */
+   public static void unmap(final ByteBuffer buffer)
+   {
+      if (buffer == null || !buffer.isDirect())
+      {
+         return;
+      }
+
+      try
+      {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+
+         cleanerMethod.setAccessible(true);
+
+         Object cleaner = cleanerMethod.invoke(buffer);
+
+         // duplicates and slices have no cleaner of their own
+         if (cleaner != null)
+         {
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+         }
+      }
+      catch (Exception e)
+      {
+         // a VM not exposing the cleaner, the buffer is released when it's collected as it would be on NIO
+      }
+   }
+}
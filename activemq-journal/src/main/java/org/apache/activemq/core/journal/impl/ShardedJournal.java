@@ -0,0 +1,1131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.journal.impl;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.ActiveMQBuffers;
+import org.apache.activemq.api.core.ActiveMQExceptionType;
+import org.apache.activemq.core.journal.EncodingSupport;
+import org.apache.activemq.core.journal.IOCompletion;
+import org.apache.activemq.core.journal.Journal;
+import org.apache.activemq.core.journal.JournalLoadInformation;
+import org.apache.activemq.core.journal.LoaderCallback;
+import org.apache.activemq.core.journal.PreparedTransactionInfo;
+import org.apache.activemq.core.journal.RecordInfo;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.TransactionFailureCallback;
+import org.apache.activemq.core.journal.impl.dataformat.ByteArrayEncoding;
+import org.apache.activemq.journal.ActiveMQJournalBundle;
+import org.apache.activemq.journal.ActiveMQJournalLogger;
+import org.apache.activemq.utils.ActiveMQThreadFactory;
+import org.apache.activemq.utils.DataConstants;
+
+/**
+ * A journal spreading its records over several independent journals, the shards, so their files can be written
+ * concurrently and possibly on different devices.
+ * <p/>
+ * The shard of a record is chosen by its ID, so every update and delete of a record goes to the journal holding it.
+ * A transaction whose records are all on the same shard is committed on that shard as usual. Otherwise it is first
+ * prepared on every shard it touches, then the decision to commit it is stored on the first shard and only then it is
+ * committed on each shard. Each step is written once the writes of the previous one completed, the prepares and the
+ * decision always synced, so the decision can't reach the disk before a prepare nor a commit before the decision.
+ * When loading, a transaction found prepared on some shards is committed if its decision was stored and rolled back if
+ * it was not, unless it was prepared by the user on all its shards.
+ * <p/>
+ * Records loaded from a shard other than the one their ID hashes to (after the number of shards was increased) are
+ * kept on the shard they were found on. The number of shards can't be reduced, as the records on the removed shards
+ * would be lost. Transaction IDs must not be used as record IDs, as they identify the commit decisions.
+ */
+public final class ShardedJournal extends JournalBase
+{
+   /**
+    * User record type of the commit decisions stored on the first shard
+    */
+   public static final byte COMMIT_DECISION_RECORD = (byte)-1;
+
+   // identifies the prepare records written by this journal
+   private static final int PREPARE_HEADER_MAGIC = 0x53485244;
+
+   private static final int PREPARE_HEADER_SIZE = DataConstants.SIZE_INT * 2 + DataConstants.SIZE_BYTE;
+
+   // the transaction was prepared by the user, as in XA
+   private static final byte PREPARED_BY_USER = 0;
+
+   // the transaction was prepared by this journal in order to commit it
+   private static final byte PREPARED_FOR_COMMIT = 1;
+
+   private static final byte[] EMPTY_DECISION = new byte[0];
+
+   // how long a commit waits for the prepares or the decision to be written, in seconds
+   private static final long WRITE_TIMEOUT = 60;
+
+   private final Journal[] shards;
+
+   private final boolean supportsCallback;
+
+   private final ConcurrentMap<Long, ShardedTransaction> transactions = new ConcurrentHashMap<Long, ShardedTransaction>();
+
+   // records loaded from a shard other than the one their ID hashes to
+   private final ConcurrentMap<Long, Integer> relocatedRecords = new ConcurrentHashMap<Long, Integer>();
+
+   // transactions committed on all their shards, whose decisions can be deleted
+   private final Queue<Long> completedDecisions = new ConcurrentLinkedQueue<Long>();
+
+   public ShardedJournal(final Journal... shards)
+   {
+      super(shards[0].getFileFactory().isSupportsCallbacks(), shards[0].getFileSize());
+      this.shards = shards;
+      this.supportsCallback = shards[0].getFileFactory().isSupportsCallbacks();
+   }
+
+   public int getNumberOfShards()
+   {
+      return shards.length;
+   }
+
+   public Journal getShard(final int shard)
+   {
+      return shards[shard];
+   }
+
+   /**
+    * @return the index of the shard a record is written to
+    */
+   public int getShardIndex(final long id)
+   {
+      Integer relocated = relocatedRecords.get(id);
+      if (relocated != null)
+      {
+         return relocated;
+      }
+      return (int)((id & Long.MAX_VALUE) % shards.length);
+   }
+
+   // Non transactional operations
+
+   @Override
+   public void appendAddRecord(final long id,
+                               final byte recordType,
+                               final EncodingSupport record,
+                               final boolean sync,
+                               final IOCompletion callback) throws Exception
+   {
+      shards[getShardIndex(id)].appendAddRecord(id, recordType, record, sync, callback);
+   }
+
+   @Override
+   public void appendUpdateRecord(final long id,
+                                  final byte recordType,
+                                  final EncodingSupport record,
+                                  final boolean sync,
+                                  final IOCompletion callback) throws Exception
+   {
+      shards[getShardIndex(id)].appendUpdateRecord(id, recordType, record, sync, callback);
+   }
+
+   @Override
+   public void appendDeleteRecord(final long id, final boolean sync, final IOCompletion callback) throws Exception
+   {
+      Integer relocated = relocatedRecords.remove(id);
+      int shard = relocated != null ? relocated : getShardIndex(id);
+      shards[shard].appendDeleteRecord(id, sync, callback);
+   }
+
+   // Transactional operations
+
+   @Override
+   public void appendAddRecordTransactional(final long txID,
+                                            final long id,
+                                            final byte recordType,
+                                            final EncodingSupport record) throws Exception
+   {
+      shards[participate(txID, id)].appendAddRecordTransactional(txID, id, recordType, record);
+   }
+
+   @Override
+   public void appendUpdateRecordTransactional(final long txID,
+                                               final long id,
+                                               final byte recordType,
+                                               final EncodingSupport record) throws Exception
+   {
+      shards[participate(txID, id)].appendUpdateRecordTransactional(txID, id, recordType, record);
+   }
+
+   @Override
+   public void appendDeleteRecordTransactional(final long txID, final long id, final EncodingSupport record) throws Exception
+   {
+      shards[participate(txID, id)].appendDeleteRecordTransactional(txID, id, record);
+   }
+
+   @Override
+   public void appendPrepareRecord(final long txID,
+                                   final EncodingSupport transactionData,
+                                   final boolean sync,
+                                   final IOCompletion callback) throws Exception
+   {
+      ShardedTransaction tx = getTransaction(txID);
+
+      int[] participants = tx.getParticipants();
+
+      if (participants.length == 1)
+      {
+         shards[participants[0]].appendPrepareRecord(txID,
+                                                     new PrepareEncoding(1, PREPARED_BY_USER, transactionData),
+                                                     sync,
+                                                     callback);
+      }
+      else
+      {
+         if (callback != null)
+         {
+            callback.storeLineUp();
+         }
+
+         tx.prepares = appendPrepareRecords(txID, participants, PREPARED_BY_USER, transactionData, callback);
+      }
+
+      tx.prepared = true;
+   }
+
+   @Override
+   public void appendCommitRecord(final long txID,
+                                  final boolean sync,
+                                  final IOCompletion callback,
+                                  final boolean lineUpContext) throws Exception
+   {
+      deleteCompletedDecisions();
+
+      ShardedTransaction tx = transactions.get(txID);
+
+      if (tx == null)
+      {
+         throw new IllegalStateException("Cannot find tx with id " + txID);
+      }
+
+      int[] participants = tx.getParticipants();
+
+      if (participants.length == 1)
+      {
+         shards[participants[0]].appendCommitRecord(txID, sync, callback, lineUpContext);
+         transactions.remove(txID);
+         return;
+      }
+
+      if (callback != null && lineUpContext)
+      {
+         callback.storeLineUp();
+      }
+
+      ShardsCompletion prepares = tx.prepared ? tx.prepares : appendPrepareRecords(txID,
+                                                                                    participants,
+                                                                                    PREPARED_FOR_COMMIT,
+                                                                                    null,
+                                                                                    null);
+
+      // The commit records are appended on this thread, as the records they commit may be updated or deleted as
+      // soon as this returns, so this waits for each step to be written before writing the next one.
+      // The completions run on the writer threads of the shards, where appending could wait for the same thread.
+
+      if (prepares != null)
+      {
+         prepares.waitCompletion();
+      }
+
+      // once the decision is stored the transaction is committed, even if it doesn't reach every shard now
+      if (supportsCallback)
+      {
+         ShardsCompletion decision = new ShardsCompletion(1, null);
+         shards[0].appendAddRecord(txID, COMMIT_DECISION_RECORD, new ByteArrayEncoding(EMPTY_DECISION), true, decision);
+         decision.waitCompletion();
+      }
+      else
+      {
+         shards[0].appendAddRecord(txID, COMMIT_DECISION_RECORD, EMPTY_DECISION, true);
+      }
+
+      transactions.remove(txID);
+
+      if (supportsCallback)
+      {
+         IOCompletion commitCallback = new DecisionCompletion(txID, participants.length, callback);
+
+         for (int shard : participants)
+         {
+            shards[shard].appendCommitRecord(txID, sync, commitCallback, false);
+         }
+      }
+      else
+      {
+         // the records of a transaction are written right away when there are no callbacks, which are ignored
+         for (int shard : participants)
+         {
+            shards[shard].appendCommitRecord(txID, sync);
+         }
+
+         completedDecisions.add(txID);
+
+         if (callback != null)
+         {
+            callback.done();
+         }
+      }
+   }
+
+   @Override
+   public void appendRollbackRecord(final long txID, final boolean sync, final IOCompletion callback) throws Exception
+   {
+      ShardedTransaction tx = transactions.remove(txID);
+
+      if (tx == null)
+      {
+         throw new IllegalStateException("Cannot find tx with id " + txID);
+      }
+
+      int[] participants = tx.getParticipants();
+
+      // without a decision an incomplete transaction is rolled back on load, so only the last rollback is waited for
+      for (int i = 0; i < participants.length - 1; i++)
+      {
+         shards[participants[i]].appendRollbackRecord(txID, false);
+      }
+
+      shards[participants[participants.length - 1]].appendRollbackRecord(txID, sync, callback);
+   }
+
+   @Override
+   public void lineUpContext(final IOCompletion callback)
+   {
+      shards[0].lineUpContext(callback);
+   }
+
+   // Load
+
+   @Override
+   public JournalLoadInformation load(final LoaderCallback reloadManager) throws Exception
+   {
+      List<RecordInfo> committedRecords = new ArrayList<RecordInfo>();
+      List<PreparedTransactionInfo> preparedTransactions = new ArrayList<PreparedTransactionInfo>();
+
+      JournalLoadInformation info = load(committedRecords, preparedTransactions, reloadManager);
+
+      for (PreparedTransactionInfo prepared : preparedTransactions)
+      {
+         reloadManager.addPreparedTransaction(prepared);
+      }
+
+      for (RecordInfo record : committedRecords)
+      {
+         if (record.isUpdate)
+         {
+            reloadManager.updateRecord(record);
+         }
+         else
+         {
+            reloadManager.addRecord(record);
+         }
+      }
+
+      return info;
+   }
+
+   @Override
+   public JournalLoadInformation load(final List<RecordInfo> committedRecords,
+                                      final List<PreparedTransactionInfo> preparedTransactions,
+                                      final TransactionFailureCallback transactionFailure) throws Exception
+   {
+      @SuppressWarnings("unchecked")
+      final List<RecordInfo>[] shardRecords = new List[shards.length];
+      @SuppressWarnings("unchecked")
+      final List<PreparedTransactionInfo>[] shardPrepared = new List[shards.length];
+
+      // the shards are loaded concurrently, but the callback may not be thread safe
+      final TransactionFailureCallback failureCallback = transactionFailure == null ? null : new TransactionFailureCallback()
+      {
+         public synchronized void failedTransaction(final long transactionID,
+                                                    final List<RecordInfo> records,
+                                                    final List<RecordInfo> recordsToDelete)
+         {
+            transactionFailure.failedTransaction(transactionID, records, recordsToDelete);
+         }
+      };
+
+      JournalLoadInformation[] infos = loadShards(new ShardLoader()
+      {
+         public JournalLoadInformation load(final int shard) throws Exception
+         {
+            shardRecords[shard] = new ArrayList<RecordInfo>();
+            shardPrepared[shard] = new ArrayList<PreparedTransactionInfo>();
+            return shards[shard].load(shardRecords[shard], shardPrepared[shard], failureCallback);
+         }
+      });
+
+      Set<Long> decisions = new HashSet<Long>();
+      Map<Long, PreparedGroup> prepared = new HashMap<Long, PreparedGroup>();
+
+      for (int shard = 0; shard < shards.length; shard++)
+      {
+         for (RecordInfo record : shardRecords[shard])
+         {
+            if (shard == 0 && record.userRecordType == COMMIT_DECISION_RECORD)
+            {
+               decisions.add(record.id);
+            }
+            else
+            {
+               committedRecords.add(record);
+               relocate(record.id, shard);
+            }
+         }
+
+         for (PreparedTransactionInfo info : shardPrepared[shard])
+         {
+            PreparedGroup group = prepared.get(info.id);
+            if (group == null)
+            {
+               group = new PreparedGroup(info.id);
+               prepared.put(info.id, group);
+            }
+            group.add(shard, info);
+         }
+      }
+
+      List<Long> recordsToDelete = new ArrayList<Long>();
+
+      for (PreparedGroup group : prepared.values())
+      {
+         if (decisions.contains(group.txID))
+         {
+            for (int shard : group.shards)
+            {
+               shards[shard].appendCommitRecord(group.txID, true);
+            }
+
+            for (int i = 0; i < group.shards.size(); i++)
+            {
+               PreparedTransactionInfo info = group.infos.get(i);
+               for (RecordInfo record : info.records)
+               {
+                  committedRecords.add(record);
+                  relocate(record.id, group.shards.get(i));
+               }
+               for (RecordInfo record : info.recordsToDelete)
+               {
+                  recordsToDelete.add(record.id);
+               }
+            }
+         }
+         else if (group.isPreparedByUser())
+         {
+            PreparedTransactionInfo merged = group.merge();
+            preparedTransactions.add(merged);
+
+            ShardedTransaction tx = getTransaction(group.txID);
+            for (int i = 0; i < group.shards.size(); i++)
+            {
+               tx.add(group.shards.get(i));
+               for (RecordInfo record : group.infos.get(i).records)
+               {
+                  relocate(record.id, group.shards.get(i));
+               }
+            }
+            tx.prepared = true;
+         }
+         else
+         {
+            for (int shard : group.shards)
+            {
+               shards[shard].appendRollbackRecord(group.txID, false);
+            }
+         }
+      }
+
+      if (!recordsToDelete.isEmpty())
+      {
+         removeRecords(committedRecords, new HashSet<Long>(recordsToDelete));
+      }
+
+      for (Long decision : decisions)
+      {
+         shards[0].appendDeleteRecord(decision, false);
+      }
+
+      return merge(infos);
+   }
+
+   @Override
+   public JournalLoadInformation loadInternalOnly() throws Exception
+   {
+      return merge(loadShards(new ShardLoader()
+      {
+         public JournalLoadInformation load(final int shard) throws Exception
+         {
+            return shards[shard].loadInternalOnly();
+         }
+      }));
+   }
+
+   @Override
+   public JournalLoadInformation loadSyncOnly(final JournalState state) throws Exception
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   // Lifecycle
+
+   @Override
+   public void start() throws Exception
+   {
+      for (Journal shard : shards)
+      {
+         shard.start();
+      }
+   }
+
+   @Override
+   public void stop() throws Exception
+   {
+      if (isStarted())
+      {
+         deleteCompletedDecisions();
+      }
+
+      for (Journal shard : shards)
+      {
+         shard.stop();
+      }
+   }
+
+   @Override
+   public boolean isStarted()
+   {
+      return shards[0].isStarted();
+   }
+
+   // Other operations
+
+   @Override
+   public int getAlignment() throws Exception
+   {
+      return shards[0].getAlignment();
+   }
+
+   @Override
+   public int getNumberOfRecords()
+   {
+      int records = 0;
+      for (Journal shard : shards)
+      {
+         records += shard.getNumberOfRecords();
+      }
+      return records;
+   }
+
+   @Override
+   public int getUserVersion()
+   {
+      return shards[0].getUserVersion();
+   }
+
+   @Override
+   public void perfBlast(final int pages)
+   {
+      for (Journal shard : shards)
+      {
+         shard.perfBlast(pages);
+      }
+   }
+
+   @Override
+   public void runDirectJournalBlast() throws Exception
+   {
+      for (Journal shard : shards)
+      {
+         shard.runDirectJournalBlast();
+      }
+   }
+
+   @Override
+   public void forceMoveNextFile() throws Exception
+   {
+      for (Journal shard : shards)
+      {
+         shard.forceMoveNextFile();
+      }
+   }
+
+   @Override
+   public SequentialFileFactory getFileFactory()
+   {
+      return shards[0].getFileFactory();
+   }
+
+   @Override
+   public void scheduleCompactAndBlock(final int timeout) throws Exception
+   {
+      for (Journal shard : shards)
+      {
+         shard.scheduleCompactAndBlock(timeout);
+      }
+   }
+
+   @Override
+   void scheduleReclaim()
+   {
+      // no-op, each shard reclaims its own files
+   }
+
+   @Override
+   public String toString()
+   {
+      return ShardedJournal.class.getName() + "(shards=" + shards.length + ")";
+   }
+
+   // UNSUPPORTED STUFF, used by the replication only
+
+   @Override
+   public Map<Long, JournalFile> createFilesForBackupSync(final long[] fileIds) throws Exception
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   @Override
+   public void synchronizationLock()
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   @Override
+   public void synchronizationUnlock()
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   @Override
+   public JournalFile[] getDataFiles()
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   @Override
+   public void replicationSyncPreserveOldFiles()
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   @Override
+   public void replicationSyncFinished()
+   {
+      throw new UnsupportedOperationException("replication is not supported with a sharded journal");
+   }
+
+   // Private -------------------------------------------------------
+
+   private ShardedTransaction getTransaction(final long txID)
+   {
+      ShardedTransaction tx = transactions.get(txID);
+      if (tx == null)
+      {
+         tx = new ShardedTransaction(shards.length);
+         ShardedTransaction existing = transactions.putIfAbsent(txID, tx);
+         if (existing != null)
+         {
+            tx = existing;
+         }
+      }
+      return tx;
+   }
+
+   /**
+    * Adds the shard of a record to the shards of a transaction
+    */
+   private int participate(final long txID, final long id)
+   {
+      int shard = getShardIndex(id);
+      getTransaction(txID).add(shard);
+      return shard;
+   }
+
+   private void relocate(final long id, final int shard)
+   {
+      if ((int)((id & Long.MAX_VALUE) % shards.length) != shard)
+      {
+         relocatedRecords.put(id, shard);
+      }
+   }
+
+   /**
+    * Prepares a transaction on all its shards at once, without waiting for them. The prepare records are synced even
+    * when the transaction isn't, as a write that isn't synced completes only once the buffer is flushed and the commit
+    * waits for them.
+    *
+    * @param callback completed once the prepare records are written on all the shards, its line up is up to the caller
+    * @return the completion of the prepare records, or null if they are already written as there are no callbacks
+    */
+   private ShardsCompletion appendPrepareRecords(final long txID,
+                                                 final int[] participants,
+                                                 final byte kind,
+                                                 final EncodingSupport transactionData,
+                                                 final IOCompletion callback) throws Exception
+   {
+      EncodingSupport data = new PrepareEncoding(participants.length, kind, transactionData);
+
+      if (!supportsCallback)
+      {
+         for (int shard : participants)
+         {
+            shards[shard].appendPrepareRecord(txID, data, true);
+         }
+
+         if (callback != null)
+         {
+            callback.done();
+         }
+
+         return null;
+      }
+
+      ShardsCompletion completion = new ShardsCompletion(participants.length, callback);
+
+      for (int shard : participants)
+      {
+         shards[shard].appendPrepareRecord(txID, data, true, completion);
+      }
+
+      return completion;
+   }
+
+   private void deleteCompletedDecisions() throws Exception
+   {
+      Long txID;
+      while ((txID = completedDecisions.poll()) != null)
+      {
+         shards[0].appendDeleteRecord(txID, false);
+      }
+   }
+
+   private static void removeRecords(final List<RecordInfo> records, final Set<Long> ids)
+   {
+      Iterator<RecordInfo> iterator = records.iterator();
+      while (iterator.hasNext())
+      {
+         if (ids.contains(iterator.next().id))
+         {
+            iterator.remove();
+         }
+      }
+   }
+
+   private JournalLoadInformation[] loadShards(final ShardLoader loader) throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(shards.length,
+                                                              new ActiveMQThreadFactory("ActiveMQ-sharded-journal-loader",
+                                                                                        true,
+                                                                                        ShardedJournal.getThisClassLoader()));
+
+      try
+      {
+         List<Future<JournalLoadInformation>> loads = new ArrayList<Future<JournalLoadInformation>>(shards.length);
+
+         for (int i = 0; i < shards.length; i++)
+         {
+            final int shard = i;
+            loads.add(executor.submit(new Callable<JournalLoadInformation>()
+            {
+               public JournalLoadInformation call() throws Exception
+               {
+                  return loader.load(shard);
+               }
+            }));
+         }
+
+         JournalLoadInformation[] infos = new JournalLoadInformation[shards.length];
+
+         for (int i = 0; i < shards.length; i++)
+         {
+            try
+            {
+               infos[i] = loads.get(i).get();
+            }
+            catch (ExecutionException e)
+            {
+               if (e.getCause() instanceof Exception)
+               {
+                  throw (Exception)e.getCause();
+               }
+               throw e;
+            }
+         }
+
+         return infos;
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static JournalLoadInformation merge(final JournalLoadInformation[] infos)
+   {
+      int numberOfRecords = 0;
+      long maxID = -1;
+
+      for (JournalLoadInformation info : infos)
+      {
+         numberOfRecords += info.getNumberOfRecords();
+         maxID = Math.max(maxID, info.getMaxID());
+      }
+
+      return new JournalLoadInformation(numberOfRecords, maxID);
+   }
+
+   private static ClassLoader getThisClassLoader()
+   {
+      return AccessController.doPrivileged(new PrivilegedAction<ClassLoader>()
+      {
+         public ClassLoader run()
+         {
+            return ShardedJournal.class.getClassLoader();
+         }
+      });
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private interface ShardLoader
+   {
+      JournalLoadInformation load(int shard) throws Exception;
+   }
+
+   private static final class ShardedTransaction
+   {
+      private final boolean[] shards;
+
+      private volatile boolean prepared;
+
+      // the prepare records written by the user, null if they were loaded or written without callbacks
+      private volatile ShardsCompletion prepares;
+
+      ShardedTransaction(final int numberOfShards)
+      {
+         shards = new boolean[numberOfShards];
+      }
+
+      synchronized void add(final int shard)
+      {
+         shards[shard] = true;
+      }
+
+      synchronized int[] getParticipants()
+      {
+         int count = 0;
+         for (boolean shard : shards)
+         {
+            if (shard)
+            {
+               count++;
+            }
+         }
+
+         if (count == 0)
+         {
+            // an empty transaction is written to the first shard
+            shards[0] = true;
+            return new int[]{0};
+         }
+
+         int[] participants = new int[count];
+         for (int i = 0, j = 0; i < shards.length; i++)
+         {
+            if (shards[i])
+            {
+               participants[j++] = i;
+            }
+         }
+         return participants;
+      }
+   }
+
+   /**
+    * Waits for a write done on several shards, completing a delegate once it's done on all of them.
+    */
+   private static final class ShardsCompletion extends SyncIOCompletion
+   {
+      private final AtomicInteger pendingWrites;
+
+      private final CountDownLatch latch = new CountDownLatch(1);
+
+      private final IOCompletion delegate;
+
+      private volatile String errorMessage;
+
+      private volatile int errorCode = 0;
+
+      ShardsCompletion(final int writes, final IOCompletion delegate)
+      {
+         this.pendingWrites = new AtomicInteger(writes);
+         this.delegate = delegate;
+      }
+
+      public void storeLineUp()
+      {
+      }
+
+      public void done()
+      {
+         if (pendingWrites.decrementAndGet() == 0)
+         {
+            complete();
+         }
+      }
+
+      public void onError(final int errorCode1, final String errorMessage1)
+      {
+         this.errorCode = errorCode1;
+
+         this.errorMessage = errorMessage1;
+
+         ActiveMQJournalLogger.LOGGER.errorOnIOCallback(errorMessage1);
+
+         if (pendingWrites.decrementAndGet() == 0)
+         {
+            complete();
+         }
+      }
+
+      @Override
+      public void waitCompletion() throws Exception
+      {
+         if (!latch.await(WRITE_TIMEOUT, TimeUnit.SECONDS))
+         {
+            throw ActiveMQJournalBundle.BUNDLE.shardsWriteTimeout(WRITE_TIMEOUT);
+         }
+
+         if (errorMessage != null)
+         {
+            throw ActiveMQExceptionType.createException(errorCode, errorMessage);
+         }
+      }
+
+      private void complete()
+      {
+         latch.countDown();
+
+         if (delegate != null)
+         {
+            if (errorMessage == null)
+            {
+               delegate.done();
+            }
+            else
+            {
+               delegate.onError(errorCode, errorMessage);
+            }
+         }
+      }
+   }
+
+   /**
+    * Completes the commit of a transaction once it was committed on all its shards, so its decision can be deleted.
+    */
+   private final class DecisionCompletion implements IOCompletion
+   {
+      private final long txID;
+
+      private final AtomicInteger pendingCommits;
+
+      private final IOCompletion delegate;
+
+      private volatile boolean failed;
+
+      DecisionCompletion(final long txID, final int participants, final IOCompletion delegate)
+      {
+         this.txID = txID;
+         this.pendingCommits = new AtomicInteger(participants);
+         this.delegate = delegate;
+      }
+
+      public void storeLineUp()
+      {
+      }
+
+      public void done()
+      {
+         if (pendingCommits.decrementAndGet() == 0 && !failed)
+         {
+            completedDecisions.add(txID);
+
+            if (delegate != null)
+            {
+               delegate.done();
+            }
+         }
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+         // the decision is kept and the commit completed on the next load
+         if (!failed)
+         {
+            failed = true;
+
+            if (delegate != null)
+            {
+               delegate.onError(errorCode, errorMessage);
+            }
+         }
+
+         pendingCommits.decrementAndGet();
+      }
+   }
+
+   /**
+    * Prefixes the data of a prepare record with the number of shards it was written to.
+    */
+   private static final class PrepareEncoding implements EncodingSupport
+   {
+      private int participants;
+
+      private byte kind;
+
+      private EncodingSupport transactionData;
+
+      // the data of the user, once decoded
+      private byte[] decodedData;
+
+      PrepareEncoding()
+      {
+      }
+
+      PrepareEncoding(final int participants, final byte kind, final EncodingSupport transactionData)
+      {
+         this.participants = participants;
+         this.kind = kind;
+         this.transactionData = transactionData;
+      }
+
+      public int getEncodeSize()
+      {
+         return PREPARE_HEADER_SIZE + (transactionData == null ? 0 : transactionData.getEncodeSize());
+      }
+
+      public void encode(final ActiveMQBuffer buffer)
+      {
+         buffer.writeInt(PREPARE_HEADER_MAGIC);
+         buffer.writeInt(participants);
+         buffer.writeByte(kind);
+         if (transactionData != null)
+         {
+            transactionData.encode(buffer);
+         }
+      }
+
+      public void decode(final ActiveMQBuffer buffer)
+      {
+         if (buffer.readableBytes() >= PREPARE_HEADER_SIZE && buffer.getInt(buffer.readerIndex()) == PREPARE_HEADER_MAGIC)
+         {
+            buffer.readInt();
+            participants = buffer.readInt();
+            kind = buffer.readByte();
+         }
+         else
+         {
+            // prepared before the journal was sharded
+            participants = 1;
+            kind = PREPARED_BY_USER;
+         }
+
+         decodedData = new byte[buffer.readableBytes()];
+         buffer.readBytes(decodedData);
+
+         transactionData = new ByteArrayEncoding(decodedData);
+      }
+   }
+
+   /**
+    * The parts of a transaction found prepared on different shards
+    */
+   private static final class PreparedGroup
+   {
+      private final long txID;
+
+      private final List<Integer> shards = new ArrayList<Integer>();
+
+      private final List<PreparedTransactionInfo> infos = new ArrayList<PreparedTransactionInfo>();
+
+      private int participants = 1;
+
+      private byte kind = PREPARED_BY_USER;
+
+      private byte[] transactionData;
+
+      PreparedGroup(final long txID)
+      {
+         this.txID = txID;
+      }
+
+      void add(final int shard, final PreparedTransactionInfo info)
+      {
+         shards.add(shard);
+         infos.add(info);
+
+         PrepareEncoding encoding = new PrepareEncoding();
+         encoding.decode(ActiveMQBuffers.wrappedBuffer(info.extraData));
+
+         participants = encoding.participants;
+         kind = encoding.kind;
+         transactionData = encoding.decodedData;
+      }
+
+      boolean isPreparedByUser()
+      {
+         return kind == PREPARED_BY_USER && shards.size() == participants;
+      }
+
+      PreparedTransactionInfo merge()
+      {
+         PreparedTransactionInfo merged = new PreparedTransactionInfo(txID, transactionData);
+         for (PreparedTransactionInfo info : infos)
+         {
+            merged.records.addAll(info.records);
+            merged.recordsToDelete.addAll(info.recordsToDelete);
+         }
+         return merged;
+      }
+   }
+}
@@ -24,6 +24,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.activemq.api.core.ActiveMQBuffer;
 import org.apache.activemq.api.core.ActiveMQBuffers;
@@ -46,6 +47,16 @@ public class TimedBuffer
    // The number of tries on sleep before switching to spin
    public static final int MAX_CHECKS_ON_SLEEP = 20;
 
+   // Flushes are counted by the number of records they carried: 1, 2-3, 4-7, ... and the last bucket for anything bigger
+   public static final int BATCH_SIZE_BUCKETS = 12;
+
+   // The adaptive timeout never goes below this many nanoseconds, so the timer thread pauses between flushes instead
+   // of spinning when there is nothing to be batched
+   public static final int MIN_ADAPTIVE_TIMEOUT = 10000;
+
+   // Weight of each new sample on the moving averages used by the adaptive timeout, as a shift (1/8)
+   private static final int AVERAGE_SHIFT = 3;
+
    // Attributes ----------------------------------------------------
 
    private TimedBufferObserver bufferObserver;
@@ -96,6 +107,21 @@ public class TimedBuffer
    // no need to be volatile as every access is synchronized
    private boolean spinning = false;
 
+   // When adaptive, the flush timeout is chosen from the measured sync latency and the rate of sync requests,
+   // never going above the configured timeout
+   private volatile boolean adaptive;
+
+   private volatile int currentTimeout;
+
+   private volatile long averageSyncLatency;
+
+   private volatile long averageSyncInterval;
+
+   // guarded by this
+   private long lastSyncRequest;
+
+   private final AtomicLongArray batchSizes = new AtomicLongArray(BATCH_SIZE_BUCKETS);
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
@@ -123,6 +149,58 @@ public class TimedBuffer
       callbacks = new ArrayList<IOAsyncTask>();
 
       this.timeout = timeout;
+
+      this.currentTimeout = timeout;
+   }
+
+   public boolean isAdaptive()
+   {
+      return adaptive;
+   }
+
+   /**
+    * On adaptive mode there is no point waiting for more records if the sync requests arrive slower than a sync takes,
+    * otherwise we wait up to the time of a sync (bounded by the configured timeout) so more records go on each sync.
+    */
+   public void setAdaptive(final boolean adaptive)
+   {
+      this.adaptive = adaptive;
+
+      if (!adaptive)
+      {
+         currentTimeout = timeout;
+      }
+   }
+
+   /**
+    * @return the timeout in nanoseconds currently used to flush pending syncs
+    */
+   public int getCurrentTimeout()
+   {
+      return currentTimeout;
+   }
+
+   /**
+    * @return the average time in nanoseconds taken to write and sync a buffer, measured on adaptive mode
+    */
+   public long getAverageSyncLatency()
+   {
+      return averageSyncLatency;
+   }
+
+   /**
+    * @return how many flushes carried 1, 2-3, 4-7, ... records. The last element counts any flush bigger than that
+    */
+   public long[] getBatchSizeHistogram()
+   {
+      long[] histogram = new long[BATCH_SIZE_BUCKETS];
+
+      for (int i = 0; i < BATCH_SIZE_BUCKETS; i++)
+      {
+         histogram[i] = batchSizes.get(i);
+      }
+
+      return histogram;
    }
 
    // for Debug purposes
@@ -271,6 +349,10 @@ public class TimedBuffer
       addBytes(new ByteArrayEncoding(bytes.toByteBuffer().array()), sync, callback);
    }
 
+   /**
+    * The journal appends under its own lock and calls checkSize first, so the records are encoded straight into the
+    * buffer. A record that fails to encode leaves nothing behind.
+    */
    public synchronized void addBytes(final EncodingSupport bytes, final boolean sync, final IOAsyncTask callback)
    {
       if (!started)
@@ -278,19 +360,51 @@ public class TimedBuffer
          throw new IllegalStateException("TimedBuffer is not started");
       }
 
+      final int size = bytes.getEncodeSize();
+
+      if ((bufferLimit == 0 || buffer.writerIndex() + size > bufferLimit) && !checkSize(size))
+      {
+         delayFlush = false;
+
+         throw new IllegalStateException("There is no space left on the file for a record of " + size + " bytes");
+      }
+
       delayFlush = false;
 
-      bytes.encode(buffer);
+      final int pos = buffer.writerIndex();
+
+      try
+      {
+         bytes.encode(buffer);
+      }
+      catch (RuntimeException e)
+      {
+         // the next record will be written over whatever was partially encoded
+         buffer.writerIndex(pos);
+
+         throw e;
+      }
 
       callbacks.add(callback);
 
       if (sync)
       {
+         if (adaptive)
+         {
+            long now = System.nanoTime();
+
+            if (lastSyncRequest != 0)
+            {
+               averageSyncInterval = movingAverage(averageSyncInterval, now - lastSyncRequest);
+            }
+
+            lastSyncRequest = now;
+         }
+
          pendingSync = true;
 
          startSpin();
       }
-
    }
 
    public void flush()
@@ -328,6 +442,15 @@ public class TimedBuffer
 
             bufferToFlush.put(buffer.toByteBuffer().array(), 0, pos);
 
+            int records = callbacks.size();
+
+            batchSizes.incrementAndGet(Math.min(31 - Integer.numberOfLeadingZeros(Math.max(records, 1)), BATCH_SIZE_BUCKETS - 1));
+
+            if (adaptive && pendingSync)
+            {
+               callbacks.add(new SyncLatencyCallback(System.nanoTime()));
+            }
+
             bufferObserver.flushBuffer(bufferToFlush, pendingSync, callbacks);
 
             stopSpin();
@@ -352,8 +475,58 @@ public class TimedBuffer
 
    // Private -------------------------------------------------------
 
+   private static long movingAverage(final long average, final long sample)
+   {
+      if (average == 0)
+      {
+         return sample;
+      }
+      return average + ((sample - average) >> AVERAGE_SHIFT);
+   }
+
+   private void syncDone(final long latency)
+   {
+      long latencyAverage = movingAverage(averageSyncLatency, latency);
+
+      averageSyncLatency = latencyAverage;
+
+      long syncInterval = averageSyncInterval;
+
+      if (syncInterval == 0 || syncInterval >= latencyAverage)
+      {
+         // nothing to be batched by waiting, flush as soon as the sync is requested
+         currentTimeout = Math.min(MIN_ADAPTIVE_TIMEOUT, timeout);
+      }
+      else
+      {
+         currentTimeout = (int) Math.min(Math.max(latencyAverage, MIN_ADAPTIVE_TIMEOUT), timeout);
+      }
+   }
+
    // Inner classes -------------------------------------------------
 
+   private class SyncLatencyCallback implements IOAsyncTask
+   {
+      private final long start;
+
+      SyncLatencyCallback(final long start)
+      {
+         this.start = start;
+      }
+
+      public void done()
+      {
+         if (adaptive)
+         {
+            syncDone(System.nanoTime() - start);
+         }
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+      }
+   }
+
    private class LogRatesTimerTask extends TimerTask
    {
       private boolean closed;
@@ -407,9 +580,6 @@ public class TimedBuffer
       int failedChecks = 0;
       long timeBefore = 0;
 
-      final int sleepMillis = timeout / 1000000; // truncates
-      final int sleepNanos = timeout % 1000000;
-
 
       public void run()
       {
@@ -430,7 +600,7 @@ public class TimedBuffer
                   flush();
                   lastFlushTime = System.nanoTime();
                }
-               else if (bufferObserver != null && System.nanoTime() > lastFlushTime + timeout)
+               else if (bufferObserver != null && System.nanoTime() > lastFlushTime + currentTimeout)
                {
                   // if not using flush we will spin and do the time checks manually
                   flush();
@@ -463,6 +633,8 @@ public class TimedBuffer
        */
       private void sleepIfPossible()
       {
+         final int sleepTimeout = currentTimeout;
+
          if (isUseSleep())
          {
             if (checks < MAX_CHECKS_ON_SLEEP)
@@ -472,7 +644,7 @@ public class TimedBuffer
 
             try
             {
-               sleep(sleepMillis, sleepNanos);
+               sleep(sleepTimeout / 1000000, sleepTimeout % 1000000);
             }
             catch (InterruptedException e)
             {
@@ -489,7 +661,7 @@ public class TimedBuffer
                long realTimeSleep = System.nanoTime() - timeBefore;
 
                // I'm letting the real time to be up to 50% than the requested sleep.
-               if (realTimeSleep > timeout * 1.5)
+               if (realTimeSleep > sleepTimeout * 1.5)
                {
                   failedChecks++;
                }
@@ -57,13 +57,15 @@ public class JournalAddRecord extends JournalInternalRecord
    @Override
    public void encode(final ActiveMQBuffer buffer)
    {
+      final int start = buffer.writerIndex();
+
       if (add)
       {
-         buffer.writeByte(JournalImpl.ADD_RECORD);
+         buffer.writeByte(encodeType(JournalImpl.ADD_RECORD));
       }
       else
       {
-         buffer.writeByte(JournalImpl.UPDATE_RECORD);
+         buffer.writeByte(encodeType(JournalImpl.UPDATE_RECORD));
       }
 
       buffer.writeInt(fileID);
@@ -78,12 +80,12 @@ public class JournalAddRecord extends JournalInternalRecord
 
       record.encode(buffer);
 
-      buffer.writeInt(getEncodeSize());
+      encodeTrailer(buffer, start);
    }
 
    @Override
    public int getEncodeSize()
    {
-      return JournalImpl.SIZE_ADD_RECORD + record.getEncodeSize() + 1;
+      return JournalImpl.SIZE_ADD_RECORD + record.getEncodeSize() + 1 + getChecksumSize();
    }
 }
\ No newline at end of file
@@ -66,13 +66,15 @@ public class JournalAddRecordTX extends JournalInternalRecord
    @Override
    public void encode(final ActiveMQBuffer buffer)
    {
+      final int start = buffer.writerIndex();
+
       if (add)
       {
-         buffer.writeByte(JournalImpl.ADD_RECORD_TX);
+         buffer.writeByte(encodeType(JournalImpl.ADD_RECORD_TX));
       }
       else
       {
-         buffer.writeByte(JournalImpl.UPDATE_RECORD_TX);
+         buffer.writeByte(encodeType(JournalImpl.UPDATE_RECORD_TX));
       }
 
       buffer.writeInt(fileID);
@@ -89,12 +91,12 @@ public class JournalAddRecordTX extends JournalInternalRecord
 
       record.encode(buffer);
 
-      buffer.writeInt(getEncodeSize());
+      encodeTrailer(buffer, start);
    }
 
    @Override
    public int getEncodeSize()
    {
-      return JournalImpl.SIZE_ADD_RECORD_TX + record.getEncodeSize() + 1;
+      return JournalImpl.SIZE_ADD_RECORD_TX + record.getEncodeSize() + 1 + getChecksumSize();
    }
 }
@@ -61,13 +61,15 @@ public class JournalCompleteRecordTX extends JournalInternalRecord
    @Override
    public void encode(final ActiveMQBuffer buffer)
    {
+      final int start = buffer.writerIndex();
+
       if (txRecordType == TX_RECORD_TYPE.COMMIT)
       {
-         buffer.writeByte(JournalImpl.COMMIT_RECORD);
+         buffer.writeByte(encodeType(JournalImpl.COMMIT_RECORD));
       }
       else
       {
-         buffer.writeByte(JournalImpl.PREPARE_RECORD);
+         buffer.writeByte(encodeType(JournalImpl.PREPARE_RECORD));
       }
 
       buffer.writeInt(fileID);
@@ -88,7 +90,7 @@ public class JournalCompleteRecordTX extends JournalInternalRecord
          transactionData.encode(buffer);
       }
 
-      buffer.writeInt(getEncodeSize());
+      encodeTrailer(buffer, start);
    }
 
    @Override
@@ -108,11 +110,12 @@ public class JournalCompleteRecordTX extends JournalInternalRecord
    {
       if (txRecordType == TX_RECORD_TYPE.COMMIT)
       {
-         return JournalImpl.SIZE_COMPLETE_TRANSACTION_RECORD + 1;
+         return JournalImpl.SIZE_COMPLETE_TRANSACTION_RECORD + 1 + getChecksumSize();
       }
       else
       {
-         return JournalImpl.SIZE_PREPARE_RECORD + (transactionData != null ? transactionData.getEncodeSize() : 0) + 1;
+         return JournalImpl.SIZE_PREPARE_RECORD + (transactionData != null ? transactionData.getEncodeSize() : 0) + 1 +
+            getChecksumSize();
       }
    }
 }
@@ -41,7 +41,9 @@ public class JournalDeleteRecord extends JournalInternalRecord
 
    public void encode(final ActiveMQBuffer buffer)
    {
-      buffer.writeByte(JournalImpl.DELETE_RECORD);
+      final int start = buffer.writerIndex();
+
+      buffer.writeByte(encodeType(JournalImpl.DELETE_RECORD));
 
       buffer.writeInt(fileID);
 
@@ -49,12 +51,12 @@ public class JournalDeleteRecord extends JournalInternalRecord
 
       buffer.writeLong(id);
 
-      buffer.writeInt(getEncodeSize());
+      encodeTrailer(buffer, start);
    }
 
    @Override
    public int getEncodeSize()
    {
-      return JournalImpl.SIZE_DELETE_RECORD + 1;
+      return JournalImpl.SIZE_DELETE_RECORD + 1 + getChecksumSize();
    }
 }
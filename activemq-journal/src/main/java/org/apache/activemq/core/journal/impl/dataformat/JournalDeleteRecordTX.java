@@ -53,7 +53,9 @@ public class JournalDeleteRecordTX extends JournalInternalRecord
    @Override
    public void encode(final ActiveMQBuffer buffer)
    {
-      buffer.writeByte(JournalImpl.DELETE_RECORD_TX);
+      final int start = buffer.writerIndex();
+
+      buffer.writeByte(encodeType(JournalImpl.DELETE_RECORD_TX));
 
       buffer.writeInt(fileID);
 
@@ -70,12 +72,12 @@ public class JournalDeleteRecordTX extends JournalInternalRecord
          record.encode(buffer);
       }
 
-      buffer.writeInt(getEncodeSize());
+      encodeTrailer(buffer, start);
    }
 
    @Override
    public int getEncodeSize()
    {
-      return JournalImpl.SIZE_DELETE_RECORD_TX + (record != null ? record.getEncodeSize() : 0) + 1;
+      return JournalImpl.SIZE_DELETE_RECORD_TX + (record != null ? record.getEncodeSize() : 0) + 1 + getChecksumSize();
    }
 }
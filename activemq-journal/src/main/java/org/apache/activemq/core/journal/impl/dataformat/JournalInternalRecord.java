@@ -16,8 +16,14 @@
  */
 package org.apache.activemq.core.journal.impl.dataformat;
 
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import io.netty.buffer.ByteBuf;
 import org.apache.activemq.api.core.ActiveMQBuffer;
 import org.apache.activemq.core.journal.EncodingSupport;
+import org.apache.activemq.core.journal.impl.JournalImpl;
+import org.apache.activemq.utils.DataConstants;
 
 /**
  * A InternalEncoder
@@ -28,11 +34,21 @@ import org.apache.activemq.core.journal.EncodingSupport;
  */
 public abstract class JournalInternalRecord implements EncodingSupport
 {
+   private static final ThreadLocal<CRC32> CRC = new ThreadLocal<CRC32>()
+   {
+      @Override
+      protected CRC32 initialValue()
+      {
+         return new CRC32();
+      }
+   };
 
    protected int fileID;
 
    protected byte compactCount;
 
+   protected boolean checksum;
+
    public int getFileID()
    {
       return fileID;
@@ -73,5 +89,79 @@ public abstract class JournalInternalRecord implements EncodingSupport
       }
    }
 
+   public boolean isChecksum()
+   {
+      return checksum;
+   }
+
+   /**
+    * When set the record is written with the checksum marker and a CRC of its bytes just before the trailing size.
+    * It has to be set before {@link #getEncodeSize()} is used.
+    */
+   public void setChecksum(final boolean checksum)
+   {
+      this.checksum = checksum;
+   }
+
+   /**
+    * The record type to be written, with the checksum marker applied if needed.
+    */
+   protected byte encodeType(final byte recordType)
+   {
+      return checksum ? (byte) (recordType + JournalImpl.CHECKSUM_RECORD_OFFSET) : recordType;
+   }
+
+   /**
+    * The bytes added by the checksum to the encoded record.
+    */
+   protected int getChecksumSize()
+   {
+      return checksum ? DataConstants.SIZE_INT : 0;
+   }
+
+   /**
+    * Writes the end of the record started at {@code start}: the CRC of the bytes encoded so far when enabled, and the
+    * size of the record. The CRC is calculated straight out of the buffer being written, while it is still hot on the
+    * cache, without copying the record.
+    */
+   protected void encodeTrailer(final ActiveMQBuffer buffer, final int start)
+   {
+      if (checksum)
+      {
+         final int length = buffer.writerIndex() - start;
+         final ByteBuf byteBuf = buffer.byteBuf();
+         final ByteBuffer bytes;
+         if (byteBuf != null)
+         {
+            bytes = byteBuf.nioBuffer(start, length);
+         }
+         else
+         {
+            byte[] copy = new byte[length];
+            buffer.getBytes(start, copy);
+            bytes = ByteBuffer.wrap(copy);
+         }
+         buffer.writeInt(checksum(bytes, 0, length));
+      }
+
+      buffer.writeInt(getEncodeSize());
+   }
+
+   /**
+    * The CRC of the bytes of {@code buffer} between the absolute positions {@code from} (inclusive) and {@code to}
+    * (exclusive), leaving the buffer position and limit untouched.
+    */
+   public static int checksum(final ByteBuffer buffer, final int from, final int to)
+   {
+      ByteBuffer range = buffer.duplicate();
+      range.limit(to);
+      range.position(from);
+
+      CRC32 crc = CRC.get();
+      crc.reset();
+      crc.update(range);
+      return (int) crc.getValue();
+   }
+
    public abstract int getEncodeSize();
 }
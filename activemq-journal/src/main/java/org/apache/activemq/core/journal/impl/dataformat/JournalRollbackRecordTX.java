@@ -38,17 +38,18 @@ public class JournalRollbackRecordTX extends JournalInternalRecord
    @Override
    public void encode(final ActiveMQBuffer buffer)
    {
-      buffer.writeByte(JournalImpl.ROLLBACK_RECORD);
+      final int start = buffer.writerIndex();
+
+      buffer.writeByte(encodeType(JournalImpl.ROLLBACK_RECORD));
       buffer.writeInt(fileID);
       buffer.writeByte(compactCount);
       buffer.writeLong(txID);
-      buffer.writeInt(JournalImpl.SIZE_ROLLBACK_RECORD + 1);
-
+      encodeTrailer(buffer, start);
    }
 
    @Override
    public int getEncodeSize()
    {
-      return JournalImpl.SIZE_ROLLBACK_RECORD + 1;
+      return JournalImpl.SIZE_ROLLBACK_RECORD + 1 + getChecksumSize();
    }
 }
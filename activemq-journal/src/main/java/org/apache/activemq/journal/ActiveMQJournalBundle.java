@@ -49,4 +49,7 @@ public interface ActiveMQJournalBundle
 
    @Message(id = 149003, value =   "File not opened", format = Message.Format.MESSAGE_FORMAT)
    ActiveMQIOErrorException fileNotOpened();
+
+   @Message(id = 149004, value =   "Timed out after {0} seconds waiting for the journal shards to write", format = Message.Format.MESSAGE_FORMAT)
+   ActiveMQIOErrorException shardsWriteTimeout(long timeout);
 }
@@ -244,6 +244,12 @@ public interface ActiveMQJournalLogger extends BasicLogger
    @Message(id = 142034, value = "Exception on submitting write", format = Message.Format.MESSAGE_FORMAT)
    void errorSubmittingWrite(@Cause Throwable e);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 142035, value = "Checksum mismatch on the record at position {0} of the file {1}" +
+                                 "\nrecordID={2} transactionID={3}, the record is corrupted and it is being ignored",
+            format = Message.Format.MESSAGE_FORMAT)
+   void recordChecksumMismatch(int position, String fileName, long recordID, long transactionID);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 144000, value = "Failed to delete file {0}", format = Message.Format.MESSAGE_FORMAT)
    void errorDeletingFile(Object e);
@@ -419,6 +419,14 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
       return compare(lv, rv);
    }
 
+   /**
+    * @return true if a String operand is converted to the type of the other operand before they are compared
+    */
+   public boolean isConvertStringExpressions()
+   {
+      return convertStringExpressions;
+   }
+
    protected Boolean compare(Comparable lv, Comparable rv)
    {
       Class<? extends Comparable> lc = lv.getClass();
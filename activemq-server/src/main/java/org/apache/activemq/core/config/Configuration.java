@@ -435,6 +435,45 @@ public interface Configuration
     */
    Configuration setPageMaxConcurrentIO(int maxIO);
 
+   /**
+    * Returns the memory, in bytes, the page caches of all the addresses may use together, -1 meaning a tenth of
+    * the maximum heap.
+    * <p/>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_PAGE_CACHE_MAX_MEMORY}.
+    */
+   long getPageCacheMaxMemory();
+
+   /**
+    * Sets the memory, in bytes, the page caches of all the addresses may use together.
+    */
+   Configuration setPageCacheMaxMemory(long maxMemory);
+
+   /**
+    * Returns the max number of page cleanups running at once across all the addresses, -1 meaning the number of
+    * processors.
+    * <p/>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_MAX_CONCURRENT_PAGE_CLEANUP}.
+    */
+   int getPageMaxConcurrentCleanup();
+
+   /**
+    * Sets the max number of page cleanups running at once across all the addresses.
+    */
+   Configuration setPageMaxConcurrentCleanup(int maxCleanup);
+
+   /**
+    * Returns the memory, in bytes, the messages of all the addresses may use before the addresses holding more than
+    * their share are paged, blocked or dropped, -1 meaning no global limit.
+    * <p/>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_GLOBAL_MAX_SIZE}.
+    */
+   long getGlobalMaxSize();
+
+   /**
+    * Sets the memory, in bytes, the messages of all the addresses may use.
+    */
+   Configuration setGlobalMaxSize(long maxSize);
+
    /**
     * Returns the file system directory used to store journal log. <br>
     * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_DIR}.
@@ -513,6 +552,17 @@ public interface Configuration
     */
    Configuration setJournalCompactPercentage(int percentage);
 
+   /**
+    * Returns the maximal number of journal files compacted at once, 0 means all the data files. <br>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_MAX_FILES}.
+    */
+   int getJournalCompactMaxFiles();
+
+   /**
+    * Sets the maximal number of journal files compacted at once.
+    */
+   Configuration setJournalCompactMaxFiles(int maxFiles);
+
    /**
     * Returns the number of journal files to pre-create. <br>
     * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_MIN_FILES}.
@@ -596,6 +646,68 @@ public interface Configuration
     */
    Configuration setJournalBufferSize_NIO(int journalBufferSize);
 
+   /**
+    * Returns whether the journal buffer timeout is adapted to the measured sync latency, using the configured
+    * buffer timeout as its upper bound.
+    * <br>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_BUFFER_ADAPTIVE}.
+    */
+   boolean isJournalBufferAdaptive();
+
+   /**
+    * Sets whether the journal buffer timeout is adapted to the measured sync latency.
+    */
+   Configuration setJournalBufferAdaptive(boolean adaptive);
+
+   /**
+    * Returns how many threads are used to read the journal files and to add the loaded messages to the queues
+    * on startup.
+    * <br>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_LOAD_THREADS}.
+    */
+   int getJournalLoadThreads();
+
+   /**
+    * Sets how many threads are used to load the journal on startup.
+    */
+   Configuration setJournalLoadThreads(int threads);
+
+   /**
+    * Returns whether the records of the message journal are written with a checksum, verified when the journal is
+    * loaded. <br>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_RECORD_CHECKSUM}.
+    */
+   boolean isJournalRecordChecksum();
+
+   /**
+    * Sets whether the records of the message journal are written with a checksum.
+    */
+   Configuration setJournalRecordChecksum(boolean checksum);
+
+   /**
+    * Returns the number of independent journals the message journal is spread over. <br>
+    * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_JOURNAL_SHARDS}.
+    */
+   int getJournalShards();
+
+   /**
+    * Sets the number of independent journals the message journal is spread over.
+    */
+   Configuration setJournalShards(int shards);
+
+   /**
+    * Returns the directories of the message journal shards after the first one, which is stored in the journal
+    * directory. <br>
+    * A shard without a directory in this list is stored in the {@code shard-<index>} sub-directory of the journal
+    * directory.
+    */
+   List<String> getJournalShardDirectories();
+
+   /**
+    * Sets the directories of the message journal shards after the first one.
+    */
+   Configuration setJournalShardDirectories(List<String> directories);
+
    /**
     * Returns whether the bindings directory is created on this server startup. <br>
     * Default value is {@value org.apache.activemq.api.config.ActiveMQDefaultConfiguration#DEFAULT_CREATE_BINDINGS_DIR}.
@@ -127,6 +127,12 @@ public class ConfigurationImpl implements Configuration, Serializable
 
    private int maxConcurrentPageIO = ActiveMQDefaultConfiguration.getDefaultMaxConcurrentPageIo();
 
+   private long pageCacheMaxMemory = ActiveMQDefaultConfiguration.getDefaultPageCacheMaxMemory();
+
+   private int maxConcurrentPageCleanup = ActiveMQDefaultConfiguration.getDefaultMaxConcurrentPageCleanup();
+
+   private long globalMaxSize = ActiveMQDefaultConfiguration.getDefaultGlobalMaxSize();
+
    protected String largeMessagesDirectory = ActiveMQDefaultConfiguration.getDefaultLargeMessagesDir();
 
    protected String bindingsDirectory = ActiveMQDefaultConfiguration.getDefaultBindingsDirectory();
@@ -147,6 +153,8 @@ public class ConfigurationImpl implements Configuration, Serializable
 
    protected int journalCompactPercentage = ActiveMQDefaultConfiguration.getDefaultJournalCompactPercentage();
 
+   protected int journalCompactMaxFiles = ActiveMQDefaultConfiguration.getDefaultJournalCompactMaxFiles();
+
    protected int journalFileSize = ActiveMQDefaultConfiguration.getDefaultJournalFileSize();
 
    protected int journalMinFiles = ActiveMQDefaultConfiguration.getDefaultJournalMinFiles();
@@ -165,6 +173,16 @@ public class ConfigurationImpl implements Configuration, Serializable
 
    protected int journalBufferSize_NIO = ActiveMQDefaultConfiguration.getDefaultJournalBufferSizeNio();
 
+   protected boolean journalBufferAdaptive = ActiveMQDefaultConfiguration.isDefaultJournalBufferAdaptive();
+
+   protected int journalLoadThreads = ActiveMQDefaultConfiguration.getDefaultJournalLoadThreads();
+
+   protected boolean journalRecordChecksum = ActiveMQDefaultConfiguration.isDefaultJournalRecordChecksum();
+
+   protected int journalShards = ActiveMQDefaultConfiguration.getDefaultJournalShards();
+
+   protected List<String> journalShardDirectories = new ArrayList<String>();
+
    protected boolean logJournalWriteRate = ActiveMQDefaultConfiguration.isDefaultJournalLogWriteRate();
 
    protected int journalPerfBlastPages = ActiveMQDefaultConfiguration.getDefaultJournalPerfBlastPages();
@@ -544,6 +562,45 @@ public class ConfigurationImpl implements Configuration, Serializable
       return this;
    }
 
+   @Override
+   public long getPageCacheMaxMemory()
+   {
+      return pageCacheMaxMemory;
+   }
+
+   @Override
+   public ConfigurationImpl setPageCacheMaxMemory(final long maxMemory)
+   {
+      this.pageCacheMaxMemory = maxMemory;
+      return this;
+   }
+
+   @Override
+   public int getPageMaxConcurrentCleanup()
+   {
+      return maxConcurrentPageCleanup;
+   }
+
+   @Override
+   public ConfigurationImpl setPageMaxConcurrentCleanup(final int maxCleanup)
+   {
+      this.maxConcurrentPageCleanup = maxCleanup;
+      return this;
+   }
+
+   @Override
+   public long getGlobalMaxSize()
+   {
+      return globalMaxSize;
+   }
+
+   @Override
+   public ConfigurationImpl setGlobalMaxSize(final long maxSize)
+   {
+      this.globalMaxSize = maxSize;
+      return this;
+   }
+
 
    public String getJournalDirectory()
    {
@@ -622,6 +679,61 @@ public class ConfigurationImpl implements Configuration, Serializable
       return this;
    }
 
+   public boolean isJournalBufferAdaptive()
+   {
+      return journalBufferAdaptive;
+   }
+
+   public ConfigurationImpl setJournalBufferAdaptive(final boolean adaptive)
+   {
+      journalBufferAdaptive = adaptive;
+      return this;
+   }
+
+   public int getJournalLoadThreads()
+   {
+      return journalLoadThreads;
+   }
+
+   public ConfigurationImpl setJournalLoadThreads(final int threads)
+   {
+      journalLoadThreads = threads;
+      return this;
+   }
+
+   public boolean isJournalRecordChecksum()
+   {
+      return journalRecordChecksum;
+   }
+
+   public ConfigurationImpl setJournalRecordChecksum(final boolean checksum)
+   {
+      journalRecordChecksum = checksum;
+      return this;
+   }
+
+   public int getJournalShards()
+   {
+      return journalShards;
+   }
+
+   public ConfigurationImpl setJournalShards(final int shards)
+   {
+      journalShards = shards;
+      return this;
+   }
+
+   public List<String> getJournalShardDirectories()
+   {
+      return journalShardDirectories;
+   }
+
+   public ConfigurationImpl setJournalShardDirectories(final List<String> directories)
+   {
+      journalShardDirectories = directories;
+      return this;
+   }
+
    public boolean isLogJournalWriteRate()
    {
       return logJournalWriteRate;
@@ -908,6 +1020,17 @@ public class ConfigurationImpl implements Configuration, Serializable
       return this;
    }
 
+   public int getJournalCompactMaxFiles()
+   {
+      return journalCompactMaxFiles;
+   }
+
+   public ConfigurationImpl setJournalCompactMaxFiles(final int maxFiles)
+   {
+      journalCompactMaxFiles = maxFiles;
+      return this;
+   }
+
    public long getServerDumpInterval()
    {
       return serverDumpInterval;
@@ -1178,10 +1301,16 @@ public class ConfigurationImpl implements Configuration, Serializable
       result = prime * result + journalBufferTimeout_NIO;
       result = prime * result + journalCompactMinFiles;
       result = prime * result + journalCompactPercentage;
+      result = prime * result + journalCompactMaxFiles;
       result = prime * result + ((journalDirectory == null) ? 0 : journalDirectory.hashCode());
       result = prime * result + journalFileSize;
       result = prime * result + journalMaxIO_AIO;
       result = prime * result + journalMaxIO_NIO;
+      result = prime * result + (journalBufferAdaptive ? 1231 : 1237);
+      result = prime * result + journalLoadThreads;
+      result = prime * result + (journalRecordChecksum ? 1231 : 1237);
+      result = prime * result + journalShards;
+      result = prime * result + ((journalShardDirectories == null) ? 0 : journalShardDirectories.hashCode());
       result = prime * result + journalMinFiles;
       result = prime * result + journalPerfBlastPages;
       result = prime * result + (journalSyncNonTransactional ? 1231 : 1237);
@@ -1195,6 +1324,9 @@ public class ConfigurationImpl implements Configuration, Serializable
                         ((managementNotificationAddress == null) ? 0 : managementNotificationAddress.hashCode());
       result = prime * result + (maskPassword ? 1231 : 1237);
       result = prime * result + maxConcurrentPageIO;
+      result = prime * result + (int)(pageCacheMaxMemory ^ (pageCacheMaxMemory >>> 32));
+      result = prime * result + maxConcurrentPageCleanup;
+      result = prime * result + (int)(globalMaxSize ^ (globalMaxSize >>> 32));
       result = prime * result + (int)(memoryMeasureInterval ^ (memoryMeasureInterval >>> 32));
       result = prime * result + memoryWarningThreshold;
       result = prime * result + (messageCounterEnabled ? 1231 : 1237);
@@ -1370,6 +1502,8 @@ public class ConfigurationImpl implements Configuration, Serializable
          return false;
       if (journalCompactPercentage != other.journalCompactPercentage)
          return false;
+      if (journalCompactMaxFiles != other.journalCompactMaxFiles)
+         return false;
       if (journalDirectory == null)
       {
          if (other.journalDirectory != null)
@@ -1402,6 +1536,21 @@ public class ConfigurationImpl implements Configuration, Serializable
          return false;
       if (logJournalWriteRate != other.logJournalWriteRate)
          return false;
+      if (journalBufferAdaptive != other.journalBufferAdaptive)
+         return false;
+      if (journalLoadThreads != other.journalLoadThreads)
+         return false;
+      if (journalRecordChecksum != other.journalRecordChecksum)
+         return false;
+      if (journalShards != other.journalShards)
+         return false;
+      if (journalShardDirectories == null)
+      {
+         if (other.journalShardDirectories != null)
+            return false;
+      }
+      else if (!journalShardDirectories.equals(other.journalShardDirectories))
+         return false;
       if (managementAddress == null)
       {
          if (other.managementAddress != null)
@@ -1420,6 +1569,12 @@ public class ConfigurationImpl implements Configuration, Serializable
          return false;
       if (maxConcurrentPageIO != other.maxConcurrentPageIO)
          return false;
+      if (pageCacheMaxMemory != other.pageCacheMaxMemory)
+         return false;
+      if (maxConcurrentPageCleanup != other.maxConcurrentPageCleanup)
+         return false;
+      if (globalMaxSize != other.globalMaxSize)
+         return false;
       if (memoryMeasureInterval != other.memoryMeasureInterval)
          return false;
       if (memoryWarningThreshold != other.memoryWarningThreshold)
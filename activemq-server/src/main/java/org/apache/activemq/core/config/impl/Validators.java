@@ -150,7 +150,8 @@ public final class Validators
       public void validate(final String name, final Object value)
       {
          String val = (String) value;
-         if (val == null || !val.equals(JournalType.NIO.toString()) && !val.equals(JournalType.ASYNCIO.toString()))
+         if (val == null || !val.equals(JournalType.NIO.toString()) && !val.equals(JournalType.ASYNCIO.toString()) &&
+            !val.equals(JournalType.MAPPED.toString()))
          {
             throw ActiveMQMessageBundle.BUNDLE.invalidJournalType(val);
          }
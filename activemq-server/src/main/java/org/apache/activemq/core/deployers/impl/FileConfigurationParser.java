@@ -151,6 +151,14 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
    private static final String AUTO_DELETE_JMS_QUEUES = "auto-delete-jms-queues";
 
+   private static final String DISPATCH_LANES_NODE_NAME = "dispatch-lanes";
+
+   private static final String MIN_SIZE_BYTES_NODE_NAME = "min-size-bytes";
+
+   private static final String MEMORY_SHARE_WEIGHT_NODE_NAME = "memory-share-weight";
+
+   private static final String COMPACT_REFERENCES_NODE_NAME = "compact-references";
+
    // Attributes ----------------------------------------------------
 
    private boolean validateAIO = false;
@@ -484,6 +492,21 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                config.getPageMaxConcurrentIO(),
                                                Validators.MINUS_ONE_OR_GT_ZERO));
 
+      config.setPageCacheMaxMemory(getLong(e,
+                                           "page-cache-max-memory",
+                                           config.getPageCacheMaxMemory(),
+                                           Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setPageMaxConcurrentCleanup(getInteger(e,
+                                                    "page-max-concurrent-cleanup",
+                                                    config.getPageMaxConcurrentCleanup(),
+                                                    Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setGlobalMaxSize(getLong(e,
+                                      "global-max-size",
+                                      config.getGlobalMaxSize(),
+                                      Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setPagingDirectory(getString(e,
                                           "paging-directory",
                                           config.getPagingDirectory(),
@@ -500,6 +523,10 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       {
          config.setJournalType(JournalType.NIO);
       }
+      else if (s.equals(JournalType.MAPPED.toString()))
+      {
+         config.setJournalType(JournalType.MAPPED);
+      }
       else if (s.equals(JournalType.ASYNCIO.toString()))
       {
          // https://jira.jboss.org/jira/browse/HORNETQ-295
@@ -577,6 +604,36 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                     config.getJournalCompactPercentage(),
                                                     Validators.PERCENTAGE));
 
+      config.setJournalCompactMaxFiles(getInteger(e, "journal-compact-max-files", config.getJournalCompactMaxFiles(),
+                                                  Validators.GE_ZERO));
+
+      config.setJournalBufferAdaptive(getBoolean(e, "journal-buffer-adaptive", config.isJournalBufferAdaptive()));
+
+      config.setJournalLoadThreads(getInteger(e, "journal-load-threads", config.getJournalLoadThreads(), Validators.GT_ZERO));
+
+      config.setJournalRecordChecksum(getBoolean(e, "journal-record-checksum", config.isJournalRecordChecksum()));
+
+      config.setJournalShards(getInteger(e, "journal-shards", config.getJournalShards(), Validators.GT_ZERO));
+
+      NodeList shardDirectoryNodes = e.getElementsByTagName("journal-shard-directories");
+
+      if (shardDirectoryNodes.getLength() > 0)
+      {
+         ArrayList<String> shardDirectories = new ArrayList<String>();
+
+         NodeList directories = shardDirectoryNodes.item(0).getChildNodes();
+
+         for (int i = 0; i < directories.getLength(); i++)
+         {
+            if ("directory".equalsIgnoreCase(directories.item(i).getNodeName()))
+            {
+               shardDirectories.add(getTrimmedTextContent(directories.item(i)));
+            }
+         }
+
+         config.setJournalShardDirectories(shardDirectories);
+      }
+
       config.setLogJournalWriteRate(getBoolean(e,
                                                "log-journal-write-rate",
                                                ActiveMQDefaultConfiguration.isDefaultJournalLogWriteRate()));
@@ -903,6 +960,31 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
          {
             addressSettings.setAutoDeleteJmsQueues(XMLUtil.parseBoolean(child));
          }
+         else if (DISPATCH_LANES_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int dispatchLanes = XMLUtil.parseInt(child);
+            Validators.GT_ZERO.validate(DISPATCH_LANES_NODE_NAME, dispatchLanes);
+
+            addressSettings.setDispatchLanes(dispatchLanes);
+         }
+         else if (MIN_SIZE_BYTES_NODE_NAME.equalsIgnoreCase(name))
+         {
+            long minSizeBytes = XMLUtil.parseLong(child);
+            Validators.GE_ZERO.validate(MIN_SIZE_BYTES_NODE_NAME, minSizeBytes);
+
+            addressSettings.setMinSizeBytes(minSizeBytes);
+         }
+         else if (MEMORY_SHARE_WEIGHT_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int weight = XMLUtil.parseInt(child);
+            Validators.GT_ZERO.validate(MEMORY_SHARE_WEIGHT_NODE_NAME, weight);
+
+            addressSettings.setMemoryShareWeight(weight);
+         }
+         else if (COMPACT_REFERENCES_NODE_NAME.equalsIgnoreCase(name))
+         {
+            addressSettings.setCompactReferences(XMLUtil.parseBoolean(child));
+         }
       }
       return setting;
    }
@@ -16,11 +16,18 @@
  */
 package org.apache.activemq.core.filter.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.activemq.api.core.ActiveMQException;
 import org.apache.activemq.core.server.ActiveMQServerLogger;
+import org.apache.activemq.selector.filter.BinaryExpression;
 import org.apache.activemq.selector.filter.BooleanExpression;
+import org.apache.activemq.selector.filter.Expression;
 import org.apache.activemq.selector.filter.FilterException;
 import org.apache.activemq.selector.filter.Filterable;
+import org.apache.activemq.selector.filter.PropertyExpression;
+import org.apache.activemq.selector.filter.UnaryExpression;
 import org.apache.activemq.selector.impl.SelectorParser;
 import org.apache.activemq.api.core.FilterConstants;
 import org.apache.activemq.api.core.SimpleString;
@@ -68,6 +75,11 @@ public class FilterImpl implements Filter
 
    private final BooleanExpression booleanExpression;
 
+   /**
+    * Reused for every message, {@link #match(ServerMessage)} is synchronized
+    */
+   private final FilterableServerMessage filterable;
+
    // Static ---------------------------------------------------------
 
    /**
@@ -109,6 +121,10 @@ public class FilterImpl implements Filter
    {
       sfilterString = str;
       this.booleanExpression = expression;
+
+      Map<String, SimpleString> properties = new HashMap<String, SimpleString>();
+      collectProperties(expression, properties);
+      this.filterable = new FilterableServerMessage(properties);
    }
 
    // Filter implementation ---------------------------------------------------------------------
@@ -118,11 +134,17 @@ public class FilterImpl implements Filter
       return sfilterString;
    }
 
+   BooleanExpression getBooleanExpression()
+   {
+      return booleanExpression;
+   }
+
    public synchronized boolean match(final ServerMessage message)
    {
+      filterable.message = message;
       try
       {
-         boolean result = booleanExpression.matches(new FilterableServerMessage(message));
+         boolean result = booleanExpression.matches(filterable);
          return result;
       }
       catch (Exception e)
@@ -130,6 +152,10 @@ public class FilterImpl implements Filter
          ActiveMQServerLogger.LOGGER.invalidFilter(e, sfilterString);
          return false;
       }
+      finally
+      {
+         filterable.message = null;
+      }
    }
 
    @Override
@@ -169,6 +195,28 @@ public class FilterImpl implements Filter
 
    // Private --------------------------------------------------------------------------
 
+   /**
+    * Collects the identifiers used by the expression, so they are converted to the keys of the message properties
+    * only once.
+    */
+   private static void collectProperties(final Expression expression, final Map<String, SimpleString> properties)
+   {
+      if (expression instanceof PropertyExpression)
+      {
+         String name = ((PropertyExpression)expression).getName();
+         properties.put(name, new SimpleString(name));
+      }
+      else if (expression instanceof BinaryExpression)
+      {
+         collectProperties(((BinaryExpression)expression).getLeft(), properties);
+         collectProperties(((BinaryExpression)expression).getRight(), properties);
+      }
+      else if (expression instanceof UnaryExpression)
+      {
+         collectProperties(((UnaryExpression)expression).getRight(), properties);
+      }
+   }
+
    private static Object getHeaderFieldValue(final ServerMessage msg, final SimpleString fieldName)
    {
       if (FilterConstants.ACTIVEMQ_USERID.equals(fieldName))
@@ -204,24 +252,31 @@ public class FilterImpl implements Filter
 
    private static class FilterableServerMessage implements Filterable
    {
-      private final ServerMessage message;
+      private final Map<String, SimpleString> properties;
 
-      public FilterableServerMessage(ServerMessage message)
+      private ServerMessage message;
+
+      public FilterableServerMessage(Map<String, SimpleString> properties)
       {
-         this.message = message;
+         this.properties = properties;
       }
 
       @Override
       public Object getProperty(String id)
       {
+         SimpleString key = properties.get(id);
+         if (key == null)
+         {
+            key = new SimpleString(id);
+         }
          Object result = null;
-         if (id.startsWith(FilterConstants.ACTIVEMQ_PREFIX.toString()))
+         if (key.startsWith(FilterConstants.ACTIVEMQ_PREFIX))
          {
-            result = getHeaderFieldValue(message, new SimpleString(id));
+            result = getHeaderFieldValue(message, key);
          }
          if (result == null)
          {
-            result = message.getObjectProperty(new SimpleString(id));
+            result = message.getObjectProperty(key);
          }
          if (result != null)
          {
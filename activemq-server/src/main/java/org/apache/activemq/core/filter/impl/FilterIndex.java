@@ -0,0 +1,306 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.filter.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.activemq.api.core.FilterConstants;
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.filter.Filter;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.selector.filter.BooleanExpression;
+import org.apache.activemq.selector.filter.ComparisonExpression;
+import org.apache.activemq.selector.filter.ConstantExpression;
+import org.apache.activemq.selector.filter.Expression;
+import org.apache.activemq.selector.filter.LogicExpression;
+import org.apache.activemq.selector.filter.PropertyExpression;
+import org.apache.activemq.selector.filter.UnaryExpression;
+
+/**
+ * A hash index of filters on the values they require for a message property.
+ * <p/>
+ * A filter such as <code>region = 'X'</code>, <code>region IN ('X', 'Y')</code> or an <code>OR</code> of those is
+ * only matched by the messages with one of these values, so it is found with one lookup of the message property
+ * instead of being evaluated against every message. When such a predicate is only part of an <code>AND</code> the
+ * filters found are still evaluated, but only them. Any other filter can't be indexed and is left to the caller.
+ *
+ * @param <T> what the filters are attached to, typically the bindings they select messages for
+ */
+public final class FilterIndex<T>
+{
+   private final Map<SimpleString, Map<SimpleString, List<Entry<T>>>> index = new HashMap<SimpleString, Map<SimpleString, List<Entry<T>>>>();
+
+   /**
+    * @return false if the filter can't be indexed, the caller has then to evaluate it itself
+    */
+   public boolean add(final Filter filter, final T target)
+   {
+      if (!(filter instanceof FilterImpl))
+      {
+         return false;
+      }
+
+      BooleanExpression expression = ((FilterImpl)filter).getBooleanExpression();
+
+      Predicate predicate = extract(expression);
+
+      // a filter with the predicate only in one side of an AND is still evaluated once found
+      boolean exact = predicate != null;
+
+      if (predicate == null)
+      {
+         predicate = extractConjunct(expression);
+      }
+
+      if (predicate == null)
+      {
+         return false;
+      }
+
+      Map<SimpleString, List<Entry<T>>> values = index.get(predicate.property);
+
+      if (values == null)
+      {
+         values = new HashMap<SimpleString, List<Entry<T>>>();
+         index.put(predicate.property, values);
+      }
+
+      Entry<T> entry = new Entry<T>(filter, target, exact);
+
+      for (SimpleString value : predicate.values)
+      {
+         List<Entry<T>> entries = values.get(value);
+
+         if (entries == null)
+         {
+            entries = new ArrayList<Entry<T>>(1);
+            values.put(value, entries);
+         }
+
+         entries.add(entry);
+      }
+
+      return true;
+   }
+
+   public boolean isEmpty()
+   {
+      return index.isEmpty();
+   }
+
+   /**
+    * Adds the targets of the indexed filters matching the message to <code>matching</code>.
+    */
+   public void match(final ServerMessage message, final Collection<? super T> matching)
+   {
+      for (Map.Entry<SimpleString, Map<SimpleString, List<Entry<T>>>> property : index.entrySet())
+      {
+         Object value = message.getObjectProperty(property.getKey());
+
+         if (value instanceof String)
+         {
+            value = new SimpleString((String)value);
+         }
+         else if (!(value instanceof SimpleString))
+         {
+            // an indexed filter only matches String values
+            continue;
+         }
+
+         List<Entry<T>> entries = property.getValue().get(value);
+
+         if (entries == null)
+         {
+            continue;
+         }
+
+         for (Entry<T> entry : entries)
+         {
+            if (entry.exact || entry.filter.match(message))
+            {
+               matching.add(entry.target);
+            }
+         }
+      }
+   }
+
+   /**
+    * @return the property and the values an expression requires, null if there is no such a single property
+    */
+   private static Predicate extract(final BooleanExpression expression)
+   {
+      if (expression instanceof ComparisonExpression)
+      {
+         ComparisonExpression comparison = (ComparisonExpression)expression;
+
+         if (!"=".equals(comparison.getExpressionSymbol()) || comparison.isConvertStringExpressions())
+         {
+            return null;
+         }
+
+         Predicate predicate = extract(comparison.getLeft(), comparison.getRight());
+
+         return predicate != null ? predicate : extract(comparison.getRight(), comparison.getLeft());
+      }
+      else if (expression instanceof UnaryExpression.InExpression)
+      {
+         UnaryExpression.InExpression in = (UnaryExpression.InExpression)expression;
+
+         if (in.isNot() || !(in.getRight() instanceof PropertyExpression))
+         {
+            return null;
+         }
+
+         Predicate predicate = createPredicate((PropertyExpression)in.getRight());
+
+         if (predicate == null)
+         {
+            return null;
+         }
+
+         if (in.getValues() != null)
+         {
+            for (Object value : in.getValues())
+            {
+               if (!(value instanceof String))
+               {
+                  return null;
+               }
+
+               predicate.values.add(new SimpleString((String)value));
+            }
+         }
+
+         return predicate;
+      }
+      else if (isLogic(expression, "OR"))
+      {
+         LogicExpression or = (LogicExpression)expression;
+
+         Predicate left = extract((BooleanExpression)or.getLeft());
+
+         Predicate right = extract((BooleanExpression)or.getRight());
+
+         if (left == null || right == null || !left.property.equals(right.property))
+         {
+            return null;
+         }
+
+         left.values.addAll(right.values);
+
+         return left;
+      }
+
+      return null;
+   }
+
+   private static Predicate extractConjunct(final BooleanExpression expression)
+   {
+      Predicate predicate = extract(expression);
+
+      if (predicate == null && isLogic(expression, "AND"))
+      {
+         LogicExpression and = (LogicExpression)expression;
+
+         predicate = extractConjunct((BooleanExpression)and.getLeft());
+
+         if (predicate == null)
+         {
+            predicate = extractConjunct((BooleanExpression)and.getRight());
+         }
+      }
+
+      return predicate;
+   }
+
+   private static Predicate extract(final Expression property, final Expression constant)
+   {
+      if (!(property instanceof PropertyExpression) || !(constant instanceof ConstantExpression))
+      {
+         return null;
+      }
+
+      Object value = ((ConstantExpression)constant).getValue();
+
+      if (!(value instanceof String))
+      {
+         return null;
+      }
+
+      Predicate predicate = createPredicate((PropertyExpression)property);
+
+      if (predicate != null)
+      {
+         predicate.values.add(new SimpleString((String)value));
+      }
+
+      return predicate;
+   }
+
+   private static Predicate createPredicate(final PropertyExpression property)
+   {
+      // the header fields aren't message properties
+      if (property.getName().startsWith(FilterConstants.ACTIVEMQ_PREFIX.toString()))
+      {
+         return null;
+      }
+
+      return new Predicate(new SimpleString(property.getName()));
+   }
+
+   private static boolean isLogic(final BooleanExpression expression, final String symbol)
+   {
+      return expression instanceof LogicExpression && symbol.equals(((LogicExpression)expression).getExpressionSymbol());
+   }
+
+   private static final class Predicate
+   {
+      private final SimpleString property;
+
+      private final Set<SimpleString> values = new HashSet<SimpleString>();
+
+      private Predicate(final SimpleString property)
+      {
+         this.property = property;
+      }
+   }
+
+   private static final class Entry<T>
+   {
+      private final Filter filter;
+
+      private final T target;
+
+      /**
+       * true when the indexed predicate is the whole filter, which then doesn't need to be evaluated
+       */
+      private final boolean exact;
+
+      private Entry(final Filter filter, final T target, final boolean exact)
+      {
+         this.filter = filter;
+         this.target = target;
+         this.exact = exact;
+      }
+   }
+}
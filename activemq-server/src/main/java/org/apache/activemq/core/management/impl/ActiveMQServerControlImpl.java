@@ -18,6 +18,7 @@ package org.apache.activemq.core.management.impl;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -51,6 +52,7 @@ import org.apache.activemq.api.core.management.QueueControl;
 import org.apache.activemq.core.config.BridgeConfiguration;
 import org.apache.activemq.core.config.Configuration;
 import org.apache.activemq.core.config.DivertConfiguration;
+import org.apache.activemq.core.journal.impl.JournalImpl;
 import org.apache.activemq.core.messagecounter.MessageCounterManager;
 import org.apache.activemq.core.messagecounter.impl.MessageCounterManagerImpl;
 import org.apache.activemq.core.persistence.StorageManager;
@@ -296,6 +298,82 @@ public class ActiveMQServerControlImpl extends AbstractControl implements Active
       }
    }
 
+   public int getJournalBufferCurrentTimeout()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         // the longest timeout of the shards, each shard adapts its own buffer
+         int timeout = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            timeout = Math.max(timeout, journal.getFileFactory().getBufferCurrentTimeout());
+         }
+         return timeout;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalSyncLatency()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         // the average of the shards that measured it
+         long latency = 0;
+         int measured = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            long shardLatency = journal.getFileFactory().getBufferSyncLatency();
+            if (shardLatency > 0)
+            {
+               latency += shardLatency;
+               measured++;
+            }
+         }
+         return measured == 0 ? 0 : latency / measured;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long[] getJournalFlushBatchSizes()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long[] batchSizes = new long[0];
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            long[] shardBatchSizes = journal.getFileFactory().getBufferBatchSizes();
+            if (shardBatchSizes.length > batchSizes.length)
+            {
+               batchSizes = Arrays.copyOf(batchSizes, shardBatchSizes.length);
+            }
+            for (int i = 0; i < shardBatchSizes.length; i++)
+            {
+               batchSizes[i] += shardBatchSizes[i];
+            }
+         }
+         return batchSizes;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void setFailoverOnServerShutdown(boolean failoverOnServerShutdown)
    {
       checkStarted();
@@ -430,6 +508,123 @@ public class ActiveMQServerControlImpl extends AbstractControl implements Active
       }
    }
 
+   public int getJournalCompactMaxFiles()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return configuration.getJournalCompactMaxFiles();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalCompactCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long count = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            count += journal.getCompactCount();
+         }
+         return count;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalCompactThroughput()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long bytes = 0;
+         long time = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            bytes += journal.getCompactedBytes();
+            time += journal.getCompactTime();
+         }
+         return time == 0 ? 0 : bytes * 1000 / time;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalCompactMaxPauseTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long maxPauseTime = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            maxPauseTime = Math.max(maxPauseTime, journal.getCompactMaxPauseTime());
+         }
+         return maxPauseTime;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalCompactReclaimedBytes()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long reclaimedBytes = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            reclaimedBytes += journal.getCompactReclaimedBytes();
+         }
+         return reclaimedBytes;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalCompactSkipCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long skipCount = 0;
+         for (JournalImpl journal : server.getStorageManager().getLocalMessageJournals())
+         {
+            skipCount += journal.getCompactSkipCount();
+         }
+         return skipCount;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isPersistenceEnabled()
    {
       checkStarted();
@@ -269,6 +269,110 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       }
    }
 
+   public long getPageCacheHitCount() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheHitCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheMissCount() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheMissCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheEvictionCount() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheEvictionCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheSize() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheMemorySize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCleanupTime() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCleanupTime();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getMemoryShare() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getMemoryShare();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPagingStartCount() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getPagingStartCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPagingStopCount() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getPagingStopCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    @Override
    protected MBeanOperationInfo[] fillMBeanOperationInfo()
    {
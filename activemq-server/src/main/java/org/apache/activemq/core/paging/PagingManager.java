@@ -19,6 +19,9 @@ package org.apache.activemq.core.paging;
 import java.util.Map;
 
 import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.paging.cursor.BoundedPageCache;
+import org.apache.activemq.core.paging.cursor.PageCleanupScheduler;
+import org.apache.activemq.core.paging.impl.GlobalMemoryManager;
 import org.apache.activemq.core.server.ActiveMQComponent;
 import org.apache.activemq.core.settings.HierarchicalRepositoryChangeListener;
 
@@ -78,6 +81,21 @@ public interface PagingManager extends ActiveMQComponent, HierarchicalRepository
 
    void resumeCleanup();
 
+   /**
+    * @return the memory budget shared by the page caches of all the addresses
+    */
+   BoundedPageCache getBoundedPageCache();
+
+   /**
+    * @return the scheduler running the page cleanups of all the addresses
+    */
+   PageCleanupScheduler getCleanupScheduler();
+
+   /**
+    * @return the memory budget shared by the messages of all the addresses
+    */
+   GlobalMemoryManager getGlobalMemoryManager();
+
    /**
     * Lock the manager. This method should not be called during normal PagingManager usage.
     */
@@ -66,6 +66,22 @@ public interface PagingStore extends ActiveMQComponent
 
    long getMaxSize();
 
+   /**
+    * @return the memory this address may hold once the global memory budget is exceeded, -1 if there is no global
+    * budget
+    */
+   long getMemoryShare();
+
+   /**
+    * @return how many times this address started paging
+    */
+   long getPagingStartCount();
+
+   /**
+    * @return how many times this address left paging
+    */
+   long getPagingStopCount();
+
    void applySetting(AddressSettings addressSettings);
 
    boolean isPaging();
@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.paging.cursor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounds the memory used by the page caches of all the addresses.
+ * <p/>
+ * The caches are kept on a segmented LRU: a cache starts on the probation segment and moves to the protected segment
+ * when it is used again, so the pages read once by a single subscription don't push out the pages shared by several
+ * subscriptions. When the caches use more than the budget, the least recently used caches of the probation segment
+ * are evicted first, then the ones of the protected segment. Live caches, of the pages still being written, are never
+ * evicted.
+ * <p/>
+ * A use of a cache only marks it as referenced, without taking any lock. The referenced caches are promoted, or
+ * moved to the most recently used end of the protected segment, in a batch before evicting. The lock is only taken
+ * when a cache is added or removed, or when its size changed since it was last seen, as its messages were read.
+ */
+public final class BoundedPageCache
+{
+   // the share of the budget the protected segment may take
+   private static final int PROTECTED_PERCENTAGE = 80;
+
+   // all the entries, so an use can find its entry without locking
+   private final ConcurrentHashMap<PageCache, Entry> entries = new ConcurrentHashMap<PageCache, Entry>();
+
+   private final LinkedHashMap<PageCache, Entry> probation = new LinkedHashMap<PageCache, Entry>();
+
+   private final LinkedHashMap<PageCache, Entry> protectedSegment = new LinkedHashMap<PageCache, Entry>();
+
+   private long maxSize;
+
+   private long size;
+
+   private long protectedSize;
+
+   public BoundedPageCache(final long maxSize)
+   {
+      this.maxSize = maxSize;
+   }
+
+   public synchronized long getMaxSize()
+   {
+      return maxSize;
+   }
+
+   public void setMaxSize(final long maxSize)
+   {
+      List<Entry> evicted;
+      synchronized (this)
+      {
+         this.maxSize = maxSize;
+         evicted = evict();
+      }
+      notifyEvicted(evicted);
+   }
+
+   /**
+    * @return the memory used by all the caches, as last refreshed
+    */
+   public synchronized long getSize()
+   {
+      return size;
+   }
+
+   public int getNumberOfCaches()
+   {
+      return entries.size();
+   }
+
+   public boolean contains(final PageCache cache)
+   {
+      return entries.containsKey(cache);
+   }
+
+   /**
+    * Adds a new cache to the probation segment, evicting other caches if the budget is exceeded.
+    */
+   public void add(final PageCursorProvider owner, final PageCache cache)
+   {
+      List<Entry> evicted;
+      synchronized (this)
+      {
+         Entry entry = new Entry(owner, cache);
+         entry.size = cache.getMemorySize();
+         probation.put(cache, entry);
+         entries.put(cache, entry);
+         size += entry.size;
+         evicted = evict();
+      }
+      notifyEvicted(evicted);
+   }
+
+   /**
+    * Records an use of a cache, so it's protected if it was on probation.
+    * Its size is refreshed, and the budget enforced, if it changed since the last use.
+    */
+   public void used(final PageCache cache)
+   {
+      Entry entry = entries.get(cache);
+      if (entry == null)
+      {
+         // evicted or removed meanwhile
+         return;
+      }
+
+      if (cache.getMemorySize() == entry.size)
+      {
+         if (!entry.referenced)
+         {
+            entry.referenced = true;
+         }
+         return;
+      }
+
+      List<Entry> evicted;
+      synchronized (this)
+      {
+         if (entries.get(cache) != entry)
+         {
+            return;
+         }
+
+         long newSize = cache.getMemorySize();
+         size += newSize - entry.size;
+         if (entry.isProtected)
+         {
+            protectedSize += newSize - entry.size;
+         }
+         entry.size = newSize;
+         entry.referenced = true;
+
+         evicted = evict();
+      }
+      notifyEvicted(evicted);
+   }
+
+   /**
+    * Removes a cache without notifying its owner, as it was the owner that dropped the cache.
+    */
+   public synchronized void remove(final PageCache cache)
+   {
+      Entry entry = entries.remove(cache);
+      if (entry == null)
+      {
+         return;
+      }
+
+      if (entry.isProtected)
+      {
+         protectedSegment.remove(cache);
+         protectedSize -= entry.size;
+      }
+      else
+      {
+         probation.remove(cache);
+      }
+      size -= entry.size;
+   }
+
+   /**
+    * Applies the uses recorded since the last eviction: the referenced protected caches become the most recently
+    * used ones, and the referenced caches on probation are protected.
+    */
+   private void promote()
+   {
+      List<Entry> used = null;
+
+      Iterator<Entry> iterator = protectedSegment.values().iterator();
+      while (iterator.hasNext())
+      {
+         Entry entry = iterator.next();
+         if (entry.referenced)
+         {
+            iterator.remove();
+            if (used == null)
+            {
+               used = new ArrayList<Entry>();
+            }
+            used.add(entry);
+         }
+      }
+
+      iterator = probation.values().iterator();
+      while (iterator.hasNext())
+      {
+         Entry entry = iterator.next();
+         if (entry.referenced)
+         {
+            iterator.remove();
+            entry.isProtected = true;
+            protectedSize += entry.size;
+            if (used == null)
+            {
+               used = new ArrayList<Entry>();
+            }
+            used.add(entry);
+         }
+      }
+
+      if (used != null)
+      {
+         for (Entry entry : used)
+         {
+            entry.referenced = false;
+            protectedSegment.put(entry.cache, entry);
+         }
+      }
+   }
+
+   /**
+    * Moves the least recently used protected caches back to probation while the protected segment is over its share.
+    */
+   private void demote()
+   {
+      long maxProtectedSize = maxSize / 100 * PROTECTED_PERCENTAGE;
+      Iterator<Entry> iterator = protectedSegment.values().iterator();
+      while (protectedSize > maxProtectedSize && protectedSegment.size() > 1 && iterator.hasNext())
+      {
+         Entry entry = iterator.next();
+         iterator.remove();
+         protectedSize -= entry.size;
+         entry.isProtected = false;
+         probation.put(entry.cache, entry);
+      }
+   }
+
+   private List<Entry> evict()
+   {
+      if (size <= maxSize)
+      {
+         return null;
+      }
+
+      promote();
+      demote();
+
+      List<Entry> evicted = null;
+
+      evicted = evict(probation, evicted);
+      evicted = evict(protectedSegment, evicted);
+
+      return evicted;
+   }
+
+   private List<Entry> evict(final LinkedHashMap<PageCache, Entry> segment, List<Entry> evicted)
+   {
+      Iterator<Entry> iterator = segment.values().iterator();
+      while (size > maxSize && iterator.hasNext())
+      {
+         Entry entry = iterator.next();
+         if (entry.cache.isLive())
+         {
+            continue;
+         }
+
+         iterator.remove();
+         entries.remove(entry.cache);
+         size -= entry.size;
+         if (entry.isProtected)
+         {
+            protectedSize -= entry.size;
+         }
+
+         if (evicted == null)
+         {
+            evicted = new ArrayList<Entry>();
+         }
+         evicted.add(entry);
+      }
+      return evicted;
+   }
+
+   /**
+    * The owners are notified out of the lock, as they take their own locks, which are held while calling this class.
+    */
+   private static void notifyEvicted(final List<Entry> evicted)
+   {
+      if (evicted != null)
+      {
+         for (Entry entry : evicted)
+         {
+            entry.owner.onCacheEvicted(entry.cache);
+         }
+      }
+   }
+
+   private static final class Entry
+   {
+      final PageCursorProvider owner;
+
+      final PageCache cache;
+
+      // written while holding the lock of the bounded cache, read without it on each use
+      volatile long size;
+
+      // guarded by the lock of the bounded cache
+      boolean isProtected;
+
+      // set on each use without locking, cleared when the use is applied
+      volatile boolean referenced;
+
+      Entry(final PageCursorProvider owner, final PageCache cache)
+      {
+         this.owner = owner;
+         this.cache = cache;
+      }
+   }
+}
@@ -17,7 +17,6 @@
 package org.apache.activemq.core.paging.cursor;
 
 import org.apache.activemq.core.paging.PagedMessage;
-import org.apache.activemq.utils.SoftValueHashMap;
 
 /**
  * A PageCache
@@ -26,7 +25,7 @@ import org.apache.activemq.utils.SoftValueHashMap;
  *
  *
  */
-public interface PageCache extends SoftValueHashMap.ValueCache
+public interface PageCache
 {
    long getPageId();
 
@@ -36,6 +35,11 @@ public interface PageCache extends SoftValueHashMap.ValueCache
 
    PagedMessage[] getMessages();
 
+   /**
+    * @return an estimate of the memory used by the messages read so far
+    */
+   long getMemorySize();
+
    /**
     * @return whether this cache is still being updated
     */
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.paging.cursor;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the page cleanups of all the addresses, a bounded number of them at once.
+ * <p/>
+ * Each cleanup still runs on the executor of its address, so it stays ordered with the other paging operations of
+ * the address, but it is only handed to that executor once fewer than the maximum number of cleanups are running.
+ * The cleanups waiting for their turn are run in the order they were scheduled.
+ */
+public final class PageCleanupScheduler
+{
+   private final int maxConcurrentCleanups;
+
+   private final Queue<PendingCleanup> pending = new LinkedList<PendingCleanup>();
+
+   private int running;
+
+   /**
+    * @param maxConcurrentCleanups the number of cleanups that may run at once, -1 for the number of processors
+    */
+   public PageCleanupScheduler(final int maxConcurrentCleanups)
+   {
+      this.maxConcurrentCleanups = maxConcurrentCleanups == -1 ? Runtime.getRuntime().availableProcessors()
+                                                               : maxConcurrentCleanups;
+   }
+
+   public int getMaxConcurrentCleanups()
+   {
+      return maxConcurrentCleanups;
+   }
+
+   public synchronized int getRunningCleanups()
+   {
+      return running;
+   }
+
+   public synchronized int getPendingCleanups()
+   {
+      return pending.size();
+   }
+
+   public void schedule(final Executor executor, final Runnable cleanup)
+   {
+      synchronized (this)
+      {
+         pending.add(new PendingCleanup(executor, cleanup));
+      }
+      startPending();
+   }
+
+   private void startPending()
+   {
+      while (true)
+      {
+         final PendingCleanup next;
+
+         synchronized (this)
+         {
+            if (running >= maxConcurrentCleanups || pending.isEmpty())
+            {
+               return;
+            }
+            next = pending.poll();
+            running++;
+         }
+
+         try
+         {
+            next.executor.execute(new Runnable()
+            {
+               public void run()
+               {
+                  try
+                  {
+                     next.cleanup.run();
+                  }
+                  finally
+                  {
+                     finished();
+                  }
+               }
+            });
+         }
+         catch (RejectedExecutionException e)
+         {
+            // the address is being stopped
+            synchronized (this)
+            {
+               running--;
+            }
+         }
+      }
+   }
+
+   private void finished()
+   {
+      synchronized (this)
+      {
+         running--;
+      }
+      startPending();
+   }
+
+   private static final class PendingCleanup
+   {
+      final Executor executor;
+
+      final Runnable cleanup;
+
+      PendingCleanup(final Executor executor, final Runnable cleanup)
+      {
+         this.executor = executor;
+         this.cleanup = cleanup;
+      }
+   }
+}
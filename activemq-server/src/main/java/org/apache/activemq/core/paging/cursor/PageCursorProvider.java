@@ -31,6 +31,16 @@ public interface PageCursorProvider
 
    PageCache getPageCache(long pageNr);
 
+   /**
+    * Reads the index and the first messages of a page in the background, ahead of the subscriptions getting there.
+    */
+   void prefetch(long pageNr);
+
+   /**
+    * Called by the {@link BoundedPageCache} when a cache of this address is evicted to stay within the budget.
+    */
+   void onCacheEvicted(PageCache cache);
+
    PagedReference newReference(final PagePosition pos, final PagedMessage msg, PageSubscription sub);
 
    void addPageCache(PageCache cache);
@@ -69,6 +79,24 @@ public interface PageCursorProvider
 
    void setCacheMaxSize(int size);
 
+   long getCacheHitCount();
+
+   long getCacheMissCount();
+
+   long getCacheEvictionCount();
+
+   /**
+    * @return an estimate of the memory used by the page caches of this address
+    */
+   long getCacheMemorySize();
+
+   /**
+    * @return the time spent cleaning up the pages of this address, in milliseconds
+    */
+   long getCleanupTime();
+
+   long getCleanupCount();
+
    /**
     * @param pageCursorImpl
     */
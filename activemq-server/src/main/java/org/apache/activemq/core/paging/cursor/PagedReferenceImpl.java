@@ -17,7 +17,7 @@
 package org.apache.activemq.core.paging.cursor;
 
 import java.lang.ref.WeakReference;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.activemq.api.core.Message;
 import org.apache.activemq.core.paging.PagedMessage;
@@ -47,7 +47,10 @@ public class PagedReferenceImpl implements PagedReference
 
    private Long consumerId;
 
-   private final AtomicInteger deliveryCount = new AtomicInteger(0);
+   private static final AtomicIntegerFieldUpdater<PagedReferenceImpl> DELIVERY_COUNT_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(PagedReferenceImpl.class, "deliveryCount");
+
+   private volatile int deliveryCount;
 
    private final PageSubscription subscription;
 
@@ -158,19 +161,19 @@ public class PagedReferenceImpl implements PagedReference
    @Override
    public int getDeliveryCount()
    {
-      return deliveryCount.get();
+      return deliveryCount;
    }
 
    @Override
    public void setDeliveryCount(final int deliveryCount)
    {
-      this.deliveryCount.set(deliveryCount);
+      this.deliveryCount = deliveryCount;
    }
 
    @Override
    public void incrementDeliveryCount()
    {
-      deliveryCount.incrementAndGet();
+      DELIVERY_COUNT_UPDATER.incrementAndGet(this);
       if (isTrace)
       {
          ActiveMQServerLogger.LOGGER.trace("++deliveryCount = " + deliveryCount + " for " + this, new Exception("trace"));
@@ -181,7 +184,7 @@ public class PagedReferenceImpl implements PagedReference
    @Override
    public void decrementDeliveryCount()
    {
-      deliveryCount.decrementAndGet();
+      DELIVERY_COUNT_UPDATER.decrementAndGet(this);
       if (isTrace)
       {
          ActiveMQServerLogger.LOGGER.trace("--deliveryCount = " + deliveryCount + " for " + this, new Exception("trace"));
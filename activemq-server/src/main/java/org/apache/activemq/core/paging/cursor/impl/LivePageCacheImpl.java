@@ -39,6 +39,8 @@ public class LivePageCacheImpl implements LivePageCache
 
    private boolean isLive = true;
 
+   private volatile long memorySize;
+
    public LivePageCacheImpl(final Page page)
    {
       this.page = page;
@@ -105,6 +107,7 @@ public class LivePageCacheImpl implements LivePageCache
          ((LargeServerMessage)message.getMessage()).incrementDelayDeletionCount();
       }
       this.messages.add(message);
+      memorySize += message.getMessage().getMemoryEstimate();
    }
 
    @Override
@@ -119,6 +122,12 @@ public class LivePageCacheImpl implements LivePageCache
       return messages.toArray(new PagedMessage[messages.size()]);
    }
 
+   @Override
+   public long getMemorySize()
+   {
+      return memorySize;
+   }
+
    @Override
    public String toString()
    {
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.paging.cursor.impl;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of message numbers of a single page, used to track the messages a subscription has acknowledged or
+ * removed.
+ * <p/>
+ * The numbers below the low-water mark are all in the set, so acknowledging in order only moves the mark. The
+ * numbers added out of order above the mark are kept on a bitset, whose words are dropped as the mark moves past
+ * them.
+ */
+final class MessageNumberSet
+{
+   private static final long[] EMPTY = new long[0];
+
+   // every number below it is in the set
+   private int lowWaterMark;
+
+   // the number of the first bit of words, always a multiple of 64 not above lowWaterMark
+   private int base;
+
+   private long[] words = EMPTY;
+
+   /**
+    * @return false if the number was already in the set
+    */
+   public synchronized boolean add(final int number)
+   {
+      if (number < lowWaterMark)
+      {
+         return false;
+      }
+
+      int bit = number - base;
+      int word = bit >>> 6;
+
+      if (word >= words.length)
+      {
+         words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+      }
+      else if ((words[word] & (1L << bit)) != 0)
+      {
+         return false;
+      }
+
+      words[word] |= 1L << bit;
+
+      if (number == lowWaterMark)
+      {
+         advance();
+      }
+
+      return true;
+   }
+
+   public synchronized boolean contains(final int number)
+   {
+      if (number < lowWaterMark)
+      {
+         return true;
+      }
+
+      int bit = number - base;
+      int word = bit >>> 6;
+
+      return word < words.length && (words[word] & (1L << bit)) != 0;
+   }
+
+   public synchronized void clear()
+   {
+      lowWaterMark = 0;
+      base = 0;
+      words = EMPTY;
+   }
+
+   /**
+    * Moves the low-water mark over the numbers that were added after it.
+    */
+   private void advance()
+   {
+      int bit = lowWaterMark - base;
+      int word = bit >>> 6;
+      while (word < words.length && (words[word] & (1L << bit)) != 0)
+      {
+         bit++;
+         word = bit >>> 6;
+      }
+      lowWaterMark = base + bit;
+
+      // the words entirely below the mark aren't needed anymore
+      int drop = (lowWaterMark - base) >>> 6;
+      if (drop > 0)
+      {
+         words = drop >= words.length ? EMPTY : Arrays.copyOfRange(words, drop, words.length);
+         base += drop << 6;
+      }
+   }
+
+   @Override
+   public synchronized String toString()
+   {
+      return "MessageNumberSet [lowWaterMark=" + lowWaterMark + ", words=" + words.length + "]";
+   }
+}
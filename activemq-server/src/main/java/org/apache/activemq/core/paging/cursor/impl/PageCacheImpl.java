@@ -16,15 +16,26 @@
  */
 package org.apache.activemq.core.paging.cursor.impl;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.activemq.core.paging.PagedMessage;
 import org.apache.activemq.core.paging.cursor.PageCache;
+import org.apache.activemq.core.paging.cursor.PageCursorProvider;
 import org.apache.activemq.core.paging.impl.Page;
+import org.apache.activemq.core.persistence.StorageManager;
+import org.apache.activemq.core.server.ActiveMQServerLogger;
 
 /**
  * The caching associated to a single page.
+ * <p/>
+ * Once the index of the page is read, the messages are read from the page file on demand, a few at a time, so a
+ * subscription only reads and keeps the messages around its position. Only the last few windows read are kept, the
+ * page file stays open to read the next ones until the cache is closed. A closed cache, dropped by the provider while
+ * a reader still holds it, reads through the cache the provider holds for the page instead.
  *
  * @author <a href="mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  *
@@ -35,21 +46,60 @@ class PageCacheImpl implements PageCache
 
    // Constants -----------------------------------------------------
 
+   // how many messages are read from the page file at once
+   static final int READ_WINDOW = 64;
+
+   // how many windows are kept, the oldest one is dropped when another one is read
+   static final int MAX_WINDOWS = 4;
+
+   // the memory taken by each message on the index: the offset and the slot for the message
+   private static final int INDEX_ENTRY_SIZE = 12;
+
    // Attributes ----------------------------------------------------
 
    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
    private PagedMessage[] messages;
 
+   // the offsets of the messages on the page file, or null if all the messages were set at once
+   private int[] index;
+
+   // the windows holding messages, the oldest first, guarded by the write lock
+   private final ArrayDeque<Integer> windows = new ArrayDeque<Integer>(MAX_WINDOWS);
+
+   // guarded by the write lock
+   private boolean pageOpen;
+
+   // set once the provider dropped this cache, the page file isn't kept open any more
+   private volatile boolean closed;
+
    private final Page page;
 
+   private final StorageManager storageManager;
+
+   private final PageCursorProvider provider;
+
+   private volatile long memorySize;
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
 
    public PageCacheImpl(final Page page)
+   {
+      this(page, null);
+   }
+
+   public PageCacheImpl(final Page page, final StorageManager storageManager)
+   {
+      this(page, storageManager, null);
+   }
+
+   public PageCacheImpl(final Page page, final StorageManager storageManager, final PageCursorProvider provider)
    {
       this.page = page;
+      this.storageManager = storageManager;
+      this.provider = provider;
    }
 
    // Public --------------------------------------------------------
@@ -60,19 +110,30 @@ class PageCacheImpl implements PageCache
       lock.readLock().lock();
       try
       {
-         if (messageNumber < messages.length)
+         if (messageNumber >= messages.length)
          {
-            return messages[messageNumber];
+            return null;
          }
-         else
+         else if (messages[messageNumber] != null || index == null)
          {
-            return null;
+            return messages[messageNumber];
          }
       }
       finally
       {
          lock.readLock().unlock();
       }
+
+      if (closed && provider != null)
+      {
+         PageCache current = provider.getPageCache(page.getPageId());
+         if (current != null && current != this)
+         {
+            return current.getMessage(messageNumber);
+         }
+      }
+
+      return readMessage(messageNumber);
    }
 
    public long getPageId()
@@ -93,6 +154,41 @@ class PageCacheImpl implements PageCache
    public void setMessages(final PagedMessage[] messages)
    {
       this.messages = messages;
+      this.index = null;
+      memorySize = estimateMemory(messages, 0, messages.length);
+   }
+
+   /**
+    * Reads the index of the page, so its messages can be read on demand.
+    */
+   public void readIndex() throws Exception
+   {
+      lock.writeLock().lock();
+      try
+      {
+         storageManager.beforePageRead();
+         try
+         {
+            openPage();
+            index = page.readIndex(storageManager);
+         }
+         catch (Exception e)
+         {
+            close();
+            throw e;
+         }
+         finally
+         {
+            storageManager.afterPageRead();
+         }
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
+
+      messages = new PagedMessage[index.length - 1];
+      memorySize = index.length * INDEX_ENTRY_SIZE;
    }
 
    public int getNumberOfMessages()
@@ -108,8 +204,22 @@ class PageCacheImpl implements PageCache
       }
    }
 
+   /**
+    * Closes the page file once the provider dropped this cache. A message read after this is read through the cache
+    * the provider holds for the page, or from the page file without keeping it open if there's none.
+    */
    public void close()
    {
+      lock.writeLock().lock();
+      try
+      {
+         closed = true;
+         closePage();
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
    }
 
    @Override
@@ -118,15 +228,164 @@ class PageCacheImpl implements PageCache
       return false;
    }
 
+   @Override
+   public long getMemorySize()
+   {
+      return memorySize;
+   }
+
    @Override
    public String toString()
    {
       return "PageCacheImpl::page=" + page.getPageId() + " numberOfMessages = " + messages.length;
    }
 
+   /**
+    * With an index the messages are read from the page file again, without keeping them.
+    */
    @Override
    public PagedMessage[] getMessages()
    {
-      return messages;
+      if (index == null)
+      {
+         return messages;
+      }
+
+      lock.writeLock().lock();
+      try
+      {
+         List<PagedMessage> read = read(0, messages.length);
+         return read.toArray(new PagedMessage[read.size()]);
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
+   }
+
+   // Private -------------------------------------------------------
+
+   /**
+    * Reads the window of messages holding a message from the page file, dropping the oldest window if needed.
+    */
+   private PagedMessage readMessage(final int messageNumber)
+   {
+      lock.writeLock().lock();
+      try
+      {
+         // another thread may have just read it
+         if (messages[messageNumber] != null)
+         {
+            return messages[messageNumber];
+         }
+
+         int window = messageNumber / READ_WINDOW;
+         int firstMessage = window * READ_WINDOW;
+
+         List<PagedMessage> read = read(firstMessage, Math.min(READ_WINDOW, messages.length - firstMessage));
+
+         if (windows.size() == MAX_WINDOWS)
+         {
+            dropWindow(windows.poll());
+         }
+
+         for (int i = 0; i < read.size(); i++)
+         {
+            messages[firstMessage + i] = read.get(i);
+         }
+         windows.add(window);
+         memorySize += estimateMemory(messages, firstMessage, read.size());
+
+         return messages[messageNumber];
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Must be called while holding the write lock.
+    */
+   private List<PagedMessage> read(final int firstMessage, final int messagesToRead)
+   {
+      try
+      {
+         storageManager.beforePageRead();
+         try
+         {
+            openPage();
+            try
+            {
+               return page.read(storageManager, index, firstMessage, messagesToRead);
+            }
+            finally
+            {
+               if (closed)
+               {
+                  // nothing would close the page again
+                  closePage();
+               }
+            }
+         }
+         finally
+         {
+            storageManager.afterPageRead();
+         }
+      }
+      catch (Exception e)
+      {
+         throw new RuntimeException("Couldn't complete paging due to an IO Exception on Paging - " + e.getMessage(), e);
+      }
+   }
+
+   private void openPage() throws Exception
+   {
+      if (!pageOpen)
+      {
+         page.open();
+         pageOpen = true;
+      }
+   }
+
+   /**
+    * Must be called while holding the write lock.
+    */
+   private void closePage()
+   {
+      try
+      {
+         if (pageOpen)
+         {
+            pageOpen = false;
+            page.close();
+         }
+      }
+      catch (Exception e)
+      {
+         ActiveMQServerLogger.LOGGER.warn(e.getMessage(), e);
+      }
+   }
+
+   private void dropWindow(final int window)
+   {
+      int firstMessage = window * READ_WINDOW;
+      int count = Math.min(READ_WINDOW, messages.length - firstMessage);
+
+      memorySize -= estimateMemory(messages, firstMessage, count);
+      Arrays.fill(messages, firstMessage, firstMessage + count, null);
+   }
+
+   private static long estimateMemory(final PagedMessage[] messages, final int first, final int count)
+   {
+      long size = 0;
+      for (int i = first; i < first + count; i++)
+      {
+         if (messages[i] != null)
+         {
+            size += messages[i].getMessage().getMemoryEstimate();
+         }
+      }
+      return size;
    }
 }
@@ -18,15 +18,21 @@ package org.apache.activemq.core.paging.cursor.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.activemq.core.filter.Filter;
 import org.apache.activemq.core.paging.PagedMessage;
 import org.apache.activemq.core.paging.PagingStore;
+import org.apache.activemq.core.paging.cursor.BoundedPageCache;
 import org.apache.activemq.core.paging.cursor.PageCache;
 import org.apache.activemq.core.paging.cursor.PageCursorProvider;
 import org.apache.activemq.core.paging.cursor.PagePosition;
@@ -39,7 +45,6 @@ import org.apache.activemq.core.server.ActiveMQServerLogger;
 import org.apache.activemq.core.transaction.Transaction;
 import org.apache.activemq.core.transaction.impl.TransactionImpl;
 import org.apache.activemq.utils.FutureLatch;
-import org.apache.activemq.utils.SoftValueHashMap;
 /**
  * A PageProviderIMpl
  *
@@ -54,6 +59,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
 {
    // Constants -----------------------------------------------------
 
+   // the pages removed by a single cleanup, so an address with many complete pages doesn't hold the others back
+   private static final int MAX_PAGES_PER_CLEANUP = 10;
+
    boolean isTrace = ActiveMQServerLogger.LOGGER.isTraceEnabled();
 
    // Attributes ----------------------------------------------------
@@ -72,7 +80,23 @@ public class PageCursorProviderImpl implements PageCursorProvider
    // This is the same executor used at the PageStoreImpl. One Executor per pageStore
    private final Executor executor;
 
-   private final SoftValueHashMap<Long, PageCache> softCache;
+   // in access order, so the least recently used caches are dropped first when there are more than maxCacheSize
+   private final LinkedHashMap<Long, PageCache> caches = new LinkedHashMap<Long, PageCache>(16, 0.75f, true);
+
+   private int maxCacheSize;
+
+   // the memory budget shared with the page caches of the other addresses
+   private final BoundedPageCache boundedCache;
+
+   private final AtomicLong cacheHits = new AtomicLong(0);
+
+   private final AtomicLong cacheMisses = new AtomicLong(0);
+
+   private final AtomicLong cacheEvictions = new AtomicLong(0);
+
+   private final AtomicLong cleanupTime = new AtomicLong(0);
+
+   private final AtomicLong cleanupCount = new AtomicLong(0);
 
    private final ConcurrentMap<Long, PageSubscription> activeCursors = new ConcurrentHashMap<Long, PageSubscription>();
 
@@ -84,11 +108,21 @@ public class PageCursorProviderImpl implements PageCursorProvider
                                  final StorageManager storageManager,
                                  final Executor executor,
                                  final int maxCacheSize)
+   {
+      this(pagingStore, storageManager, executor, maxCacheSize, new BoundedPageCache(Long.MAX_VALUE));
+   }
+
+   public PageCursorProviderImpl(final PagingStore pagingStore,
+                                 final StorageManager storageManager,
+                                 final Executor executor,
+                                 final int maxCacheSize,
+                                 final BoundedPageCache boundedCache)
    {
       this.pagingStore = pagingStore;
       this.storageManager = storageManager;
       this.executor = executor;
-      this.softCache = new SoftValueHashMap<Long, PageCache>(maxCacheSize);
+      this.maxCacheSize = maxCacheSize;
+      this.boundedCache = boundedCache;
    }
 
    // Public --------------------------------------------------------
@@ -137,19 +171,60 @@ public class PageCursorProviderImpl implements PageCursorProvider
    }
 
    public PageCache getPageCache(final long pageId)
+   {
+      return getPageCache(pageId, true);
+   }
+
+   public void prefetch(final long pageId)
+   {
+      synchronized (caches)
+      {
+         if (caches.containsKey(pageId) || pageId > pagingStore.getCurrentWritingPage())
+         {
+            return;
+         }
+      }
+
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               PageCache cache = getPageCache(pageId, false);
+               if (cache != null && cache.getNumberOfMessages() > 0)
+               {
+                  // reads the first window of messages
+                  cache.getMessage(0);
+               }
+            }
+            catch (Exception e)
+            {
+               // the page will be read again when the subscription gets there
+               ActiveMQServerLogger.LOGGER.debug("Couldn't prefetch page " + pageId + " on " +
+                                                    pagingStore.getAddress(), e);
+            }
+         }
+      });
+   }
+
+   /**
+    * @param countUse whether the lookup counts as an use of the cache, prefetching doesn't
+    */
+   private PageCache getPageCache(final long pageId, final boolean countUse)
    {
       try
       {
-         boolean needToRead = false;
+         PageCacheImpl newCache = null;
          PageCache cache = null;
-         synchronized (softCache)
+         synchronized (caches)
          {
             if (pageId > pagingStore.getCurrentWritingPage())
             {
                return null;
             }
 
-            cache = softCache.get(pageId);
+            cache = countUse ? caches.get(pageId) : peek(pageId);
             if (cache == null)
             {
                if (!pagingStore.checkPageFileExists((int)pageId))
@@ -157,8 +232,8 @@ public class PageCursorProviderImpl implements PageCursorProvider
                   return null;
                }
 
-               cache = createPageCache(pageId);
-               needToRead = true;
+               newCache = createPageCache(pageId);
+               cache = newCache;
                // anyone reading from this cache will have to wait reading to finish first
                // we also want only one thread reading this cache
                cache.lock();
@@ -166,40 +241,41 @@ public class PageCursorProviderImpl implements PageCursorProvider
                {
                   ActiveMQServerLogger.LOGGER.trace("adding " + pageId +  " into cursor = " + this.pagingStore.getAddress());
                }
-               softCache.put(pageId, cache);
+               caches.put(pageId, cache);
             }
          }
 
          // Reading is done outside of the synchronized block, however
-         // the page stays locked until the entire reading is finished
-         if (needToRead)
+         // the page stays locked until the index is read, the messages are read later when they are needed
+         if (newCache != null)
          {
-            Page page = null;
             try
             {
-               page = pagingStore.createPage((int)pageId);
-
-               storageManager.beforePageRead();
-               page.open();
-
-               List<PagedMessage> pgdMessages = page.read(storageManager);
-               cache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
+               newCache.readIndex();
             }
-            finally
+            catch (Exception e)
             {
-               try
-               {
-                  if (page != null)
-                  {
-                     page.close();
-                  }
-               }
-               catch (Throwable ignored)
+               synchronized (caches)
                {
+                  caches.remove(pageId);
                }
-               storageManager.afterPageRead();
-               cache.unlock();
+               throw e;
             }
+            finally
+            {
+               newCache.unlock();
+            }
+
+            if (countUse)
+            {
+               cacheMisses.incrementAndGet();
+            }
+            addToBudget(newCache);
+         }
+         else if (countUse)
+         {
+            cacheHits.incrementAndGet();
+            boundedCache.used(cache);
          }
 
          return cache;
@@ -212,30 +288,102 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    public void addPageCache(PageCache cache)
    {
-      synchronized (softCache)
+      PageCache replaced;
+      synchronized (caches)
+      {
+         replaced = caches.put(cache.getPageId(), cache);
+      }
+      if (replaced != null && replaced != cache)
       {
-         softCache.put(cache.getPageId(), cache);
+         boundedCache.remove(replaced);
+         closeCache(replaced);
       }
+      addToBudget(cache);
    }
 
    public void setCacheMaxSize(final int size)
    {
-      softCache.setMaxElements(size);
+      List<PageCache> dropped;
+      synchronized (caches)
+      {
+         maxCacheSize = size;
+         dropped = trimCaches();
+      }
+      removeFromBudget(dropped);
    }
 
    public int getCacheSize()
    {
-      synchronized (softCache)
+      synchronized (caches)
+      {
+         return caches.size();
+      }
+   }
+
+   public void onCacheEvicted(final PageCache cache)
+   {
+      synchronized (caches)
       {
-         return softCache.size();
+         Long pageId = cache.getPageId();
+         if (peek(pageId) == cache)
+         {
+            caches.remove(pageId);
+            cacheEvictions.incrementAndGet();
+         }
       }
+      closeCache(cache);
+   }
+
+   public long getCacheHitCount()
+   {
+      return cacheHits.get();
+   }
+
+   public long getCacheMissCount()
+   {
+      return cacheMisses.get();
+   }
+
+   public long getCacheEvictionCount()
+   {
+      return cacheEvictions.get();
+   }
+
+   public long getCleanupTime()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(cleanupTime.get());
+   }
+
+   public long getCleanupCount()
+   {
+      return cleanupCount.get();
+   }
+
+   public long getCacheMemorySize()
+   {
+      long size = 0;
+      synchronized (caches)
+      {
+         for (PageCache cache : caches.values())
+         {
+            size += cache.getMemorySize();
+         }
+      }
+      return size;
    }
 
    public void clearCache()
    {
-      synchronized (softCache)
+      List<PageCache> dropped;
+      synchronized (caches)
+      {
+         dropped = new ArrayList<PageCache>(caches.values());
+         caches.clear();
+      }
+      for (PageCache cache : dropped)
       {
-         softCache.clear();
+         boundedCache.remove(cache);
+         closeCache(cache);
       }
    }
 
@@ -322,7 +470,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
       scheduledCleanup.incrementAndGet();
 
-      executor.execute(new Runnable()
+      pagingStore.getPagingManager().getCleanupScheduler().schedule(executor, new Runnable()
       {
          public void run()
          {
@@ -385,9 +533,37 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
 
    public void cleanup()
+   {
+      long start = System.nanoTime();
+
+      boolean morePages = cleanupPages();
+
+      long time = System.nanoTime() - start;
+      cleanupTime.addAndGet(time);
+      cleanupCount.incrementAndGet();
+
+      if (ActiveMQServerLogger.LOGGER.isDebugEnabled())
+      {
+         ActiveMQServerLogger.LOGGER.debug("Cleanup of address " + pagingStore.getAddress() + " took " +
+                                              TimeUnit.NANOSECONDS.toMicros(time) + " microseconds");
+      }
+
+      if (morePages)
+      {
+         // give the other addresses their turn before removing the next pages
+         scheduleCleanup();
+      }
+   }
+
+   /**
+    * @return whether there are more complete pages to remove than what a single cleanup removes
+    */
+   private boolean cleanupPages()
    {
       ArrayList<Page> depagedPages = new ArrayList<Page>();
 
+      boolean morePages = false;
+
       while (true)
       {
          if (pagingStore.lock(100))
@@ -395,7 +571,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
             break;
          }
          if (!pagingStore.isStarted())
-            return;
+            return false;
       }
 
       synchronized (this)
@@ -404,12 +580,12 @@ public class PageCursorProviderImpl implements PageCursorProvider
          {
             if (!pagingStore.isStarted())
             {
-               return;
+               return false;
             }
 
             if (pagingStore.getNumberOfPages() == 0)
             {
-               return;
+               return false;
             }
 
             if (ActiveMQServerLogger.LOGGER.isDebugEnabled())
@@ -429,7 +605,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
                if (!pagingStore.isStarted())
                {
-                  return;
+                  return false;
                }
 
                // All the pages on the cursor are complete.. so we will cleanup everything and store a bookmark
@@ -454,6 +630,11 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
             for (long i = pagingStore.getFirstPage(); i < minPage; i++)
             {
+               if (depagedPages.size() == MAX_PAGES_PER_CLEANUP)
+               {
+                  morePages = true;
+                  break;
+               }
                if (!checkPageCompletion(cursorList, i))
                {
                   break;
@@ -486,7 +667,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
          catch (Exception ex)
          {
             ActiveMQServerLogger.LOGGER.problemCleaningPageAddress(ex, pagingStore.getAddress());
-            return;
+            return false;
          }
          finally
          {
@@ -500,9 +681,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
          {
             PageCache cache;
             PagedMessage[] pgdMessages;
-            synchronized (softCache)
+            synchronized (caches)
             {
-               cache = softCache.get((long)depagedPage.getPageId());
+               cache = peek(depagedPage.getPageId());
             }
 
             if (isTrace)
@@ -546,18 +727,24 @@ public class PageCursorProviderImpl implements PageCursorProvider
             depagedPage.delete(pgdMessages);
             onDeletePage(depagedPage);
 
-            synchronized (softCache)
+            synchronized (caches)
+            {
+               cache = caches.remove((long)depagedPage.getPageId());
+            }
+            if (cache != null)
             {
-               softCache.remove((long)depagedPage.getPageId());
+               boundedCache.remove(cache);
+               closeCache(cache);
             }
          }
       }
       catch (Exception ex)
       {
          ActiveMQServerLogger.LOGGER.problemCleaningPageAddress(ex, pagingStore.getAddress());
-         return;
+         return false;
       }
 
+      return morePages;
    }
 
 
@@ -637,9 +824,12 @@ public class PageCursorProviderImpl implements PageCursorProvider
    public void printDebug()
    {
       System.out.println("Debug information for PageCursorProviderImpl:");
-      for (PageCache cache : softCache.values())
+      synchronized (caches)
       {
-         System.out.println("Cache " + cache);
+         for (PageCache cache : caches.values())
+         {
+            System.out.println("Cache " + cache);
+         }
       }
    }
 
@@ -650,7 +840,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
    /* Protected as we may let test cases to instrument the test */
    protected PageCacheImpl createPageCache(final long pageId) throws Exception
    {
-      return new PageCacheImpl(pagingStore.createPage((int)pageId));
+      return new PageCacheImpl(pagingStore.createPage((int)pageId), storageManager, this);
    }
 
    // Private -------------------------------------------------------
@@ -688,4 +878,81 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    // Inner classes -------------------------------------------------
 
+
+   /**
+    * Looks a cache up without changing the access order, must be called while holding the lock on caches.
+    */
+   private PageCache peek(final long pageId)
+   {
+      for (Map.Entry<Long, PageCache> entry : caches.entrySet())
+      {
+         if (entry.getKey() == pageId)
+         {
+            return entry.getValue();
+         }
+      }
+      return null;
+   }
+
+   private void addToBudget(final PageCache cache)
+   {
+      List<PageCache> dropped;
+      synchronized (caches)
+      {
+         dropped = trimCaches();
+      }
+      removeFromBudget(dropped);
+
+      boundedCache.add(this, cache);
+   }
+
+   /**
+    * Drops the least recently used caches beyond maxCacheSize, must be called while holding the lock on caches.
+    */
+   private List<PageCache> trimCaches()
+   {
+      List<PageCache> dropped = null;
+      Iterator<PageCache> iterator = caches.values().iterator();
+      int size = caches.size();
+      while (size > maxCacheSize && iterator.hasNext())
+      {
+         PageCache cache = iterator.next();
+         if (cache.isLive())
+         {
+            continue;
+         }
+         iterator.remove();
+         size--;
+         if (dropped == null)
+         {
+            dropped = new ArrayList<PageCache>();
+         }
+         dropped.add(cache);
+      }
+      return dropped;
+   }
+
+   /**
+    * Releases the page file a dropped cache may keep open, the live caches are closed by their pages.
+    */
+   private static void closeCache(final PageCache cache)
+   {
+      if (!cache.isLive())
+      {
+         cache.close();
+      }
+   }
+
+   private void removeFromBudget(final List<PageCache> dropped)
+   {
+      if (dropped != null)
+      {
+         for (PageCache cache : dropped)
+         {
+            cacheEvictions.incrementAndGet();
+            boundedCache.remove(cache);
+            closeCache(cache);
+         }
+      }
+   }
 }
@@ -18,14 +18,13 @@ package org.apache.activemq.core.paging.cursor.impl;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Executor;
@@ -54,7 +53,6 @@ import org.apache.activemq.core.transaction.Transaction;
 import org.apache.activemq.core.transaction.TransactionOperationAbstract;
 import org.apache.activemq.core.transaction.TransactionPropertyIndexes;
 import org.apache.activemq.core.transaction.impl.TransactionImpl;
-import org.apache.activemq.utils.ConcurrentHashSet;
 import org.apache.activemq.utils.FutureLatch;
 
 /**
@@ -64,6 +62,10 @@ import org.apache.activemq.utils.FutureLatch;
  */
 final class PageSubscriptionImpl implements PageSubscription
 {
+   private static final long[] NO_RECORDS = new long[0];
+
+   private static final long UNKNOWN_FIRST_PAGE = -2;
+
    private final boolean isTrace = ActiveMQServerLogger.LOGGER.isTraceEnabled();
 
    private boolean empty = true;
@@ -93,6 +95,11 @@ final class PageSubscriptionImpl implements PageSubscription
 
    private final SortedMap<Long, PageCursorInfo> consumedPages = new TreeMap<Long, PageCursorInfo>();
 
+   // The watermark of the cleanup: the first page not complete yet, as last computed by getFirstPage.
+   // It is reset when pages are added, completed or removed. The cleanup checks the completion of every page before
+   // removing it, so missing a reset only makes the cleanup look at a few pages more or less than needed.
+   private long firstPage = UNKNOWN_FIRST_PAGE;
+
    private final PageSubscriptionCounter counter;
 
    private final Executor executor;
@@ -159,6 +166,7 @@ final class PageSubscriptionImpl implements PageSubscription
       synchronized (consumedPages)
       {
          this.empty = false;
+         firstPage = UNKNOWN_FIRST_PAGE;
       }
 
    }
@@ -206,6 +214,7 @@ final class PageSubscriptionImpl implements PageSubscription
       synchronized (consumedPages)
       {
          consumedPages.put(Long.valueOf(position.getPageNr()), info);
+         firstPage = UNKNOWN_FIRST_PAGE;
       }
    }
 
@@ -248,7 +257,11 @@ final class PageSubscriptionImpl implements PageSubscription
          // this could be null on testcases
          counter.delete(tx);
       }
-      this.empty = true;
+      synchronized (consumedPages)
+      {
+         this.empty = true;
+         firstPage = UNKNOWN_FIRST_PAGE;
+      }
    }
 
    /**
@@ -296,6 +309,11 @@ final class PageSubscriptionImpl implements PageSubscription
                }
             }
          }
+
+         if (!completedPages.isEmpty())
+         {
+            firstPage = UNKNOWN_FIRST_PAGE;
+         }
       }
 
       for (PageCursorInfo infoPG : completedPages)
@@ -321,21 +339,18 @@ final class PageSubscriptionImpl implements PageSubscription
          }
 
          // it will delete the page ack records
-         for (PagePosition pos : infoPG.acks)
+         for (long recordID : infoPG.getAckRecords())
          {
-            if (pos.getRecordID() >= 0)
+            store.deleteCursorAcknowledgeTransactional(tx.getID(), recordID);
+            if (!persist)
             {
-               store.deleteCursorAcknowledgeTransactional(tx.getID(), pos.getRecordID());
-               if (!persist)
-               {
-                  // only need to set it once
-                  tx.setContainsPersistent();
-                  persist = true;
-               }
+               // only need to set it once
+               tx.setContainsPersistent();
+               persist = true;
             }
          }
 
-         infoPG.acks.clear();
+         infoPG.clearAcks();
          infoPG.removedReferences.clear();
       }
 
@@ -399,6 +414,12 @@ final class PageSubscriptionImpl implements PageSubscription
          retPos = moveNextPage(retPos);
 
          cache = cursorProvider.getPageCache(retPos.getPageNr());
+
+         if (cache != null && !cache.isLive())
+         {
+            // the subscription is now reading this page, so the next one will be needed soon
+            cursorProvider.prefetch(retPos.getPageNr() + 1);
+         }
       }
 
       if (cache == null)
@@ -556,20 +577,11 @@ final class PageSubscriptionImpl implements PageSubscription
    {
       synchronized (consumedPages)
       {
-         if (empty && consumedPages.isEmpty())
-         {
-            return -1;
-         }
-         long lastPageSeen = 0;
-         for (Map.Entry<Long, PageCursorInfo> info : consumedPages.entrySet())
+         if (firstPage == UNKNOWN_FIRST_PAGE)
          {
-            lastPageSeen = info.getKey();
-            if (!info.getValue().isDone() && !info.getValue().isPendingDelete())
-            {
-               return info.getKey();
-            }
+            firstPage = calculateFirstPage();
          }
-         return lastPageSeen;
+         return firstPage;
       }
 
    }
@@ -681,13 +693,10 @@ final class PageSubscriptionImpl implements PageSubscription
          {
             for (PageCursorInfo cursor : consumedPages.values())
             {
-               for (PagePosition info : cursor.acks)
+               for (long recordID : cursor.getAckRecords())
                {
-                  if (info.getRecordID() >= 0)
-                  {
-                     isPersistent = true;
-                     store.deleteCursorAcknowledgeTransactional(tx, info.getRecordID());
-                  }
+                  isPersistent = true;
+                  store.deleteCursorAcknowledgeTransactional(tx, recordID);
                }
                PagePosition completeInfo = cursor.getCompleteInfo();
                if (completeInfo != null && completeInfo.getRecordID() >= 0)
@@ -768,6 +777,12 @@ final class PageSubscriptionImpl implements PageSubscription
 
          recoveredACK.clear();
          recoveredACK = null;
+
+         synchronized (consumedPages)
+         {
+            // the reloaded ACKs may have completed some pages
+            firstPage = UNKNOWN_FIRST_PAGE;
+         }
       }
    }
 
@@ -807,6 +822,7 @@ final class PageSubscriptionImpl implements PageSubscription
       synchronized (consumedPages)
       {
          info = consumedPages.remove(Long.valueOf(deletedPage.getPageId()));
+         firstPage = UNKNOWN_FIRST_PAGE;
       }
       if (info != null)
       {
@@ -823,21 +839,18 @@ final class PageSubscriptionImpl implements PageSubscription
             }
             info.setCompleteInfo(null);
          }
-         for (PagePosition deleteInfo : info.acks)
+         for (long recordID : info.getAckRecords())
          {
-            if (deleteInfo.getRecordID() >= 0)
+            try
             {
-               try
-               {
-                  store.deleteCursorAcknowledge(deleteInfo.getRecordID());
-               }
-               catch (Exception e)
-               {
-                  ActiveMQServerLogger.LOGGER.warn("Error while deleting page-complete-record", e);
-               }
+               store.deleteCursorAcknowledge(recordID);
+            }
+            catch (Exception e)
+            {
+               ActiveMQServerLogger.LOGGER.warn("Error while deleting page-complete-record", e);
             }
          }
-         info.acks.clear();
+         info.clearAcks();
       }
    }
 
@@ -852,6 +865,27 @@ final class PageSubscriptionImpl implements PageSubscription
       getPageInfo(pageNr, true);
    }
 
+   /**
+    * Must be called while holding the lock on consumedPages.
+    */
+   private long calculateFirstPage()
+   {
+      if (empty && consumedPages.isEmpty())
+      {
+         return -1;
+      }
+      long lastPageSeen = 0;
+      for (Map.Entry<Long, PageCursorInfo> info : consumedPages.entrySet())
+      {
+         lastPageSeen = info.getKey();
+         if (!info.getValue().isDone() && !info.getValue().isPendingDelete())
+         {
+            return info.getKey();
+         }
+      }
+      return lastPageSeen;
+   }
+
    private PageCursorInfo getPageInfo(final PagePosition pos)
    {
       return getPageInfo(pos.getPageNr(), true);
@@ -872,6 +906,7 @@ final class PageSubscriptionImpl implements PageSubscription
             }
             pageInfo = new PageCursorInfo(pageNr, cache.getNumberOfMessages(), cache);
             consumedPages.put(pageNr, pageInfo);
+            firstPage = UNKNOWN_FIRST_PAGE;
          }
          return pageInfo;
       }
@@ -984,6 +1019,11 @@ final class PageSubscriptionImpl implements PageSubscription
     */
    private void onPageDone(final PageCursorInfo info)
    {
+      synchronized (consumedPages)
+      {
+         firstPage = UNKNOWN_FIRST_PAGE;
+      }
+
       if (autoCleanup)
       {
          scheduleCleanupCheck();
@@ -1006,11 +1046,16 @@ final class PageSubscriptionImpl implements PageSubscription
       private final long pageId;
 
       // Confirmed ACKs on this page
-      private final Set<PagePosition> acks = Collections.synchronizedSet(new LinkedHashSet<PagePosition>());
+      private final MessageNumberSet acks = new MessageNumberSet();
+
+      // The journal records of the confirmed ACKs, deleted once the page is complete
+      private long[] ackRecords = NO_RECORDS;
+
+      private int numberOfAckRecords;
 
       private WeakReference<PageCache> cache;
 
-      private final Set<PagePosition> removedReferences = new ConcurrentHashSet<PagePosition>();
+      private final MessageNumberSet removedReferences = new MessageNumberSet();
 
       // The page was live at the time of the creation
       private final boolean wasLive;
@@ -1036,7 +1081,7 @@ final class PageSubscriptionImpl implements PageSubscription
       public boolean isAck(PagePosition position)
       {
          return completePage != null ||
-                acks.contains(position);
+                acks.contains(position.getMessageNr());
       }
 
       @Override
@@ -1115,12 +1160,27 @@ final class PageSubscriptionImpl implements PageSubscription
 
       public boolean isRemoved(final PagePosition pos)
       {
-         return removedReferences.contains(pos);
+         return removedReferences.contains(pos.getMessageNr());
       }
 
       public void remove(final PagePosition position)
       {
-         removedReferences.add(position);
+         removedReferences.add(position.getMessageNr());
+      }
+
+      /**
+       * @return the journal records of the ACKs on this page
+       */
+      public synchronized long[] getAckRecords()
+      {
+         return Arrays.copyOf(ackRecords, numberOfAckRecords);
+      }
+
+      public synchronized void clearAcks()
+      {
+         acks.clear();
+         ackRecords = NO_RECORDS;
+         numberOfAckRecords = 0;
       }
 
       public void addACK(final PagePosition posACK)
@@ -1157,8 +1217,34 @@ final class PageSubscriptionImpl implements PageSubscription
 
       private boolean internalAddACK(final PagePosition posACK)
       {
-         removedReferences.add(posACK);
-         return acks.add(posACK);
+         boolean added;
+
+         // Negative positions are bookmarks, they don't refer to any message but they may still have a record
+         if (posACK.getMessageNr() >= 0)
+         {
+            removedReferences.add(posACK.getMessageNr());
+            added = acks.add(posACK.getMessageNr());
+         }
+         else
+         {
+            added = true;
+         }
+
+         if (added && posACK.getRecordID() >= 0)
+         {
+            addAckRecord(posACK.getRecordID());
+         }
+
+         return added;
+      }
+
+      private synchronized void addAckRecord(final long recordID)
+      {
+         if (numberOfAckRecords == ackRecords.length)
+         {
+            ackRecords = Arrays.copyOf(ackRecords, Math.max(4, ackRecords.length * 2));
+         }
+         ackRecords[numberOfAckRecords++] = recordID;
       }
 
       /**
@@ -1198,7 +1284,7 @@ final class PageSubscriptionImpl implements PageSubscription
    private static final class PageCursorTX extends TransactionOperationAbstract
    {
       private final Map<PageSubscriptionImpl, List<PagePosition>> pendingPositions =
-         new HashMap<PageSubscriptionImpl, List<PagePosition>>();
+         new HashMap<PageSubscriptionImpl, List<PagePosition>>(2);
 
       private void addPositionConfirmation(final PageSubscriptionImpl cursor, final PagePosition position)
       {
@@ -1206,7 +1292,7 @@ final class PageSubscriptionImpl implements PageSubscription
 
          if (list == null)
          {
-            list = new LinkedList<PagePosition>();
+            list = new ArrayList<PagePosition>();
             pendingPositions.put(cursor, list);
          }
 
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.paging.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.paging.PagingStore;
+
+/**
+ * Shares a global memory budget between the addresses.
+ * <p/>
+ * Every address may use memory on demand for as long as the sum of the memory used by all the addresses stays within
+ * the budget. Once the budget is exceeded, the addresses holding more than their share are the ones to page, block or
+ * drop, while the others keep their messages in memory. The share of an address is the budget split between the
+ * addresses currently holding memory in proportion to their weights, and never less than the minimum size guaranteed
+ * to the address.
+ */
+public final class GlobalMemoryManager
+{
+   private final long maxSize;
+
+   private final AtomicLong size = new AtomicLong();
+
+   private final Map<SimpleString, Integer> activeWeights = new HashMap<SimpleString, Integer>();
+
+   private volatile int totalWeight;
+
+   private final Queue<Runnable> onMemoryFreedRunnables = new ConcurrentLinkedQueue<Runnable>();
+
+   /**
+    * @param maxSize the memory all the addresses may use before the addresses over their share are limited,
+    *                -1 to disable the global budget
+    */
+   public GlobalMemoryManager(final long maxSize)
+   {
+      this.maxSize = maxSize;
+   }
+
+   public boolean isEnabled()
+   {
+      return maxSize > 0;
+   }
+
+   public long getMaxSize()
+   {
+      return maxSize;
+   }
+
+   public long getSize()
+   {
+      return size.get();
+   }
+
+   public boolean isFull()
+   {
+      return isEnabled() && size.get() > maxSize;
+   }
+
+   /**
+    * @return the sum of the weights of the addresses currently holding memory
+    */
+   public int getTotalWeight()
+   {
+      return totalWeight;
+   }
+
+   /**
+    * @return the part of the budget an address with this weight may hold once the budget is exceeded,
+    *         -1 if the budget is disabled
+    */
+   public long getMemoryShare(final int weight)
+   {
+      if (!isEnabled())
+      {
+         return -1;
+      }
+
+      int total = totalWeight;
+
+      if (total <= weight)
+      {
+         return maxSize;
+      }
+
+      return maxSize * weight / total;
+   }
+
+   /**
+    * @return true if the budget is exceeded and the address holds more than both its share and its minimum size
+    */
+   public boolean isOverShare(final long addressSize, final long minSize, final int weight)
+   {
+      return isFull() && addressSize > minSize && addressSize > getMemoryShare(weight);
+   }
+
+   public void addSize(final int delta)
+   {
+      long newSize = size.addAndGet(delta);
+
+      if (delta < 0 && newSize <= maxSize)
+      {
+         memoryFreed();
+      }
+   }
+
+   /**
+    * Accounts the weight of an address while it holds memory. To be called whenever the size of the address moves
+    * from or to zero, or when its weight changes; the size is read again here so calls racing with each other always
+    * leave the address accounted by its last size.
+    */
+   public void updateActive(final PagingStore store, final int weight)
+   {
+      boolean changed;
+
+      synchronized (activeWeights)
+      {
+         SimpleString address = store.getAddress();
+
+         long addressSize = store.getAddressSize();
+
+         Integer previous = addressSize > 0 ? activeWeights.put(address, weight) : activeWeights.remove(address);
+
+         int newTotal = totalWeight - (previous == null ? 0 : previous) + (addressSize > 0 ? weight : 0);
+
+         changed = newTotal < totalWeight;
+
+         totalWeight = newTotal;
+      }
+
+      // the shares of the other addresses grew
+      if (changed)
+      {
+         memoryFreed();
+      }
+   }
+
+   /**
+    * The runnable is run once, the next time memory is freed while the budget is not exceeded or the shares of the
+    * addresses grow. It is up to the runnable to check whether its address is still over its share.
+    */
+   public void addOnMemoryFreed(final Runnable runnable)
+   {
+      onMemoryFreedRunnables.add(runnable);
+   }
+
+   private void memoryFreed()
+   {
+      if (onMemoryFreedRunnables.isEmpty())
+      {
+         return;
+      }
+
+      // the runnables of the addresses still over their share add themselves again
+      List<Runnable> runnables = new ArrayList<Runnable>();
+
+      Runnable runnable;
+
+      while ((runnable = onMemoryFreedRunnables.poll()) != null)
+      {
+         runnables.add(runnable);
+      }
+
+      for (Runnable toRun : runnables)
+      {
+         toRun.run();
+      }
+   }
+}
@@ -16,8 +16,13 @@
  */
 package org.apache.activemq.core.paging.impl;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -27,6 +32,7 @@ import org.apache.activemq.api.core.ActiveMQBuffers;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.journal.SequentialFile;
 import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.impl.MappedSequentialFileFactory;
 import org.apache.activemq.core.paging.PagedMessage;
 import org.apache.activemq.core.paging.cursor.LivePageCache;
 import org.apache.activemq.core.paging.cursor.PageSubscriptionCounter;
@@ -52,6 +58,12 @@ public final class Page implements Comparable<Page>
 
    private static final byte END_BYTE = (byte) '}';
 
+   // the start byte and the size of a record, before the encoded message
+   private static final int SIZE_RECORD_HEADER = DataConstants.SIZE_BYTE + DataConstants.SIZE_INT;
+
+   // how many bytes of the page file are read at once when indexing it, if it can't be mapped
+   private static final int INDEX_READ_SIZE = 64 * 1024;
+
    // Attributes ----------------------------------------------------
 
    private final int pageId;
@@ -64,6 +76,9 @@ public final class Page implements Comparable<Page>
 
    private final SequentialFileFactory fileFactory;
 
+   // the mapping of the whole page file used to read it, guarded by this page
+   private MappedByteBuffer mapping;
+
    /**
     * The page cache that will be filled with data as we write more data
     */
@@ -115,17 +130,222 @@ public final class Page implements Comparable<Page>
          throw ActiveMQMessageBundle.BUNDLE.invalidPageIO();
       }
 
+      size.set((int) file.size());
+
+      List<PagedMessage> messages = readMessages(storage, 0, (int) file.size(), 0);
+
+      numberOfMessages.set(messages.size());
+
+      return messages;
+   }
+
+   /**
+    * Reads the messages between two entries of the index of this page.
+    *
+    * @param index         the index returned by {@link #readIndex(StorageManager)}
+    * @param firstMessage  the number of the first message to read
+    * @param messagesToRead the number of messages to read
+    */
+   public synchronized List<PagedMessage> read(StorageManager storage,
+                                               int[] index,
+                                               int firstMessage,
+                                               int messagesToRead) throws Exception
+   {
+      if (isDebug)
+      {
+         ActiveMQServerLogger.LOGGER.debug("reading " + messagesToRead + " messages from " + firstMessage +
+                                              " on page " + this.pageId + " on address = " + storeName);
+      }
+
+      if (!file.isOpen())
+      {
+         throw ActiveMQMessageBundle.BUNDLE.invalidPageIO();
+      }
+
+      int start = index[firstMessage];
+      int end = index[firstMessage + messagesToRead];
+
+      return readMessages(storage, start, end - start, firstMessage);
+   }
+
+   /**
+    * Reads the position of every message on this page, verifying the records as {@link #read(StorageManager)} does
+    * but without decoding the messages.
+    *
+    * @return the offset of each message on the file, followed by the offset after the last message
+    */
+   public synchronized int[] readIndex(StorageManager storage) throws Exception
+   {
+      if (isDebug)
+      {
+         ActiveMQServerLogger.LOGGER.debug("indexing page " + this.pageId + " on address = " + storeName);
+      }
+
+      if (!file.isOpen())
+      {
+         throw ActiveMQMessageBundle.BUNDLE.invalidPageIO();
+      }
+
+      final int fileSize = (int) file.size();
+
+      size.set(fileSize);
+
+      int[] index = new int[64];
+      int messages = 0;
+      int position = 0;
+
+      // the whole file is mapped when possible, otherwise it's read in chunks
+      final ByteBuffer mappedBuffer = map(0, fileSize);
+      final ByteBuffer directBuffer = mappedBuffer != null ? mappedBuffer :
+         storage.allocateDirectBuffer(Math.min(fileSize, INDEX_READ_SIZE));
+      try
+      {
+         // the region of the file in the buffer
+         int bufferStart = 0;
+         int bufferEnd = mappedBuffer != null ? fileSize : 0;
+
+         while (position < fileSize)
+         {
+            if (mappedBuffer == null && position + SIZE_RECORD_HEADER > bufferEnd)
+            {
+               bufferStart = position;
+               bufferEnd = position + fill(directBuffer, position, fileSize);
+            }
+
+            if (directBuffer.get(position - bufferStart) != Page.START_BYTE ||
+               position + SIZE_RECORD_HEADER >= fileSize)
+            {
+               markFileAsSuspect(file.getFileName(), position, messages);
+               break;
+            }
+
+            int messageSize = directBuffer.getInt(position - bufferStart + DataConstants.SIZE_BYTE);
+            int endPosition = position + SIZE_RECORD_HEADER + messageSize;
+
+            if (messageSize < 0 || endPosition >= fileSize)
+            {
+               markFileAsSuspect(file.getFileName(), position, messages);
+               break;
+            }
+
+            if (endPosition >= bufferEnd)
+            {
+               bufferStart = endPosition;
+               bufferEnd = endPosition + fill(directBuffer, endPosition, fileSize);
+            }
+
+            if (directBuffer.get(endPosition - bufferStart) != Page.END_BYTE)
+            {
+               markFileAsSuspect(file.getFileName(), position, messages);
+               break;
+            }
+
+            if (messages + 1 == index.length)
+            {
+               index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[messages++] = position;
+
+            position = endPosition + DataConstants.SIZE_BYTE;
+         }
+      }
+      finally
+      {
+         if (mappedBuffer == null)
+         {
+            storage.freeDirectBuffer(directBuffer);
+         }
+      }
+
+      index[messages] = position;
+
+      numberOfMessages.set(messages);
+
+      return Arrays.copyOf(index, messages + 1);
+   }
+
+   /**
+    * Maps a region of the page file read-only, so its records are read straight from the file system cache without
+    * being copied into a buffer first.
+    * The whole file is mapped once and the mapping is kept until the page is closed, it must be called while holding
+    * the lock of this page.
+    *
+    * @return the mapped region, or {@code null} if the file has no native file to be mapped
+    */
+   private ByteBuffer map(final int start, final int length) throws IOException
+   {
+      if (length == 0 || !file.hasJavaFile())
+      {
+         return null;
+      }
+
+      if (mapping == null || mapping.capacity() < start + length)
+      {
+         releaseMapping();
+
+         RandomAccessFile randomFile = new RandomAccessFile(file.getJavaFile(), "r");
+         try
+         {
+            if (randomFile.length() < start + length)
+            {
+               return null;
+            }
+            mapping = randomFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomFile.length());
+         }
+         finally
+         {
+            randomFile.close();
+         }
+      }
+
+      ByteBuffer region = mapping.duplicate();
+      region.limit(start + length);
+      region.position(start);
+      return region.slice();
+   }
+
+   private void releaseMapping()
+   {
+      if (mapping != null)
+      {
+         MappedSequentialFileFactory.unmap(mapping);
+         mapping = null;
+      }
+   }
+
+   /**
+    * Reads the file from a position into the buffer
+    *
+    * @return the number of bytes read
+    */
+   private int fill(final ByteBuffer buffer, final int position, final int fileSize) throws Exception
+   {
+      buffer.clear();
+      buffer.limit(Math.min(buffer.capacity(), fileSize - position));
+      file.position(position);
+      return Math.max(0, file.read(buffer));
+   }
+
+   private List<PagedMessage> readMessages(final StorageManager storage,
+                                           final int start,
+                                           final int length,
+                                           final int firstMessage) throws Exception
+   {
       ArrayList<PagedMessage> messages = new ArrayList<PagedMessage>();
 
-      size.set((int) file.size());
-      // Using direct buffer, as described on https://jira.jboss.org/browse/HORNETQ-467
-      ByteBuffer directBuffer = storage.allocateDirectBuffer((int) file.size());
+      // the messages are decoded straight from a mapping of the file when possible, they copy what they need
+      final ByteBuffer mappedBuffer = map(start, length);
+      // Otherwise using direct buffer, as described on https://jira.jboss.org/browse/HORNETQ-467
+      final ByteBuffer directBuffer = mappedBuffer != null ? mappedBuffer : storage.allocateDirectBuffer(length);
       ActiveMQBuffer fileBuffer = null;
       try
       {
 
-         file.position(0);
-         file.read(directBuffer);
+         if (mappedBuffer == null)
+         {
+            file.position(start);
+            file.read(directBuffer);
+         }
 
          directBuffer.rewind();
 
@@ -166,14 +386,14 @@ public final class Page implements Comparable<Page>
                   }
                   else
                   {
-                     markFileAsSuspect(file.getFileName(), position, messages.size());
+                     markFileAsSuspect(file.getFileName(), start + position, firstMessage + messages.size());
                      break;
                   }
                }
             }
             else
             {
-               markFileAsSuspect(file.getFileName(), position, messages.size());
+               markFileAsSuspect(file.getFileName(), start + position, firstMessage + messages.size());
                break;
             }
          }
@@ -184,11 +404,12 @@ public final class Page implements Comparable<Page>
          {
             fileBuffer.byteBuf().unwrap().release();
          }
-         storage.freeDirectBuffer(directBuffer);
+         if (mappedBuffer == null)
+         {
+            storage.freeDirectBuffer(directBuffer);
+         }
       }
 
-      numberOfMessages.set(messages.size());
-
       return messages;
    }
 
@@ -255,6 +476,8 @@ public final class Page implements Comparable<Page>
          // leave it to the soft cache to decide when to release it now
          pageCache = null;
       }
+      // the messages read copied what they needed from the mapping
+      releaseMapping();
       file.close();
 
       Set<PageSubscriptionCounter> counters = getPendingCounters();
@@ -23,11 +23,14 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.activemq.api.config.ActiveMQDefaultConfiguration;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.paging.PageTransactionInfo;
 import org.apache.activemq.core.paging.PagingManager;
 import org.apache.activemq.core.paging.PagingStore;
 import org.apache.activemq.core.paging.PagingStoreFactory;
+import org.apache.activemq.core.paging.cursor.BoundedPageCache;
+import org.apache.activemq.core.paging.cursor.PageCleanupScheduler;
 import org.apache.activemq.core.server.ActiveMQServerLogger;
 import org.apache.activemq.core.settings.HierarchicalRepository;
 import org.apache.activemq.core.settings.impl.AddressSettings;
@@ -57,6 +60,12 @@ public final class PagingManagerImpl implements PagingManager
 
    private volatile boolean cleanupEnabled = true;
 
+   private final BoundedPageCache boundedPageCache;
+
+   private final PageCleanupScheduler cleanupScheduler;
+
+   private final GlobalMemoryManager globalMemoryManager;
+
    private final ConcurrentMap</*TransactionID*/Long, PageTransactionInfo> transactions =
       new ConcurrentHashMap<Long, PageTransactionInfo>();
 
@@ -70,9 +79,31 @@ public final class PagingManagerImpl implements PagingManager
 
    public PagingManagerImpl(final PagingStoreFactory pagingSPI,
                             final HierarchicalRepository<AddressSettings> addressSettingsRepository)
+   {
+      this(pagingSPI,
+           addressSettingsRepository,
+           ActiveMQDefaultConfiguration.getDefaultPageCacheMaxMemory(),
+           ActiveMQDefaultConfiguration.getDefaultMaxConcurrentPageCleanup(),
+           ActiveMQDefaultConfiguration.getDefaultGlobalMaxSize());
+   }
+
+   /**
+    * @param pageCacheMaxMemory the memory all the page caches may use, -1 for a tenth of the maximum heap
+    * @param maxConcurrentCleanups the page cleanups that may run at once, -1 for the number of processors
+    * @param globalMaxSize the memory the messages of all the addresses may use, -1 for no global limit
+    */
+   public PagingManagerImpl(final PagingStoreFactory pagingSPI,
+                            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                            final long pageCacheMaxMemory,
+                            final int maxConcurrentCleanups,
+                            final long globalMaxSize)
    {
       pagingStoreFactory = pagingSPI;
       this.addressSettingsRepository = addressSettingsRepository;
+      this.boundedPageCache = new BoundedPageCache(pageCacheMaxMemory == -1 ? Runtime.getRuntime().maxMemory() / 10
+                                                                            : pageCacheMaxMemory);
+      this.cleanupScheduler = new PageCleanupScheduler(maxConcurrentCleanups);
+      this.globalMemoryManager = new GlobalMemoryManager(globalMaxSize);
       addressSettingsRepository.registerListener(this);
    }
 
@@ -91,6 +122,21 @@ public final class PagingManagerImpl implements PagingManager
       }
    }
 
+   public BoundedPageCache getBoundedPageCache()
+   {
+      return boundedPageCache;
+   }
+
+   public PageCleanupScheduler getCleanupScheduler()
+   {
+      return cleanupScheduler;
+   }
+
+   public GlobalMemoryManager getGlobalMemoryManager()
+   {
+      return globalMemoryManager;
+   }
+
    public void disableCleanup()
    {
       if (!cleanupEnabled)
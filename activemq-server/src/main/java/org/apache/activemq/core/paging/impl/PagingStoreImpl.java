@@ -97,6 +97,37 @@ public class PagingStoreImpl implements PagingStore
 
    private final PagingManager pagingManager;
 
+   private final GlobalMemoryManager globalMemory;
+
+   private volatile long minSize;
+
+   private volatile int memoryShareWeight;
+
+   private final AtomicBoolean waitingGlobalMemory = new AtomicBoolean(false);
+
+   private final Runnable globalMemoryFreedRunnable = new Runnable()
+   {
+      public void run()
+      {
+         waitingGlobalMemory.set(false);
+
+         long addressSize = sizeInBytes.get();
+
+         if (!isBlocked(addressSize))
+         {
+            releaseBlocked();
+         }
+         else if (isOverGlobalShare(addressSize) && waitingGlobalMemory.compareAndSet(false, true))
+         {
+            globalMemory.addOnMemoryFreed(this);
+         }
+      }
+   };
+
+   private final AtomicLong pagingStartCount = new AtomicLong();
+
+   private final AtomicLong pagingStopCount = new AtomicLong();
+
    private final Executor executor;
 
    // Bytes consumed by the queue on the memory
@@ -147,6 +178,8 @@ public class PagingStoreImpl implements PagingStore
 
       this.storeName = storeName;
 
+      this.globalMemory = pagingManager.getGlobalMemoryManager();
+
       applySetting(addressSettings);
 
       if (addressFullMessagePolicy == AddressFullMessagePolicy.PAGE && maxSize != -1 && pageSize >= maxSize)
@@ -181,7 +214,8 @@ public class PagingStoreImpl implements PagingStore
       this.cursorProvider = new PageCursorProviderImpl(this,
          this.storageManager,
          executor,
-         addressSettings.getPageCacheMaxSize());
+         addressSettings.getPageCacheMaxSize(),
+         pagingManager.getBoundedPageCache());
 
    }
 
@@ -196,6 +230,19 @@ public class PagingStoreImpl implements PagingStore
 
       addressFullMessagePolicy = addressSettings.getAddressFullMessagePolicy();
 
+      minSize = addressSettings.getMinSizeBytes();
+
+      int weight = addressSettings.getMemoryShareWeight();
+
+      if (weight != memoryShareWeight)
+      {
+         memoryShareWeight = weight;
+         if (globalMemory.isEnabled())
+         {
+            globalMemory.updateActive(this, weight);
+         }
+      }
+
       if (cursorProvider != null)
       {
          cursorProvider.setCacheMaxSize(addressSettings.getPageCacheMaxSize());
@@ -256,6 +303,21 @@ public class PagingStoreImpl implements PagingStore
       return maxSize;
    }
 
+   public long getMemoryShare()
+   {
+      return globalMemory.getMemoryShare(memoryShareWeight);
+   }
+
+   public long getPagingStartCount()
+   {
+      return pagingStartCount.get();
+   }
+
+   public long getPagingStopCount()
+   {
+      return pagingStopCount.get();
+   }
+
    public AddressFullMessagePolicy getAddressFullMessagePolicy()
    {
       return addressFullMessagePolicy;
@@ -497,6 +559,10 @@ public class PagingStoreImpl implements PagingStore
       lock.writeLock().lock();
       try
       {
+         if (paging)
+         {
+            pagingStopCount.incrementAndGet();
+         }
          paging = false;
          this.cursorProvider.onPageModeCleared();
       }
@@ -561,6 +627,8 @@ public class PagingStoreImpl implements PagingStore
 
          paging = true;
 
+         pagingStartCount.incrementAndGet();
+
          return true;
       }
       finally
@@ -732,9 +800,9 @@ public class PagingStoreImpl implements PagingStore
 
    public boolean checkMemory(final Runnable runWhenAvailable)
    {
-      if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK && maxSize != -1)
+      if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK)
       {
-         if (sizeInBytes.get() > maxSize)
+         if (isBlocked(sizeInBytes.get()))
          {
             OurRunnable ourRunnable = new OurRunnable(runWhenAvailable);
 
@@ -744,23 +812,50 @@ public class PagingStoreImpl implements PagingStore
             // has been added, but the check to execute was done before the element was added
             // NOTE! We do not fix this race by locking the whole thing, doing this check provides
             // MUCH better performance in a highly concurrent environment
-            if (sizeInBytes.get() <= maxSize)
+            long addressSize = sizeInBytes.get();
+            if (!isBlocked(addressSize))
             {
                // run it now
                ourRunnable.run();
             }
-            else if (!blocking.get())
+            else
             {
-               ActiveMQServerLogger.LOGGER.blockingMessageProduction(address, sizeInBytes.get(), maxSize);
-               blocking.set(true);
+               if (!blocking.get())
+               {
+                  if (maxSize != -1 && addressSize > maxSize)
+                  {
+                     ActiveMQServerLogger.LOGGER.blockingMessageProduction(address, addressSize, maxSize);
+                  }
+                  else
+                  {
+                     ActiveMQServerLogger.LOGGER.blockingMessageProductionGlobal(address,
+                                                                                addressSize,
+                                                                                getMemoryShare(),
+                                                                                globalMemory.getSize(),
+                                                                                globalMemory.getMaxSize());
+                  }
+                  blocking.set(true);
+               }
+
+               if (isOverGlobalShare(addressSize) && waitingGlobalMemory.compareAndSet(false, true))
+               {
+                  // other addresses releasing memory may bring this one back within its share
+                  globalMemory.addOnMemoryFreed(globalMemoryFreedRunnable);
+
+                  // the memory may have been freed before the runnable was added
+                  if (!isBlocked(sizeInBytes.get()))
+                  {
+                     releaseBlocked();
+                  }
+               }
             }
 
             return true;
          }
       }
-      else if (addressFullMessagePolicy == AddressFullMessagePolicy.FAIL && maxSize != -1)
+      else if (addressFullMessagePolicy == AddressFullMessagePolicy.FAIL)
       {
-         if (sizeInBytes.get() > maxSize)
+         if (isFull())
          {
             return false;
          }
@@ -773,32 +868,25 @@ public class PagingStoreImpl implements PagingStore
 
    public void addSize(final int size)
    {
+      final long addressSize = sizeInBytes.addAndGet(size);
+
+      // the weights are only accounted when there is a global budget to share
+      if (globalMemory.isEnabled() && (addressSize > 0) != (addressSize - size > 0))
+      {
+         globalMemory.updateActive(this, memoryShareWeight);
+      }
+
+      globalMemory.addSize(size);
+
       if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK)
       {
-         if (maxSize != -1)
+         if (!isBlocked(addressSize))
          {
-            long newSize = sizeInBytes.addAndGet(size);
-
-            if (newSize <= maxSize)
-            {
-               if (!onMemoryFreedRunnables.isEmpty())
-               {
-                  executor.execute(memoryFreedRunnablesExecutor);
-                  if (blocking.get())
-                  {
-                     ActiveMQServerLogger.LOGGER.unblockingMessageProduction(address, sizeInBytes.get(), maxSize);
-                     blocking.set(false);
-                  }
-               }
-            }
+            releaseBlocked();
          }
-
-         return;
       }
       else if (addressFullMessagePolicy == AddressFullMessagePolicy.PAGE)
       {
-         final long addressSize = sizeInBytes.addAndGet(size);
-
          if (size > 0)
          {
             if (maxSize > 0 && addressSize > maxSize)
@@ -808,15 +896,42 @@ public class PagingStoreImpl implements PagingStore
                   ActiveMQServerLogger.LOGGER.pageStoreStart(storeName, addressSize, maxSize);
                }
             }
+            else if (isOverGlobalShare(addressSize))
+            {
+               if (startPaging())
+               {
+                  ActiveMQServerLogger.LOGGER.pageStoreStartGlobal(storeName,
+                                                                   addressSize,
+                                                                   getMemoryShare(),
+                                                                   globalMemory.getSize(),
+                                                                   globalMemory.getMaxSize());
+               }
+            }
          }
-
-         return;
       }
-      else if (addressFullMessagePolicy == AddressFullMessagePolicy.DROP || addressFullMessagePolicy == AddressFullMessagePolicy.FAIL)
+   }
+
+   private boolean isOverGlobalShare(final long addressSize)
+   {
+      return globalMemory.isOverShare(addressSize, minSize, memoryShareWeight);
+   }
+
+   private boolean isBlocked(final long addressSize)
+   {
+      return maxSize != -1 && addressSize > maxSize || isOverGlobalShare(addressSize);
+   }
+
+   private void releaseBlocked()
+   {
+      if (!onMemoryFreedRunnables.isEmpty())
       {
-         sizeInBytes.addAndGet(size);
+         executor.execute(memoryFreedRunnablesExecutor);
+         if (blocking.get())
+         {
+            ActiveMQServerLogger.LOGGER.unblockingMessageProduction(address, sizeInBytes.get(), maxSize);
+            blocking.set(false);
+         }
       }
-
    }
 
    @Override
@@ -1203,7 +1318,8 @@ public class PagingStoreImpl implements PagingStore
    // To be used on isDropMessagesWhenFull
    public boolean isFull()
    {
-      return maxSize > 0 && getAddressSize() > maxSize;
+      long addressSize = getAddressSize();
+      return maxSize > 0 && addressSize > maxSize || isOverGlobalShare(addressSize);
    }
 
    @Override
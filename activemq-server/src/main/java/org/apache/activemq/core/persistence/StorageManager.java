@@ -29,6 +29,8 @@ import org.apache.activemq.core.journal.IOAsyncTask;
 import org.apache.activemq.core.journal.Journal;
 import org.apache.activemq.core.journal.JournalLoadInformation;
 import org.apache.activemq.core.journal.SequentialFile;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.impl.JournalImpl;
 import org.apache.activemq.core.message.impl.MessageInternal;
 import org.apache.activemq.core.paging.PageTransactionInfo;
 import org.apache.activemq.core.paging.PagedMessage;
@@ -345,6 +347,18 @@ public interface StorageManager extends IDGenerator, ActiveMQComponent
     */
    Journal getMessageJournal();
 
+   /**
+    * @return the factory of the files of the message journal, or of its first shard when it is sharded, or
+    * {@code null} if the messages are not persisted
+    */
+   SequentialFileFactory getMessageJournalFileFactory();
+
+   /**
+    * @return the shards of the message journal stored on this server, also while it is being replicated, or an empty
+    * list if the messages are not persisted
+    */
+   List<JournalImpl> getLocalMessageJournals();
+
    /**
     * @see org.apache.activemq.core.persistence.impl.journal.JournalStorageManager#startReplication(org.apache.activemq.core.replication.ReplicationManager, org.apache.activemq.core.paging.PagingManager, String, boolean)
     */
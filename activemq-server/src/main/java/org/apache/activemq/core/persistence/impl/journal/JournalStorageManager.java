@@ -68,7 +68,9 @@ import org.apache.activemq.core.journal.TransactionFailureCallback;
 import org.apache.activemq.core.journal.impl.AIOSequentialFileFactory;
 import org.apache.activemq.core.journal.impl.JournalFile;
 import org.apache.activemq.core.journal.impl.JournalImpl;
+import org.apache.activemq.core.journal.impl.MappedSequentialFileFactory;
 import org.apache.activemq.core.journal.impl.NIOSequentialFileFactory;
+import org.apache.activemq.core.journal.impl.ShardedJournal;
 import org.apache.activemq.core.message.impl.MessageInternal;
 import org.apache.activemq.core.paging.PageTransactionInfo;
 import org.apache.activemq.core.paging.PagedMessage;
@@ -183,6 +185,8 @@ public class JournalStorageManager implements StorageManager
 
    private final Journal originalMessageJournal;
 
+   private final List<JournalImpl> localMessageJournals;
+
    private final Journal originalBindingsJournal;
 
    private final SequentialFileFactory largeMessagesFactory;
@@ -212,6 +216,8 @@ public class JournalStorageManager implements StorageManager
 
    private final String journalDir;
 
+   private final List<String> journalShardDirectories;
+
    private final String largeMessagesDirectory;
 
    private boolean journalLoaded = false;
@@ -237,7 +243,8 @@ public class JournalStorageManager implements StorageManager
 
       executor = executorFactory.getExecutor();
 
-      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO)
+      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO &&
+         config.getJournalType() != JournalType.MAPPED)
       {
          throw ActiveMQMessageBundle.BUNDLE.invalidJournal();
       }
@@ -280,42 +287,69 @@ public class JournalStorageManager implements StorageManager
       if (config.getJournalType() == JournalType.ASYNCIO)
       {
          ActiveMQServerLogger.LOGGER.journalUseAIO();
-
-         journalFF = new AIOSequentialFileFactory(journalDir,
-                                                  config.getJournalBufferSize_AIO(),
-                                                  config.getJournalBufferTimeout_AIO(),
-                                                  config.isLogJournalWriteRate(),
-                                                  criticalErrorListener);
       }
       else if (config.getJournalType() == JournalType.NIO)
       {
          ActiveMQServerLogger.LOGGER.journalUseNIO();
-         journalFF = new NIOSequentialFileFactory(journalDir,
-                                                  true,
-                                                  config.getJournalBufferSize_NIO(),
-                                                  config.getJournalBufferTimeout_NIO(),
-                                                  config.isLogJournalWriteRate(),
-                                                  criticalErrorListener);
       }
-      else
+      else if (config.getJournalType() == JournalType.MAPPED)
       {
-         throw ActiveMQMessageBundle.BUNDLE.invalidJournalType2(config.getJournalType());
+         ActiveMQServerLogger.LOGGER.journalUseMapped();
       }
 
       idGenerator = new BatchingIDGenerator(0, JournalStorageManager.CHECKPOINT_BATCH_SIZE, this);
 
-      Journal localMessage = new JournalImpl(config.getJournalFileSize(),
-                                             config.getJournalMinFiles(),
-                                             config.getJournalCompactMinFiles(),
-                                             config.getJournalCompactPercentage(),
-                                             journalFF,
-                                             "activemq-data",
-                                             "amq",
-                                             config.getJournalType() == JournalType.ASYNCIO ? config.getJournalMaxIO_AIO()
-                                                : config.getJournalMaxIO_NIO());
+      int shards = config.getJournalShards();
+
+      journalShardDirectories = new ArrayList<String>(shards);
+      localMessageJournals = new ArrayList<JournalImpl>(shards);
+
+      SequentialFileFactory firstShardFF = null;
+
+      for (int i = 0; i < shards; i++)
+      {
+         String shardDirectory = getJournalShardDirectory(config, i);
+
+         SequentialFileFactory shardFF = createJournalFileFactory(config, shardDirectory, criticalErrorListener);
+
+         shardFF.setBufferAdaptive(config.isJournalBufferAdaptive());
+
+         JournalImpl localMessage = new JournalImpl(config.getJournalFileSize(),
+                                                    config.getJournalMinFiles(),
+                                                    config.getJournalCompactMinFiles(),
+                                                    config.getJournalCompactPercentage(),
+                                                    shardFF,
+                                                    "activemq-data",
+                                                    "amq",
+                                                    config.getJournalType() == JournalType.ASYNCIO ? config.getJournalMaxIO_AIO()
+                                                       : config.getJournalMaxIO_NIO());
 
-      messageJournal = localMessage;
-      originalMessageJournal = localMessage;
+         localMessage.setLoadThreads(config.getJournalLoadThreads());
+
+         localMessage.setRecordChecksum(config.isJournalRecordChecksum());
+
+         localMessage.setCompactMaxFiles(config.getJournalCompactMaxFiles());
+
+         if (i == 0)
+         {
+            firstShardFF = shardFF;
+         }
+
+         journalShardDirectories.add(shardDirectory);
+         localMessageJournals.add(localMessage);
+      }
+
+      journalFF = firstShardFF;
+
+      if (shards == 1)
+      {
+         messageJournal = localMessageJournals.get(0);
+      }
+      else
+      {
+         messageJournal = new ShardedJournal(localMessageJournals.toArray(new Journal[shards]));
+      }
+      originalMessageJournal = messageJournal;
 
       largeMessagesDirectory = config.getLargeMessagesDirectory();
 
@@ -2228,7 +2262,10 @@ public class JournalStorageManager implements StorageManager
 
       checkAndCreateDir(bindingsDir, createBindingsDir);
 
-      checkAndCreateDir(journalDir, createJournalDir);
+      for (String shardDirectory : journalShardDirectories)
+      {
+         checkAndCreateDir(shardDirectory, createJournalDir);
+      }
 
       checkAndCreateDir(largeMessagesDirectory, createJournalDir);
 
@@ -2384,6 +2421,16 @@ public class JournalStorageManager implements StorageManager
       return bindingsJournal;
    }
 
+   public SequentialFileFactory getMessageJournalFileFactory()
+   {
+      return journalFF;
+   }
+
+   public List<JournalImpl> getLocalMessageJournals()
+   {
+      return localMessageJournals;
+   }
+
    // Package protected ---------------------------------------------
 
    private void confirmLargeMessage(final LargeServerMessage largeServerMessage)
@@ -2508,6 +2555,63 @@ public class JournalStorageManager implements StorageManager
 
    // Private ----------------------------------------------------------------------------------
 
+   /**
+    * The first shard is stored in the journal directory, the others in their configured directories or in
+    * sub-directories of the journal directory.
+    */
+   private static String getJournalShardDirectory(final Configuration config, final int shard)
+   {
+      if (shard == 0)
+      {
+         return config.getJournalDirectory();
+      }
+
+      List<String> directories = config.getJournalShardDirectories();
+
+      if (directories != null && directories.size() >= shard)
+      {
+         return directories.get(shard - 1);
+      }
+
+      return new File(config.getJournalDirectory(), "shard-" + shard).getPath();
+   }
+
+   private static SequentialFileFactory createJournalFileFactory(final Configuration config,
+                                                                 final String directory,
+                                                                 final IOCriticalErrorListener criticalErrorListener)
+   {
+      if (config.getJournalType() == JournalType.ASYNCIO)
+      {
+         return new AIOSequentialFileFactory(directory,
+                                             config.getJournalBufferSize_AIO(),
+                                             config.getJournalBufferTimeout_AIO(),
+                                             config.isLogJournalWriteRate(),
+                                             criticalErrorListener);
+      }
+      else if (config.getJournalType() == JournalType.NIO)
+      {
+         return new NIOSequentialFileFactory(directory,
+                                             true,
+                                             config.getJournalBufferSize_NIO(),
+                                             config.getJournalBufferTimeout_NIO(),
+                                             config.isLogJournalWriteRate(),
+                                             criticalErrorListener);
+      }
+      else if (config.getJournalType() == JournalType.MAPPED)
+      {
+         return new MappedSequentialFileFactory(directory,
+                                                true,
+                                                config.getJournalBufferSize_NIO(),
+                                                config.getJournalBufferTimeout_NIO(),
+                                                config.isLogJournalWriteRate(),
+                                                criticalErrorListener);
+      }
+      else
+      {
+         throw ActiveMQMessageBundle.BUNDLE.invalidJournalType2(config.getJournalType());
+      }
+   }
+
    private void checkAndCreateDir(final String dir, final boolean create)
    {
       File f = new File(dir);
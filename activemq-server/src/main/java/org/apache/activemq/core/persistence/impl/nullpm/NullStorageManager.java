@@ -31,6 +31,8 @@ import org.apache.activemq.core.journal.IOAsyncTask;
 import org.apache.activemq.core.journal.Journal;
 import org.apache.activemq.core.journal.JournalLoadInformation;
 import org.apache.activemq.core.journal.SequentialFile;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.impl.JournalImpl;
 import org.apache.activemq.core.message.impl.MessageInternal;
 import org.apache.activemq.core.paging.PageTransactionInfo;
 import org.apache.activemq.core.paging.PagedMessage;
@@ -555,6 +557,18 @@ public class NullStorageManager implements StorageManager
       return null;
    }
 
+   @Override
+   public SequentialFileFactory getMessageJournalFileFactory()
+   {
+      return null;
+   }
+
+   @Override
+   public List<JournalImpl> getLocalMessageJournals()
+   {
+      return Collections.emptyList();
+   }
+
    @Override
    public void startReplication(final ReplicationManager replicationManager, final PagingManager pagingManager,
                                 final String nodeID, final boolean autoFailBack) throws Exception
@@ -16,7 +16,7 @@
  */
 package org.apache.activemq.core.postoffice;
 
-import java.util.List;
+import java.util.Collection;
 
 import org.apache.activemq.api.core.SimpleString;
 
@@ -32,7 +32,7 @@ public interface Address
 
    boolean containsWildCard();
 
-   List<Address> getLinkedAddresses();
+   Collection<Address> getLinkedAddresses();
 
    void addLinkedAddress(Address address);
 
@@ -81,6 +81,12 @@ public interface PostOffice extends ActiveMQComponent
 
    MessageReference reroute(ServerMessage message, Queue queue, Transaction tx) throws Exception;
 
+   /**
+    * Same as {@link #reroute(ServerMessage, Queue, Transaction)}, the reference is given its delivery count before it's
+    * added to the queue, as the queue may not keep the reference instance it's given.
+    */
+   MessageReference reroute(ServerMessage message, Queue queue, Transaction tx, int deliveryCount) throws Exception;
+
    Pair<RoutingContext, ServerMessage> redistribute(ServerMessage message, final Queue originatingQueue, Transaction tx) throws Exception;
 
    void processRoute(final ServerMessage message, final RoutingContext context, final boolean direct) throws Exception;
@@ -16,8 +16,9 @@
  */
 package org.apache.activemq.core.postoffice.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.postoffice.Address;
@@ -35,7 +36,7 @@ public class AddressImpl implements Address
 
    private final boolean containsWildCard;
 
-   private final List<Address> linkedAddresses = new ArrayList<Address>();
+   private final Set<Address> linkedAddresses = new LinkedHashSet<Address>();
 
    public AddressImpl(final SimpleString address)
    {
@@ -59,17 +60,14 @@ public class AddressImpl implements Address
       return containsWildCard;
    }
 
-   public List<Address> getLinkedAddresses()
+   public Collection<Address> getLinkedAddresses()
    {
       return linkedAddresses;
    }
 
    public void addLinkedAddress(final Address address)
    {
-      if (!linkedAddresses.contains(address))
-      {
-         linkedAddresses.add(address);
-      }
+      linkedAddresses.add(address);
    }
 
    public void removeLinkedAddress(final Address actualAddress)
@@ -83,71 +81,47 @@ public class AddressImpl implements Address
       {
          return address.equals(add.getAddress());
       }
-      int pos = 0;
-      int matchPos = 0;
+      return matches(addressParts, 0, add.getAddressParts(), 0);
+   }
 
-      SimpleString nextToMatch;
-      for (; matchPos < add.getAddressParts().length; )
+   /**
+    * * matches exactly one word and # matches none or more words, any other word only matches itself.
+    */
+   private static boolean matches(final SimpleString[] words,
+                                  final int wordPos,
+                                  final SimpleString[] pattern,
+                                  final int matchPos)
+   {
+      if (matchPos == pattern.length)
       {
-         if (pos >= addressParts.length)
-         {
-            // test for # as last address part
-            return pos + 1 == add.getAddressParts().length && add.getAddressParts()[pos].equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
-         }
-         SimpleString curr = addressParts[pos];
-         SimpleString next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-         SimpleString currMatch = add.getAddressParts()[matchPos];
-         if (currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
-         {
-            pos++;
-            matchPos++;
-         }
-         else if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+         return wordPos == words.length;
+      }
+
+      SimpleString currMatch = pattern[matchPos];
+
+      if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         for (int pos = wordPos; pos <= words.length; pos++)
          {
-            if (matchPos == addressParts.length - 1)
-            {
-               pos++;
-               matchPos++;
-            }
-            else if (next == null)
-            {
-               return false;
-            }
-            else if (matchPos == add.getAddressParts().length - 1)
+            if (matches(words, pos, pattern, matchPos + 1))
             {
                return true;
             }
-            else
-            {
-               nextToMatch = add.getAddressParts()[matchPos + 1];
-               while (curr != null)
-               {
-                  if (curr.equals(nextToMatch))
-                  {
-                     break;
-                  }
-                  pos++;
-                  curr = next;
-                  next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-               }
-               if (curr == null)
-               {
-                  return false;
-               }
-               matchPos++;
-            }
-         }
-         else
-         {
-            if (!curr.equals(currMatch))
-            {
-               return false;
-            }
-            pos++;
-            matchPos++;
          }
+         return false;
       }
-      return pos == addressParts.length;
+
+      if (wordPos == words.length)
+      {
+         return false;
+      }
+
+      if (currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING) || currMatch.equals(words[wordPos]))
+      {
+         return matches(words, wordPos + 1, pattern, matchPos + 1);
+      }
+
+      return false;
    }
 
    @Override
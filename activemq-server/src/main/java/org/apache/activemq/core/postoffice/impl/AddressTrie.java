@@ -0,0 +1,264 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.postoffice.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.postoffice.Address;
+
+/**
+ * Indexes addresses by their words, so the addresses matching an address are found by walking its words instead of
+ * testing every address.
+ * <p/>
+ * A trie of wildcard addresses finds the wildcards matching a plain address, a trie of plain addresses finds the
+ * addresses matched by a wildcard. This is not thread safe, the {@link WildcardAddressManager} only uses it while
+ * holding its lock.
+ */
+final class AddressTrie
+{
+   private final Node root = new Node(null, null);
+
+   private int size;
+
+   public int size()
+   {
+      return size;
+   }
+
+   public void put(final Address address)
+   {
+      Node node = root;
+
+      for (SimpleString word : address.getAddressParts())
+      {
+         node = node.getOrCreateChild(word);
+      }
+
+      if (node.address == null)
+      {
+         size++;
+      }
+
+      node.address = address;
+   }
+
+   public void remove(final Address address)
+   {
+      Node node = root;
+
+      for (SimpleString word : address.getAddressParts())
+      {
+         node = node.getChild(word);
+
+         if (node == null)
+         {
+            return;
+         }
+      }
+
+      if (node.address == null)
+      {
+         return;
+      }
+
+      node.address = null;
+
+      size--;
+
+      // drop the nodes no longer leading to any address
+      while (node.parent != null && node.address == null && node.children == null)
+      {
+         node.parent.removeChild(node.word);
+         node = node.parent;
+      }
+   }
+
+   public void clear()
+   {
+      root.children = null;
+      size = 0;
+   }
+
+   /**
+    * Adds the wildcard addresses of this trie matching the words of a plain address.
+    */
+   public void collectWildcardsMatching(final SimpleString[] words, final Collection<Address> result)
+   {
+      collectWildcardsMatching(root, words, 0, result);
+   }
+
+   /**
+    * Adds the plain addresses of this trie matched by the words of a wildcard address.
+    */
+   public void collectAddressesMatchedBy(final SimpleString[] pattern, final Collection<Address> result)
+   {
+      collectAddressesMatchedBy(root, pattern, 0, result);
+   }
+
+   private static void collectWildcardsMatching(final Node node,
+                                                final SimpleString[] words,
+                                                final int index,
+                                                final Collection<Address> result)
+   {
+      if (index == words.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+      }
+      else
+      {
+         Node child = node.getChild(words[index]);
+
+         if (child != null)
+         {
+            collectWildcardsMatching(child, words, index + 1, result);
+         }
+
+         child = node.getChild(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING);
+
+         if (child != null)
+         {
+            collectWildcardsMatching(child, words, index + 1, result);
+         }
+      }
+
+      Node anyWords = node.getChild(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
+
+      if (anyWords != null)
+      {
+         // # takes none or more of the remaining words
+         for (int i = index; i <= words.length; i++)
+         {
+            collectWildcardsMatching(anyWords, words, i, result);
+         }
+      }
+   }
+
+   private static void collectAddressesMatchedBy(final Node node,
+                                                 final SimpleString[] pattern,
+                                                 final int index,
+                                                 final Collection<Address> result)
+   {
+      if (index == pattern.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+         return;
+      }
+
+      SimpleString word = pattern[index];
+
+      if (word.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
+      {
+         if (node.children != null)
+         {
+            for (Node child : node.children.values())
+            {
+               collectAddressesMatchedBy(child, pattern, index + 1, result);
+            }
+         }
+      }
+      else if (word.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         // consecutive # take the same words as a single one
+         if (index + 1 < pattern.length && pattern[index + 1].equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+         {
+            collectAddressesMatchedBy(node, pattern, index + 1, result);
+            return;
+         }
+
+         // # takes no more words
+         collectAddressesMatchedBy(node, pattern, index + 1, result);
+
+         // # takes one more word
+         if (node.children != null)
+         {
+            for (Node child : node.children.values())
+            {
+               collectAddressesMatchedBy(child, pattern, index, result);
+            }
+         }
+      }
+      else
+      {
+         Node child = node.getChild(word);
+
+         if (child != null)
+         {
+            collectAddressesMatchedBy(child, pattern, index + 1, result);
+         }
+      }
+   }
+
+   private static final class Node
+   {
+      private final SimpleString word;
+
+      private final Node parent;
+
+      // created on the first child, most nodes are leaves
+      private Map<SimpleString, Node> children;
+
+      private Address address;
+
+      private Node(final SimpleString word, final Node parent)
+      {
+         this.word = word;
+         this.parent = parent;
+      }
+
+      private Node getChild(final SimpleString childWord)
+      {
+         return children == null ? null : children.get(childWord);
+      }
+
+      private Node getOrCreateChild(final SimpleString childWord)
+      {
+         if (children == null)
+         {
+            children = new HashMap<SimpleString, Node>(2);
+         }
+
+         Node child = children.get(childWord);
+
+         if (child == null)
+         {
+            child = new Node(childWord, this);
+            children.put(childWord, child);
+         }
+
+         return child;
+      }
+
+      private void removeChild(final SimpleString childWord)
+      {
+         children.remove(childWord);
+
+         if (children.isEmpty())
+         {
+            children = null;
+         }
+      }
+   }
+}
@@ -21,15 +21,18 @@ import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.activemq.api.core.Message;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.filter.Filter;
+import org.apache.activemq.core.filter.impl.FilterIndex;
 import org.apache.activemq.core.message.impl.MessageImpl;
 import org.apache.activemq.core.paging.PagingStore;
 import org.apache.activemq.core.postoffice.Binding;
@@ -67,6 +70,13 @@ public final class BindingsImpl implements Bindings
 
    private volatile boolean routeWhenNoConsumers;
 
+   /**
+    * Incremented after every change to the bindings, a route plan built for an older version is built again
+    */
+   private final AtomicInteger bindingsVersion = new AtomicInteger();
+
+   private volatile RoutePlan routePlan;
+
    private final GroupingHandler groupingHandler;
 
    private final PagingStore pageStore;
@@ -131,6 +141,8 @@ public final class BindingsImpl implements Bindings
 
       bindingsMap.put(binding.getID(), binding);
 
+      bindingsVersion.incrementAndGet();
+
       if (isTrace)
       {
          ActiveMQServerLogger.LOGGER.trace("Adding binding " + binding + " into " + this + " bindingTable: " + debugBindings());
@@ -163,6 +175,8 @@ public final class BindingsImpl implements Bindings
 
       bindingsMap.remove(binding.getID());
 
+      bindingsVersion.incrementAndGet();
+
       if (isTrace)
       {
          ActiveMQServerLogger.LOGGER.trace("Removing binding " + binding + " into " + this + " bindingTable: " + debugBindings());
@@ -332,27 +346,187 @@ public final class BindingsImpl implements Bindings
             {
                ActiveMQServerLogger.LOGGER.trace("Routing message " + message + " on binding=" + this);
             }
-            for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
-            {
-               SimpleString routingName = entry.getKey();
+            getRoutePlan().route(message, context);
+         }
+      }
+   }
+
+   private RoutePlan getRoutePlan()
+   {
+      RoutePlan plan = routePlan;
+
+      int version = bindingsVersion.get();
+
+      if (plan == null || plan.version != version)
+      {
+         plan = new RoutePlan(version);
+
+         routePlan = plan;
+      }
+
+      return plan;
+   }
+
+   /**
+    * What a message sent to this address is routed to, built again only when the bindings change.
+    * <p/>
+    * A routing name bound only once, as a local queue usually is, doesn't need the round robin of
+    * {@link #getNextBinding(ServerMessage, SimpleString, List)}: its binding takes the message whenever its filter
+    * matches. Those bindings are kept in flat arrays, the ones with the same filter string grouped so the filter is
+    * evaluated once per message for all of them. The filters testing a property against constant values, as in
+    * <code>region = 'X'</code>, are looked up in a {@link FilterIndex} by the message property instead of being all
+    * evaluated. Only the routing names bound several times, across a cluster, still go through the round robin.
+    */
+   private final class RoutePlan
+   {
+      private final int version;
 
-               List<Binding> bindings = entry.getValue();
+      private final Binding[] unfilteredBindings;
 
-               if (bindings == null)
+      private final Filter[] filters;
+
+      private final Binding[][] filteredBindings;
+
+      private final FilterIndex<Binding[]> filterIndex = new FilterIndex<Binding[]>();
+
+      private final SimpleString[] balancedRoutingNames;
+
+      private final List<?>[] balancedBindings;
+
+      private RoutePlan(final int version)
+      {
+         this.version = version;
+
+         List<Binding> unfiltered = new ArrayList<Binding>();
+
+         // filters without a filter string can't be compared, they are grouped by instance
+         Map<Object, List<Binding>> filtered = new LinkedHashMap<Object, List<Binding>>();
+
+         List<Filter> distinctFilters = new ArrayList<Filter>();
+
+         List<SimpleString> balancedNames = new ArrayList<SimpleString>();
+
+         List<List<Binding>> balanced = new ArrayList<List<Binding>>();
+
+         for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+         {
+            List<Binding> bindings = entry.getValue();
+
+            if (bindings.size() == 1)
+            {
+               Binding binding;
+               try
                {
-                  // The value can become null if it's concurrently removed while we're iterating - this is expected
-                  // ConcurrentHashMap behaviour!
+                  binding = bindings.get(0);
+               }
+               catch (IndexOutOfBoundsException e)
+               {
+                  // This can occur if binding is removed while the plan is built, the plan is built again next time
                   continue;
                }
 
-               Binding theBinding = getNextBinding(message, routingName, bindings);
+               Filter filter = binding.getFilter();
+
+               if (filter == null)
+               {
+                  unfiltered.add(binding);
+               }
+               else
+               {
+                  Object key = filter.getFilterString() != null ? filter.getFilterString() : filter;
+
+                  List<Binding> sameFilter = filtered.get(key);
+
+                  if (sameFilter == null)
+                  {
+                     sameFilter = new ArrayList<Binding>();
+                     filtered.put(key, sameFilter);
+                     distinctFilters.add(filter);
+                  }
+
+                  sameFilter.add(binding);
+               }
+            }
+            else if (!bindings.isEmpty())
+            {
+               balancedNames.add(entry.getKey());
+               balanced.add(bindings);
+            }
+         }
+
+         unfilteredBindings = unfiltered.toArray(new Binding[unfiltered.size()]);
+
+         List<Filter> evaluatedFilters = new ArrayList<Filter>();
+
+         List<Binding[]> evaluatedBindings = new ArrayList<Binding[]>();
+
+         int i = 0;
+
+         for (List<Binding> sameFilter : filtered.values())
+         {
+            Filter filter = distinctFilters.get(i++);
+
+            Binding[] bindings = sameFilter.toArray(new Binding[sameFilter.size()]);
+
+            if (!filterIndex.add(filter, bindings))
+            {
+               evaluatedFilters.add(filter);
+               evaluatedBindings.add(bindings);
+            }
+         }
+
+         filters = evaluatedFilters.toArray(new Filter[evaluatedFilters.size()]);
+
+         filteredBindings = evaluatedBindings.toArray(new Binding[evaluatedBindings.size()][]);
+
+         balancedRoutingNames = balancedNames.toArray(new SimpleString[balancedNames.size()]);
 
-               if (theBinding != null)
+         balancedBindings = balanced.toArray(new List<?>[balanced.size()]);
+      }
+
+      @SuppressWarnings("unchecked")
+      private void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         for (Binding binding : unfilteredBindings)
+         {
+            binding.route(message, context);
+         }
+
+         for (int i = 0; i < filters.length; i++)
+         {
+            if (filters[i].match(message))
+            {
+               for (Binding binding : filteredBindings[i])
                {
-                  theBinding.route(message, context);
+                  binding.route(message, context);
                }
             }
          }
+
+         if (!filterIndex.isEmpty())
+         {
+            List<Binding[]> matching = new ArrayList<Binding[]>();
+
+            filterIndex.match(message, matching);
+
+            for (Binding[] bindings : matching)
+            {
+               for (Binding binding : bindings)
+               {
+                  binding.route(message, context);
+               }
+            }
+         }
+
+         for (int i = 0; i < balancedRoutingNames.length; i++)
+         {
+            Binding theBinding = getNextBinding(message, balancedRoutingNames[i], (List<Binding>) balancedBindings[i]);
+
+            if (theBinding != null)
+            {
+               theBinding.route(message, context);
+            }
+         }
       }
    }
 
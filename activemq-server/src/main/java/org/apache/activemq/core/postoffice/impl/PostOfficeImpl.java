@@ -774,11 +774,21 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
    }
 
    public MessageReference reroute(final ServerMessage message, final Queue queue, final Transaction tx) throws Exception
+   {
+      return reroute(message, queue, tx, 0);
+   }
+
+   public MessageReference reroute(final ServerMessage message,
+                                   final Queue queue,
+                                   final Transaction tx,
+                                   final int deliveryCount) throws Exception
    {
       setPagingStore(message);
 
       MessageReference reference = message.createReference(queue);
 
+      reference.setDeliveryCount(deliveryCount);
+
       if (message.containsProperty(Message.HDR_SCHEDULED_DELIVERY_TIME))
       {
          Long scheduledDeliveryTime = message.getLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
@@ -17,8 +17,9 @@
 package org.apache.activemq.core.postoffice.impl;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.activemq.api.core.SimpleString;
@@ -53,6 +54,13 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    private final Map<SimpleString, Address> wildCardAddresses = new ConcurrentHashMap<SimpleString, Address>();
 
+   /**
+    * The same addresses indexed by their words, only used while holding the lock of this manager
+    */
+   private final AddressTrie addressTrie = new AddressTrie();
+
+   private final AddressTrie wildCardAddressTrie = new AddressTrie();
+
    public WildcardAddressManager(final BindingsFactory bindingsFactory)
    {
       super(bindingsFactory);
@@ -153,8 +161,13 @@ public class WildcardAddressManager extends SimpleAddressManager
    public void clear()
    {
       super.clear();
-      addresses.clear();
-      wildCardAddresses.clear();
+      synchronized (this)
+      {
+         addresses.clear();
+         wildCardAddresses.clear();
+         addressTrie.clear();
+         wildCardAddressTrie.clear();
+      }
    }
 
    private Address getAddress(final SimpleString address)
@@ -189,28 +202,19 @@ public class WildcardAddressManager extends SimpleAddressManager
          actualAddress = add;
          addAddress(address, actualAddress);
       }
+      Set<Address> matches = new LinkedHashSet<Address>();
       if (actualAddress.containsWildCard())
       {
-         for (Address destAdd : addresses.values())
-         {
-            if (destAdd.matches(actualAddress))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-            }
-         }
+         addressTrie.collectAddressesMatchedBy(actualAddress.getAddressParts(), matches);
       }
       else
       {
-         for (Address destAdd : wildCardAddresses.values())
-         {
-            if (actualAddress.matches(destAdd))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-
-            }
-         }
+         wildCardAddressTrie.collectWildcardsMatching(actualAddress.getAddressParts(), matches);
+      }
+      for (Address destAdd : matches)
+      {
+         destAdd.addLinkedAddress(actualAddress);
+         actualAddress.addLinkedAddress(destAdd);
       }
       return actualAddress;
    }
@@ -220,10 +224,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (actualAddress.containsWildCard())
       {
          wildCardAddresses.put(address, actualAddress);
+         wildCardAddressTrie.put(actualAddress);
       }
       else
       {
          addresses.put(address, actualAddress);
+         addressTrie.put(actualAddress);
       }
    }
 
@@ -233,7 +239,7 @@ public class WildcardAddressManager extends SimpleAddressManager
       Bindings bindings = super.getBindingsForRoutingAddress(address.getAddress());
       if (bindings == null || bindings.getBindings().size() == 0)
       {
-         List<Address> addresses = address.getLinkedAddresses();
+         Collection<Address> addresses = address.getLinkedAddresses();
          for (Address address1 : addresses)
          {
             address1.removeLinkedAddress(address);
@@ -251,11 +257,17 @@ public class WildcardAddressManager extends SimpleAddressManager
    {
       if (add.containsWildCard())
       {
-         wildCardAddresses.remove(add.getAddress());
+         if (wildCardAddresses.remove(add.getAddress()) != null)
+         {
+            wildCardAddressTrie.remove(add);
+         }
       }
       else
       {
-         addresses.remove(add.getAddress());
+         if (addresses.remove(add.getAddress()) != null)
+         {
+            addressTrie.remove(add);
+         }
       }
    }
 }
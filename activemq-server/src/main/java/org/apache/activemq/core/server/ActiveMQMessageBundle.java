@@ -216,7 +216,7 @@ public interface ActiveMQMessageBundle
    @Message(id = 119049, value = "No queue found for {0}", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException noQueueFound(String otherQueueName);
 
-   @Message(id = 119050, value = "Only NIO and AsyncIO are supported journals", format = Message.Format.MESSAGE_FORMAT)
+   @Message(id = 119050, value = "Only NIO, AsyncIO and Mapped are supported journals", format = Message.Format.MESSAGE_FORMAT)
    IllegalArgumentException invalidJournal();
 
    @Message(id = 119051, value = "Invalid journal type {0}", format = Message.Format.MESSAGE_FORMAT)
@@ -371,4 +371,7 @@ public interface ActiveMQMessageBundle
 
    @Message(id = 119109, value = "unsupported HA Policy Configuration {0}", format = Message.Format.MESSAGE_FORMAT)
    ActiveMQIllegalStateException unsupportedHAPolicyConfiguration(Object o);
+
+   @Message(id = 119110, value = "replication is not supported with a journal of {0} shards", format = Message.Format.MESSAGE_FORMAT)
+   ActiveMQIllegalStateException journalShardsWithReplication(int shards);
 }
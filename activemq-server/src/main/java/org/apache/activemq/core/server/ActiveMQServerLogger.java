@@ -295,6 +295,10 @@ public interface ActiveMQServerLogger extends BasicLogger
    @Message(id = 221050, value = "Activating Shared Store Slave", format = Message.Format.MESSAGE_FORMAT)
    void activatingSharedStoreSlave();
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221051, value = "Using Mapped Journal", format = Message.Format.MESSAGE_FORMAT)
+   void journalUseMapped();
+
    @LogMessage(level = Logger.Level.WARN)
    @Message(id = 222000, value = "ActiveMQServer is being finalized and has not been stopped. Please remember to stop the server before letting it go out of scope",
             format = Message.Format.MESSAGE_FORMAT)
@@ -1115,6 +1119,18 @@ public interface ActiveMQServerLogger extends BasicLogger
          format = Message.Format.MESSAGE_FORMAT)
    void disallowedProtocol(String protocol);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222191,
+         value = "Starting paging on address ''{0}''; size is currently: {1} bytes; memory share: {2} bytes; global size is currently: {3} bytes; global-max-size: {4}",
+         format = Message.Format.MESSAGE_FORMAT)
+   void pageStoreStartGlobal(SimpleString storeName, long addressSize, long memoryShare, long globalSize, long globalMaxSize);
+
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222192,
+         value = "Blocking message production on address ''{0}''; size is currently: {1} bytes; memory share: {2} bytes; global size is currently: {3} bytes; global-max-size: {4}",
+         format = Message.Format.MESSAGE_FORMAT)
+   void blockingMessageProductionGlobal(SimpleString addressName, long currentSize, long memoryShare, long globalSize, long globalMaxSize);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 224000, value = "Failure in initialisation", format = Message.Format.MESSAGE_FORMAT)
    void initializationError(@Cause Throwable e);
@@ -25,5 +25,5 @@ package org.apache.activemq.core.server;
  */
 public enum JournalType
 {
-   NIO, ASYNCIO;
+   NIO, ASYNCIO, MAPPED;
 }
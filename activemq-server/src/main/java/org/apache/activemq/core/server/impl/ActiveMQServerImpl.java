@@ -106,6 +106,7 @@ import org.apache.activemq.core.server.cluster.BackupManager;
 import org.apache.activemq.core.server.cluster.ClusterManager;
 import org.apache.activemq.core.server.cluster.Transformer;
 import org.apache.activemq.core.server.cluster.ha.HAPolicy;
+import org.apache.activemq.core.server.cluster.ha.LiveOnlyPolicy;
 import org.apache.activemq.core.server.group.GroupingHandler;
 import org.apache.activemq.core.server.group.impl.GroupingHandlerConfiguration;
 import org.apache.activemq.core.server.group.impl.LocalGroupingHandler;
@@ -383,6 +384,13 @@ public class ActiveMQServerImpl implements ActiveMQServer
          haPolicy = ConfigurationUtils.getHAPolicy(configuration.getHAPolicyConfiguration());
       }
 
+      // the journal files of a sharded journal can't be replicated
+      if (configuration.isPersistenceEnabled() && configuration.getJournalShards() > 1 && isReplicated(haPolicy))
+      {
+         state = SERVER_STATE.STOPPED;
+         throw ActiveMQMessageBundle.BUNDLE.journalShardsWithReplication(configuration.getJournalShards());
+      }
+
       activationLatch.setCount(1);
 
       ActiveMQServerLogger.LOGGER.debug("Starting server " + this);
@@ -1486,7 +1494,10 @@ public class ActiveMQServerImpl implements ActiveMQServer
                                                              executorFactory,
                                                              configuration.isJournalSyncNonTransactional(),
                                                              shutdownOnCriticalIO),
-                                   addressSettingsRepository);
+                                   addressSettingsRepository,
+                                   configuration.getPageCacheMaxMemory(),
+                                   configuration.getPageMaxConcurrentCleanup(),
+                                   configuration.getGlobalMaxSize());
    }
 
    /**
@@ -2107,6 +2118,14 @@ public class ActiveMQServerImpl implements ActiveMQServer
 
    }
 
+   /**
+    * @return whether the journal of a server with this policy is replicated, to a backup or from a live server
+    */
+   private static boolean isReplicated(final HAPolicy policy)
+   {
+      return !(policy instanceof LiveOnlyPolicy) && !policy.isSharedStore();
+   }
+
    /**
     * Check if journal directory exists or create it (if configured to do so)
     */
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.server.impl;
+
+import org.apache.activemq.core.server.MessageReference;
+import org.apache.activemq.core.server.Queue;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.utils.ChunkedLinkedListImpl;
+import org.apache.activemq.utils.LinkedList;
+import org.apache.activemq.utils.PriorityLinkedList;
+import org.apache.activemq.utils.PriorityLinkedListImpl;
+
+/**
+ * Keeps the references of a queue that were never delivered as just their message.
+ * <p>
+ * Such a reference holds nothing besides its message and its queue, and the queue is the same for every element, so
+ * the {@link MessageReferenceImpl} is only created again when the element is read. References with any other state
+ * (a delivery count, a scheduled delivery time...) and other kinds of references (paged, last value holders) are kept
+ * as they are.
+ */
+class CompactReferenceList extends ChunkedLinkedListImpl<MessageReference>
+{
+   private final Queue queue;
+
+   CompactReferenceList(final Queue queue)
+   {
+      this.queue = queue;
+   }
+
+   static PriorityLinkedList<MessageReference> createPriorityList(final Queue queue, final int priorities)
+   {
+      @SuppressWarnings("unchecked")
+      LinkedList<MessageReference>[] levels = new LinkedList[priorities];
+
+      for (int i = 0; i < priorities; i++)
+      {
+         levels[i] = new CompactReferenceList(queue);
+      }
+
+      return new PriorityLinkedListImpl<MessageReference>(levels);
+   }
+
+   @Override
+   protected Object pack(final MessageReference ref)
+   {
+      if (ref.getClass() == MessageReferenceImpl.class &&
+         ref.getQueue() == queue &&
+         ref.getDeliveryCount() == 0 &&
+         ref.getPersistedCount() == 0 &&
+         ref.getScheduledDeliveryTime() == 0 &&
+         ref.getConsumerId() == null &&
+         !ref.isAlreadyAcked())
+      {
+         return ref.getMessage();
+      }
+
+      return ref;
+   }
+
+   @Override
+   protected MessageReference unpack(final Object value)
+   {
+      if (value instanceof ServerMessage)
+      {
+         return new MessageReferenceImpl((ServerMessage) value, queue);
+      }
+
+      return (MessageReference) value;
+   }
+}
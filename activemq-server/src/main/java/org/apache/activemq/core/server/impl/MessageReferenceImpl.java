@@ -16,7 +16,7 @@
  */
 package org.apache.activemq.core.server.impl;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.activemq.core.server.MessageReference;
 import org.apache.activemq.core.server.Queue;
@@ -30,7 +30,12 @@ import org.apache.activemq.utils.MemorySize;
  */
 public class MessageReferenceImpl implements MessageReference
 {
-   private final AtomicInteger deliveryCount = new AtomicInteger();
+   // A queue may hold millions of references, so the delivery count is kept as a plain field
+   // updated through a field updater instead of an AtomicInteger instance per reference
+   private static final AtomicIntegerFieldUpdater<MessageReferenceImpl> DELIVERY_COUNT_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(MessageReferenceImpl.class, "deliveryCount");
+
+   private volatile int deliveryCount;
 
    private volatile int persistedCount;
 
@@ -77,7 +82,7 @@ public class MessageReferenceImpl implements MessageReference
 
    public MessageReferenceImpl(final MessageReferenceImpl other, final Queue queue)
    {
-      deliveryCount.set(other.deliveryCount.get());
+      deliveryCount = other.deliveryCount;
 
       scheduledDeliveryTime = other.scheduledDeliveryTime;
 
@@ -123,23 +128,23 @@ public class MessageReferenceImpl implements MessageReference
 
    public int getDeliveryCount()
    {
-      return deliveryCount.get();
+      return deliveryCount;
    }
 
    public void setDeliveryCount(final int deliveryCount)
    {
-      this.deliveryCount.set(deliveryCount);
-      this.persistedCount = this.deliveryCount.get();
+      this.deliveryCount = deliveryCount;
+      this.persistedCount = deliveryCount;
    }
 
    public void incrementDeliveryCount()
    {
-      deliveryCount.incrementAndGet();
+      DELIVERY_COUNT_UPDATER.incrementAndGet(this);
    }
 
    public void decrementDeliveryCount()
    {
-      deliveryCount.decrementAndGet();
+      DELIVERY_COUNT_UPDATER.decrementAndGet(this);
    }
 
    public long getScheduledDeliveryTime()
@@ -17,11 +17,19 @@
 package org.apache.activemq.core.server.impl;
 
 import javax.transaction.xa.Xid;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.activemq.api.core.Message;
@@ -59,6 +67,7 @@ import org.apache.activemq.core.server.management.ManagementService;
 import org.apache.activemq.core.transaction.ResourceManager;
 import org.apache.activemq.core.transaction.Transaction;
 import org.apache.activemq.core.transaction.impl.TransactionImpl;
+import org.apache.activemq.utils.ActiveMQThreadFactory;
 
 public class PostOfficeJournalLoader implements JournalLoader
 {
@@ -178,6 +187,14 @@ public class PostOfficeJournalLoader implements JournalLoader
 
    public void handleAddMessage(Map<Long, Map<Long, AddMessageRecord>> queueMap) throws Exception
    {
+      int loadThreads = configuration == null ? 1 : configuration.getJournalLoadThreads();
+
+      if (loadThreads > 1 && queueMap.size() > 1)
+      {
+         handleAddMessageParallel(queueMap, loadThreads);
+         return;
+      }
+
       for (Map.Entry<Long, Map<Long, AddMessageRecord>> entry : queueMap.entrySet())
       {
          long queueID = entry.getKey();
@@ -220,9 +237,7 @@ public class PostOfficeJournalLoader implements JournalLoader
                record.getMessage().putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, scheduledDeliveryTime);
             }
 
-            MessageReference ref = postOffice.reroute(record.getMessage(), queue, null);
-
-            ref.setDeliveryCount(record.getDeliveryCount());
+            postOffice.reroute(record.getMessage(), queue, null, record.getDeliveryCount());
 
             if (scheduledDeliveryTime != 0)
             {
@@ -232,6 +247,109 @@ public class PostOfficeJournalLoader implements JournalLoader
       }
    }
 
+   /**
+    * Same as the sequential load but with one task per queue.
+    * <p>
+    * A message may be referenced by several queues, so everything writing to the message properties (the scheduled
+    * records) is done on this thread first. The tasks only add the remaining references to their own queue.
+    */
+   private void handleAddMessageParallel(Map<Long, Map<Long, AddMessageRecord>> queueMap, int loadThreads) throws Exception
+   {
+      final long currentTime = System.currentTimeMillis();
+
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(queueMap.size());
+
+      for (Map.Entry<Long, Map<Long, AddMessageRecord>> entry : queueMap.entrySet())
+      {
+         long queueID = entry.getKey();
+
+         final Collection<AddMessageRecord> valueRecords = entry.getValue().values();
+
+         final Queue queue = this.queues.get(queueID);
+
+         if (queue == null)
+         {
+            if (valueRecords.size() != 0)
+            {
+               ActiveMQServerLogger.LOGGER.journalCannotFindQueueForMessage(queueID);
+            }
+
+            continue;
+         }
+
+         // Redistribution could install a Redistributor while we are still loading records, what will be an issue with
+         // prepared ACKs
+         // We make sure te Queue is paused before we reroute values.
+         queue.pause();
+
+         for (AddMessageRecord record : valueRecords)
+         {
+            long scheduledDeliveryTime = record.getScheduledDeliveryTime();
+
+            if (scheduledDeliveryTime != 0 && scheduledDeliveryTime <= currentTime)
+            {
+               record.getMessage().removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
+            }
+            else if (scheduledDeliveryTime != 0)
+            {
+               record.getMessage().putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, scheduledDeliveryTime);
+
+               postOffice.reroute(record.getMessage(), queue, null, record.getDeliveryCount());
+
+               record.getMessage().removeProperty(Message.HDR_SCHEDULED_DELIVERY_TIME);
+            }
+         }
+
+         tasks.add(new Callable<Void>()
+         {
+            public Void call() throws Exception
+            {
+               for (AddMessageRecord record : valueRecords)
+               {
+                  long scheduledDeliveryTime = record.getScheduledDeliveryTime();
+
+                  if (scheduledDeliveryTime != 0 && scheduledDeliveryTime > currentTime)
+                  {
+                     // already added as a scheduled reference
+                     continue;
+                  }
+
+                  postOffice.reroute(record.getMessage(), queue, null, record.getDeliveryCount());
+               }
+               return null;
+            }
+         });
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(loadThreads, Math.max(1, tasks.size())),
+                                                              new ActiveMQThreadFactory("ActiveMQ-journal-loader",
+                                                                                        true,
+                                                                                        getThisClassLoader()));
+
+      try
+      {
+         for (Future<Void> future : executor.invokeAll(tasks))
+         {
+            try
+            {
+               future.get();
+            }
+            catch (ExecutionException e)
+            {
+               if (e.getCause() instanceof Exception)
+               {
+                  throw (Exception) e.getCause();
+               }
+               throw e;
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
    public void handleNoMessageReferences(Map<Long, ServerMessage> messages)
    {
       for (ServerMessage msg : messages.values())
@@ -514,4 +632,15 @@ public class PostOfficeJournalLoader implements JournalLoader
       }
       return perAddressMap;
    }
+
+   private static ClassLoader getThisClassLoader()
+   {
+      return AccessController.doPrivileged(new PrivilegedAction<ClassLoader>()
+      {
+         public ClassLoader run()
+         {
+            return PostOfficeJournalLoader.class.getClassLoader();
+         }
+      });
+   }
 }
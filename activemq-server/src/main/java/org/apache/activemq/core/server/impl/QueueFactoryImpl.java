@@ -16,6 +16,7 @@
  */
 package org.apache.activemq.core.server.impl;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.activemq.api.core.SimpleString;
@@ -80,7 +81,7 @@ public class QueueFactoryImpl implements QueueFactory
    {
       AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
 
-      Queue queue;
+      QueueImpl queue;
       if (addressSettings.isLastValueQueue())
       {
          queue = new LastValueQueue(persistenceID,
@@ -114,6 +115,25 @@ public class QueueFactoryImpl implements QueueFactory
                                executorFactory.getExecutor());
       }
 
+      int dispatchLanes = addressSettings.getDispatchLanes();
+
+      if (dispatchLanes > 1)
+      {
+         Executor[] laneExecutors = new Executor[dispatchLanes];
+
+         for (int i = 0; i < dispatchLanes; i++)
+         {
+            laneExecutors[i] = executorFactory.getExecutor();
+         }
+
+         queue.setDispatchExecutors(laneExecutors);
+      }
+
+      if (addressSettings.isCompactReferences())
+      {
+         queue.setCompactReferences(true);
+      }
+
       return queue;
    }
 }
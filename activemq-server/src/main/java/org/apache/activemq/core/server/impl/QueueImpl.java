@@ -147,8 +147,10 @@ public class QueueImpl implements Queue
    // This is to avoid locking the queue on the producer
    private final ConcurrentLinkedQueue<MessageReference> intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
 
-   // This is where messages are stored
-   private final PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+   // This is where messages are stored. It is only replaced by setCompactReferences, before the queue is used
+   private PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+
+   private volatile boolean compactReferences;
 
    // The quantity of pagedReferences on messageReferences priority list
    private final AtomicInteger pagedReferences = new AtomicInteger(0);
@@ -161,9 +163,15 @@ public class QueueImpl implements Queue
 
    private final List<ConsumerHolder> consumerList = new CopyOnWriteArrayList<ConsumerHolder>();
 
+   // When dispatch lanes are set the consumers are split between the lanes and each lane delivers to its
+   // own consumers on its own executor, instead of the whole queue being delivered by the deliverRunner
+   private volatile DeliveryLane[] lanes;
+
+   private final Map<Consumer, DeliveryLane> consumerLanes = new HashMap<Consumer, DeliveryLane>();
+
    private final ScheduledDeliveryHandler scheduledDeliveryHandler;
 
-   private long messagesAdded;
+   private final AtomicLong messagesAdded = new AtomicLong(0);
 
    private long messagesAcknowledged;
 
@@ -554,7 +562,7 @@ public class QueueImpl implements Queue
 
       directDeliver = false;
 
-      messagesAdded++;
+      messagesAdded.incrementAndGet();
    }
 
    public void addTail(final MessageReference ref)
@@ -566,21 +574,43 @@ public class QueueImpl implements Queue
    {
       if (scheduledDeliveryHandler.checkAndSchedule(ref, true))
       {
-         synchronized (this)
-         {
-            messagesAdded++;
-         }
+         messagesAdded.incrementAndGet();
+
+         return;
+      }
+
+      // producers only need the guard when the direct delivery flag is about to be re-computed,
+      // otherwise adding to the tail never contends with the deliverRunner or with other producers
+      if (direct && !directDeliver && System.currentTimeMillis() - lastDirectDeliveryCheck > CHECK_QUEUE_SIZE_PERIOD)
+      {
+         checkDirectDeliver();
+      }
 
+      if (direct && directDeliver && deliveriesInTransit.getCount() == 0 && deliverDirect(ref))
+      {
          return;
       }
 
+      // We only add queueMemorySize if not being delivered directly
+      queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
+
+      intermediateMessageReferences.add(ref);
+
+      directDeliver = false;
+
+      // Delivery async will both poll for intermediate reference and deliver to clients
+      deliverAsync();
+   }
+
+   private void checkDirectDeliver()
+   {
       synchronized (directDeliveryGuard)
       {
          // The checkDirect flag is periodically set to true, if the delivery is specified as direct then this causes the
          // directDeliver flag to be re-computed resulting in direct delivery if the queue is empty
          // We don't recompute it on every delivery since executing isEmpty is expensive for a ConcurrentQueue
+         // The condition is checked again here as another producer may have re-computed it while we were waiting
          if (!directDeliver &&
-            direct &&
             System.currentTimeMillis() - lastDirectDeliveryCheck > CHECK_QUEUE_SIZE_PERIOD)
          {
             lastDirectDeliveryCheck = System.currentTimeMillis();
@@ -600,21 +630,6 @@ public class QueueImpl implements Queue
             }
          }
       }
-
-      if (direct && directDeliver && deliveriesInTransit.getCount() == 0 && deliverDirect(ref))
-      {
-         return;
-      }
-
-      // We only add queueMemorySize if not being delivered directly
-      queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
-
-      intermediateMessageReferences.add(ref);
-
-      directDeliver = false;
-
-      // Delivery async will both poll for intermediate reference and deliver to clients
-      deliverAsync();
    }
 
    /**
@@ -663,6 +678,20 @@ public class QueueImpl implements Queue
 
    public void deliverAsync()
    {
+      DeliveryLane[] currentLanes = lanes;
+
+      if (currentLanes != null)
+      {
+         for (DeliveryLane lane : currentLanes)
+         {
+            lane.deliverAsync();
+         }
+
+         checkDepage();
+
+         return;
+      }
+
       if (scheduledRunners.get() < MAX_SCHEDULED_RUNNERS)
       {
          scheduledRunners.incrementAndGet();
@@ -751,6 +780,20 @@ public class QueueImpl implements Queue
 
       boolean result = future.await(timeout);
 
+      DeliveryLane[] currentLanes = lanes;
+
+      if (result && currentLanes != null)
+      {
+         for (DeliveryLane lane : currentLanes)
+         {
+            FutureLatch laneFuture = new FutureLatch();
+
+            lane.executor.execute(laneFuture);
+
+            result &= laneFuture.await(timeout);
+         }
+      }
+
       if (!result)
       {
          ActiveMQServerLogger.LOGGER.queueBusy(this.name.toString(), timeout);
@@ -773,7 +816,14 @@ public class QueueImpl implements Queue
 
          cancelRedistributor();
 
-         consumerList.add(new ConsumerHolder(consumer));
+         ConsumerHolder holder = new ConsumerHolder(consumer);
+
+         consumerList.add(holder);
+
+         if (lanes != null)
+         {
+            addToLane(holder);
+         }
 
          consumerSet.add(consumer);
 
@@ -785,6 +835,106 @@ public class QueueImpl implements Queue
 
    }
 
+   /**
+    * Splits the delivery of this queue into one lane per executor. Each consumer is assigned to a lane when it is
+    * added, and each lane delivers to its consumers on its own executor, so slow consumers on one lane won't hold
+    * the delivery to consumers on other lanes. Message groups are still delivered to the consumer they are bound to.
+    * <p/>
+    * This must be called before any consumers are added to the queue.
+    */
+   public synchronized void setDispatchExecutors(final Executor[] executors)
+   {
+      if (!consumerList.isEmpty())
+      {
+         throw new IllegalStateException("Dispatch lanes must be set before consumers are added to " + this);
+      }
+
+      if (executors == null || executors.length < 2)
+      {
+         lanes = null;
+         return;
+      }
+
+      DeliveryLane[] newLanes = new DeliveryLane[executors.length];
+
+      for (int i = 0; i < executors.length; i++)
+      {
+         newLanes[i] = new DeliveryLane(executors[i]);
+      }
+
+      lanes = newLanes;
+   }
+
+   public int getDispatchLanes()
+   {
+      DeliveryLane[] currentLanes = lanes;
+      return currentLanes == null ? 1 : currentLanes.length;
+   }
+
+   /**
+    * Keeps the references that were never delivered as just their message, see {@link CompactReferenceList}.
+    * <p/>
+    * This must be called before any messages or consumers are added to the queue.
+    */
+   public synchronized void setCompactReferences(final boolean compactReferences)
+   {
+      if (!consumerList.isEmpty() || !messageReferences.isEmpty() || !intermediateMessageReferences.isEmpty())
+      {
+         throw new IllegalStateException("Compact references must be set before messages or consumers are added to " + this);
+      }
+
+      if (compactReferences != this.compactReferences)
+      {
+         messageReferences = compactReferences ? CompactReferenceList.createPriorityList(this, QueueImpl.NUM_PRIORITIES)
+                                               : new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+
+         this.compactReferences = compactReferences;
+      }
+   }
+
+   public boolean isCompactReferences()
+   {
+      return compactReferences;
+   }
+
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   private void addToLane(final ConsumerHolder holder)
+   {
+      DeliveryLane selected = null;
+
+      for (DeliveryLane lane : lanes)
+      {
+         if (selected == null || lane.holders.size() < selected.holders.size())
+         {
+            selected = lane;
+         }
+      }
+
+      holder.lane = selected;
+      selected.holders.add(holder);
+      selected.consumersChanged = true;
+      consumerLanes.put(holder.consumer, selected);
+   }
+
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   private void removeFromLane(final ConsumerHolder holder)
+   {
+      DeliveryLane lane = holder.lane;
+
+      lane.holders.remove(holder);
+      lane.consumersChanged = true;
+      consumerLanes.remove(holder.consumer);
+
+      if (lane.pos > 0 && lane.pos >= lane.holders.size())
+      {
+         lane.pos = lane.holders.size() - 1;
+      }
+   }
+
    public void removeConsumer(final Consumer consumer)
    {
       synchronized (this)
@@ -800,6 +950,10 @@ public class QueueImpl implements Queue
                   holder.iter.close();
                }
                consumerList.remove(holder);
+               if (holder.lane != null)
+               {
+                  removeFromLane(holder);
+               }
                break;
             }
          }
@@ -834,6 +988,12 @@ public class QueueImpl implements Queue
             {
                groups.remove(groupID);
             }
+
+            if (lanes != null)
+            {
+               // other lanes may have skipped references of these groups while they were owned by the removed consumer
+               resetAllIterators();
+            }
          }
 
          if (refCountForConsumers != null)
@@ -1227,7 +1387,7 @@ public class QueueImpl implements Queue
 
    public void incrementMesssagesAdded()
    {
-      messagesAdded++;
+      messagesAdded.incrementAndGet();
    }
 
    @Override
@@ -1249,11 +1409,11 @@ public class QueueImpl implements Queue
    {
       if (pageSubscription != null)
       {
-         return messagesAdded + pageSubscription.getCounter().getValue() - pagedReferences.get();
+         return messagesAdded.get() + pageSubscription.getCounter().getValue() - pagedReferences.get();
       }
       else
       {
-         return messagesAdded;
+         return messagesAdded.get();
       }
    }
 
@@ -1983,7 +2143,7 @@ public class QueueImpl implements Queue
       {
          internalAddTail(ref);
 
-         messagesAdded++;
+         messagesAdded.incrementAndGet();
          if (added++ > MAX_DELIVERIES_IN_LOOP)
          {
             // if we just keep polling from the intermediate we could starve in case there's a sustained load
@@ -2213,6 +2373,199 @@ public class QueueImpl implements Queue
       checkDepage();
    }
 
+   /**
+    * Same as {@link #deliver()}, but only delivering to the consumers assigned to the lane.
+    * References whose group is bound to a consumer on another lane are left on the queue for that lane.
+    */
+   private void deliver(final DeliveryLane lane)
+   {
+      if (ActiveMQServerLogger.LOGGER.isDebugEnabled())
+      {
+         ActiveMQServerLogger.LOGGER.debug(this + " doing lane deliver. messageReferences=" + messageReferences.size());
+      }
+
+      doInternalPoll();
+
+      // Either the iterator is empty or the consumer is busy
+      int noDelivery = 0;
+
+      int size = 0;
+
+      int endPos = -1;
+
+      int handled = 0;
+
+      long timeout = System.currentTimeMillis() + DELIVERY_TIMEOUT;
+
+      while (true)
+      {
+         if (handled == MAX_DELIVERIES_IN_LOOP || System.currentTimeMillis() > timeout)
+         {
+            // Schedule another one - we do this to prevent a single thread getting caught up in this loop for too
+            // long
+            lane.deliverAsync();
+
+            return;
+         }
+
+         MessageReference ref;
+
+         Consumer handledconsumer = null;
+
+         DeliveryLane groupLane = null;
+
+         synchronized (this)
+         {
+            // Need to do these checks inside the synchronized
+            if (paused || lane.holders.isEmpty())
+            {
+               return;
+            }
+
+            if (messageReferences.size() == 0)
+            {
+               break;
+            }
+
+            if (endPos < 0 || lane.consumersChanged)
+            {
+               lane.consumersChanged = false;
+
+               size = lane.holders.size();
+
+               endPos = lane.pos - 1;
+
+               if (endPos < 0)
+               {
+                  endPos = size - 1;
+                  noDelivery = 0;
+               }
+            }
+
+            ConsumerHolder holder = lane.holders.get(lane.pos);
+
+            Consumer consumer = holder.consumer;
+            Consumer groupConsumer = null;
+
+            if (holder.iter == null)
+            {
+               holder.iter = messageReferences.iterator();
+            }
+
+            if (holder.iter.hasNext())
+            {
+               ref = holder.iter.next();
+            }
+            else
+            {
+               ref = null;
+            }
+
+            if (ref == null)
+            {
+               noDelivery++;
+            }
+            else
+            {
+               if (checkExpired(ref))
+               {
+                  holder.iter.remove();
+
+                  refRemoved(ref);
+
+                  handled++;
+
+                  continue;
+               }
+
+               SimpleString groupID = extractGroupID(ref);
+
+               if (groupID != null)
+               {
+                  groupConsumer = groups.get(groupID);
+
+                  if (groupConsumer != null)
+                  {
+                     consumer = groupConsumer;
+
+                     DeliveryLane consumerLane = consumerLanes.get(groupConsumer);
+
+                     if (consumerLane != lane)
+                     {
+                        // the group is bound to a consumer on another lane, the iterator will just jump next
+                        // and the other lane will deliver it
+                        groupLane = consumerLane;
+                     }
+                  }
+               }
+
+               if (groupLane == null)
+               {
+                  HandleStatus status = handle(ref, consumer);
+
+                  if (status == HandleStatus.HANDLED)
+                  {
+                     deliveriesInTransit.countUp();
+
+                     handledconsumer = consumer;
+
+                     holder.iter.remove();
+
+                     refRemoved(ref);
+
+                     if (groupID != null && groupConsumer == null)
+                     {
+                        groups.put(groupID, consumer);
+                     }
+
+                     handled++;
+                  }
+                  else if (status == HandleStatus.BUSY)
+                  {
+                     holder.iter.repeat();
+
+                     noDelivery++;
+                  }
+               }
+            }
+
+            if (lane.pos == endPos)
+            {
+               // Round robin'd all the consumers on the lane
+               if (noDelivery == size && handledconsumer == null)
+               {
+                  break;
+               }
+
+               noDelivery = 0;
+            }
+
+            // When using group we don't need to load balance to the next position
+            if (groupConsumer == null)
+            {
+               lane.pos++;
+            }
+
+            if (lane.pos >= size)
+            {
+               lane.pos = 0;
+            }
+         }
+
+         if (groupLane != null)
+         {
+            groupLane.deliverAsync();
+         }
+
+         if (handledconsumer != null)
+         {
+            proceedDeliver(handledconsumer, ref);
+         }
+      }
+
+      checkDepage();
+   }
+
    private void checkDepage()
    {
       if (pageIterator != null && pageSubscription.isPaging() && !depagePending && needsDepage() && pageIterator.hasNext())
@@ -2748,7 +3101,7 @@ public class QueueImpl implements Queue
                   groups.put(groupID, consumer);
                }
 
-               messagesAdded++;
+               messagesAdded.incrementAndGet();
 
                deliveriesInTransit.countUp();
                proceedDeliver(consumer, ref);
@@ -2945,9 +3298,9 @@ public class QueueImpl implements Queue
       return delay;
    }
 
-   public synchronized void resetMessagesAdded()
+   public void resetMessagesAdded()
    {
-      messagesAdded = 0;
+      messagesAdded.set(0);
    }
 
    public synchronized void resetMessagesAcknowledged()
@@ -2958,12 +3311,13 @@ public class QueueImpl implements Queue
    public float getRate()
    {
       float timeSlice = ((System.currentTimeMillis() - queueRateCheckTime.getAndSet(System.currentTimeMillis())) / 1000.0f);
+      long added = messagesAdded.get();
       if (timeSlice == 0)
       {
-         messagesAddedSnapshot.getAndSet(messagesAdded);
+         messagesAddedSnapshot.getAndSet(added);
          return 0.0f;
       }
-      return BigDecimal.valueOf((messagesAdded - messagesAddedSnapshot.getAndSet(messagesAdded)) / timeSlice).setScale(2, BigDecimal.ROUND_UP).floatValue();
+      return BigDecimal.valueOf((added - messagesAddedSnapshot.getAndSet(added)) / timeSlice).setScale(2, BigDecimal.ROUND_UP).floatValue();
    }
 
    // Inner classes
@@ -2980,6 +3334,8 @@ public class QueueImpl implements Queue
 
       LinkedListIterator<MessageReference> iter;
 
+      DeliveryLane lane;
+
    }
 
    private class DelayedAddRedistributor implements Runnable
@@ -3034,6 +3390,65 @@ public class QueueImpl implements Queue
       }
    }
 
+   /**
+    * A subset of the consumers on the queue, delivered by its own executor.
+    * Only one delivery can be running at a time for each lane, which keeps the order of deliveries per consumer.
+    */
+   private final class DeliveryLane implements Runnable
+   {
+      private final Executor executor;
+
+      private final AtomicInteger scheduledRunners = new AtomicInteger(0);
+
+      // these are guarded by the queue
+      private final List<ConsumerHolder> holders = new ArrayList<ConsumerHolder>();
+
+      private int pos;
+
+      private boolean consumersChanged = true;
+
+      DeliveryLane(final Executor executor)
+      {
+         this.executor = executor;
+      }
+
+      void deliverAsync()
+      {
+         if (scheduledRunners.get() < MAX_SCHEDULED_RUNNERS)
+         {
+            scheduledRunners.incrementAndGet();
+            try
+            {
+               executor.execute(this);
+            }
+            catch (RejectedExecutionException ignored)
+            {
+               // no-op
+               scheduledRunners.decrementAndGet();
+            }
+         }
+      }
+
+      public void run()
+      {
+         try
+         {
+            synchronized (this)
+            {
+               deliver(this);
+            }
+         }
+         catch (Exception e)
+         {
+            ActiveMQServerLogger.LOGGER.errorDelivering(e);
+         }
+         finally
+         {
+            scheduledRunners.decrementAndGet();
+         }
+      }
+   }
+
    private final class DepageRunner implements Runnable
    {
       final boolean scheduleExpiry;
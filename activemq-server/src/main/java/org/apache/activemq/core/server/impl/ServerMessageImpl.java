@@ -191,6 +191,10 @@ public class ServerMessageImpl extends MessageImpl implements ServerMessage
 
    private volatile int memoryEstimate = -1;
 
+   /**
+    * The estimate is taken once, so the same size is added to and removed from the paging store; the properties give
+    * the same estimate whether they were decoded or not.
+    */
    public int getMemoryEstimate()
    {
       if (memoryEstimate == -1)
@@ -72,6 +72,14 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final SlowConsumerPolicy DEFAULT_SLOW_CONSUMER_POLICY = SlowConsumerPolicy.NOTIFY;
 
+   public static final int DEFAULT_DISPATCH_LANES = 1;
+
+   public static final long DEFAULT_MIN_SIZE_BYTES = 0;
+
+   public static final int DEFAULT_MEMORY_SHARE_WEIGHT = 1;
+
+   public static final boolean DEFAULT_COMPACT_REFERENCES = false;
+
    private AddressFullMessagePolicy addressFullMessagePolicy = null;
 
    private Long maxSizeBytes = null;
@@ -114,6 +122,14 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Boolean autoDeleteJmsQueues = null;
 
+   private Integer dispatchLanes = null;
+
+   private Long minSizeBytes = null;
+
+   private Integer memoryShareWeight = null;
+
+   private Boolean compactReferences = null;
+
    public AddressSettings(AddressSettings other)
    {
       this.addressFullMessagePolicy = other.addressFullMessagePolicy;
@@ -137,6 +153,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.slowConsumerPolicy = other.slowConsumerPolicy;
       this.autoCreateJmsQueues = other.autoCreateJmsQueues;
       this.autoDeleteJmsQueues = other.autoDeleteJmsQueues;
+      this.dispatchLanes = other.dispatchLanes;
+      this.minSizeBytes = other.minSizeBytes;
+      this.memoryShareWeight = other.memoryShareWeight;
+      this.compactReferences = other.compactReferences;
    }
 
    public AddressSettings()
@@ -338,6 +358,46 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.slowConsumerCheckPeriod = slowConsumerCheckPeriod;
    }
 
+   public int getDispatchLanes()
+   {
+      return dispatchLanes != null ? dispatchLanes : AddressSettings.DEFAULT_DISPATCH_LANES;
+   }
+
+   public void setDispatchLanes(final int dispatchLanes)
+   {
+      this.dispatchLanes = dispatchLanes;
+   }
+
+   public long getMinSizeBytes()
+   {
+      return minSizeBytes != null ? minSizeBytes : AddressSettings.DEFAULT_MIN_SIZE_BYTES;
+   }
+
+   public void setMinSizeBytes(final long minSizeBytes)
+   {
+      this.minSizeBytes = minSizeBytes;
+   }
+
+   public int getMemoryShareWeight()
+   {
+      return memoryShareWeight != null ? memoryShareWeight : AddressSettings.DEFAULT_MEMORY_SHARE_WEIGHT;
+   }
+
+   public void setMemoryShareWeight(final int memoryShareWeight)
+   {
+      this.memoryShareWeight = memoryShareWeight;
+   }
+
+   public boolean isCompactReferences()
+   {
+      return compactReferences != null ? compactReferences : AddressSettings.DEFAULT_COMPACT_REFERENCES;
+   }
+
+   public void setCompactReferences(final boolean compactReferences)
+   {
+      this.compactReferences = compactReferences;
+   }
+
    public SlowConsumerPolicy getSlowConsumerPolicy()
    {
       return slowConsumerPolicy != null ? slowConsumerPolicy
@@ -436,6 +496,22 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       {
          autoDeleteJmsQueues = merged.autoDeleteJmsQueues;
       }
+      if (dispatchLanes == null)
+      {
+         dispatchLanes = merged.dispatchLanes;
+      }
+      if (minSizeBytes == null)
+      {
+         minSizeBytes = merged.minSizeBytes;
+      }
+      if (memoryShareWeight == null)
+      {
+         memoryShareWeight = merged.memoryShareWeight;
+      }
+      if (compactReferences == null)
+      {
+         compactReferences = merged.compactReferences;
+      }
    }
 
    @Override
@@ -500,6 +576,24 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       autoCreateJmsQueues = BufferHelper.readNullableBoolean(buffer);
 
       autoDeleteJmsQueues = BufferHelper.readNullableBoolean(buffer);
+
+      // older versions didn't have this field
+      if (buffer.readableBytes() > 0)
+      {
+         dispatchLanes = BufferHelper.readNullableInteger(buffer);
+      }
+
+      if (buffer.readableBytes() > 0)
+      {
+         minSizeBytes = BufferHelper.readNullableLong(buffer);
+
+         memoryShareWeight = BufferHelper.readNullableInteger(buffer);
+      }
+
+      if (buffer.readableBytes() > 0)
+      {
+         compactReferences = BufferHelper.readNullableBoolean(buffer);
+      }
    }
 
    @Override
@@ -526,7 +620,11 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
          BufferHelper.sizeOfNullableLong(slowConsumerThreshold) +
          BufferHelper.sizeOfNullableSimpleString(slowConsumerPolicy != null ? slowConsumerPolicy.toString() : null) +
          BufferHelper.sizeOfNullableBoolean(autoCreateJmsQueues) +
-         BufferHelper.sizeOfNullableBoolean(autoDeleteJmsQueues);
+         BufferHelper.sizeOfNullableBoolean(autoDeleteJmsQueues) +
+         BufferHelper.sizeOfNullableInteger(dispatchLanes) +
+         BufferHelper.sizeOfNullableLong(minSizeBytes) +
+         BufferHelper.sizeOfNullableInteger(memoryShareWeight) +
+         BufferHelper.sizeOfNullableBoolean(compactReferences);
    }
 
    @Override
@@ -574,6 +672,14 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       BufferHelper.writeNullableBoolean(buffer, autoCreateJmsQueues);
 
       BufferHelper.writeNullableBoolean(buffer, autoDeleteJmsQueues);
+
+      BufferHelper.writeNullableInteger(buffer, dispatchLanes);
+
+      BufferHelper.writeNullableLong(buffer, minSizeBytes);
+
+      BufferHelper.writeNullableInteger(buffer, memoryShareWeight);
+
+      BufferHelper.writeNullableBoolean(buffer, compactReferences);
    }
 
    /* (non-Javadoc)
@@ -606,6 +712,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       result = prime * result + ((slowConsumerPolicy == null) ? 0 : slowConsumerPolicy.hashCode());
       result = prime * result + ((autoCreateJmsQueues == null) ? 0 : autoCreateJmsQueues.hashCode());
       result = prime * result + ((autoDeleteJmsQueues == null) ? 0 : autoDeleteJmsQueues.hashCode());
+      result = prime * result + ((dispatchLanes == null) ? 0 : dispatchLanes.hashCode());
+      result = prime * result + ((minSizeBytes == null) ? 0 : minSizeBytes.hashCode());
+      result = prime * result + ((memoryShareWeight == null) ? 0 : memoryShareWeight.hashCode());
+      result = prime * result + ((compactReferences == null) ? 0 : compactReferences.hashCode());
       return result;
    }
 
@@ -769,6 +879,34 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       }
       else if (!autoDeleteJmsQueues.equals(other.autoDeleteJmsQueues))
          return false;
+      if (dispatchLanes == null)
+      {
+         if (other.dispatchLanes != null)
+            return false;
+      }
+      else if (!dispatchLanes.equals(other.dispatchLanes))
+         return false;
+      if (minSizeBytes == null)
+      {
+         if (other.minSizeBytes != null)
+            return false;
+      }
+      else if (!minSizeBytes.equals(other.minSizeBytes))
+         return false;
+      if (memoryShareWeight == null)
+      {
+         if (other.memoryShareWeight != null)
+            return false;
+      }
+      else if (!memoryShareWeight.equals(other.memoryShareWeight))
+         return false;
+      if (compactReferences == null)
+      {
+         if (other.compactReferences != null)
+            return false;
+      }
+      else if (!compactReferences.equals(other.compactReferences))
+         return false;
       return true;
    }
 
@@ -819,6 +957,14 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
          autoCreateJmsQueues +
          ", autoDeleteJmsQueues=" +
          autoDeleteJmsQueues +
+         ", dispatchLanes=" +
+         dispatchLanes +
+         ", minSizeBytes=" +
+         minSizeBytes +
+         ", memoryShareWeight=" +
+         memoryShareWeight +
+         ", compactReferences=" +
+         compactReferences +
          "]";
    }
 }
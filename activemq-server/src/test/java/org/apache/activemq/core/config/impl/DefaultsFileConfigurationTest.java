@@ -107,6 +107,8 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalCompactPercentage(), conf.getJournalCompactPercentage());
 
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalCompactMaxFiles(), conf.getJournalCompactMaxFiles());
+
       Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalMinFiles(), conf.getJournalMinFiles());
 
       Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalMaxIoAio(), conf.getJournalMaxIO_AIO());
@@ -121,12 +123,29 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO, conf.getJournalBufferSize_NIO());
 
+      Assert.assertEquals(ActiveMQDefaultConfiguration.isDefaultJournalBufferAdaptive(), conf.isJournalBufferAdaptive());
+
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalLoadThreads(), conf.getJournalLoadThreads());
+
+      Assert.assertEquals(ActiveMQDefaultConfiguration.isDefaultJournalRecordChecksum(), conf.isJournalRecordChecksum());
+
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultJournalShards(), conf.getJournalShards());
+
+      Assert.assertEquals(0, conf.getJournalShardDirectories().size());
+
       Assert.assertEquals(ActiveMQDefaultConfiguration.isDefaultCreateBindingsDir(), conf.isCreateBindingsDir());
 
       Assert.assertEquals(ActiveMQDefaultConfiguration.isDefaultCreateJournalDir(), conf.isCreateJournalDir());
 
       Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultPagingDir(), conf.getPagingDirectory());
 
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultPageCacheMaxMemory(), conf.getPageCacheMaxMemory());
+
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultMaxConcurrentPageCleanup(),
+                          conf.getPageMaxConcurrentCleanup());
+
+      Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultGlobalMaxSize(), conf.getGlobalMaxSize());
+
       Assert.assertEquals(ActiveMQDefaultConfiguration.getDefaultLargeMessagesDir(), conf.getLargeMessagesDirectory());
 
       Assert.assertEquals(ActiveMQDefaultConfiguration.isDefaultWildcardRoutingEnabled(), conf.isWildcardRoutingEnabled());
@@ -32,6 +32,7 @@ import org.apache.activemq.core.config.HAPolicyConfiguration;
 import org.apache.activemq.core.config.ha.LiveOnlyPolicyConfiguration;
 import org.apache.activemq.core.security.Role;
 import org.apache.activemq.core.server.JournalType;
+import org.apache.activemq.core.settings.impl.AddressSettings;
 import org.apache.activemq.core.settings.impl.SlowConsumerPolicy;
 import org.junit.Assert;
 import org.junit.Test;
@@ -73,6 +74,9 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(true, conf.isPersistIDCache());
       Assert.assertEquals(true, conf.isPersistDeliveryCountBeforeDelivery());
       Assert.assertEquals("pagingdir", conf.getPagingDirectory());
+      Assert.assertEquals(33554432, conf.getPageCacheMaxMemory());
+      Assert.assertEquals(3, conf.getPageMaxConcurrentCleanup());
+      Assert.assertEquals(1073741824L, conf.getGlobalMaxSize());
       Assert.assertEquals("somedir", conf.getBindingsDirectory());
       Assert.assertEquals(false, conf.isCreateBindingsDir());
 
@@ -82,6 +86,13 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(JournalType.NIO, conf.getJournalType());
       Assert.assertEquals(10000, conf.getJournalBufferSize_NIO());
       Assert.assertEquals(1000, conf.getJournalBufferTimeout_NIO());
+      Assert.assertEquals(true, conf.isJournalBufferAdaptive());
+      Assert.assertEquals(3, conf.getJournalLoadThreads());
+      Assert.assertEquals(true, conf.isJournalRecordChecksum());
+      Assert.assertEquals(3, conf.getJournalShards());
+      Assert.assertEquals(2, conf.getJournalShardDirectories().size());
+      Assert.assertEquals("shard1dir", conf.getJournalShardDirectories().get(0));
+      Assert.assertEquals("shard2dir", conf.getJournalShardDirectories().get(1));
       Assert.assertEquals(56546, conf.getJournalMaxIO_NIO());
 
       Assert.assertEquals(false, conf.isJournalSyncTransactional());
@@ -90,6 +101,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(100, conf.getJournalMinFiles());
       Assert.assertEquals(123, conf.getJournalCompactMinFiles());
       Assert.assertEquals(33, conf.getJournalCompactPercentage());
+      Assert.assertEquals(12, conf.getJournalCompactMaxFiles());
       Assert.assertEquals(true, conf.isGracefulShutdownEnabled());
       Assert.assertEquals(12345, conf.getGracefulShutdownTimeout());
 
@@ -296,6 +308,10 @@ public class FileConfigurationTest extends ConfigurationImplTest
       assertEquals(SlowConsumerPolicy.NOTIFY, conf.getAddressesSettings().get("a1").getSlowConsumerPolicy());
       assertEquals(true, conf.getAddressesSettings().get("a1").isAutoCreateJmsQueues());
       assertEquals(true, conf.getAddressesSettings().get("a1").isAutoDeleteJmsQueues());
+      assertEquals(AddressSettings.DEFAULT_DISPATCH_LANES, conf.getAddressesSettings().get("a1").getDispatchLanes());
+      assertEquals(AddressSettings.DEFAULT_MIN_SIZE_BYTES, conf.getAddressesSettings().get("a1").getMinSizeBytes());
+      assertEquals(AddressSettings.DEFAULT_MEMORY_SHARE_WEIGHT, conf.getAddressesSettings().get("a1").getMemoryShareWeight());
+      assertEquals(AddressSettings.DEFAULT_COMPACT_REFERENCES, conf.getAddressesSettings().get("a1").isCompactReferences());
 
       assertEquals("a2.1", conf.getAddressesSettings().get("a2").getDeadLetterAddress().toString());
       assertEquals("a2.2", conf.getAddressesSettings().get("a2").getExpiryAddress().toString());
@@ -309,6 +325,10 @@ public class FileConfigurationTest extends ConfigurationImplTest
       assertEquals(SlowConsumerPolicy.KILL, conf.getAddressesSettings().get("a2").getSlowConsumerPolicy());
       assertEquals(false, conf.getAddressesSettings().get("a2").isAutoCreateJmsQueues());
       assertEquals(false, conf.getAddressesSettings().get("a2").isAutoDeleteJmsQueues());
+      assertEquals(4, conf.getAddressesSettings().get("a2").getDispatchLanes());
+      assertEquals(1048576, conf.getAddressesSettings().get("a2").getMinSizeBytes());
+      assertEquals(3, conf.getAddressesSettings().get("a2").getMemoryShareWeight());
+      assertEquals(true, conf.getAddressesSettings().get("a2").isCompactReferences());
 
 
       assertEquals(2, conf.getQueueConfigurations().size());
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.filter.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.filter.Filter;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.core.server.impl.ServerMessageImpl;
+import org.apache.activemq.tests.util.SilentTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FilterIndexTest extends SilentTestCase
+{
+   private static final String[] FILTERS = {"region = 'X'",
+      "'Y' = region",
+      "region IN ('X', 'Z')",
+      "region = 'Y' OR region = 'Z'",
+      "size > 10 AND region = 'X'",
+      "kind = 'a' AND region = 'X'",
+      "region NOT IN ('X')",
+      "size > 10",
+      "region LIKE 'X%'",
+      "HQPriority = 4",
+      "region = 'X' OR kind = 'a'"};
+
+   private static final boolean[] INDEXED = {true, true, true, true, true, true, false, false, false, false, false};
+
+   @Test
+   public void testIndexedFiltersOnly() throws Exception
+   {
+      FilterIndex<Integer> index = new FilterIndex<Integer>();
+
+      Assert.assertTrue(index.isEmpty());
+
+      for (int i = 0; i < FILTERS.length; i++)
+      {
+         Assert.assertEquals(FILTERS[i], INDEXED[i], index.add(FilterImpl.createFilter(FILTERS[i]), i));
+      }
+
+      Assert.assertFalse(index.isEmpty());
+   }
+
+   @Test
+   public void testIndexMatchesLikeFilters() throws Exception
+   {
+      FilterIndex<Integer> index = new FilterIndex<Integer>();
+
+      Filter[] filters = new Filter[FILTERS.length];
+
+      for (int i = 0; i < FILTERS.length; i++)
+      {
+         filters[i] = FilterImpl.createFilter(FILTERS[i]);
+         index.add(filters[i], i);
+      }
+
+      for (String region : new String[]{null, "X", "Y", "Z", "W"})
+      {
+         for (String kind : new String[]{null, "a", "b"})
+         {
+            for (Integer size : new Integer[]{null, 1, 100})
+            {
+               ServerMessage message = new ServerMessageImpl(1, 1000);
+
+               if (region != null)
+               {
+                  message.putStringProperty(new SimpleString("region"), new SimpleString(region));
+               }
+               if (kind != null)
+               {
+                  message.putStringProperty(new SimpleString("kind"), new SimpleString(kind));
+               }
+               if (size != null)
+               {
+                  message.putIntProperty(new SimpleString("size"), size);
+               }
+
+               List<Integer> matching = new ArrayList<Integer>();
+
+               index.match(message, matching);
+
+               for (int i = 0; i < FILTERS.length; i++)
+               {
+                  if (INDEXED[i])
+                  {
+                     Assert.assertEquals(FILTERS[i] + " on " + message, filters[i].match(message), matching.contains(i));
+                  }
+               }
+            }
+         }
+      }
+   }
+}
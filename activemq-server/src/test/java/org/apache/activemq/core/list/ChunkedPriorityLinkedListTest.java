@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.list;
+
+import org.apache.activemq.utils.ChunkedLinkedListImpl;
+import org.apache.activemq.utils.LinkedList;
+import org.apache.activemq.utils.PriorityLinkedListImpl;
+
+/**
+ * Runs the {@link PriorityLinkedListTest} over priority levels kept in {@link ChunkedLinkedListImpl}s.
+ */
+public class ChunkedPriorityLinkedListTest extends PriorityLinkedListTest
+{
+   @Override
+   @SuppressWarnings("unchecked")
+   protected PriorityLinkedListImpl<Wibble> getList()
+   {
+      LinkedList<Wibble>[] levels = new LinkedList[10];
+
+      for (int i = 0; i < levels.length; i++)
+      {
+         levels[i] = new ChunkedLinkedListImpl<Wibble>();
+      }
+
+      return new PriorityLinkedListImpl<Wibble>(levels);
+   }
+}
@@ -29,7 +29,7 @@ import org.apache.activemq.utils.PriorityLinkedListImpl;
 /**
  * @author <a href="tim.fox@jboss.com>Tim Fox</a>
  */
-public final class PriorityLinkedListTest extends Assert
+public class PriorityLinkedListTest extends Assert
 {
    protected Wibble a;
 
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.core.paging.cursor.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageNumberSetTest extends Assert
+{
+   @Test
+   public void testAddInOrder()
+   {
+      MessageNumberSet set = new MessageNumberSet();
+
+      for (int i = 0; i < 1000; i++)
+      {
+         assertFalse(set.contains(i));
+         assertTrue(set.add(i));
+         assertTrue(set.contains(i));
+         assertFalse(set.add(i));
+      }
+
+      assertFalse(set.contains(1000));
+   }
+
+   @Test
+   public void testAddOutOfOrder()
+   {
+      MessageNumberSet set = new MessageNumberSet();
+
+      for (int i = 999; i >= 0; i -= 2)
+      {
+         assertTrue(set.add(i));
+      }
+
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals(i % 2 == 1, set.contains(i));
+      }
+
+      for (int i = 0; i < 1000; i += 2)
+      {
+         assertTrue(set.add(i));
+      }
+
+      for (int i = 0; i < 1000; i++)
+      {
+         assertTrue(set.contains(i));
+         assertFalse(set.add(i));
+      }
+
+      assertFalse(set.contains(1000));
+      assertFalse(set.contains(5000));
+   }
+
+   @Test
+   public void testGapKeepsLaterNumbers()
+   {
+      MessageNumberSet set = new MessageNumberSet();
+
+      for (int i = 0; i < 200; i++)
+      {
+         if (i != 70)
+         {
+            set.add(i);
+         }
+      }
+
+      assertFalse(set.contains(70));
+      assertTrue(set.contains(69));
+      assertTrue(set.contains(71));
+      assertTrue(set.contains(199));
+
+      set.add(70);
+
+      for (int i = 0; i < 200; i++)
+      {
+         assertTrue(set.contains(i));
+      }
+      assertFalse(set.contains(200));
+   }
+
+   @Test
+   public void testClear()
+   {
+      MessageNumberSet set = new MessageNumberSet();
+
+      set.add(0);
+      set.add(10);
+      set.clear();
+
+      assertFalse(set.contains(0));
+      assertFalse(set.contains(10));
+      assertTrue(set.add(10));
+   }
+}
@@ -48,6 +48,10 @@ public class AddressSettingsTest extends UnitTestCase
       Assert.assertEquals(AddressSettings.DEFAULT_SLOW_CONSUMER_POLICY, addressSettings.getSlowConsumerPolicy());
       Assert.assertEquals(AddressSettings.DEFAULT_AUTO_CREATE_QUEUES, addressSettings.isAutoCreateJmsQueues());
       Assert.assertEquals(AddressSettings.DEFAULT_AUTO_DELETE_QUEUES, addressSettings.isAutoDeleteJmsQueues());
+      Assert.assertEquals(AddressSettings.DEFAULT_DISPATCH_LANES, addressSettings.getDispatchLanes());
+      Assert.assertEquals(AddressSettings.DEFAULT_MIN_SIZE_BYTES, addressSettings.getMinSizeBytes());
+      Assert.assertEquals(AddressSettings.DEFAULT_MEMORY_SHARE_WEIGHT, addressSettings.getMemoryShareWeight());
+      Assert.assertEquals(AddressSettings.DEFAULT_COMPACT_REFERENCES, addressSettings.isCompactReferences());
    }
 
    @Test
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.integration.journal;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.apache.activemq.core.journal.SequentialFile;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.impl.MappedSequentialFileFactory;
+import org.apache.activemq.tests.unit.core.journal.impl.SequentialFileFactoryTestBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A MappedSequentialFileFactoryTest
+ */
+public class MappedSequentialFileFactoryTest extends SequentialFileFactoryTestBase
+{
+
+   @Override
+   protected SequentialFileFactory createFactory()
+   {
+      return new MappedSequentialFileFactory(getTestDir(), true);
+   }
+
+   @Test
+   public void testGrowWithoutFillAndTruncateOnClose() throws Exception
+   {
+      SequentialFile sf = factory.createSequentialFile("grow.amq", 1);
+
+      sf.open();
+
+      byte[] record = new byte[1000];
+
+      // enough records for the mapping to grow a few times
+      int records = 5000;
+
+      for (int i = 0; i < records; i++)
+      {
+         record[0] = (byte) i;
+         sf.writeDirect(ByteBuffer.wrap(record), false);
+      }
+
+      long written = (long) records * record.length;
+
+      Assert.assertEquals(written, sf.size());
+
+      sf.close();
+
+      Assert.assertEquals(written, new File(getTestDir(), "grow.amq").length());
+
+      sf.open();
+
+      Assert.assertEquals(written, sf.size());
+
+      ByteBuffer buffer = factory.newBuffer(record.length);
+
+      for (int i = 0; i < records; i++)
+      {
+         buffer.clear();
+         Assert.assertEquals(record.length, sf.read(buffer));
+         Assert.assertEquals((byte) i, buffer.get(0));
+      }
+
+      buffer.clear();
+
+      Assert.assertEquals(-1, sf.read(buffer));
+
+      sf.close();
+   }
+}
@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.integration.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.activemq.api.core.ActiveMQIOErrorException;
+import org.apache.activemq.core.journal.PreparedTransactionInfo;
+import org.apache.activemq.core.journal.RecordInfo;
+import org.apache.activemq.core.journal.SequentialFileFactory;
+import org.apache.activemq.core.journal.impl.JournalImpl;
+import org.apache.activemq.core.journal.impl.NIOSequentialFileFactory;
+import org.apache.activemq.tests.unit.core.journal.impl.JournalImplTestBase;
+import org.apache.activemq.tests.unit.core.journal.impl.fakes.SimpleEncoding;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Verifies the journal records written with a checksum.
+ */
+public class NIOJournalChecksumTest extends JournalImplTestBase
+{
+   private static final int BODY_SIZE = 100;
+
+   @Override
+   protected SequentialFileFactory getFileFactory() throws Exception
+   {
+      File file = new File(getTestDir());
+
+      deleteDirectory(file);
+
+      file.mkdir();
+
+      return new NIOSequentialFileFactory(getTestDir(), true);
+   }
+
+   @Test
+   public void testLoadRecordsWithChecksum() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      load();
+
+      add(1, 2, 3, 4, 5);
+      update(1, 2);
+      delete(3);
+
+      addTx(10, 6, 7);
+      updateTx(10, 1);
+      deleteTx(10, 4);
+      commit(10);
+
+      addTx(11, 8, 9);
+      prepare(11, new SimpleEncoding(10, (byte) 0));
+
+      addTx(12, 20);
+      rollback(12);
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+      // the compacted records carry the checksum too
+      ((JournalImpl) journal).setRecordChecksum(true);
+      journal.testCompact();
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testMixedRecords() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      startJournal();
+      load();
+
+      add(1, 2, 3);
+      update(1);
+
+      stopJournal();
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      loadAndCheck();
+
+      add(4);
+      update(2);
+      delete(3);
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testCorruptedRecordIsIgnored() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      load();
+
+      journal.appendAddRecord(1, (byte) 1, createBody((byte) 0x55), true);
+      journal.appendAddRecord(2, (byte) 1, createBody((byte) 0x66), true);
+
+      stopJournal(false);
+
+      corruptBody((byte) 0x55);
+
+      createJournal();
+      startJournal();
+
+      List<RecordInfo> loaded = loadRecords();
+      Assert.assertEquals(1, loaded.size());
+      Assert.assertEquals(2, loaded.get(0).id);
+
+      stopJournal(false);
+
+      // without the verification the damaged record is loaded as it is
+      createJournal();
+      ((JournalImpl) journal).setVerifyChecksums(false);
+      startJournal();
+
+      loaded = loadRecords();
+      Assert.assertEquals(2, loaded.size());
+      Assert.assertEquals(1, loaded.get(0).id);
+      Assert.assertFalse(Arrays.equals(createBody((byte) 0x55), loaded.get(0).data));
+   }
+
+   @Test
+   public void testOlderVersionRefusesChecksummedFiles() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      load();
+
+      journal.appendAddRecord(1, (byte) 1, createBody((byte) 0x55), true);
+
+      stopJournal(false);
+
+      // a reader before the checksums only takes versions 1 and 2
+      for (File file : listJournalFiles())
+      {
+         Assert.assertEquals(JournalImpl.FORMAT_VERSION, readVersion(file));
+         Assert.assertTrue(readVersion(file) > 2);
+      }
+
+      // the same as an older reader, this one refuses a version it doesn't know
+      writeVersion(JournalImpl.FORMAT_VERSION + 1);
+
+      createJournal();
+      startJournal();
+
+      try
+      {
+         loadRecords();
+         Assert.fail("A journal file with an unknown version was loaded");
+      }
+      catch (ActiveMQIOErrorException expected)
+      {
+      }
+
+      stopJournal(false);
+
+      // the checksummed markers mean nothing on a file of an older version
+      writeVersion(JournalImpl.CHECKSUM_FORMAT_VERSION - 1);
+
+      createJournal();
+      startJournal();
+
+      Assert.assertEquals(0, loadRecords().size());
+   }
+
+   @Test
+   public void testEnableChecksumOnOlderJournal() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      startJournal();
+      load();
+
+      add(1, 2, 3);
+
+      stopJournal();
+
+      // the journal as an older version left it, the new files are initialized again when loaded
+      writeVersion(JournalImpl.CHECKSUM_FORMAT_VERSION - 1);
+
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      loadAndCheck();
+
+      // appended to the last data file, still of the older version
+      add(4);
+      update(1);
+      delete(2);
+
+      // a new file is of the current version and takes checksummed records
+      journal.forceMoveNextFile();
+      add(5);
+      update(3);
+
+      stopJournal();
+      createJournal();
+      ((JournalImpl) journal).setRecordChecksum(true);
+      startJournal();
+      loadAndCheck();
+   }
+
+   private List<RecordInfo> loadRecords() throws Exception
+   {
+      List<RecordInfo> committedRecords = new ArrayList<RecordInfo>();
+      journal.load(committedRecords, new ArrayList<PreparedTransactionInfo>(), null);
+      return committedRecords;
+   }
+
+   private static byte[] createBody(final byte value)
+   {
+      byte[] body = new byte[BODY_SIZE];
+      Arrays.fill(body, value);
+      return body;
+   }
+
+   private File[] listJournalFiles()
+   {
+      return new File(getTestDir()).listFiles(new FilenameFilter()
+      {
+         public boolean accept(final File dir, final String name)
+         {
+            return name.endsWith("." + fileExtension);
+         }
+      });
+   }
+
+   private static int readVersion(final File file) throws Exception
+   {
+      RandomAccessFile randomFile = new RandomAccessFile(file, "r");
+      try
+      {
+         return randomFile.readInt();
+      }
+      finally
+      {
+         randomFile.close();
+      }
+   }
+
+   /**
+    * Rewrites the format version on the header of every journal file.
+    */
+   private void writeVersion(final int version) throws Exception
+   {
+      for (File file : listJournalFiles())
+      {
+         RandomAccessFile randomFile = new RandomAccessFile(file, "rw");
+         try
+         {
+            randomFile.writeInt(version);
+         }
+         finally
+         {
+            randomFile.close();
+         }
+      }
+   }
+
+   /**
+    * Flips a byte in the middle of the record body filled with {@code value}, leaving its size untouched.
+    */
+   private void corruptBody(final byte value) throws Exception
+   {
+      byte[] body = createBody(value);
+
+      for (File file : listJournalFiles())
+      {
+         RandomAccessFile randomFile = new RandomAccessFile(file, "rw");
+         try
+         {
+            byte[] content = new byte[(int) randomFile.length()];
+            randomFile.readFully(content);
+
+            for (int i = 0; i <= content.length - BODY_SIZE; i++)
+            {
+               if (Arrays.equals(body, Arrays.copyOfRange(content, i, i + BODY_SIZE)))
+               {
+                  randomFile.seek(i + BODY_SIZE / 2);
+                  randomFile.write(value + 1);
+                  return;
+               }
+            }
+         }
+         finally
+         {
+            randomFile.close();
+         }
+      }
+
+      Assert.fail("Record body not found on the journal files");
+   }
+}
@@ -1268,6 +1268,114 @@ public class NIOJournalCompactTest extends JournalImplTestBase
 
    }
 
+   @Test
+   public void testIncrementalCompacting() throws Exception
+   {
+      setup(2, 60 * 1024, false);
+
+      createJournal();
+      startJournal();
+      load();
+
+      int NUMBER_OF_RECORDS = 1000;
+
+      long transactionID = 0;
+
+      for (int i = 0; i < NUMBER_OF_RECORDS / 2; i++)
+      {
+         add(i);
+         if (i % 10 == 0 && i > 0)
+         {
+            journal.forceMoveNextFile();
+         }
+         update(i);
+      }
+
+      for (int i = NUMBER_OF_RECORDS / 2; i < NUMBER_OF_RECORDS; i++)
+      {
+         addTx(transactionID, i);
+         updateTx(transactionID, i);
+         if (i % 10 == 0)
+         {
+            // leaving the transaction open between two files
+            journal.forceMoveNextFile();
+         }
+         commit(transactionID++);
+         update(i);
+      }
+
+      for (int i = 0; i < NUMBER_OF_RECORDS; i++)
+      {
+         if (!(i % 10 == 0))
+         {
+            delete(i);
+         }
+      }
+
+      journal.forceMoveNextFile();
+
+      JournalImpl journalImpl = (JournalImpl) journal;
+
+      journalImpl.setCompactMaxFiles(5);
+
+      int filesBefore = journal.getDataFilesCount();
+
+      for (int i = 0; i < 5; i++)
+      {
+         journalImpl.compactIncrementally();
+
+         // updates and deletes on the records just compacted
+         update(i * 10);
+         delete(i * 10 + NUMBER_OF_RECORDS / 2);
+         journal.forceMoveNextFile();
+      }
+
+      Assert.assertTrue(journalImpl.getCompactCount() > 0);
+      Assert.assertTrue(journalImpl.getCompactReclaimedBytes() > 0);
+      Assert.assertTrue(journal.getDataFilesCount() < filesBefore);
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testIncrementalCompactingSkipsLiveFiles() throws Exception
+   {
+      setup(2, 60 * 1024, false);
+
+      createJournal();
+      startJournal();
+      load();
+
+      // long lived records filling the oldest files, compacting them wouldn't release any file
+      for (int i = 0; i < 500; i++)
+      {
+         add(i);
+      }
+
+      journal.forceMoveNextFile();
+
+      JournalImpl journalImpl = (JournalImpl) journal;
+
+      journalImpl.setCompactMaxFiles(5);
+
+      int filesBefore = journal.getDataFilesCount();
+
+      journalImpl.compactIncrementally();
+
+      // the whole journal isn't compacted instead
+      Assert.assertEquals(1, journalImpl.getCompactSkipCount());
+      Assert.assertEquals(0, journalImpl.getCompactCount());
+      Assert.assertEquals(filesBefore, journal.getDataFilesCount());
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
    @Test
    public void testLiveSize() throws Exception
    {
@@ -0,0 +1,337 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.integration.journal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.activemq.core.journal.Journal;
+import org.apache.activemq.core.journal.PreparedTransactionInfo;
+import org.apache.activemq.core.journal.RecordInfo;
+import org.apache.activemq.core.journal.impl.JournalImpl;
+import org.apache.activemq.core.journal.impl.NIOSequentialFileFactory;
+import org.apache.activemq.core.journal.impl.ShardedJournal;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies the records and transactions of a journal spread over several shards.
+ */
+public class ShardedJournalTest extends UnitTestCase
+{
+   private static final byte RECORD_TYPE = 1;
+
+   private static final byte[] RECORD = new byte[]{1, 2, 3, 4};
+
+   private ShardedJournal journal;
+
+   private JournalImpl[] shards;
+
+   private List<RecordInfo> committedRecords;
+
+   private List<PreparedTransactionInfo> preparedTransactions;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      File dir = new File(getTestDir());
+      deleteDirectory(dir);
+      dir.mkdirs();
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      if (journal != null && journal.isStarted())
+      {
+         journal.stop();
+      }
+      super.tearDown();
+   }
+
+   @Test
+   public void testRecordsSpreadOverShards() throws Exception
+   {
+      openJournal(3);
+
+      for (long id = 1; id <= 30; id++)
+      {
+         journal.appendAddRecord(id, RECORD_TYPE, RECORD, true);
+      }
+      for (long id = 1; id <= 30; id += 2)
+      {
+         journal.appendUpdateRecord(id, RECORD_TYPE, RECORD, true);
+      }
+      for (long id = 1; id <= 10; id++)
+      {
+         journal.appendDeleteRecord(id, true);
+      }
+
+      for (JournalImpl shard : shards)
+      {
+         Assert.assertTrue(shard.getNumberOfRecords() > 0);
+      }
+
+      reopenJournal(3);
+
+      assertRecordRange(11, 30);
+      Assert.assertEquals(0, preparedTransactions.size());
+   }
+
+   @Test
+   public void testCommitOnSeveralShards() throws Exception
+   {
+      openJournal(2);
+
+      journal.appendAddRecord(1, RECORD_TYPE, RECORD, true);
+      journal.appendAddRecord(2, RECORD_TYPE, RECORD, true);
+
+      journal.appendAddRecordTransactional(100, 3, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 4, RECORD_TYPE, RECORD);
+      journal.appendUpdateRecordTransactional(100, 1, RECORD_TYPE, RECORD);
+      journal.appendDeleteRecordTransactional(100, 2);
+      journal.appendCommitRecord(100, true);
+
+      // a transaction on a single shard
+      journal.appendAddRecordTransactional(101, 6, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(101, 8, RECORD_TYPE, RECORD);
+      journal.appendCommitRecord(101, true);
+
+      journal.appendAddRecordTransactional(102, 10, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(102, 11, RECORD_TYPE, RECORD);
+      journal.appendRollbackRecord(102, true);
+
+      reopenJournal(2);
+
+      assertRecords(1, 3, 4, 6, 8);
+      Assert.assertEquals(0, preparedTransactions.size());
+
+      // the decisions were deleted, either when the commit completed or when loading
+      reopenJournal(2);
+      Assert.assertEquals(5, journal.getNumberOfRecords());
+   }
+
+   @Test
+   public void testCommitWithoutSync() throws Exception
+   {
+      openJournal(2);
+
+      journal.appendAddRecordTransactional(100, 1, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 2, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 3, RECORD_TYPE, RECORD);
+      journal.appendCommitRecord(100, false);
+
+      // the records are committed on their shards as soon as the commit returns
+      journal.appendUpdateRecord(1, RECORD_TYPE, RECORD, false);
+      journal.appendDeleteRecord(2, false);
+
+      reopenJournal(2);
+
+      assertRecords(1, 3);
+      Assert.assertEquals(0, preparedTransactions.size());
+   }
+
+   @Test
+   public void testPrepareAndCommitWithoutSync() throws Exception
+   {
+      openJournal(2);
+
+      journal.appendAddRecordTransactional(100, 1, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 2, RECORD_TYPE, RECORD);
+      journal.appendPrepareRecord(100, new byte[]{9, 8, 7}, false);
+      journal.appendCommitRecord(100, false);
+
+      journal.appendDeleteRecord(1, false);
+
+      reopenJournal(2);
+
+      assertRecords(2);
+      Assert.assertEquals(0, preparedTransactions.size());
+   }
+
+   @Test
+   public void testPreparedTransaction() throws Exception
+   {
+      openJournal(2);
+
+      byte[] xid = new byte[]{9, 8, 7};
+
+      journal.appendAddRecord(1, RECORD_TYPE, RECORD, true);
+      journal.appendAddRecordTransactional(100, 2, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 3, RECORD_TYPE, RECORD);
+      journal.appendDeleteRecordTransactional(100, 1);
+      journal.appendPrepareRecord(100, xid, true);
+
+      reopenJournal(2);
+
+      assertRecords(1);
+      Assert.assertEquals(1, preparedTransactions.size());
+      PreparedTransactionInfo prepared = preparedTransactions.get(0);
+      Assert.assertEquals(100, prepared.id);
+      assertEqualsByteArrays(xid, prepared.extraData);
+      Assert.assertEquals(2, prepared.records.size());
+      Assert.assertEquals(1, prepared.recordsToDelete.size());
+
+      journal.appendCommitRecord(100, true);
+
+      reopenJournal(2);
+
+      assertRecords(2, 3);
+      Assert.assertEquals(0, preparedTransactions.size());
+   }
+
+   @Test
+   public void testPartiallyRolledBackTransactionIsRolledBack() throws Exception
+   {
+      openJournal(2);
+
+      journal.appendAddRecordTransactional(100, 2, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 3, RECORD_TYPE, RECORD);
+      journal.appendPrepareRecord(100, new byte[]{1}, true);
+
+      // as if the server stopped after rolling back the transaction on one shard only
+      shards[0].appendRollbackRecord(100, true);
+
+      reopenJournal(2);
+
+      assertRecords();
+      Assert.assertEquals(0, preparedTransactions.size());
+
+      reopenJournal(2);
+
+      assertRecords();
+      Assert.assertEquals(0, preparedTransactions.size());
+   }
+
+   @Test
+   public void testStoredDecisionIsCommitted() throws Exception
+   {
+      openJournal(2);
+
+      journal.appendAddRecordTransactional(100, 2, RECORD_TYPE, RECORD);
+      journal.appendAddRecordTransactional(100, 3, RECORD_TYPE, RECORD);
+      journal.appendPrepareRecord(100, new byte[]{1}, true);
+
+      // as if the server stopped after storing the decision, before committing on the shards
+      shards[0].appendAddRecord(100, ShardedJournal.COMMIT_DECISION_RECORD, new byte[0], true);
+
+      reopenJournal(2);
+
+      assertRecords(2, 3);
+      Assert.assertEquals(0, preparedTransactions.size());
+
+      reopenJournal(2);
+
+      assertRecords(2, 3);
+      Assert.assertEquals(2, journal.getNumberOfRecords());
+   }
+
+   @Test
+   public void testAddShards() throws Exception
+   {
+      openJournal(1);
+
+      for (long id = 1; id <= 10; id++)
+      {
+         journal.appendAddRecord(id, RECORD_TYPE, RECORD, true);
+      }
+
+      reopenJournal(3);
+
+      assertRecords(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+      // the records stay on the first shard, where they are updated and deleted
+      for (long id = 1; id <= 10; id++)
+      {
+         Assert.assertEquals(0, journal.getShardIndex(id));
+      }
+
+      journal.appendUpdateRecord(2, RECORD_TYPE, RECORD, true);
+      journal.appendDeleteRecord(4, true);
+      journal.appendAddRecordTransactional(100, 5, RECORD_TYPE, RECORD);
+      journal.appendDeleteRecordTransactional(100, 6);
+      journal.appendAddRecordTransactional(100, 11, RECORD_TYPE, RECORD);
+      journal.appendCommitRecord(100, true);
+
+      reopenJournal(3);
+
+      assertRecords(1, 2, 3, 5, 7, 8, 9, 10, 11);
+   }
+
+   private void openJournal(final int numberOfShards) throws Exception
+   {
+      shards = new JournalImpl[numberOfShards];
+
+      for (int i = 0; i < numberOfShards; i++)
+      {
+         File dir = new File(getTestDir(), "shard-" + i);
+         dir.mkdirs();
+         NIOSequentialFileFactory factory = new NIOSequentialFileFactory(dir.getPath(), true);
+         shards[i] = new JournalImpl(10 * 1024, 2, 0, 0, factory, "amq", "amq", 1);
+      }
+
+      journal = new ShardedJournal((Journal[])shards);
+      journal.start();
+
+      committedRecords = new ArrayList<RecordInfo>();
+      preparedTransactions = new ArrayList<PreparedTransactionInfo>();
+      journal.load(committedRecords, preparedTransactions, null);
+   }
+
+   private void reopenJournal(final int numberOfShards) throws Exception
+   {
+      journal.stop();
+      openJournal(numberOfShards);
+   }
+
+   private void assertRecords(final long... ids)
+   {
+      Set<Long> expected = new HashSet<Long>();
+      for (long id : ids)
+      {
+         expected.add(id);
+      }
+
+      Set<Long> loaded = new HashSet<Long>();
+      for (RecordInfo record : committedRecords)
+      {
+         loaded.add(record.id);
+      }
+
+      Assert.assertEquals(expected, loaded);
+   }
+
+   private void assertRecordRange(final int from, final int to)
+   {
+      long[] ids = new long[to - from + 1];
+      for (int i = 0; i < ids.length; i++)
+      {
+         ids[i] = from + i;
+      }
+      assertRecords(ids);
+   }
+}
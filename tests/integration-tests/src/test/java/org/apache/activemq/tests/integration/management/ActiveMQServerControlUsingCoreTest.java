@@ -515,6 +515,27 @@ public class ActiveMQServerControlUsingCoreTest extends ActiveMQServerControlTes
             return (Integer) proxy.retrieveAttributeValue("JournalBufferTimeout");
          }
 
+         public int getJournalBufferCurrentTimeout()
+         {
+            return (Integer) proxy.retrieveAttributeValue("JournalBufferCurrentTimeout");
+         }
+
+         public long getJournalSyncLatency()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalSyncLatency", Long.class);
+         }
+
+         public long[] getJournalFlushBatchSizes()
+         {
+            Object[] res = (Object[]) proxy.retrieveAttributeValue("JournalFlushBatchSizes");
+            long[] sizes = new long[res.length];
+            for (int i = 0; i < res.length; i++)
+            {
+               sizes[i] = ((Number) res[i]).longValue();
+            }
+            return sizes;
+         }
+
          public int getJournalCompactMinFiles()
          {
             return (Integer) proxy.retrieveAttributeValue("JournalCompactMinFiles");
@@ -525,6 +546,36 @@ public class ActiveMQServerControlUsingCoreTest extends ActiveMQServerControlTes
             return (Integer) proxy.retrieveAttributeValue("JournalCompactPercentage");
          }
 
+         public int getJournalCompactMaxFiles()
+         {
+            return (Integer) proxy.retrieveAttributeValue("JournalCompactMaxFiles");
+         }
+
+         public long getJournalCompactCount()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalCompactCount", Long.class);
+         }
+
+         public long getJournalCompactThroughput()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalCompactThroughput", Long.class);
+         }
+
+         public long getJournalCompactMaxPauseTime()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalCompactMaxPauseTime", Long.class);
+         }
+
+         public long getJournalCompactReclaimedBytes()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalCompactReclaimedBytes", Long.class);
+         }
+
+         public long getJournalCompactSkipCount()
+         {
+            return (Long) proxy.retrieveAttributeValue("JournalCompactSkipCount", Long.class);
+         }
+
          public boolean isPersistenceEnabled()
          {
             return (Boolean) proxy.retrieveAttributeValue("PersistenceEnabled");
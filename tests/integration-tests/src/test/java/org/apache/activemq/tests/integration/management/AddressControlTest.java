@@ -22,6 +22,7 @@ import java.util.Set;
 import org.apache.activemq.api.config.ActiveMQDefaultConfiguration;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.api.core.TransportConfiguration;
+import org.apache.activemq.api.core.client.ClientConsumer;
 import org.apache.activemq.api.core.client.ClientMessage;
 import org.apache.activemq.api.core.client.ClientProducer;
 import org.apache.activemq.api.core.client.ClientSession;
@@ -276,6 +277,56 @@ public class AddressControlTest extends ManagementTestBase
       Assert.assertEquals(serverQueue.getPageSubscription().getPagingStore().getAddressSize(), addressControl.getAddressSize());
    }
 
+   @Test
+   public void testGetPageCacheCounters() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+
+      AddressSettings addressSettings = new AddressSettings();
+      addressSettings.setPageSizeBytes(1024);
+      addressSettings.setMaxSizeBytes(10 * 1024);
+
+      server.getAddressSettingsRepository().addMatch(address.toString(), addressSettings);
+      server.start();
+      ServerLocator locator2 =
+         ActiveMQClient.createServerLocatorWithoutHA(new TransportConfiguration(
+            UnitTestCase.INVM_CONNECTOR_FACTORY));
+      addServerLocator(locator2);
+      ClientSessionFactory sf2 = createSessionFactory(locator2);
+
+      session = sf2.createSession(false, true, false);
+      session.start();
+      session.createQueue(address, address, true);
+
+      ClientProducer producer = session.createProducer(address);
+
+      // enough messages to fill a few pages
+      for (int i = 0; i < 20; i++)
+      {
+         ClientMessage msg = session.createMessage(true);
+         msg.getBodyBuffer().writeBytes(new byte[512]);
+         producer.send(msg);
+      }
+      session.commit();
+
+      AddressControl addressControl = createManagementControl(address);
+      Assert.assertTrue(addressControl.getNumberOfPages() > 1);
+
+      ClientConsumer consumer = session.createConsumer(address);
+      for (int i = 0; i < 20; i++)
+      {
+         ClientMessage msg = consumer.receive(5000);
+         Assert.assertNotNull(msg);
+         msg.acknowledge();
+      }
+      session.commit();
+      consumer.close();
+
+      Assert.assertTrue(addressControl.getPageCacheMissCount() > 0);
+      Assert.assertTrue(addressControl.getPageCacheHitCount() > 0);
+      Assert.assertTrue(addressControl.getPageCacheSize() >= 0);
+   }
+
    @Test
    public void testGetNumberOfBytesPerPage() throws Exception
    {
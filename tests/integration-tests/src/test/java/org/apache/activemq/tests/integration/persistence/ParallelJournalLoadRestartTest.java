@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.integration.persistence;
+
+import java.util.HashMap;
+
+import org.apache.activemq.api.core.Message;
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.api.core.client.ClientConsumer;
+import org.apache.activemq.api.core.client.ClientMessage;
+import org.apache.activemq.api.core.client.ClientProducer;
+import org.apache.activemq.api.core.client.ClientSession;
+import org.apache.activemq.api.core.client.ClientSessionFactory;
+import org.apache.activemq.api.core.client.ServerLocator;
+import org.apache.activemq.core.config.Configuration;
+import org.apache.activemq.core.server.ActiveMQServer;
+import org.apache.activemq.core.server.MessageReference;
+import org.apache.activemq.core.server.Queue;
+import org.apache.activemq.core.settings.impl.AddressSettings;
+import org.apache.activemq.tests.util.ServiceTestBase;
+import org.apache.activemq.utils.LinkedListIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Restarts a server loading the journal with several threads, so the queues are populated by
+ * PostOfficeJournalLoader with one task per queue while every message is shared by all of them.
+ */
+public class ParallelJournalLoadRestartTest extends ServiceTestBase
+{
+   private static final SimpleString ADDRESS = new SimpleString("ADDRESS");
+
+   private static final int QUEUES = 5;
+
+   private static final int JOURNAL_MESSAGES = 100;
+
+   private static final int PAGED_MESSAGES = 50;
+
+   private static final int PAGE_SIZE = 10 * 1024;
+
+   private static final int PAGE_MAX = 100 * 1024 * 1024;
+
+   @Test
+   public void testSharedMessagesAfterParallelLoad() throws Exception
+   {
+      Configuration config = createDefaultConfig()
+         .setJournalLoadThreads(4);
+
+      ActiveMQServer server = createServer(true, config, PAGE_SIZE, PAGE_MAX, new HashMap<String, AddressSettings>());
+
+      server.start();
+
+      ServerLocator locator = createInVMNonHALocator();
+
+      locator.setBlockOnDurableSend(true);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = sf.createSession(false, true, true);
+
+      for (int q = 0; q < QUEUES; q++)
+      {
+         session.createQueue(ADDRESS, queueName(q), true);
+      }
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      // a scheduled message goes through the part of the load done before the tasks start
+      ClientMessage scheduled = session.createMessage(true);
+      scheduled.putIntProperty("i", -1);
+      scheduled.putLongProperty(Message.HDR_SCHEDULED_DELIVERY_TIME, System.currentTimeMillis() + 60 * 60 * 1000);
+      producer.send(scheduled);
+
+      for (int i = 0; i < JOURNAL_MESSAGES; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+
+      server.getPagingManager().getPageStore(ADDRESS).startPaging();
+
+      for (int i = JOURNAL_MESSAGES; i < JOURNAL_MESSAGES + PAGED_MESSAGES; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+
+      session.close();
+
+      sf.close();
+
+      server.stop();
+
+      server.start();
+
+      Assert.assertTrue(server.getPagingManager().getPageStore(ADDRESS).isPaging());
+
+      for (int q = 0; q < QUEUES; q++)
+      {
+         Queue queue = server.locateQueue(queueName(q));
+
+         Assert.assertEquals(JOURNAL_MESSAGES + PAGED_MESSAGES + 1, getMessageCount(queue));
+
+         Assert.assertEquals(1, queue.getScheduledCount());
+
+         Assert.assertTrue(queue.getPageSubscription().getPagingStore().isPaging());
+
+         int loaded = 0;
+
+         LinkedListIterator<MessageReference> iterator = queue.iterator();
+
+         try
+         {
+            while (iterator.hasNext())
+            {
+               MessageReference ref = iterator.next();
+
+               if (ref.isPaged())
+               {
+                  continue;
+               }
+
+               Assert.assertEquals(loaded, ref.getMessage().getIntProperty("i").intValue());
+
+               // every queue got its own reference to the same message
+               Assert.assertEquals(QUEUES, ref.getMessage().getRefCount());
+
+               loaded++;
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+
+         Assert.assertEquals(JOURNAL_MESSAGES, loaded);
+      }
+
+      sf = createSessionFactory(locator);
+
+      session = sf.createSession(false, true, true);
+
+      session.start();
+
+      for (int q = 0; q < QUEUES; q++)
+      {
+         ClientConsumer consumer = session.createConsumer(queueName(q));
+
+         for (int i = 0; i < JOURNAL_MESSAGES + PAGED_MESSAGES; i++)
+         {
+            ClientMessage message = consumer.receive(5000);
+
+            Assert.assertNotNull(message);
+
+            Assert.assertEquals(i, message.getIntProperty("i").intValue());
+
+            message.acknowledge();
+         }
+
+         // the scheduled message is still waiting
+         Assert.assertNull(consumer.receiveImmediate());
+
+         consumer.close();
+      }
+
+      session.close();
+
+      sf.close();
+
+      locator.close();
+   }
+
+   private static SimpleString queueName(final int q)
+   {
+      return new SimpleString("queue" + q);
+   }
+
+   private static ClientMessage createMessage(final ClientSession session, final int i)
+   {
+      ClientMessage message = session.createMessage(true);
+
+      message.putIntProperty("i", i);
+
+      message.getBodyBuffer().writeBytes(new byte[1024]);
+
+      return message;
+   }
+}
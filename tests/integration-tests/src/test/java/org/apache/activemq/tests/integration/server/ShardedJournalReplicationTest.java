@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.integration.server;
+
+import org.apache.activemq.api.core.ActiveMQIllegalStateException;
+import org.apache.activemq.core.config.Configuration;
+import org.apache.activemq.core.config.ha.ReplicatedPolicyConfiguration;
+import org.apache.activemq.core.config.ha.SharedStoreMasterPolicyConfiguration;
+import org.apache.activemq.core.server.ActiveMQServer;
+import org.apache.activemq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardedJournalReplicationTest extends ServiceTestBase
+{
+   @Test
+   public void testReplicationRefused() throws Exception
+   {
+      Configuration config = createDefaultConfig()
+         .setHAPolicyConfiguration(new ReplicatedPolicyConfiguration())
+         .setJournalShards(2);
+
+      ActiveMQServer server = createServer(true, config);
+
+      try
+      {
+         server.start();
+         Assert.fail("a sharded journal can't be replicated");
+      }
+      catch (ActiveMQIllegalStateException e)
+      {
+         // expected
+      }
+
+      Assert.assertFalse(server.isStarted());
+   }
+
+   @Test
+   public void testSharedStoreAccepted() throws Exception
+   {
+      Configuration config = createDefaultConfig()
+         .setHAPolicyConfiguration(new SharedStoreMasterPolicyConfiguration())
+         .setJournalShards(2);
+
+      ActiveMQServer server = createServer(true, config);
+
+      server.start();
+
+      Assert.assertTrue(server.isStarted());
+   }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.performance.filter;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.filter.Filter;
+import org.apache.activemq.core.filter.impl.FilterImpl;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.core.server.impl.ServerMessageImpl;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Measures the evaluations per second of typical subscription filters.
+ */
+public class MeasureFilterTest extends UnitTestCase
+{
+   private static final int WARMUP = 1000000;
+
+   private static final int ITERATIONS = 5000000;
+
+   @Test
+   public void testEquality() throws Exception
+   {
+      measure("region = 'emea'");
+   }
+
+   @Test
+   public void testIn() throws Exception
+   {
+      measure("region IN ('apac', 'emea', 'amer')");
+   }
+
+   @Test
+   public void testRange() throws Exception
+   {
+      measure("price BETWEEN 10 AND 100");
+   }
+
+   @Test
+   public void testLike() throws Exception
+   {
+      measure("symbol LIKE 'RH%'");
+   }
+
+   @Test
+   public void testConjunction() throws Exception
+   {
+      measure("region = 'emea' AND price > 10 AND symbol LIKE 'RH%' AND HQPriority > 3");
+   }
+
+   private void measure(final String filterString) throws Exception
+   {
+      Filter filter = FilterImpl.createFilter(filterString);
+
+      ServerMessage message = new ServerMessageImpl(1, 1000);
+      message.putStringProperty(new SimpleString("region"), new SimpleString("emea"));
+      message.putStringProperty(new SimpleString("symbol"), new SimpleString("RHT"));
+      message.putIntProperty(new SimpleString("price"), 50);
+      message.setPriority((byte)4);
+
+      for (int i = 0; i < WARMUP; i++)
+      {
+         filter.match(message);
+      }
+
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         assertTrue(filter.match(message));
+      }
+
+      long end = System.currentTimeMillis();
+
+      System.out.println(filterString + ": " + (ITERATIONS * 1000L / Math.max(1, end - start)) + " evaluations/second");
+   }
+}
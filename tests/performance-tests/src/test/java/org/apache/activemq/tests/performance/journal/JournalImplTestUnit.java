@@ -256,6 +256,109 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
 
    }
 
+   @Test
+   public void testLoadSpeed() throws Exception
+   {
+      final int numMessages = 50000;
+
+      JournalImpl journal = new JournalImpl(1024 * 1024, 2, 0, 0, fileFactory, "activemq-data", "amq", 5000);
+
+      journal.start();
+
+      journal.load(new ArrayList<RecordInfo>(), null, null);
+
+      SimpleEncoding data = new SimpleEncoding(700, (byte)'j');
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         journal.appendAddRecord(i, (byte)0, data, false);
+
+         if (i % 2 == 0)
+         {
+            journal.appendUpdateRecord(i, (byte)0, data, false);
+         }
+      }
+
+      journal.stop();
+
+      for (int loadThreads : new int[]{1, 4})
+      {
+         journal = new JournalImpl(1024 * 1024, 2, 0, 0, fileFactory, "activemq-data", "amq", 5000);
+
+         journal.setLoadThreads(loadThreads);
+
+         journal.start();
+
+         ArrayList<RecordInfo> records = new ArrayList<RecordInfo>();
+
+         long start = System.currentTimeMillis();
+
+         journal.load(records, null, null);
+
+         long end = System.currentTimeMillis();
+
+         journal.stop();
+
+         Assert.assertEquals(numMessages, records.size());
+
+         JournalImplTestUnit.log.info("Loaded " + numMessages + " records with " + loadThreads + " threads in " +
+                                         (end - start) + " milliseconds");
+      }
+   }
+
+   @Test
+   public void testChecksumSpeed() throws Exception
+   {
+      final int numMessages = 50000;
+
+      SimpleEncoding data = new SimpleEncoding(700, (byte)'j');
+
+      for (boolean checksum : new boolean[]{false, true})
+      {
+         String prefix = checksum ? "checksum" : "plain";
+
+         JournalImpl journal = new JournalImpl(1024 * 1024, 2, 0, 0, fileFactory, prefix, "amq", 5000);
+
+         journal.setRecordChecksum(checksum);
+
+         journal.start();
+
+         journal.load(new ArrayList<RecordInfo>(), null, null);
+
+         long start = System.currentTimeMillis();
+
+         for (int i = 0; i < numMessages; i++)
+         {
+            journal.appendAddRecord(i, (byte)0, data, false);
+         }
+
+         long end = System.currentTimeMillis();
+
+         journal.stop();
+
+         double rate = 1000 * (double)numMessages / (end - start);
+
+         journal = new JournalImpl(1024 * 1024, 2, 0, 0, fileFactory, prefix, "amq", 5000);
+
+         journal.start();
+
+         ArrayList<RecordInfo> records = new ArrayList<RecordInfo>();
+
+         long startLoad = System.currentTimeMillis();
+
+         journal.load(records, null, null);
+
+         long endLoad = System.currentTimeMillis();
+
+         journal.stop();
+
+         Assert.assertEquals(numMessages, records.size());
+
+         JournalImplTestUnit.log.info("checksum=" + checksum + ": append rate " + rate + " records/sec, loaded in " +
+                                         (endLoad - startLoad) + " milliseconds");
+      }
+   }
+
    private void internaltestSpeedNonTransactional() throws Exception
    {
       final long numMessages = 10000;
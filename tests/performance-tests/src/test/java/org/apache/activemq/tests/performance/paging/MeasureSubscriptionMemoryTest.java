@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.performance.paging;
+
+import java.util.HashMap;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.api.core.client.ClientMessage;
+import org.apache.activemq.api.core.client.ClientProducer;
+import org.apache.activemq.api.core.client.ClientSession;
+import org.apache.activemq.api.core.client.ClientSessionFactory;
+import org.apache.activemq.api.core.client.ServerLocator;
+import org.apache.activemq.core.paging.cursor.PageSubscription;
+import org.apache.activemq.core.paging.cursor.PagedReference;
+import org.apache.activemq.core.server.ActiveMQServer;
+import org.apache.activemq.core.settings.impl.AddressSettings;
+import org.apache.activemq.tests.util.ServiceTestBase;
+import org.apache.activemq.utils.LinkedListIterator;
+import org.junit.Test;
+
+/**
+ * Measures the heap used to track the acknowledgements of many subscriptions over a deep paged address.
+ * Every other message is acknowledged, so none of the pages is complete and all the acknowledgements are kept.
+ */
+public class MeasureSubscriptionMemoryTest extends ServiceTestBase
+{
+   private static final int NUMBER_OF_SUBSCRIPTIONS = 10000;
+
+   private static final int NUMBER_OF_MESSAGES = 1000;
+
+   private static final int SIZE_OF_MESSAGE = 1024;
+
+   @Test
+   public void testMemoryPerSubscription() throws Exception
+   {
+      ActiveMQServer server = createServer(true, createDefaultConfig(), 10 * 1024, 100 * 1024,
+                                           new HashMap<String, AddressSettings>());
+      server.start();
+
+      ServerLocator locator = createInVMNonHALocator();
+      ClientSessionFactory factory = createSessionFactory(locator);
+      ClientSession session = factory.createSession(false, true, true);
+
+      SimpleString address = new SimpleString("test-adr");
+
+      for (int i = 0; i < NUMBER_OF_SUBSCRIPTIONS; i++)
+      {
+         session.createQueue(address, address.concat("-" + i), null, false);
+      }
+
+      server.getPagingManager().getPageStore(address).startPaging();
+
+      ClientProducer producer = session.createProducer(address);
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ClientMessage msg = session.createMessage(false);
+         msg.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+         producer.send(msg);
+      }
+      session.close();
+
+      forceGC();
+
+      long usedBefore = getUsedMemory();
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_SUBSCRIPTIONS; i++)
+      {
+         PageSubscription subscription = server.locateQueue(address.concat("-" + i)).getPageSubscription();
+         LinkedListIterator<PagedReference> iterator = subscription.iterator();
+         try
+         {
+            for (int j = 0; iterator.hasNext(); j++)
+            {
+               PagedReference reference = iterator.next();
+               if (j % 2 == 0)
+               {
+                  subscription.ack(reference);
+               }
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+      }
+
+      long end = System.currentTimeMillis();
+
+      forceGC();
+
+      long usedAfter = getUsedMemory();
+
+      System.out.println("Acknowledged " + NUMBER_OF_MESSAGES / 2 + " messages on " + NUMBER_OF_SUBSCRIPTIONS +
+                            " subscriptions in " + (end - start) + " milliseconds");
+      System.out.println("Heap per subscription: " + (usedAfter - usedBefore) / NUMBER_OF_SUBSCRIPTIONS + " bytes");
+
+      locator.close();
+   }
+
+   private static long getUsedMemory()
+   {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.performance.postoffice;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.postoffice.Bindings;
+import org.apache.activemq.core.postoffice.BindingsFactory;
+import org.apache.activemq.core.postoffice.impl.BindingsImpl;
+import org.apache.activemq.core.postoffice.impl.LocalQueueBinding;
+import org.apache.activemq.core.postoffice.impl.WildcardAddressManager;
+import org.apache.activemq.tests.unit.core.postoffice.impl.FakeQueue;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Measures the time to route to many MQTT style addresses created on demand while many wildcard bindings exist,
+ * and the time to add and remove the wildcard bindings once the addresses exist.
+ */
+public class MeasureWildcardRoutingTest extends UnitTestCase
+{
+   private static final int NUMBER_OF_ADDRESSES = 1000000;
+
+   private static final int NUMBER_OF_REGIONS = 1000;
+
+   private static final SimpleString NODE_ID = new SimpleString("node");
+
+   @Test
+   public void testRouteToNewAddresses() throws Exception
+   {
+      WildcardAddressManager manager = new WildcardAddressManager(new BindingsFactory()
+      {
+         public Bindings createBindings(final SimpleString address) throws Exception
+         {
+            return new BindingsImpl(address, null, null);
+         }
+      });
+
+      long start = System.currentTimeMillis();
+
+      // one subscription for each region
+      for (int i = 0; i < NUMBER_OF_REGIONS; i++)
+      {
+         addWildcardBinding(manager, "sensors.region" + i + ".*.temperature", "region" + i);
+      }
+
+      long end = System.currentTimeMillis();
+
+      System.out.println("Added " + NUMBER_OF_REGIONS + " wildcard bindings in " + (end - start) + " milliseconds");
+
+      start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_ADDRESSES; i++)
+      {
+         Bindings bindings =
+            manager.getBindingsForRoutingAddress(new SimpleString("sensors.region" + i % NUMBER_OF_REGIONS +
+                                                                     ".device" + i + ".temperature"));
+         assertEquals(1, bindings.getBindings().size());
+      }
+
+      end = System.currentTimeMillis();
+
+      System.out.println("Routed to " + NUMBER_OF_ADDRESSES + " new addresses in " + (end - start) + " milliseconds");
+
+      start = System.currentTimeMillis();
+
+      // one more subscription for each region, linked to the addresses already there
+      for (int i = 0; i < NUMBER_OF_REGIONS; i++)
+      {
+         addWildcardBinding(manager, "sensors.region" + i + ".#", "all" + i);
+      }
+
+      end = System.currentTimeMillis();
+
+      System.out.println("Added " + NUMBER_OF_REGIONS + " wildcard bindings over " + NUMBER_OF_ADDRESSES +
+                            " addresses in " + (end - start) + " milliseconds");
+
+      start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_REGIONS; i++)
+      {
+         manager.removeBinding(new SimpleString("all" + i), null);
+      }
+
+      end = System.currentTimeMillis();
+
+      System.out.println("Removed " + NUMBER_OF_REGIONS + " wildcard bindings over " + NUMBER_OF_ADDRESSES +
+                            " addresses in " + (end - start) + " milliseconds");
+   }
+
+   private static void addWildcardBinding(final WildcardAddressManager manager,
+                                          final String address,
+                                          final String queueName) throws Exception
+   {
+      SimpleString name = new SimpleString(queueName);
+      manager.addBinding(new LocalQueueBinding(new SimpleString(address), new FakeQueue(name), NODE_ID));
+   }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.performance.server;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.ActiveMQBuffers;
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.core.server.impl.ServerMessageImpl;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Measures the heap held and the time spent copying large messages along a chain of diverts, where each copy is
+ * stored, and across a bridge, where each copy is sent.
+ */
+public class MeasureMessageCopyTest extends UnitTestCase
+{
+   private static final int BODY_SIZE = 1024 * 1024;
+
+   private static final int NUMBER_OF_MESSAGES = 100;
+
+   private static final int NUMBER_OF_DIVERTS = 4;
+
+   @Test
+   public void testDivertChain() throws Exception
+   {
+      ActiveMQBuffer journalBuffer = ActiveMQBuffers.fixedBuffer(2 * BODY_SIZE);
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+
+      forceGC();
+
+      long gcTimeBefore = getGCTime();
+      long usedBefore = getUsedMemory();
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ServerMessage message = createMessage(i);
+
+         messages.add(message);
+
+         for (int j = 0; j < NUMBER_OF_DIVERTS; j++)
+         {
+            message = message.copy(i * (NUMBER_OF_DIVERTS + 1) + j + 1);
+            message.setAddress(new SimpleString("diverted" + j));
+
+            journalBuffer.clear();
+            message.encode(journalBuffer);
+
+            messages.add(message);
+         }
+      }
+
+      long end = System.currentTimeMillis();
+
+      forceGC();
+
+      long usedAfter = getUsedMemory();
+      long gcTimeAfter = getGCTime();
+
+      assertEquals(NUMBER_OF_MESSAGES * (NUMBER_OF_DIVERTS + 1), messages.size());
+
+      System.out.println("Diverted and stored " + NUMBER_OF_MESSAGES + " messages " + NUMBER_OF_DIVERTS + " times in " +
+                            (end - start) + " milliseconds");
+      System.out.println("Heap per message and its copies: " + (usedAfter - usedBefore) / NUMBER_OF_MESSAGES + " bytes");
+      System.out.println("Time spent on GC: " + (gcTimeAfter - gcTimeBefore) + " milliseconds");
+   }
+
+   @Test
+   public void testBridge() throws Exception
+   {
+      forceGC();
+
+      long gcTimeBefore = getGCTime();
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ServerMessage message = createMessage(i);
+
+         // the bridge sends a copy with its own properties
+         ServerMessage copy = message.copy();
+         copy.putStringProperty(new SimpleString("_HQ_BRIDGE_DUP"), new SimpleString("bridge" + i));
+
+         assertTrue(copy.getEncodedBuffer().writerIndex() > BODY_SIZE);
+      }
+
+      long end = System.currentTimeMillis();
+
+      long gcTimeAfter = getGCTime();
+
+      System.out.println("Bridged " + NUMBER_OF_MESSAGES + " messages in " + (end - start) + " milliseconds");
+      System.out.println("Time spent on GC: " + (gcTimeAfter - gcTimeBefore) + " milliseconds");
+   }
+
+   private static ServerMessage createMessage(final long id)
+   {
+      ServerMessage message = new ServerMessageImpl(id, BODY_SIZE + 1024);
+      message.setAddress(new SimpleString("address"));
+      message.getBodyBuffer().writeBytes(new byte[BODY_SIZE]);
+      return message;
+   }
+
+   private static long getUsedMemory()
+   {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   private static long getGCTime()
+   {
+      long time = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      {
+         time += gc.getCollectionTime();
+      }
+      return time;
+   }
+}
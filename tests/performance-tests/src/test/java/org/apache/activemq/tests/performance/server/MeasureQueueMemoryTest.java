@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.performance.server;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.activemq.api.core.SimpleString;
+import org.apache.activemq.core.server.ServerMessage;
+import org.apache.activemq.core.server.impl.QueueImpl;
+import org.apache.activemq.core.server.impl.ServerMessageImpl;
+import org.apache.activemq.tests.unit.core.server.impl.fakes.FakePostOffice;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures the heap used by each reference held on a deep queue, and the time spent on GC while filling it.
+ * The messages are shared by all the references, so only the per reference cost is measured.
+ */
+public class MeasureQueueMemoryTest extends UnitTestCase
+{
+   private static final int NUMBER_OF_REFERENCES = 2000000;
+
+   private ScheduledExecutorService scheduledExecutor;
+
+   private ExecutorService executor;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+      executor = Executors.newSingleThreadExecutor();
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      scheduledExecutor.shutdownNow();
+      executor.shutdownNow();
+      super.tearDown();
+   }
+
+   @Test
+   public void testMemoryPerReference() throws Exception
+   {
+      measure(false);
+   }
+
+   @Test
+   public void testMemoryPerCompactReference() throws Exception
+   {
+      measure(true);
+   }
+
+   private void measure(final boolean compactReferences) throws Exception
+   {
+      QueueImpl queue = new QueueImpl(1,
+                                      new SimpleString("address"),
+                                      new SimpleString("queue"),
+                                      null,
+                                      false,
+                                      true,
+                                      false,
+                                      scheduledExecutor,
+                                      new FakePostOffice(),
+                                      null,
+                                      null,
+                                      executor);
+
+      queue.setCompactReferences(compactReferences);
+
+      ServerMessage message = new ServerMessageImpl(1, 100);
+      message.setAddress(new SimpleString("address"));
+
+      forceGC();
+
+      long gcTimeBefore = getGCTime();
+      long usedBefore = getUsedMemory();
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < NUMBER_OF_REFERENCES; i++)
+      {
+         queue.addTail(message.createReference(queue));
+      }
+
+      // the references are moved from the intermediate list to the queue in batches by the executor
+      long timeout = System.currentTimeMillis() + 60000;
+      while (getMessageCount(queue) < NUMBER_OF_REFERENCES && System.currentTimeMillis() < timeout)
+      {
+         queue.deliverNow();
+      }
+
+      long end = System.currentTimeMillis();
+
+      forceGC();
+
+      long usedAfter = getUsedMemory();
+      long gcTimeAfter = getGCTime();
+
+      assertEquals(NUMBER_OF_REFERENCES, getMessageCount(queue));
+
+      System.out.println("Added " + NUMBER_OF_REFERENCES + (compactReferences ? " compact" : "") + " references in " + (end - start) + " milliseconds");
+      System.out.println("Heap per reference: " + (usedAfter - usedBefore) / NUMBER_OF_REFERENCES + " bytes");
+      System.out.println("Time spent on GC: " + (gcTimeAfter - gcTimeBefore) + " milliseconds");
+   }
+
+   private static long getUsedMemory()
+   {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   private static long getGCTime()
+   {
+      long time = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      {
+         time += gc.getCollectionTime();
+      }
+      return time;
+   }
+}
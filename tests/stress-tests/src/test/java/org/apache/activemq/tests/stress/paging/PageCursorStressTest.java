@@ -110,6 +110,29 @@ public class PageCursorStressTest extends ServiceTestBase
       System.out.println("Cache size = " + cursorProvider.getCacheSize());
    }
 
+   @Test
+   public void testReadEvictedCache() throws Exception
+   {
+      int numberOfPages = addMessages(30, 1024 * 1024);
+
+      assertTrue(numberOfPages > 2);
+
+      PageCursorProviderImpl cursorProvider = new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                                                         server.getStorageManager(),
+                                                                         server.getExecutorFactory().getExecutor(),
+                                                                         1);
+
+      PageCache evicted = cursorProvider.getPageCache(1);
+      cursorProvider.getPageCache(2);
+
+      assertEquals(1, cursorProvider.getCacheEvictionCount());
+
+      // the evicted cache reads through a new cache held by the provider, rather than opening its page again
+      assertNotNull(evicted.getMessage(0));
+      assertEquals(2, cursorProvider.getCacheEvictionCount());
+      assertNotSame(evicted, cursorProvider.getPageCache(1));
+   }
+
    @Test
    public void testSimpleCursor() throws Exception
    {
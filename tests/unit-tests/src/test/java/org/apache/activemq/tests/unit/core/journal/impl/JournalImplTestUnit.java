@@ -19,6 +19,7 @@ package org.apache.activemq.tests.unit.core.journal.impl;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import org.apache.activemq.api.core.ActiveMQBuffer;
 import org.apache.activemq.api.core.ActiveMQException;
 import org.apache.activemq.api.core.ActiveMQIOErrorException;
 import org.apache.activemq.core.journal.EncodingSupport;
@@ -2117,6 +2118,48 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
       loadAndCheck();
    }
 
+   @Test
+   public void testAddFailingToEncode() throws Exception
+   {
+      setup(2, 10 * 1024, true);
+      createJournal();
+      startJournal();
+      load();
+
+      try
+      {
+         journal.appendAddRecord(100, (byte) 1, new EncodingSupport()
+         {
+            public int getEncodeSize()
+            {
+               return 10;
+            }
+
+            public void encode(final ActiveMQBuffer buffer)
+            {
+               buffer.writeInt(1);
+               throw new IllegalStateException("failed on purpose");
+            }
+
+            public void decode(final ActiveMQBuffer buffer)
+            {
+            }
+         }, true);
+         Assert.fail("the record was appended");
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+
+      // the record is encoded before being appended, nothing of it reached the file
+      sync = true;
+      add(1);
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+   }
+
    @Test
    public void testMultipleAdd() throws Exception
    {
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
+import org.apache.activemq.core.journal.EncodingSupport;
 import org.apache.activemq.core.journal.IOAsyncTask;
 import org.apache.activemq.core.journal.impl.TimedBuffer;
 import org.apache.activemq.core.journal.impl.TimedBufferObserver;
@@ -144,6 +145,283 @@ public class TimedBufferTest extends UnitTestCase
 
    }
 
+   @Test
+   public void testConcurrentAppends() throws Exception
+   {
+      final int threads = 8;
+      final int recordsPerThread = 1000;
+      final int recordSize = 10;
+
+      final ByteBuffer flushed = ByteBuffer.allocate(threads * recordsPerThread * recordSize);
+      final AtomicInteger callbacksDone = new AtomicInteger(0);
+
+      class TestObserver implements TimedBufferObserver
+      {
+         public synchronized void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            buffer.flip();
+            flushed.put(buffer);
+            callbacksDone.addAndGet(callbacks.size());
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      final TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND_IN_NANOS, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         final CountDownLatch start = new CountDownLatch(1);
+         final AtomicInteger errors = new AtomicInteger(0);
+
+         Thread[] producers = new Thread[threads];
+
+         for (int i = 0; i < threads; i++)
+         {
+            final byte value = (byte) i;
+
+            producers[i] = new Thread()
+            {
+               @Override
+               public void run()
+               {
+                  try
+                  {
+                     start.await();
+
+                     for (int j = 0; j < recordsPerThread; j++)
+                     {
+                        byte[] bytes = new byte[recordSize];
+                        for (int k = 0; k < recordSize; k++)
+                        {
+                           bytes[k] = value;
+                        }
+
+                        ActiveMQBuffer buff = ActiveMQBuffers.wrappedBuffer(bytes);
+
+                        timedBuffer.addBytes(buff, j % 10 == 0, dummyCallback);
+                     }
+                  }
+                  catch (Throwable e)
+                  {
+                     e.printStackTrace();
+                     errors.incrementAndGet();
+                  }
+               }
+            };
+
+            producers[i].start();
+         }
+
+         start.countDown();
+
+         for (Thread producer : producers)
+         {
+            producer.join();
+         }
+
+         timedBuffer.flush();
+
+         Assert.assertEquals(0, errors.get());
+         Assert.assertEquals(threads * recordsPerThread, callbacksDone.get());
+         Assert.assertFalse(flushed.hasRemaining());
+
+         // every record has to be intact, no matter how the appends were interleaved
+         int[] recordsPerValue = new int[threads];
+
+         flushed.rewind();
+
+         for (int i = 0; i < threads * recordsPerThread; i++)
+         {
+            byte value = flushed.get();
+            for (int k = 1; k < recordSize; k++)
+            {
+               Assert.assertEquals(value, flushed.get());
+            }
+            recordsPerValue[value]++;
+         }
+
+         for (int i = 0; i < threads; i++)
+         {
+            Assert.assertEquals(recordsPerThread, recordsPerValue[i]);
+         }
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
+   @Test
+   public void testFailedEncodingLeavesNothingBehind()
+   {
+      final ArrayList<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+      final AtomicInteger callbacksDone = new AtomicInteger(0);
+
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            buffers.add(buffer);
+            callbacksDone.addAndGet(callbacks.size());
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      EncodingSupport failing = new EncodingSupport()
+      {
+         public int getEncodeSize()
+         {
+            return 10;
+         }
+
+         public void encode(final ActiveMQBuffer buffer)
+         {
+            buffer.writeBytes(new byte[]{1, 1, 1, 1, 1});
+            throw new IllegalStateException("failed encoding");
+         }
+
+         public void decode(final ActiveMQBuffer buffer)
+         {
+         }
+      };
+
+      TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND_IN_NANOS, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         Assert.assertTrue(timedBuffer.checkSize(10));
+
+         try
+         {
+            timedBuffer.addBytes(failing, false, dummyCallback);
+            Assert.fail("Exception expected");
+         }
+         catch (IllegalStateException expected)
+         {
+         }
+
+         Assert.assertTrue(timedBuffer.checkSize(10));
+         timedBuffer.addBytes(ActiveMQBuffers.wrappedBuffer(new byte[]{2, 2, 2, 2, 2, 2, 2, 2, 2, 2}), false, dummyCallback);
+
+         timedBuffer.flush();
+
+         Assert.assertEquals(1, buffers.size());
+         Assert.assertEquals(1, callbacksDone.get());
+
+         ByteBuffer flushed = buffers.get(0);
+
+         flushed.flip();
+
+         Assert.assertEquals(10, flushed.remaining());
+
+         while (flushed.hasRemaining())
+         {
+            Assert.assertEquals(2, flushed.get());
+         }
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
+   @Test
+   public void testAdaptiveTimeout()
+   {
+      class TestObserver implements TimedBufferObserver
+      {
+         public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+         {
+            for (IOAsyncTask callback : callbacks)
+            {
+               callback.done();
+            }
+         }
+
+         public ByteBuffer newBuffer(final int minSize, final int maxSize)
+         {
+            return ByteBuffer.allocate(maxSize);
+         }
+
+         public int getRemainingBytes()
+         {
+            return 1024 * 1024;
+         }
+      }
+
+      TimedBuffer timedBuffer = new TimedBuffer(100, TimedBufferTest.ONE_SECOND_IN_NANOS, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new TestObserver());
+
+         Assert.assertFalse(timedBuffer.isAdaptive());
+         Assert.assertEquals(TimedBufferTest.ONE_SECOND_IN_NANOS, timedBuffer.getCurrentTimeout());
+
+         timedBuffer.setAdaptive(true);
+
+         for (int i = 0; i < 10; i++)
+         {
+            timedBuffer.checkSize(10);
+            timedBuffer.addBytes(ActiveMQBuffers.wrappedBuffer(new byte[10]), false, dummyCallback);
+         }
+
+         // a full buffer with no sync pending doesn't measure anything
+         timedBuffer.checkSize(1);
+
+         Assert.assertEquals(TimedBufferTest.ONE_SECOND_IN_NANOS, timedBuffer.getCurrentTimeout());
+         Assert.assertEquals(0, timedBuffer.getAverageSyncLatency());
+
+         timedBuffer.addBytes(ActiveMQBuffers.wrappedBuffer(new byte[10]), true, dummyCallback);
+         timedBuffer.flush();
+
+         // a single sync request can't be batched with anything, so the next ones are flushed after the shortest wait
+         Assert.assertEquals(TimedBuffer.MIN_ADAPTIVE_TIMEOUT, timedBuffer.getCurrentTimeout());
+         Assert.assertTrue(timedBuffer.getAverageSyncLatency() > 0);
+
+         long[] histogram = timedBuffer.getBatchSizeHistogram();
+         Assert.assertEquals(TimedBuffer.BATCH_SIZE_BUCKETS, histogram.length);
+         Assert.assertEquals(1, histogram[0]);
+         Assert.assertEquals(1, histogram[3]);
+
+         timedBuffer.setAdaptive(false);
+
+         Assert.assertEquals(TimedBufferTest.ONE_SECOND_IN_NANOS, timedBuffer.getCurrentTimeout());
+      }
+      finally
+      {
+         timedBuffer.stop();
+      }
+   }
+
    @Test
    public void testTimingAndFlush() throws Exception
    {
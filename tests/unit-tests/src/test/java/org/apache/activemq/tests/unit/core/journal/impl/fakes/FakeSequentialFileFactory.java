@@ -673,6 +673,12 @@ public class FakeSequentialFileFactory implements SequentialFileFactory
 
       }
 
+      @Override
+      public boolean hasJavaFile()
+      {
+         return false;
+      }
+
       @Override
       public File getJavaFile()
       {
@@ -712,6 +718,29 @@ public class FakeSequentialFileFactory implements SequentialFileFactory
    {
    }
 
+   @Override
+   public void setBufferAdaptive(final boolean adaptive)
+   {
+   }
+
+   @Override
+   public int getBufferCurrentTimeout()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getBufferSyncLatency()
+   {
+      return 0;
+   }
+
+   @Override
+   public long[] getBufferBatchSizes()
+   {
+      return new long[0];
+   }
+
    @Override
    public void flush()
    {
@@ -21,11 +21,19 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.ActiveMQBuffers;
 import org.apache.activemq.api.core.Message;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.client.impl.ClientMessageImpl;
+import org.apache.activemq.core.protocol.ClientPacketDecoder;
+import org.apache.activemq.core.protocol.core.impl.PacketImpl;
+import org.apache.activemq.core.protocol.core.impl.RemotingConnectionImpl;
+import org.apache.activemq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.apache.activemq.core.protocol.core.impl.wireformat.SessionSendMessage;
+import org.apache.activemq.core.remoting.impl.invm.InVMConnection;
+import org.apache.activemq.core.server.ServerMessage;
 import org.apache.activemq.core.server.impl.ServerMessageImpl;
+import org.apache.activemq.spi.core.protocol.RemotingConnection;
 import org.apache.activemq.tests.util.RandomUtil;
 import org.apache.activemq.tests.util.UnitTestCase;
 import org.junit.Assert;
@@ -240,6 +248,123 @@ public class MessageImplTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testCopySharesBufferUntilWritten() throws Exception
+   {
+      byte[] body = RandomUtil.randomBytes(1000);
+
+      ServerMessageImpl msg = new ServerMessageImpl(1, 1500);
+      msg.setAddress(new SimpleString("original"));
+      msg.putStringProperty(new SimpleString("prop"), new SimpleString("original"));
+      msg.getBodyBuffer().writeBytes(body);
+
+      // as a divert would
+      ServerMessage copy = msg.copy(2);
+      copy.setAddress(new SimpleString("diverted"));
+      copy.putStringProperty(new SimpleString("prop"), new SimpleString("diverted"));
+
+      ServerMessage decodedCopy = encodeDecode(copy);
+      Assert.assertEquals(2, decodedCopy.getMessageID());
+      Assert.assertEquals(new SimpleString("diverted"), decodedCopy.getAddress());
+      Assert.assertEquals(new SimpleString("diverted"), decodedCopy.getSimpleStringProperty(new SimpleString("prop")));
+      Assert.assertArrayEquals(body, readBody(decodedCopy));
+
+      ServerMessage decoded = encodeDecode(msg);
+      Assert.assertEquals(1, decoded.getMessageID());
+      Assert.assertEquals(new SimpleString("original"), decoded.getAddress());
+      Assert.assertEquals(new SimpleString("original"), decoded.getSimpleStringProperty(new SimpleString("prop")));
+      Assert.assertArrayEquals(body, readBody(decoded));
+
+      // a change to the body of the copy doesn't change the original
+      byte[] otherBody = RandomUtil.randomBytes(1000);
+      copy.getBodyBuffer().clear();
+      copy.getBodyBuffer().writeBytes(otherBody);
+      Assert.assertArrayEquals(otherBody, readBody(copy));
+
+      decoded = encodeDecode(msg);
+      Assert.assertEquals(new SimpleString("original"), decoded.getAddress());
+      Assert.assertArrayEquals(body, readBody(decoded));
+   }
+
+   @Test
+   public void testDeliverWithoutUsingMessageBuffer() throws Exception
+   {
+      byte[] body = RandomUtil.randomBytes(1000);
+
+      ServerMessageImpl msg = new ServerMessageImpl(1, 1500);
+      msg.setAddress(new SimpleString("original"));
+      msg.putStringProperty(new SimpleString("prop"), new SimpleString("original"));
+      msg.getBodyBuffer().writeBytes(body);
+
+      Message delivered = deliver(msg);
+      Assert.assertEquals(1, delivered.getMessageID());
+      Assert.assertEquals(new SimpleString("original"), delivered.getAddress());
+      Assert.assertEquals(new SimpleString("original"), delivered.getSimpleStringProperty(new SimpleString("prop")));
+      Assert.assertArrayEquals(body, readBody(delivered));
+
+      // the copy still shares the buffer after the delivery and its changed headers are encoded after the body
+      ServerMessage copy = msg.copy(2);
+      copy.setAddress(new SimpleString("diverted"));
+      copy.putStringProperty(new SimpleString("prop"), new SimpleString("diverted"));
+
+      delivered = deliver(copy);
+      Assert.assertEquals(2, delivered.getMessageID());
+      Assert.assertEquals(new SimpleString("diverted"), delivered.getAddress());
+      Assert.assertEquals(new SimpleString("diverted"), delivered.getSimpleStringProperty(new SimpleString("prop")));
+      Assert.assertArrayEquals(body, readBody(delivered));
+
+      // a change made after a delivery is only seen by the next one
+      msg.putStringProperty(new SimpleString("prop"), new SimpleString("changed"));
+
+      delivered = deliver(msg);
+      Assert.assertEquals(new SimpleString("changed"), delivered.getSimpleStringProperty(new SimpleString("prop")));
+      Assert.assertArrayEquals(body, readBody(delivered));
+   }
+
+   private static Message deliver(final ServerMessage message)
+   {
+      RemotingConnection connection = new RemotingConnectionImpl(ClientPacketDecoder.INSTANCE,
+                                                                 new InVMConnection(0, null, null, null),
+                                                                 -1,
+                                                                 -1,
+                                                                 null,
+                                                                 null);
+
+      SessionReceiveMessage packet = new SessionReceiveMessage(10, message, 3);
+      ActiveMQBuffer buffer = packet.encode(connection);
+      Assert.assertEquals(packet.getPacketSize(), buffer.writerIndex());
+
+      // as the transport does
+      Assert.assertEquals(buffer.writerIndex() - 4, buffer.readInt());
+      Assert.assertEquals(PacketImpl.SESS_RECEIVE_MSG, buffer.readByte());
+
+      SessionReceiveMessage received = new SessionReceiveMessage(new ClientMessageImpl());
+      received.decode(buffer);
+      Assert.assertEquals(10, received.getConsumerID());
+      Assert.assertEquals(3, received.getDeliveryCount());
+      return received.getMessage();
+   }
+
+   private static ServerMessage encodeDecode(final ServerMessage message)
+   {
+      ActiveMQBuffer buffer = ActiveMQBuffers.dynamicBuffer(message.getEncodeSize());
+      message.encode(buffer);
+      Assert.assertEquals(message.getEncodeSize(), buffer.writerIndex());
+
+      ServerMessage decoded = new ServerMessageImpl(message.getMessageID(), 50);
+      decoded.decode(buffer);
+      return decoded;
+   }
+
+   private static byte[] readBody(final Message message)
+   {
+      ActiveMQBuffer bodyBuffer = message.getBodyBufferCopy();
+      bodyBuffer.readerIndex(0);
+      byte[] bytes = new byte[bodyBuffer.readableBytes()];
+      bodyBuffer.readBytes(bytes);
+      return bytes;
+   }
+
    private void internalMessageCopy() throws Exception
    {
       final long RUNS = 2;
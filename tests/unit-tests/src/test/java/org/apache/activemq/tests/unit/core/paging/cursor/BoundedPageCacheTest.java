@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.unit.core.paging.cursor;
+
+import org.apache.activemq.core.paging.PagedMessage;
+import org.apache.activemq.core.paging.cursor.BoundedPageCache;
+import org.apache.activemq.core.paging.cursor.PageCache;
+import org.apache.activemq.core.paging.cursor.impl.PageCursorProviderImpl;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedPageCacheTest extends UnitTestCase
+{
+   @Test
+   public void testEvictLeastRecentlyUsed() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(1000);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      FakePageCache page1 = new FakePageCache(1, 300);
+      FakePageCache page2 = new FakePageCache(2, 300);
+      FakePageCache page3 = new FakePageCache(3, 300);
+      provider.addPageCache(page1);
+      provider.addPageCache(page2);
+      provider.addPageCache(page3);
+
+      Assert.assertEquals(900, boundedCache.getSize());
+      Assert.assertEquals(3, provider.getCacheSize());
+
+      provider.addPageCache(new FakePageCache(4, 300));
+
+      Assert.assertEquals(900, boundedCache.getSize());
+      Assert.assertEquals(3, provider.getCacheSize());
+      Assert.assertEquals(1, provider.getCacheEvictionCount());
+      Assert.assertTrue(boundedCache.contains(page2));
+      Assert.assertFalse(boundedCache.contains(page1));
+   }
+
+   @Test
+   public void testProtectPagesUsedAgain() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(1000);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      FakePageCache page1 = new FakePageCache(1, 300);
+      FakePageCache page2 = new FakePageCache(2, 300);
+      FakePageCache page3 = new FakePageCache(3, 300);
+      provider.addPageCache(page1);
+      provider.addPageCache(page2);
+      provider.addPageCache(page3);
+
+      // page1 is the oldest, but it was used again
+      boundedCache.used(page1);
+
+      provider.addPageCache(new FakePageCache(4, 300));
+
+      Assert.assertTrue(boundedCache.contains(page1));
+      Assert.assertFalse(boundedCache.contains(page2));
+      Assert.assertTrue(boundedCache.contains(page3));
+   }
+
+   @Test
+   public void testProtectedRecencyAppliedOnEviction() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(1000);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      FakePageCache page1 = new FakePageCache(1, 300);
+      FakePageCache page2 = new FakePageCache(2, 300);
+      FakePageCache page3 = new FakePageCache(3, 300);
+      provider.addPageCache(page1);
+      provider.addPageCache(page2);
+      provider.addPageCache(page3);
+
+      boundedCache.used(page1);
+      boundedCache.used(page2);
+
+      // page1 and page2 are protected, page3 is evicted
+      FakePageCache page4 = new FakePageCache(4, 300);
+      provider.addPageCache(page4);
+
+      Assert.assertFalse(boundedCache.contains(page3));
+
+      // page1 becomes the most recently used protected page once the budget is enforced again
+      boundedCache.used(page1);
+
+      boundedCache.setMaxSize(300);
+
+      Assert.assertTrue(boundedCache.contains(page1));
+      Assert.assertFalse(boundedCache.contains(page2));
+      Assert.assertFalse(boundedCache.contains(page4));
+      Assert.assertEquals(300, boundedCache.getSize());
+   }
+
+   @Test
+   public void testLivePagesAreNotEvicted() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(500);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      FakePageCache live = new FakePageCache(1, 600);
+      live.live = true;
+      provider.addPageCache(live);
+
+      FakePageCache page2 = new FakePageCache(2, 100);
+      provider.addPageCache(page2);
+
+      Assert.assertTrue(boundedCache.contains(live));
+      Assert.assertFalse(boundedCache.contains(page2));
+      Assert.assertEquals(600, boundedCache.getSize());
+   }
+
+   @Test
+   public void testSizeRefreshedOnUse() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(1000);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      FakePageCache page1 = new FakePageCache(1, 100);
+      FakePageCache page2 = new FakePageCache(2, 100);
+      provider.addPageCache(page1);
+      provider.addPageCache(page2);
+
+      // more messages of page2 were read
+      page2.memorySize = 950;
+      boundedCache.used(page2);
+
+      Assert.assertFalse(boundedCache.contains(page1));
+      Assert.assertTrue(boundedCache.contains(page2));
+      Assert.assertEquals(950, boundedCache.getSize());
+   }
+
+   @Test
+   public void testShrinkBudget() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(1000);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 100, boundedCache);
+
+      for (int i = 1; i <= 5; i++)
+      {
+         provider.addPageCache(new FakePageCache(i, 200));
+      }
+
+      Assert.assertEquals(5, provider.getCacheSize());
+
+      boundedCache.setMaxSize(400);
+
+      Assert.assertEquals(2, provider.getCacheSize());
+      Assert.assertEquals(2, boundedCache.getNumberOfCaches());
+      Assert.assertEquals(3, provider.getCacheEvictionCount());
+   }
+
+   @Test
+   public void testCacheCountPerAddress() throws Exception
+   {
+      BoundedPageCache boundedCache = new BoundedPageCache(Long.MAX_VALUE);
+      PageCursorProviderImpl provider = new PageCursorProviderImpl(null, null, null, 2, boundedCache);
+
+      for (int i = 1; i <= 5; i++)
+      {
+         provider.addPageCache(new FakePageCache(i, 200));
+      }
+
+      Assert.assertEquals(2, provider.getCacheSize());
+      Assert.assertEquals(2, boundedCache.getNumberOfCaches());
+      Assert.assertEquals(400, boundedCache.getSize());
+   }
+
+   private static final class FakePageCache implements PageCache
+   {
+      final long pageId;
+
+      long memorySize;
+
+      boolean live;
+
+      FakePageCache(final long pageId, final long memorySize)
+      {
+         this.pageId = pageId;
+         this.memorySize = memorySize;
+      }
+
+      public long getPageId()
+      {
+         return pageId;
+      }
+
+      public int getNumberOfMessages()
+      {
+         return 0;
+      }
+
+      public void setMessages(final PagedMessage[] messages)
+      {
+      }
+
+      public PagedMessage[] getMessages()
+      {
+         return new PagedMessage[0];
+      }
+
+      public long getMemorySize()
+      {
+         return memorySize;
+      }
+
+      public boolean isLive()
+      {
+         return live;
+      }
+
+      public PagedMessage getMessage(final int messageNumber)
+      {
+         return null;
+      }
+
+      public void lock()
+      {
+      }
+
+      public void unlock()
+      {
+      }
+
+      public void close()
+      {
+      }
+   }
+}
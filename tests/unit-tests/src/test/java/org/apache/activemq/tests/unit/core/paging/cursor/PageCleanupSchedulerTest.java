@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.unit.core.paging.cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.activemq.core.paging.cursor.PageCleanupScheduler;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PageCleanupSchedulerTest extends UnitTestCase
+{
+   private final List<ExecutorService> executors = new ArrayList<ExecutorService>();
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      for (ExecutorService executor : executors)
+      {
+         executor.shutdownNow();
+         executor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+      super.tearDown();
+   }
+
+   @Test
+   public void testBoundedConcurrency() throws Exception
+   {
+      final int addresses = 5;
+
+      PageCleanupScheduler scheduler = new PageCleanupScheduler(2);
+
+      final CountDownLatch release = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(addresses);
+      final AtomicInteger running = new AtomicInteger(0);
+      final AtomicInteger maxRunning = new AtomicInteger(0);
+
+      for (int i = 0; i < addresses; i++)
+      {
+         ExecutorService executor = Executors.newSingleThreadExecutor();
+         executors.add(executor);
+
+         scheduler.schedule(executor, new Runnable()
+         {
+            public void run()
+            {
+               int current = running.incrementAndGet();
+               while (true)
+               {
+                  int max = maxRunning.get();
+                  if (current <= max || maxRunning.compareAndSet(max, current))
+                  {
+                     break;
+                  }
+               }
+
+               try
+               {
+                  release.await(10, TimeUnit.SECONDS);
+               }
+               catch (InterruptedException e)
+               {
+                  Thread.currentThread().interrupt();
+               }
+
+               running.decrementAndGet();
+               done.countDown();
+            }
+         });
+      }
+
+      Assert.assertEquals(2, scheduler.getRunningCleanups());
+      Assert.assertEquals(addresses - 2, scheduler.getPendingCleanups());
+
+      release.countDown();
+
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(2, maxRunning.get());
+
+      long timeout = System.currentTimeMillis() + 5000;
+      while (scheduler.getRunningCleanups() > 0 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      Assert.assertEquals(0, scheduler.getRunningCleanups());
+      Assert.assertEquals(0, scheduler.getPendingCleanups());
+   }
+
+   @Test
+   public void testRejectedCleanupReleasesItsTurn() throws Exception
+   {
+      PageCleanupScheduler scheduler = new PageCleanupScheduler(1);
+
+      ExecutorService stopped = Executors.newSingleThreadExecutor();
+      stopped.shutdown();
+
+      scheduler.schedule(stopped, new Runnable()
+      {
+         public void run()
+         {
+         }
+      });
+
+      Assert.assertEquals(0, scheduler.getRunningCleanups());
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      executors.add(executor);
+
+      final CountDownLatch done = new CountDownLatch(1);
+      scheduler.schedule(executor, new Runnable()
+      {
+         public void run()
+         {
+            done.countDown();
+         }
+      });
+
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+   }
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -263,6 +264,101 @@ public class PagingStoreImplTest extends UnitTestCase
 
    }
 
+   @Test
+   public void testReadMessagesByIndex() throws Exception
+   {
+      testReadMessagesByIndex(new FakeSequentialFileFactory());
+   }
+
+   @Test
+   public void testReadMappedMessagesByIndex() throws Exception
+   {
+      UnitTestCase.recreateDirectory(getTestDir());
+      testReadMessagesByIndex(new NIOSequentialFileFactory(getTestDir()));
+   }
+
+   private void testReadMessagesByIndex(final SequentialFileFactory factory) throws Exception
+   {
+      SimpleString destination = new SimpleString("test");
+
+      PagingStoreFactory storeFactory = new FakeStoreFactory(factory);
+
+      AddressSettings addressSettings = new AddressSettings();
+      addressSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      PagingStoreImpl storeImpl =
+         new PagingStoreImpl(PagingStoreImplTest.destinationTestName, null, 100, createMockManager(),
+                             createStorageManagerMock(), factory, storeFactory,
+                             PagingStoreImplTest.destinationTestName, addressSettings,
+                             getExecutorFactory().getExecutor(), true);
+
+      storeImpl.start();
+
+      storeImpl.startPaging();
+
+      int numMessages = 20;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         // messages of different sizes
+         ActiveMQBuffer buffer = createRandomBuffer(i + 1L, 10 + i * 7);
+
+         ServerMessage msg = createMessage(i, storeImpl, destination, buffer);
+         final RoutingContextImpl ctx = new RoutingContextImpl(null);
+         Assert.assertTrue(storeImpl.page(msg, ctx.getTransaction(), ctx.getContextListing(storeImpl.getStoreName()),
+                                          lock));
+      }
+
+      storeImpl.sync();
+
+      Page page = storeImpl.depage();
+
+      page.open();
+
+      int[] index = page.readIndex(new NullStorageManager());
+
+      Assert.assertEquals(numMessages + 1, index.length);
+      Assert.assertEquals(0, index[0]);
+      Assert.assertEquals(numMessages, page.getNumberOfMessages());
+
+      List<PagedMessage> all = page.read(new NullStorageManager());
+
+      List<PagedMessage> range = page.read(new NullStorageManager(), index, 5, 10);
+
+      Assert.assertEquals(10, range.size());
+
+      for (int i = 0; i < range.size(); i++)
+      {
+         Assert.assertEquals(all.get(5 + i).getMessage().getMessageID(), range.get(i).getMessage().getMessageID());
+         Assert.assertEquals(5L + i, range.get(i).getMessage().getMessageID());
+      }
+
+      List<PagedMessage> last = page.read(new NullStorageManager(), index, numMessages - 1, 1);
+
+      Assert.assertEquals(1, last.size());
+      Assert.assertEquals(numMessages - 1, last.get(0).getMessage().getMessageID());
+
+      page.close();
+
+      // the messages read don't depend on the page file once it's closed
+      for (int i = 0; i < range.size(); i++)
+      {
+         ActiveMQBuffer body = range.get(i).getMessage().getBodyBuffer();
+         Assert.assertEquals(6L + i, body.readLong());
+         body.resetReaderIndex();
+      }
+
+      page.open();
+
+      List<PagedMessage> reopened = page.read(new NullStorageManager(), index, 0, numMessages);
+
+      Assert.assertEquals(numMessages, reopened.size());
+      Assert.assertEquals(numMessages - 1, reopened.get(numMessages - 1).getMessage().getMessageID());
+
+      page.close();
+
+      storeImpl.stop();
+   }
+
    @Test
    public void testDepageMultiplePages() throws Exception
    {
@@ -650,6 +746,121 @@ public class PagingStoreImplTest extends UnitTestCase
       Assert.assertEquals(0, storeImpl.getAddressSize());
    }
 
+   @Test
+   public void testGlobalMemoryShare() throws Exception
+   {
+      SequentialFileFactory factory = new FakeSequentialFileFactory();
+
+      PagingManager manager = new FakePagingManager(1000);
+
+      AddressSettings settingsA = new AddressSettings();
+      settingsA.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      settingsA.setMemoryShareWeight(3);
+
+      AddressSettings settingsB = new AddressSettings();
+      settingsB.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      settingsB.setMinSizeBytes(500);
+
+      PagingStore storeA =
+         new PagingStoreImpl(new SimpleString("a"), null, 100, manager, createStorageManagerMock(), factory,
+                             new FakeStoreFactory(factory), new SimpleString("a"), settingsA,
+                             getExecutorFactory().getExecutor(), true);
+
+      PagingStore storeB =
+         new PagingStoreImpl(new SimpleString("b"), null, 100, manager, createStorageManagerMock(), factory,
+                             new FakeStoreFactory(factory), new SimpleString("b"), settingsB,
+                             getExecutorFactory().getExecutor(), true);
+
+      storeA.start();
+      storeB.start();
+
+      // within the global budget, no matter the shares
+      storeA.addSize(600);
+      storeB.addSize(300);
+
+      Assert.assertEquals(750, storeA.getMemoryShare());
+      Assert.assertEquals(250, storeB.getMemoryShare());
+      Assert.assertFalse(storeA.isPaging());
+      Assert.assertFalse(storeB.isPaging());
+
+      // over the budget, only the address over its share pages
+      storeA.addSize(200);
+
+      Assert.assertTrue(storeA.isPaging());
+      Assert.assertFalse(storeB.isPaging());
+      Assert.assertEquals(1, storeA.getPagingStartCount());
+
+      // b is over its share but within its minimum size
+      storeB.addSize(100);
+
+      Assert.assertFalse(storeB.isPaging());
+      Assert.assertEquals(0, storeB.getPagingStartCount());
+
+      storeA.stopPaging();
+
+      Assert.assertEquals(1, storeA.getPagingStopCount());
+
+      storeA.stop();
+      storeB.stop();
+   }
+
+   @Test
+   public void testGlobalMemoryShareBlocks() throws Exception
+   {
+      SequentialFileFactory factory = new FakeSequentialFileFactory();
+
+      PagingManager manager = new FakePagingManager(1000);
+
+      AddressSettings settings = new AddressSettings();
+      settings.setAddressFullMessagePolicy(AddressFullMessagePolicy.BLOCK);
+
+      PagingStore storeA =
+         new PagingStoreImpl(new SimpleString("a"), null, 100, manager, createStorageManagerMock(), factory,
+                             new FakeStoreFactory(factory), new SimpleString("a"), settings,
+                             getExecutorFactory().getExecutor(), true);
+
+      PagingStore storeB =
+         new PagingStoreImpl(new SimpleString("b"), null, 100, manager, createStorageManagerMock(), factory,
+                             new FakeStoreFactory(factory), new SimpleString("b"), settings,
+                             getExecutorFactory().getExecutor(), true);
+
+      storeA.start();
+      storeB.start();
+
+      storeA.addSize(900);
+      storeB.addSize(200);
+
+      final CountDownLatch releasedA = new CountDownLatch(1);
+      final CountDownLatch releasedB = new CountDownLatch(1);
+
+      Assert.assertTrue(storeA.checkMemory(new Runnable()
+      {
+         public void run()
+         {
+            releasedA.countDown();
+         }
+      }));
+
+      Assert.assertTrue(storeB.checkMemory(new Runnable()
+      {
+         public void run()
+         {
+            releasedB.countDown();
+         }
+      }));
+
+      // b is within its share, a has to wait for the global budget
+      Assert.assertEquals(0, releasedB.getCount());
+      Assert.assertEquals(1, releasedA.getCount());
+
+      storeB.addSize(-200);
+
+      Assert.assertTrue(releasedA.await(10, TimeUnit.SECONDS));
+
+      storeA.stop();
+      storeB.stop();
+   }
+
    @Test
    public void testRestartPage() throws Throwable
    {
@@ -83,6 +83,46 @@ public class BindingsImplTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testRouteEvaluatesSameFilterOnce() throws Exception
+   {
+      CountingFilter red1 = new CountingFilter("color = 'red'", true);
+      CountingFilter red2 = new CountingFilter("color = 'red'", true);
+      CountingFilter blue = new CountingFilter("color = 'blue'", false);
+
+      FakeBinding all = new FakeBinding(new SimpleString("all"), 1, null);
+      FakeBinding redSub1 = new FakeBinding(new SimpleString("red1"), 2, red1);
+      FakeBinding redSub2 = new FakeBinding(new SimpleString("red2"), 3, red2);
+      FakeBinding blueSub = new FakeBinding(new SimpleString("blue"), 4, blue);
+
+      Bindings bind = new BindingsImpl(null, null, null);
+      bind.addBinding(all);
+      bind.addBinding(redSub1);
+      bind.addBinding(redSub2);
+      bind.addBinding(blueSub);
+
+      bind.route(new ServerMessageImpl(1, 100), new RoutingContextImpl(new FakeTransaction()));
+
+      assertEquals(1, all.routed);
+      assertEquals(1, redSub1.routed);
+      assertEquals(1, redSub2.routed);
+      assertEquals(0, blueSub.routed);
+      assertEquals(1, red1.evaluations + red2.evaluations);
+      assertEquals(1, blue.evaluations);
+
+      // the cached plan must follow the bindings
+      bind.removeBinding(redSub2);
+      FakeBinding late = new FakeBinding(new SimpleString("late"), 5, null);
+      bind.addBinding(late);
+
+      bind.route(new ServerMessageImpl(2, 100), new RoutingContextImpl(new FakeTransaction()));
+
+      assertEquals(2, all.routed);
+      assertEquals(2, redSub1.routed);
+      assertEquals(1, redSub2.routed);
+      assertEquals(1, late.routed);
+   }
+
    private void internalTest(final boolean route) throws Exception
    {
       final FakeBinding fake = new FakeBinding(new SimpleString("a"));
@@ -288,6 +328,32 @@ public class BindingsImplTest extends UnitTestCase
 
    }
 
+   private static final class CountingFilter implements Filter
+   {
+      private final SimpleString filterString;
+
+      private final boolean match;
+
+      int evaluations;
+
+      CountingFilter(final String filterString, final boolean match)
+      {
+         this.filterString = new SimpleString(filterString);
+         this.match = match;
+      }
+
+      public SimpleString getFilterString()
+      {
+         return filterString;
+      }
+
+      public boolean match(final ServerMessage message)
+      {
+         evaluations++;
+         return match;
+      }
+   }
+
    private final class FakeBinding implements Binding
    {
 
@@ -305,9 +371,22 @@ public class BindingsImplTest extends UnitTestCase
 
       final SimpleString name;
 
+      final long id;
+
+      final Filter filter;
+
+      int routed;
+
       FakeBinding(final SimpleString name)
+      {
+         this(name, 0, new FakeFilter());
+      }
+
+      FakeBinding(final SimpleString name, final long id, final Filter filter)
       {
          this.name = name;
+         this.id = id;
+         this.filter = filter;
       }
 
       public SimpleString getAddress()
@@ -346,12 +425,12 @@ public class BindingsImplTest extends UnitTestCase
        */
       public Filter getFilter()
       {
-         return new FakeFilter();
+         return filter;
       }
 
       public long getID()
       {
-         return 0;
+         return id;
       }
 
       /* (non-Javadoc)
@@ -391,7 +470,7 @@ public class BindingsImplTest extends UnitTestCase
 
       public void route(final ServerMessage message, final RoutingContext context) throws Exception
       {
-
+         routed++;
       }
 
       /* (non-Javadoc)
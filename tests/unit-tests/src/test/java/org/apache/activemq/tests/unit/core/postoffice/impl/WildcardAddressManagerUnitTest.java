@@ -78,6 +78,26 @@ public class WildcardAddressManagerUnitTest extends UnitTestCase
       assertEquals("Exception happened during the process", 0, errors);
    }
 
+   @Test
+   public void testWildcardBindingsAreLinked() throws Exception
+   {
+      WildcardAddressManager ad = new WildcardAddressManager(new BindingFactoryFake());
+      ad.addBinding(new BindingFake("sensors.eu.*.temperature", "one"));
+      ad.addBinding(new BindingFake("sensors.#", "two"));
+      ad.addBinding(new BindingFake("sensors.eu.device1.temperature", "three"));
+
+      assertEquals(3, ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("sensors.eu.device1.temperature")).getBindings().size());
+
+      // created on demand when routing to an address without bindings of its own
+      assertEquals(2, ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("sensors.eu.device2.temperature")).getBindings().size());
+      assertEquals(1, ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("sensors.us.device1.temperature")).getBindings().size());
+
+      ad.removeBinding(SimpleString.toSimpleString("two"), null);
+
+      assertEquals(2, ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("sensors.eu.device1.temperature")).getBindings().size());
+      assertNull(ad.getBindingsForRoutingAddress(SimpleString.toSimpleString("sensors.us.device2.temperature")));
+   }
+
    class BindingFactoryFake implements BindingsFactory
    {
       public Bindings createBindings(SimpleString address) throws Exception
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.unit.core.remoting.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.activemq.api.core.ActiveMQBuffer;
+import org.apache.activemq.api.core.Interceptor;
+import org.apache.activemq.core.protocol.ServerPacketDecoder;
+import org.apache.activemq.core.protocol.core.ChannelHandler;
+import org.apache.activemq.core.protocol.core.Packet;
+import org.apache.activemq.core.protocol.core.impl.RemotingConnectionImpl;
+import org.apache.activemq.core.protocol.core.impl.wireformat.SessionAcknowledgeMessage;
+import org.apache.activemq.core.protocol.core.impl.wireformat.SessionConsumerFlowCreditMessage;
+import org.apache.activemq.core.remoting.impl.invm.InVMConnection;
+import org.apache.activemq.spi.core.protocol.RemotingConnection;
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+public class RemotingConnectionImplTest extends UnitTestCase
+{
+   private static final long CHANNEL_ID = 100;
+
+   @Test
+   public void testReuseAcknowledgeAndFlowCreditPackets() throws Exception
+   {
+      RemotingConnectionImpl connection = createConnection(Collections.<Interceptor>emptyList());
+
+      RecordingHandler handler = new RecordingHandler();
+      connection.getChannel(CHANNEL_ID, -1).setHandler(handler);
+
+      receive(connection, new SessionAcknowledgeMessage(1, 10, false));
+      receive(connection, new SessionConsumerFlowCreditMessage(2, 100));
+      receive(connection, new SessionAcknowledgeMessage(3, 30, true));
+      receive(connection, new SessionConsumerFlowCreditMessage(4, 400));
+
+      assertEquals(4, handler.packets.size());
+      assertSame(handler.packets.get(0), handler.packets.get(2));
+      assertSame(handler.packets.get(1), handler.packets.get(3));
+
+      assertEquals("ack 1 10 false", handler.handled.get(0));
+      assertEquals("credits 2 100", handler.handled.get(1));
+      assertEquals("ack 3 30 true", handler.handled.get(2));
+      assertEquals("credits 4 400", handler.handled.get(3));
+
+      SessionAcknowledgeMessage expected = new SessionAcknowledgeMessage(3, 30, true);
+      expected.setChannelID(CHANNEL_ID);
+      expected.encode(connection);
+      assertEquals(expected.getPacketSize(), handler.packets.get(2).getPacketSize());
+      assertEquals(CHANNEL_ID, handler.packets.get(2).getChannelID());
+   }
+
+   @Test
+   public void testDoNotReusePacketsSeenByInterceptors() throws Exception
+   {
+      final List<Packet> intercepted = new ArrayList<Packet>();
+
+      Interceptor interceptor = new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection)
+         {
+            intercepted.add(packet);
+            return true;
+         }
+      };
+
+      RemotingConnectionImpl connection = createConnection(Collections.singletonList(interceptor));
+
+      RecordingHandler handler = new RecordingHandler();
+      connection.getChannel(CHANNEL_ID, -1).setHandler(handler);
+
+      receive(connection, new SessionAcknowledgeMessage(1, 10, false));
+      receive(connection, new SessionAcknowledgeMessage(3, 30, true));
+
+      assertEquals(2, intercepted.size());
+      assertNotSame(intercepted.get(0), intercepted.get(1));
+      assertEquals(1, ((SessionAcknowledgeMessage)intercepted.get(0)).getConsumerID());
+      assertEquals(3, ((SessionAcknowledgeMessage)intercepted.get(1)).getConsumerID());
+   }
+
+   private RemotingConnectionImpl createConnection(final List<Interceptor> incomingInterceptors)
+   {
+      Executor executor = new Executor()
+      {
+         public void execute(final Runnable command)
+         {
+            command.run();
+         }
+      };
+
+      InVMConnection transportConnection = new InVMConnection(0, null, null, executor);
+
+      return new RemotingConnectionImpl(ServerPacketDecoder.INSTANCE,
+                                        transportConnection,
+                                        -1,
+                                        -1,
+                                        incomingInterceptors,
+                                        Collections.<Interceptor>emptyList());
+   }
+
+   private void receive(final RemotingConnectionImpl connection, final Packet packet)
+   {
+      packet.setChannelID(CHANNEL_ID);
+
+      ActiveMQBuffer buffer = packet.encode(connection);
+
+      // the length is read by the transport
+      buffer.readInt();
+
+      connection.bufferReceived(connection.getID(), buffer);
+   }
+
+   private static final class RecordingHandler implements ChannelHandler
+   {
+      final List<Packet> packets = new ArrayList<Packet>();
+
+      final List<String> handled = new ArrayList<String>();
+
+      public void handlePacket(final Packet packet)
+      {
+         packets.add(packet);
+
+         if (packet instanceof SessionAcknowledgeMessage)
+         {
+            SessionAcknowledgeMessage ack = (SessionAcknowledgeMessage)packet;
+            handled.add("ack " + ack.getConsumerID() + " " + ack.getMessageID() + " " + ack.isRequiresResponse());
+         }
+         else
+         {
+            SessionConsumerFlowCreditMessage credits = (SessionConsumerFlowCreditMessage)packet;
+            handled.add("credits " + credits.getConsumerID() + " " + credits.getCredits());
+         }
+      }
+   }
+}
@@ -17,14 +17,18 @@
 package org.apache.activemq.tests.unit.core.server.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.activemq.api.core.Message;
 import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.api.core.client.ClientMessage;
 import org.apache.activemq.api.core.client.ClientProducer;
@@ -1283,6 +1287,244 @@ public class QueueImplTest extends UnitTestCase
       Assert.assertEquals(0, getMessagesAdded(queue));
    }
 
+   @Test
+   public void testConcurrentAddTail() throws Exception
+   {
+      final QueueImpl queue = getTemporaryQueue();
+
+      final int numberOfProducers = 10;
+
+      final int messagesPerProducer = 50;
+
+      final CountDownLatch start = new CountDownLatch(1);
+
+      final CountDownLatch done = new CountDownLatch(numberOfProducers);
+
+      final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+
+      for (int i = 0; i < numberOfProducers; i++)
+      {
+         final int producer = i;
+         Thread t = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  for (int j = 0; j < messagesPerProducer; j++)
+                  {
+                     queue.addTail(generateReference(queue, producer * messagesPerProducer + j));
+                  }
+               }
+               catch (Exception e)
+               {
+                  errors.add(e);
+               }
+               finally
+               {
+                  done.countDown();
+               }
+            }
+         };
+         t.start();
+      }
+
+      start.countDown();
+
+      Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+
+      Assert.assertTrue("producers failed: " + errors, errors.isEmpty());
+
+      Assert.assertEquals(numberOfProducers * messagesPerProducer, getMessagesAdded(queue));
+      Assert.assertEquals(numberOfProducers * messagesPerProducer, getMessageCount(queue));
+   }
+
+   @Test
+   public void testDispatchLanes() throws Exception
+   {
+      ExecutorService laneExecutor1 = Executors.newSingleThreadExecutor();
+      ExecutorService laneExecutor2 = Executors.newSingleThreadExecutor();
+
+      try
+      {
+         QueueImpl queue = getTemporaryQueue();
+
+         queue.setDispatchExecutors(new Executor[]{laneExecutor1, laneExecutor2});
+
+         Assert.assertEquals(2, queue.getDispatchLanes());
+
+         FakeConsumer[] consumers = new FakeConsumer[4];
+
+         for (int i = 0; i < consumers.length; i++)
+         {
+            consumers[i] = new FakeConsumer();
+            queue.addConsumer(consumers[i]);
+         }
+
+         final int numMessages = 100;
+
+         final SimpleString groupID = new SimpleString("group1");
+
+         for (int i = 0; i < numMessages; i++)
+         {
+            MessageReference ref = generateReference(queue, i);
+
+            if (i % 2 == 0)
+            {
+               ref.getMessage().putStringProperty(Message.HDR_GROUP_ID, groupID);
+            }
+
+            queue.addTail(ref);
+         }
+
+         long timeout = System.currentTimeMillis() + 5000;
+
+         int delivered;
+
+         do
+         {
+            // a lane may reschedule the lane owning a group after its executor was flushed
+            queue.deliverNow();
+
+            delivered = 0;
+
+            for (FakeConsumer consumer : consumers)
+            {
+               delivered += consumer.getReferences().size();
+            }
+         }
+         while (delivered < numMessages && System.currentTimeMillis() < timeout);
+
+         FakeConsumer groupConsumer = null;
+
+         for (FakeConsumer consumer : consumers)
+         {
+            for (MessageReference ref : consumer.getReferences())
+            {
+               if (groupID.equals(ref.getMessage().getSimpleStringProperty(Message.HDR_GROUP_ID)))
+               {
+                  if (groupConsumer == null)
+                  {
+                     groupConsumer = consumer;
+                  }
+                  Assert.assertSame(groupConsumer, consumer);
+               }
+            }
+         }
+
+         Assert.assertEquals(numMessages, delivered);
+         Assert.assertEquals(numMessages, queue.getDeliveringCount());
+      }
+      finally
+      {
+         laneExecutor1.shutdownNow();
+         laneExecutor2.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testCompactReferences() throws Exception
+   {
+      QueueImpl queue = getTemporaryQueue();
+
+      queue.setCompactReferences(true);
+
+      Assert.assertTrue(queue.isCompactReferences());
+
+      final int numMessages = 10;
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         ref.getMessage().setPriority((byte) i);
+
+         // a reference with a delivery count is kept as it is
+         if (i == 0)
+         {
+            ref.setDeliveryCount(3);
+         }
+
+         messages.add(ref.getMessage());
+
+         queue.addTail(ref);
+      }
+
+      queue.deliverNow();
+
+      Assert.assertEquals(numMessages, getMessageCount(queue));
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      queue.addConsumer(consumer);
+
+      queue.deliverNow();
+
+      List<MessageReference> receivedRefs = consumer.getReferences();
+
+      Assert.assertEquals(numMessages, receivedRefs.size());
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = receivedRefs.get(numMessages - 1 - i);
+
+         Assert.assertSame(messages.get(i), ref.getMessage());
+         Assert.assertSame(queue, ref.getQueue());
+         Assert.assertEquals(i == 0 ? 3 : 0, ref.getDeliveryCount());
+      }
+
+      // cancelled references come back with their delivery count
+      queue.removeConsumer(consumer);
+
+      List<MessageReference> cancelled = new ArrayList<MessageReference>(receivedRefs);
+
+      consumer.clearReferences();
+
+      for (MessageReference ref : cancelled)
+      {
+         ref.incrementDeliveryCount();
+      }
+
+      queue.addHead(cancelled);
+
+      queue.addConsumer(consumer);
+
+      queue.deliverNow();
+
+      Assert.assertEquals(numMessages, consumer.getReferences().size());
+
+      for (MessageReference ref : consumer.getReferences())
+      {
+         Assert.assertEquals(ref.getMessage().getPriority() == 0 ? 4 : 1, ref.getDeliveryCount());
+      }
+   }
+
+   @Test
+   public void testCompactReferencesMustBeSetFirst() throws Exception
+   {
+      QueueImpl queue = getTemporaryQueue();
+
+      queue.addTail(generateReference(queue, 1));
+
+      queue.deliverNow();
+
+      try
+      {
+         queue.setCompactReferences(true);
+         Assert.fail("Should throw IllegalStateException");
+      }
+      catch (IllegalStateException e)
+      {
+         // OK
+      }
+
+      Assert.assertFalse(queue.isCompactReferences());
+   }
+
    class AddtoQueueRunner implements Runnable
    {
       QueueImpl queue;
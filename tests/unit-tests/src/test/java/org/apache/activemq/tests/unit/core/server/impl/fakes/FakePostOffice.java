@@ -153,6 +153,14 @@ public class FakePostOffice implements PostOffice
       return new MessageReferenceImpl();
    }
 
+   public MessageReference reroute(final ServerMessage message,
+                                   final Queue queue,
+                                   final Transaction tx,
+                                   final int deliveryCount) throws Exception
+   {
+      return reroute(message, queue, tx);
+   }
+
    public void route(final ServerMessage message, final Transaction tx) throws Exception
    {
 
@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.tests.unit.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.apache.activemq.tests.util.UnitTestCase;
+import org.apache.activemq.utils.ChunkedLinkedListImpl;
+import org.apache.activemq.utils.LinkedListIterator;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A ChunkedLinkedListTest
+ */
+public class ChunkedLinkedListTest extends UnitTestCase
+{
+   private static final int NUM = ChunkedLinkedListImpl.CHUNK_SIZE * 3 + 17;
+
+   private ChunkedLinkedListImpl<Integer> list;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      list = new ChunkedLinkedListImpl<Integer>();
+   }
+
+   @Test
+   public void testAddTailAndPollAcrossChunks()
+   {
+      for (int i = 0; i < NUM; i++)
+      {
+         list.addTail(i);
+      }
+
+      assertEquals(NUM, list.size());
+
+      for (int i = 0; i < NUM; i++)
+      {
+         assertEquals(i, list.poll().intValue());
+      }
+
+      assertNull(list.poll());
+      assertEquals(0, list.size());
+   }
+
+   @Test
+   public void testAddHeadAcrossChunks()
+   {
+      for (int i = 0; i < NUM; i++)
+      {
+         list.addHead(i);
+      }
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      for (int i = NUM - 1; i >= 0; i--)
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(i, iter.next().intValue());
+      }
+
+      assertFalse(iter.hasNext());
+      iter.close();
+   }
+
+   @Test
+   public void testIteratorSurvivesRemovalOfItsChunk()
+   {
+      for (int i = 0; i < NUM; i++)
+      {
+         list.addTail(i);
+      }
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      assertEquals(0, iter.next().intValue());
+
+      // Empties the first chunks while the iterator is still on the first one
+      for (int i = 0; i < ChunkedLinkedListImpl.CHUNK_SIZE * 2; i++)
+      {
+         assertEquals(i, list.poll().intValue());
+      }
+
+      for (int i = ChunkedLinkedListImpl.CHUNK_SIZE * 2; i < NUM; i++)
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(i, iter.next().intValue());
+      }
+
+      assertFalse(iter.hasNext());
+   }
+
+   @Test
+   public void testIteratorSeesHeadAfterRemovingLast()
+   {
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      for (int i = 0; i < NUM; i++)
+      {
+         if (i % 2 == 0)
+         {
+            list.addHead(i);
+         }
+         else
+         {
+            list.addTail(i);
+         }
+
+         assertEquals(1, list.size());
+         assertTrue(iter.hasNext());
+         assertEquals(i, iter.next().intValue());
+         iter.remove();
+      }
+
+      assertFalse(iter.hasNext());
+   }
+
+   @Test
+   public void testRemoveTwice()
+   {
+      list.addTail(0);
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      iter.next();
+      iter.remove();
+
+      try
+      {
+         iter.remove();
+         fail("Should throw NoSuchElementException");
+      }
+      catch (NoSuchElementException e)
+      {
+         // OK
+      }
+   }
+
+   @Test
+   public void testClear()
+   {
+      for (int i = 0; i < NUM; i++)
+      {
+         list.addTail(i);
+      }
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      iter.next();
+
+      list.clear();
+
+      assertEquals(0, list.size());
+      assertFalse(iter.hasNext());
+
+      list.addTail(NUM);
+
+      assertTrue(iter.hasNext());
+      assertEquals(NUM, iter.next().intValue());
+   }
+
+   @Test
+   public void testPackedElementKeepsIdentity()
+   {
+      ChunkedLinkedListImpl<StringBuilder> packed = new ChunkedLinkedListImpl<StringBuilder>()
+      {
+         @Override
+         protected Object pack(final StringBuilder e)
+         {
+            return e.toString();
+         }
+
+         @Override
+         protected StringBuilder unpack(final Object value)
+         {
+            return value instanceof String ? new StringBuilder((String) value) : (StringBuilder) value;
+         }
+      };
+
+      packed.addTail(new StringBuilder("a"));
+
+      LinkedListIterator<StringBuilder> iter1 = packed.iterator();
+
+      LinkedListIterator<StringBuilder> iter2 = packed.iterator();
+
+      StringBuilder sb = iter1.next();
+
+      assertEquals("a", sb.toString());
+      assertSame(sb, iter2.next());
+      assertSame(sb, packed.poll());
+   }
+
+   @Test
+   public void testRandomOperations()
+   {
+      Random random = new Random(1234);
+
+      List<Integer> model = new LinkedList<Integer>();
+
+      List<LinkedListIterator<Integer>> iters = new ArrayList<LinkedListIterator<Integer>>();
+
+      for (int i = 0; i < 4; i++)
+      {
+         iters.add(list.iterator());
+      }
+
+      for (int i = 0; i < 100000; i++)
+      {
+         int op = random.nextInt(10);
+
+         if (op < 4)
+         {
+            list.addTail(i);
+            model.add(i);
+         }
+         else if (op < 5)
+         {
+            list.addHead(i);
+            model.add(0, i);
+         }
+         else if (op < 7)
+         {
+            assertEquals(model.isEmpty() ? null : model.remove(0), list.poll());
+         }
+         else
+         {
+            LinkedListIterator<Integer> iter = iters.get(random.nextInt(iters.size()));
+
+            if (iter.hasNext())
+            {
+               Integer value = iter.next();
+
+               assertTrue(model.contains(value));
+
+               if (op == 9)
+               {
+                  iter.remove();
+                  model.remove(value);
+               }
+            }
+         }
+
+         assertEquals(model.size(), list.size());
+      }
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      for (Integer value : model)
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(value, iter.next());
+      }
+
+      assertFalse(iter.hasNext());
+   }
+}
@@ -23,12 +23,31 @@ import org.apache.activemq.api.core.SimpleString;
 import org.apache.activemq.core.paging.PageTransactionInfo;
 import org.apache.activemq.core.paging.PagingManager;
 import org.apache.activemq.core.paging.PagingStore;
+import org.apache.activemq.core.paging.cursor.BoundedPageCache;
+import org.apache.activemq.core.paging.cursor.PageCleanupScheduler;
+import org.apache.activemq.core.paging.impl.GlobalMemoryManager;
 import org.apache.activemq.core.postoffice.PostOffice;
 import org.apache.activemq.core.server.ServerMessage;
 
 public final class FakePagingManager implements PagingManager
 {
 
+   private final BoundedPageCache boundedPageCache = new BoundedPageCache(Long.MAX_VALUE);
+
+   private final PageCleanupScheduler cleanupScheduler = new PageCleanupScheduler(-1);
+
+   private final GlobalMemoryManager globalMemoryManager;
+
+   public FakePagingManager()
+   {
+      this(-1);
+   }
+
+   public FakePagingManager(final long globalMaxSize)
+   {
+      globalMemoryManager = new GlobalMemoryManager(globalMaxSize);
+   }
+
    public void activate()
    {
    }
@@ -195,4 +214,19 @@ public final class FakePagingManager implements PagingManager
       // no-op
    }
 
+
+   public BoundedPageCache getBoundedPageCache()
+   {
+      return boundedPageCache;
+   }
+
+   public PageCleanupScheduler getCleanupScheduler()
+   {
+      return cleanupScheduler;
+   }
+
+   public GlobalMemoryManager getGlobalMemoryManager()
+   {
+      return globalMemoryManager;
+   }
 }